@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterInterface;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.group.buckets.Bucket;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.groups.GroupBuilder;
+
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A flow writer that builds and counts the flows it receives, without
+ * writing them anywhere, so the renderer benchmarks only measure the
+ * creation of the flows.
+ */
+public class SfcOfBenchmarkFlowWriter implements SfcOfFlowWriterInterface {
+
+    private FlowBuilder flowBuilder = null;
+    private Flow lastFlow = null;
+    private long flowCount = 0;
+
+    /**
+     * Get the number of flows written since the last call.
+     *
+     * @return the number of flows
+     */
+    public long getAndResetFlowCount() {
+        long count = flowCount;
+        flowCount = 0;
+        return count;
+    }
+
+    /**
+     * The last flow written, to be consumed by the benchmarks.
+     *
+     * @return the last flow
+     */
+    public Flow getLastFlow() {
+        return lastFlow;
+    }
+
+    @Override
+    public void writeFlow(Long rspId, String sffNodeName, FlowBuilder flow) {
+        flowBuilder = flow;
+        lastFlow = flow.build();
+        flowCount++;
+    }
+
+    @Override
+    public void writeSharedFlow(Long rspId, String sffNodeName, FlowBuilder flow) {
+        flowBuilder = flow;
+        lastFlow = flow.build();
+        flowCount++;
+    }
+
+    @Override
+    public void removeFlow(String sffNodeName, FlowKey flowKey, TableKey tableKey) {
+    }
+
+    @Override
+    public void writeGroupToDataStore(String sffNodeName, GroupBuilder gb, boolean isAdd) {
+    }
+
+    @Override
+    public void writeGroupBucketsToDataStore(String sffNodeName, long groupId, List<Bucket> bucketsToWrite,
+            List<Long> bucketIdsToDelete) {
+    }
+
+    @Override
+    public void deleteRspFlows(Long rspId) {
+    }
+
+    @Override
+    public void updateRspFlows(Long rspId) {
+    }
+
+    @Override
+    public FlowBuilder getFlowBuilder() {
+        return flowBuilder;
+    }
+
+    @Override
+    public Map<String, ListenableFuture<Boolean>> flushFlows() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, ListenableFuture<Boolean>> deleteFlowSet() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void startReconciliation(Set<String> sffNodeNames) {
+    }
+
+    @Override
+    public Map<String, ListenableFuture<Boolean>> reconcileFlows(Predicate<Flow> isSfcFlow) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void purgeFlows() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
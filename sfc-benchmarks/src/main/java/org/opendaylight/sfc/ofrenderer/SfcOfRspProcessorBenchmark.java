@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerImpl;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Mac;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Mpls;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.SlTransportType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.VxlanGpe;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rendering of a RSP into OpenFlow flows, by transport and
+ * number of hops. The RSP is processed by the real SfcOfRspProcessor and
+ * SfcOfFlowProgrammerImpl, with the SFs and SFFs served by the
+ * SfcOfProviderUtilsTestMock and the flows built and counted by the
+ * SfcOfBenchmarkFlowWriter, so no data store is involved.
+ * <p>
+ * The flows counter reports the flows created per second. Run with
+ * "-prof gc" to get the bytes allocated per RSP (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SfcOfRspProcessorBenchmark {
+
+    @Param({"NSH", "VLAN", "MPLS"})
+    public String transport;
+
+    @Param({"2", "4", "8", "16"})
+    public int hops;
+
+    private SfcOfBenchmarkFlowWriter flowWriter;
+    private SfcOfRspProcessor rspProcessor;
+    private RenderedServicePath rsp;
+
+    /**
+     * The flows created by the benchmark, reported by JMH as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class FlowCounters {
+        public long flows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            flows = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        SfcOfProviderUtilsTestMock sfcUtilsTestMock = new SfcOfProviderUtilsTestMock();
+        flowWriter = new SfcOfBenchmarkFlowWriter();
+        rspProcessor = new SfcOfRspProcessor(
+                new SfcOfFlowProgrammerImpl(flowWriter),
+                sfcUtilsTestMock,
+                new SfcSynchronizer());
+
+        List<SftType> sfTypes = new ArrayList<SftType>();
+        for (int i = 0; i < hops; i++) {
+            sfTypes.add(new SftType("benchmark-sf-type-" + i));
+        }
+        rsp = new RspBuilder(sfcUtilsTestMock).createRspFromSfTypes(sfTypes, getTransportType(transport));
+    }
+
+    @Benchmark
+    public Object processRenderedServicePath(FlowCounters counters) {
+        rspProcessor.processRenderedServicePath(rsp);
+        counters.flows += flowWriter.getAndResetFlowCount();
+        return flowWriter.getLastFlow();
+    }
+
+    private static Class<? extends SlTransportType> getTransportType(String transport) {
+        if (transport.equals("NSH")) {
+            return VxlanGpe.class;
+        } else if (transport.equals("VLAN")) {
+            return Mac.class;
+        } else if (transport.equals("MPLS")) {
+            return Mpls.class;
+        }
+        throw new IllegalArgumentException("Unknown transport " + transport);
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider;
+
+/**
+ * This class sets up the in-memory data store of the unit tests for the
+ * benchmarks. Every {@link #start()} creates a new, empty data store and
+ * makes it the one used by the SFC provider APIs.
+ */
+public class SfcBenchmarkDataStore extends AbstractDataStoreManager {
+
+    public void start() throws Exception {
+        // Normally run by JUnit before every test
+        setup();
+        setOdlSfc();
+    }
+}
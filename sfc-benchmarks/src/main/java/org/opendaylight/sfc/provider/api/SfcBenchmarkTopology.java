@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfDataPlaneLocatorName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffDataPlaneLocatorName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.function.base.SfDataPlaneLocator;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.function.base.SfDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.function.base.SfDataPlaneLocatorKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChainBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChainKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocator;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocatorKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.sff.data.plane.locator.DataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.service.function.dictionary.SffSfDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPathBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPathKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.VxlanGpe;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.Ip;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.IpBuilder;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.PortNumber;
+
+/**
+ * This class writes a synthetic SFC topology to the data store for the
+ * benchmarks.
+ * <p>
+ * The SFFs form a ring, each SFF being connected to the previous and the
+ * next one with a link cost between 1 and 4. Every SFF hosts
+ * {@value #SFS_PER_SFF} SFs and the SF types are assigned round robin, so
+ * the more SFFs the more candidates the schedulers have for every type.
+ */
+public final class SfcBenchmarkTopology {
+
+    public static final int SFS_PER_SFF = 2;
+    public static final int MAX_CHAIN_LENGTH = 8;
+    private static final int PORT = 6633;
+
+    private final int sffCount;
+
+    private SfcBenchmarkTopology(int sffCount) {
+        this.sffCount = sffCount;
+    }
+
+    /**
+     * Writes the SFs, SF types and SFFs of a ring of SFFs to the data store
+     *
+     * @param sffCount number of SFFs, at least {@value #MAX_CHAIN_LENGTH} / {@value #SFS_PER_SFF}
+     * @return the topology
+     */
+    public static SfcBenchmarkTopology create(int sffCount) {
+        if (sffCount * SFS_PER_SFF < MAX_CHAIN_LENGTH) {
+            throw new IllegalArgumentException("Not enough SFFs for all SF types: " + sffCount);
+        }
+        SfcBenchmarkTopology topology = new SfcBenchmarkTopology(sffCount);
+        for (int sffIndex = 0; sffIndex < sffCount; sffIndex++) {
+            List<ServiceFunctionDictionary> sfDictionaryList = new ArrayList<>();
+            for (int i = 0; i < SFS_PER_SFF; i++) {
+                ServiceFunction serviceFunction = buildServiceFunction(sffIndex, i);
+                checkWritten(SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(serviceFunction));
+                checkWritten(SfcProviderServiceFunctionAPI.putServiceFunction(serviceFunction));
+                sfDictionaryList.add(new ServiceFunctionDictionaryBuilder().setName(serviceFunction.getName())
+                    .setSffSfDataPlaneLocator(new SffSfDataPlaneLocatorBuilder()
+                        .setSfDplName(serviceFunction.getSfDataPlaneLocator().get(0).getName())
+                        .build())
+                    .build());
+            }
+            checkWritten(SfcProviderServiceForwarderAPI
+                .putServiceFunctionForwarder(topology.buildServiceFunctionForwarder(sffIndex, sfDictionaryList)));
+        }
+        return topology;
+    }
+
+    public int getSffCount() {
+        return sffCount;
+    }
+
+    public static SffName getSffName(int sffIndex) {
+        return new SffName("SFF-" + sffIndex);
+    }
+
+    public static SfName getSfName(int sffIndex, int sfIndex) {
+        return new SfName("SF-" + sffIndex + "-" + sfIndex);
+    }
+
+    public static SftType getSfType(int typeIndex) {
+        return new SftType("type-" + typeIndex);
+    }
+
+    /**
+     * Builds a chain of the first chainLength SF types
+     *
+     * @param name chain name
+     * @param chainLength number of SFs, at most {@value #MAX_CHAIN_LENGTH}
+     * @return the chain, not written to the data store
+     */
+    public static ServiceFunctionChain buildServiceFunctionChain(SfcName name, int chainLength) {
+        if (chainLength > MAX_CHAIN_LENGTH) {
+            throw new IllegalArgumentException("Chain too long: " + chainLength);
+        }
+        List<SfcServiceFunction> sfcServiceFunctionList = new ArrayList<>();
+        for (int i = 0; i < chainLength; i++) {
+            String sfcServiceFunctionName = getSfType(i).getValue() + "-" + i;
+            sfcServiceFunctionList.add(new SfcServiceFunctionBuilder().setName(sfcServiceFunctionName)
+                .setKey(new SfcServiceFunctionKey(sfcServiceFunctionName))
+                .setType(getSfType(i))
+                .build());
+        }
+        return new ServiceFunctionChainBuilder().setName(name)
+            .setKey(new ServiceFunctionChainKey(name))
+            .setSfcServiceFunction(sfcServiceFunctionList)
+            .setSymmetric(false)
+            .build();
+    }
+
+    /**
+     * Writes a chain of the first chainLength SF types and a SFP of it
+     * to the data store
+     *
+     * @param name name of both the chain and the path
+     * @param chainLength number of SFs, at most {@value #MAX_CHAIN_LENGTH}
+     * @return the SFP
+     */
+    public ServiceFunctionPath createServiceFunctionPath(String name, int chainLength) {
+        ServiceFunctionChain serviceFunctionChain = buildServiceFunctionChain(new SfcName(name), chainLength);
+        checkWritten(SfcProviderServiceChainAPI.putServiceFunctionChain(serviceFunctionChain));
+        ServiceFunctionPath serviceFunctionPath = new ServiceFunctionPathBuilder().setName(new SfpName(name))
+            .setKey(new ServiceFunctionPathKey(new SfpName(name)))
+            .setServiceChainName(serviceFunctionChain.getName())
+            .setSymmetric(false)
+            .build();
+        checkWritten(SfcProviderServicePathAPI.putServiceFunctionPath(serviceFunctionPath));
+        return serviceFunctionPath;
+    }
+
+    private static ServiceFunction buildServiceFunction(int sffIndex, int sfIndex) {
+        int index = sffIndex * SFS_PER_SFF + sfIndex;
+        SfName sfName = getSfName(sffIndex, sfIndex);
+        SfDataPlaneLocatorName dplName = new SfDataPlaneLocatorName(sfName.getValue() + "-dpl");
+        SfDataPlaneLocator sfDataPlaneLocator = new SfDataPlaneLocatorBuilder().setName(dplName)
+            .setKey(new SfDataPlaneLocatorKey(dplName))
+            .setLocatorType(buildLocatorTypeIp(1, index))
+            .setServiceFunctionForwarder(getSffName(sffIndex))
+            .setTransport(VxlanGpe.class)
+            .build();
+        List<SfDataPlaneLocator> sfDataPlaneLocatorList = new ArrayList<>();
+        sfDataPlaneLocatorList.add(sfDataPlaneLocator);
+        return new ServiceFunctionBuilder().setName(sfName)
+            .setKey(new ServiceFunctionKey(sfName))
+            .setType(getSfType(index % MAX_CHAIN_LENGTH))
+            .setIpMgmtAddress(buildIpAddress(2, index))
+            .setSfDataPlaneLocator(sfDataPlaneLocatorList)
+            .setNshAware(true)
+            .build();
+    }
+
+    private ServiceFunctionForwarder buildServiceFunctionForwarder(int sffIndex,
+            List<ServiceFunctionDictionary> sfDictionaryList) {
+        SffName sffName = getSffName(sffIndex);
+        SffDataPlaneLocatorName dplName = new SffDataPlaneLocatorName(sffName.getValue() + "-dpl");
+        List<SffDataPlaneLocator> sffDataPlaneLocatorList = new ArrayList<>();
+        sffDataPlaneLocatorList.add(new SffDataPlaneLocatorBuilder().setName(dplName)
+            .setKey(new SffDataPlaneLocatorKey(dplName))
+            .setDataPlaneLocator(new DataPlaneLocatorBuilder().setLocatorType(buildLocatorTypeIp(3, sffIndex))
+                .setTransport(VxlanGpe.class)
+                .build())
+            .build());
+
+        List<ConnectedSffDictionary> sffDictionaryList = new ArrayList<>();
+        if (sffCount > 1) {
+            int previous = (sffIndex + sffCount - 1) % sffCount;
+            int next = (sffIndex + 1) % sffCount;
+            sffDictionaryList.add(new ConnectedSffDictionaryBuilder().setName(getSffName(previous))
+                .setLinkCost(1 + previous % 4)
+                .build());
+            if (next != previous) {
+                sffDictionaryList.add(new ConnectedSffDictionaryBuilder().setName(getSffName(next))
+                    .setLinkCost(1 + sffIndex % 4)
+                    .build());
+            }
+        }
+
+        return new ServiceFunctionForwarderBuilder().setName(sffName)
+            .setKey(new ServiceFunctionForwarderKey(sffName))
+            .setSffDataPlaneLocator(sffDataPlaneLocatorList)
+            .setServiceFunctionDictionary(sfDictionaryList)
+            .setConnectedSffDictionary(sffDictionaryList)
+            .build();
+    }
+
+    private static Ip buildLocatorTypeIp(int subnet, int index) {
+        return new IpBuilder().setIp(buildIpAddress(subnet, index)).setPort(new PortNumber(PORT)).build();
+    }
+
+    private static IpAddress buildIpAddress(int subnet, int index) {
+        return new IpAddress(new Ipv4Address("10." + subnet + "." + (index / 256 % 256) + "." + (index % 256)));
+    }
+
+    private static void checkWritten(boolean written) {
+        if (!written) {
+            throw new IllegalStateException("Failed to write the benchmark topology");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.sfc.provider.SfcBenchmarkDataStore;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the creation of a RSP and its operational state, by chain
+ * length and number of SFFs. Each created RSP is deleted again outside
+ * of the measurement so the data store doesn't grow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SfcRenderedServicePathBenchmark {
+
+    private static final String SFP_NAME = "benchmark-path";
+
+    @Param({"2", "4", "8"})
+    public int chainLength;
+
+    @Param({"10", "100", "1000"})
+    public int sffCount;
+
+    private ServiceFunctionPath serviceFunctionPath;
+    private CreateRenderedPathInput createRenderedPathInput;
+    private SfcServiceFunctionSchedulerAPI scheduler;
+    private RenderedServicePath renderedServicePath;
+
+    @Setup
+    public void setUp() throws Exception {
+        new SfcBenchmarkDataStore().start();
+        SfcBenchmarkTopology topology = SfcBenchmarkTopology.create(sffCount);
+        serviceFunctionPath = topology.createServiceFunctionPath(SFP_NAME, chainLength);
+        createRenderedPathInput = new CreateRenderedPathInputBuilder().setParentServiceFunctionPath(SFP_NAME).build();
+        scheduler = new SfcServiceFunctionRandomSchedulerAPI();
+    }
+
+    @Benchmark
+    public RenderedServicePath createRenderedServicePath() {
+        renderedServicePath = SfcProviderRenderedPathAPI.createRenderedServicePathAndState(serviceFunctionPath,
+                createRenderedPathInput, scheduler);
+        if (renderedServicePath == null) {
+            throw new IllegalStateException("Failed to create RSP");
+        }
+        return renderedServicePath;
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteRenderedServicePath() {
+        if (renderedServicePath != null) {
+            SfcProviderRenderedPathAPI.deleteRenderedServicePathAndState(renderedServicePath.getName());
+            renderedServicePath = null;
+        }
+    }
+}
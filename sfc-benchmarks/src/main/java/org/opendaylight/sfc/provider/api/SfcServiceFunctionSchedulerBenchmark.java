@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.sfc.provider.SfcBenchmarkDataStore;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks scheduling the SFs of a chain with every
+ * {@link SfcServiceFunctionSchedulerAPI} implementation, by number of SFFs.
+ * The topology graph is maintained as in the provider, so the shortest
+ * path schedulers search a long-lived snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SfcServiceFunctionSchedulerBenchmark {
+
+    private static final String SFP_NAME = "benchmark-path";
+    private static final int CHAIN_LENGTH = 4;
+    private static final int MAX_STARTING_INDEX = 255;
+
+    @Param({"Random", "RoundRobin", "LoadBalance", "ShortestPath", "WeightedShortestPath"})
+    public String schedulerType;
+
+    @Param({"10", "100", "1000"})
+    public int sffCount;
+
+    private SfcServiceFunctionSchedulerAPI scheduler;
+    private ServiceFunctionChain serviceFunctionChain;
+    private ServiceFunctionPath serviceFunctionPath;
+
+    @Setup
+    public void setUp() throws Exception {
+        new SfcBenchmarkDataStore().start();
+        SfcProviderTopologyAPI.enable();
+        SfcBenchmarkTopology topology = SfcBenchmarkTopology.create(sffCount);
+        serviceFunctionPath = topology.createServiceFunctionPath(SFP_NAME, CHAIN_LENGTH);
+        serviceFunctionChain = SfcBenchmarkTopology.buildServiceFunctionChain(new SfcName(SFP_NAME), CHAIN_LENGTH);
+        scheduler = newScheduler(schedulerType);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SfcProviderTopologyAPI.disable();
+    }
+
+    @Benchmark
+    public List<SfName> scheduleServiceFunctions() {
+        return scheduler.scheduleServiceFunctions(serviceFunctionChain, MAX_STARTING_INDEX, serviceFunctionPath);
+    }
+
+    private static SfcServiceFunctionSchedulerAPI newScheduler(String schedulerType) {
+        switch (schedulerType) {
+            case "Random":
+                return new SfcServiceFunctionRandomSchedulerAPI();
+            case "RoundRobin":
+                return new SfcServiceFunctionRoundRobinSchedulerAPI();
+            case "LoadBalance":
+                return new SfcServiceFunctionLoadBalanceSchedulerAPI();
+            case "ShortestPath":
+                return new SfcServiceFunctionShortestPathSchedulerAPI();
+            case "WeightedShortestPath":
+                return new SfcServiceFunctionWeightedShortestPathSchedulerAPI();
+            default:
+                throw new IllegalArgumentException("Unknown scheduler type: " + schedulerType);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.sfc.provider.SfcBenchmarkDataStore;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks path-id allocation with each generation algorithm when 10,
+ * 50 or 90% of the path-ids {@link SfcServicePathId} hands out are
+ * already taken. Every allocated path-id is freed again in the same
+ * operation to keep the occupancy constant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SfcServicePathIdBenchmark {
+
+    // SfcServicePathId only generates path-ids up to 2^12 - 1
+    private static final int NUM_PATH_IDS = 1 << 12;
+
+    @Param({"10", "50", "90"})
+    public int occupancy;
+
+    @Param({"Random", "Sequential"})
+    public String generationAlgorithm;
+
+    @Setup
+    public void setUp() throws Exception {
+        new SfcBenchmarkDataStore().start();
+        SfcServicePathId.setGenerationAlgorithm(GenerationAlgorithmEnum.valueOf(generationAlgorithm));
+        int numAllocated = NUM_PATH_IDS * occupancy / 100;
+        for (int i = 0; i < numAllocated; i++) {
+            if (SfcServicePathId.check_and_allocate_pathid() < 0) {
+                throw new IllegalStateException("Failed to allocate path-id " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public long allocateAndFreePathId() {
+        long pathId = SfcServicePathId.check_and_allocate_pathid();
+        if (pathId < 0) {
+            throw new IllegalStateException("Failed to allocate path-id");
+        }
+        SfcServicePathId.free_pathid(pathId);
+        return pathId;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.topology;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the shortest path searches of {@link SfcProviderGraph}.
+ * <p>
+ * The graph is a ring of SFFs with two SFs attached to each of them, the
+ * searches go from a SF of the first SFF to a SF of the opposite SFF. The
+ * legacy search of the graph runs a full search every time, a snapshot
+ * caches its searches until the next update, which the "AfterUpdate"
+ * benchmarks include.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SfcProviderGraphBenchmark {
+
+    private static final String UPDATED_NODE_NAME = "benchmark-node";
+
+    @Param({"10", "100", "1000", "5000"})
+    public int sffCount;
+
+    private SfcProviderGraph sfcProviderGraph;
+    private String fromNodeName;
+    private String toNodeName;
+
+    @Setup
+    public void setUp() {
+        sfcProviderGraph = new SfcProviderGraph();
+        SfcProviderGraph.Update update = sfcProviderGraph.newUpdate();
+        for (int sffIndex = 0; sffIndex < sffCount; sffIndex++) {
+            Map<String, Integer> toNodeCosts = new HashMap<>();
+            toNodeCosts.put(getSfName(sffIndex, 0), SfcProviderGraph.DEFAULT_EDGE_COST);
+            toNodeCosts.put(getSfName(sffIndex, 1), SfcProviderGraph.DEFAULT_EDGE_COST);
+            toNodeCosts.put(getSffName((sffIndex + 1) % sffCount), 1 + sffIndex % 4);
+            update.addNode(getSfName(sffIndex, 0));
+            update.addNode(getSfName(sffIndex, 1));
+            update.addNode(getSffName(sffIndex));
+            update.setEdges(getSffName(sffIndex), toNodeCosts);
+        }
+        update.addNode(UPDATED_NODE_NAME);
+        update.commit();
+        fromNodeName = getSfName(0, 0);
+        toNodeName = getSfName(sffCount / 2, 1);
+    }
+
+    @Benchmark
+    public List<SfcProviderTopologyNode> legacyShortestPath() {
+        return sfcProviderGraph.getShortestPath(fromNodeName, toNodeName);
+    }
+
+    @Benchmark
+    public List<SfcProviderTopologyNode> snapshotShortestPath() {
+        return sfcProviderGraph.getSnapshot().getShortestPath(fromNodeName, toNodeName);
+    }
+
+    @Benchmark
+    public List<SfcProviderTopologyNode> snapshotShortestPathAfterUpdate() {
+        return updateGraph().getShortestPath(fromNodeName, toNodeName);
+    }
+
+    @Benchmark
+    public int snapshotWeightedShortestPathAfterUpdate() {
+        return updateGraph().getWeightedShortestPathTree(fromNodeName).getDistance(toNodeName);
+    }
+
+    // A new version of an unchanged topology, so nothing is cached
+    private SfcProviderGraph.Snapshot updateGraph() {
+        return sfcProviderGraph.newUpdate().removeNode(UPDATED_NODE_NAME).addNode(UPDATED_NODE_NAME).commit();
+    }
+
+    private static String getSffName(int sffIndex) {
+        return "SFF-" + sffIndex;
+    }
+
+    private static String getSfName(int sffIndex, int sfIndex) {
+        return "SF-" + sffIndex + "-" + sfIndex;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.util.openflow;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.Action;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.Match;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the SfcOpenflowUtils match and action builders in isolation,
+ * with the values used by the OpenFlow renderer for its most common flows.
+ * Run with "-prof gc" to get the bytes allocated per operation
+ * (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SfcOpenflowUtilsBenchmark {
+
+    private static final short TABLE_ID = 4;
+    private static final int FLOW_PRIORITY = 550;
+    private static final long PATH_ID = 123;
+    private static final BigInteger METADATA_MASK = new BigInteger("FFFFFFFFFFFFFFFF", 16);
+    private static final String MAC = "00:00:00:00:00:01";
+    private static final String IP = "192.168.0.1";
+    private static final String PORT = "1";
+
+    @Benchmark
+    public Match matchIpv4Tcp() {
+        MatchBuilder match = new MatchBuilder();
+        SfcOpenflowUtils.addMatchIpProtocol(match, SfcOpenflowUtils.IP_PROTOCOL_TCP);
+        SfcOpenflowUtils.addMatchEtherType(match, SfcOpenflowUtils.ETHERTYPE_IPV4);
+        return match.build();
+    }
+
+    @Benchmark
+    public Match matchMetadataSrcMac() {
+        MatchBuilder match = new MatchBuilder();
+        SfcOpenflowUtils.addMatchMetada(match, BigInteger.valueOf(PATH_ID), METADATA_MASK);
+        SfcOpenflowUtils.addMatchSrcMac(match, MAC);
+        return match.build();
+    }
+
+    @Benchmark
+    public Match matchNsh() {
+        MatchBuilder match = new MatchBuilder();
+        SfcOpenflowUtils.addMatchNshNsp(match, PATH_ID);
+        SfcOpenflowUtils.addMatchNshNsi(match, (short) 255);
+        return match.build();
+    }
+
+    @Benchmark
+    public Match matchVlan() {
+        MatchBuilder match = new MatchBuilder();
+        SfcOpenflowUtils.addMatchVlan(match, 100);
+        return match.build();
+    }
+
+    @Benchmark
+    public Match matchMpls() {
+        MatchBuilder match = new MatchBuilder();
+        SfcOpenflowUtils.addMatchMplsLabel(match, 100L);
+        return match.build();
+    }
+
+    @Benchmark
+    public List<Action> actionsVlanEgress() {
+        int order = 0;
+        List<Action> actionList = new ArrayList<Action>();
+        actionList.add(SfcOpenflowUtils.createActionPushVlan(order++));
+        actionList.add(SfcOpenflowUtils.createActionSetVlanId(100, order++));
+        actionList.add(SfcOpenflowUtils.createActionSetDlSrc(MAC, order++));
+        actionList.add(SfcOpenflowUtils.createActionOutPort(PORT, order++));
+        return actionList;
+    }
+
+    @Benchmark
+    public List<Action> actionsMplsEgress() {
+        int order = 0;
+        List<Action> actionList = new ArrayList<Action>();
+        actionList.add(SfcOpenflowUtils.createActionPushMpls(order++));
+        actionList.add(SfcOpenflowUtils.createActionSetMplsLabel(100L, order++));
+        actionList.add(SfcOpenflowUtils.createActionSetDlSrc(MAC, order++));
+        actionList.add(SfcOpenflowUtils.createActionOutPort(PORT, order++));
+        return actionList;
+    }
+
+    @Benchmark
+    public List<Action> actionsNshEgress() {
+        int order = 0;
+        List<Action> actionList = new ArrayList<Action>();
+        actionList.add(SfcOpenflowUtils.createActionNxMoveNsc1(order++));
+        actionList.add(SfcOpenflowUtils.createActionNxMoveNsc2(order++));
+        actionList.add(SfcOpenflowUtils.createActionNxSetTunIpv4Dst(IP, order++));
+        actionList.add(SfcOpenflowUtils.createActionOutPort(PORT, order++));
+        return actionList;
+    }
+
+    @Benchmark
+    public Flow createFlow() {
+        MatchBuilder match = new MatchBuilder();
+        SfcOpenflowUtils.addMatchMetada(match, BigInteger.valueOf(PATH_ID), METADATA_MASK);
+        InstructionsBuilder isb = SfcOpenflowUtils.createInstructionsBuilder(
+                SfcOpenflowUtils.createActionsInstructionBuilder(SfcOpenflowUtils.createActionSetDlDst(MAC, 0)));
+        return SfcOpenflowUtils.createFlowBuilder(TABLE_ID, FLOW_PRIORITY, "nextHop", match, isb).build();
+    }
+}
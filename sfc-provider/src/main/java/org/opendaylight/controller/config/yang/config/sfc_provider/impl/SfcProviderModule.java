@@ -13,6 +13,8 @@ import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.BindingAwareBroker;
 import org.opendaylight.sfc.provider.*;
+import org.opendaylight.sfc.provider.api.SfcProviderConfigCache;
+import org.opendaylight.sfc.provider.api.SfcProviderTopologyAPI;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIdService;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePathService;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctionService;
@@ -69,6 +71,29 @@ public class SfcProviderModule extends org.opendaylight.controller.config.yang.c
 
         final SfcProviderRpc sfcProviderRpc = new SfcProviderRpc();
 
+        // Configuration cache, fed by its own listener on every cached entity
+        SfcProviderConfigCache.enable();
+        SfcProviderConfigCacheDataListener sfcProviderConfigCacheDataListener =
+                new SfcProviderConfigCacheDataListener();
+        final ListenerRegistration<DataChangeListener> sfCacheListenerRegistration =
+                dataBrokerService.registerDataChangeListener( LogicalDatastoreType.CONFIGURATION,
+                        OpendaylightSfc.SF_ENTRY_IID, sfcProviderConfigCacheDataListener, DataBroker.DataChangeScope.SUBTREE);
+        final ListenerRegistration<DataChangeListener> sffCacheListenerRegistration =
+                dataBrokerService.registerDataChangeListener( LogicalDatastoreType.CONFIGURATION,
+                        OpendaylightSfc.SFF_ENTRY_IID, sfcProviderConfigCacheDataListener, DataBroker.DataChangeScope.SUBTREE);
+        final ListenerRegistration<DataChangeListener> sftCacheListenerRegistration =
+                dataBrokerService.registerDataChangeListener( LogicalDatastoreType.CONFIGURATION,
+                        OpendaylightSfc.SFT_ENTRY_IID, sfcProviderConfigCacheDataListener, DataBroker.DataChangeScope.SUBTREE);
+        final ListenerRegistration<DataChangeListener> sfcCacheListenerRegistration =
+                dataBrokerService.registerDataChangeListener( LogicalDatastoreType.CONFIGURATION,
+                        OpendaylightSfc.SFC_ENTRY_IID, sfcProviderConfigCacheDataListener, DataBroker.DataChangeScope.SUBTREE);
+        final ListenerRegistration<DataChangeListener> sfpCacheListenerRegistration =
+                dataBrokerService.registerDataChangeListener( LogicalDatastoreType.CONFIGURATION,
+                        OpendaylightSfc.SFP_ENTRY_IID, sfcProviderConfigCacheDataListener, DataBroker.DataChangeScope.SUBTREE);
+
+        // Topology graph, updated by the SF and SFF entry listeners
+        SfcProviderTopologyAPI.enable();
+
         //ServiceFunctionForwarder Entry
         SfcProviderSffEntryDataListener sfcProviderSffEntryDataListener = new SfcProviderSffEntryDataListener();
         final ListenerRegistration<DataChangeListener> sffDataChangeListenerRegistration =
@@ -123,6 +148,13 @@ public class SfcProviderModule extends org.opendaylight.controller.config.yang.c
                 scfEntryDataChangeListenerRegistration.close();
                 sffDataChangeListenerRegistration.close();
                 sfstEntryDataChangeListenerRegistration.close();
+                sfCacheListenerRegistration.close();
+                sffCacheListenerRegistration.close();
+                sftCacheListenerRegistration.close();
+                sfcCacheListenerRegistration.close();
+                sfpCacheListenerRegistration.close();
+                SfcProviderConfigCache.disable();
+                SfcProviderTopologyAPI.disable();
                 sfRpcRegistration.close();
                 sfcRpcRegistration.close();
                 rspRpcRegistration.close();
@@ -19,6 +19,7 @@ import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.BindingAwareBroker;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceTypeAPI;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePaths;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
@@ -101,6 +102,9 @@ public class OpendaylightSfc implements AutoCloseable {
     public static final InstanceIdentifier<ServiceFunctionSchedulerType> SFST_ENTRY_IID = InstanceIdentifier
         .builder(ServiceFunctionSchedulerTypes.class).child(ServiceFunctionSchedulerType.class).build();
 
+    public static final InstanceIdentifier<ServiceFunctionType> SFT_ENTRY_IID =
+            InstanceIdentifier.builder(ServiceFunctionTypes.class).child(ServiceFunctionType.class).build();
+
     public static final InstanceIdentifier<ServiceFunctionChains> SFC_IID =
             InstanceIdentifier.builder(ServiceFunctionChains.class).build();
 
@@ -182,8 +186,7 @@ public class OpendaylightSfc implements AutoCloseable {
             sftList.add(sftBuilder.build());
         }
         ServiceFunctionTypesBuilder sftTypesBuilder = new ServiceFunctionTypesBuilder().setServiceFunctionType(sftList);
-        if (SfcDataStoreAPI.writePutTransactionAPI(SFT_IID, sftTypesBuilder.build(),
-                LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderServiceTypeAPI.putServiceFunctionTypes(sftTypesBuilder.build())) {
             LOG.info("Initialised Service Function Types");
         } else {
             LOG.error("Could not initialise Service Function Types");
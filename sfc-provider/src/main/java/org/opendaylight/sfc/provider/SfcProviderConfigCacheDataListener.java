@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider;
+
+import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStart;
+import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
+
+import java.util.Map;
+
+import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
+import org.opendaylight.sfc.provider.api.SfcProviderConfigCache;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class gets called whenever there is a change to a SF, SFF, SFT,
+ * SFC or SFP entry and mirrors it into the configuration cache.
+ * <p>
+ * It is registered once per entity type. All changes carried by one
+ * event are collected before being applied to the cache.
+ *
+ * @see org.opendaylight.sfc.provider.api.SfcProviderConfigCache
+ */
+public class SfcProviderConfigCacheDataListener implements DataChangeListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcProviderConfigCacheDataListener.class);
+
+    @Override
+    public void onDataChanged(final AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change) {
+
+        printTraceStart(LOG);
+
+        SfcProviderConfigCache.Update update = new SfcProviderConfigCache.Update();
+
+        // CREATION
+        for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : change.getCreatedData().entrySet()) {
+            update.put(entry.getValue());
+        }
+
+        // UPDATE
+        for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : change.getUpdatedData().entrySet()) {
+            update.put(entry.getValue());
+        }
+
+        // DELETION
+        Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
+        for (InstanceIdentifier<?> instanceIdentifier : change.getRemovedPaths()) {
+            DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
+            if (dataObject != null) {
+                update.remove(dataObject);
+            }
+        }
+
+        SfcProviderConfigCache.apply(update);
+
+        printTraceStop(LOG);
+    }
+}
@@ -11,19 +11,17 @@ package org.opendaylight.sfc.provider;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStart;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
-import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
-import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.common.util.Rpcs;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderRenderedPathAPI;
-import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceChainAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServicePathAPI;
 import org.opendaylight.sfc.provider.api.SfcServicePathId;
@@ -44,8 +42,12 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev1
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsOutputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathOutputBuilder;
@@ -58,6 +60,9 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePathService;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.TraceRenderedServicePathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.TraceRenderedServicePathOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.input.RenderedPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.RenderedPathResult;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.RenderedPathResultBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.path.first.hop.info.RenderedServicePathFirstHop;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.DeleteServiceFunctionInput;
@@ -90,7 +95,10 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureFallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * This class holds all RPCs methods for SFC Provider.
@@ -145,19 +153,15 @@ public class SfcProviderRpc implements ServiceFunctionService, ServiceFunctionCh
             .setSfDataPlaneLocator(sfDataPlaneLocatorList)
             .build();
 
-        InstanceIdentifier<ServiceFunction> sfEntryIID =
-                InstanceIdentifier.builder(ServiceFunctions.class).child(ServiceFunction.class, sf.getKey()).build();
-
-        WriteTransaction writeTx = dataBroker.newWriteOnlyTransaction();
-        writeTx.merge(LogicalDatastoreType.CONFIGURATION, sfEntryIID, sf, true);
         printTraceStop(LOG);
-        return Futures.transform(writeTx.submit(), new Function<Void, RpcResult<Void>>() {
+        return Futures.transform(SfcProviderServiceFunctionAPI.putServiceFunctionAsync(sf),
+                new Function<Void, RpcResult<Void>>() {
 
-            @Override
-            public RpcResult<Void> apply(Void input) {
-                return RpcResultBuilder.<Void>success().build();
-            }
-        });
+                    @Override
+                    public RpcResult<Void> apply(Void input) {
+                        return RpcResultBuilder.<Void>success().build();
+                    }
+                });
     }
 
     @Override
@@ -170,30 +174,38 @@ public class SfcProviderRpc implements ServiceFunctionService, ServiceFunctionCh
             InstanceIdentifier<ServiceFunction> sfIID;
             sfIID = InstanceIdentifier.builder(ServiceFunctions.class).child(ServiceFunction.class, sfkey).build();
 
-            ReadOnlyTransaction readTx = dataBroker.newReadOnlyTransaction();
-            Optional<ServiceFunction> dataObject = null;
-            try {
-                dataObject = readTx.read(LogicalDatastoreType.CONFIGURATION, sfIID).get();
-            } catch (InterruptedException | ExecutionException e) {
-                LOG.debug("Failed to readServiceFunction : {}", e.getMessage());
-            }
-            if (dataObject != null && dataObject.isPresent()) {
-                ServiceFunction serviceFunction = dataObject.get();
-                LOG.debug("readServiceFunction Success: {}", serviceFunction.getName());
-                ReadServiceFunctionOutput readServiceFunctionOutput = null;
-                ReadServiceFunctionOutputBuilder outputBuilder = new ReadServiceFunctionOutputBuilder();
-                outputBuilder.setName(serviceFunction.getName())
-                    .setType(serviceFunction.getType())
-                    .setIpMgmtAddress(serviceFunction.getIpMgmtAddress())
-                    .setSfDataPlaneLocator(serviceFunction.getSfDataPlaneLocator());
-                readServiceFunctionOutput = outputBuilder.build();
-                printTraceStop(LOG);
-                return Futures.immediateFuture(Rpcs.<ReadServiceFunctionOutput>getRpcResult(true,
-                        readServiceFunctionOutput, Collections.<RpcError>emptySet()));
-            }
+            ListenableFuture<Optional<ServiceFunction>> readFuture =
+                    SfcDataStoreAPI.readTransactionAPIAsync(sfIID, LogicalDatastoreType.CONFIGURATION);
+            ListenableFuture<RpcResult<ReadServiceFunctionOutput>> resultFuture = Futures.transform(readFuture,
+                    new Function<Optional<ServiceFunction>, RpcResult<ReadServiceFunctionOutput>>() {
+
+                        @Override
+                        public RpcResult<ReadServiceFunctionOutput> apply(Optional<ServiceFunction> dataObject) {
+                            ReadServiceFunctionOutput readServiceFunctionOutput = null;
+                            if (dataObject != null && dataObject.isPresent()) {
+                                ServiceFunction serviceFunction = dataObject.get();
+                                LOG.debug("readServiceFunction Success: {}", serviceFunction.getName());
+                                ReadServiceFunctionOutputBuilder outputBuilder = new ReadServiceFunctionOutputBuilder();
+                                outputBuilder.setName(serviceFunction.getName())
+                                    .setType(serviceFunction.getType())
+                                    .setIpMgmtAddress(serviceFunction.getIpMgmtAddress())
+                                    .setSfDataPlaneLocator(serviceFunction.getSfDataPlaneLocator());
+                                readServiceFunctionOutput = outputBuilder.build();
+                            }
+                            return Rpcs.<ReadServiceFunctionOutput>getRpcResult(true, readServiceFunctionOutput,
+                                    Collections.<RpcError>emptySet());
+                        }
+                    });
             printTraceStop(LOG);
-            return Futures.immediateFuture(
-                    Rpcs.<ReadServiceFunctionOutput>getRpcResult(true, null, Collections.<RpcError>emptySet()));
+            return Futures.withFallback(resultFuture, new FutureFallback<RpcResult<ReadServiceFunctionOutput>>() {
+
+                @Override
+                public ListenableFuture<RpcResult<ReadServiceFunctionOutput>> create(Throwable t) {
+                    LOG.debug("Failed to readServiceFunction : {}", t.getMessage());
+                    return Futures.immediateFuture(Rpcs.<ReadServiceFunctionOutput>getRpcResult(true, null,
+                            Collections.<RpcError>emptySet()));
+                }
+            });
         } else {
             LOG.warn("\n####### Data Provider is NULL : {}", Thread.currentThread().getStackTrace()[1]);
             printTraceStop(LOG);
@@ -216,11 +228,20 @@ public class SfcProviderRpc implements ServiceFunctionService, ServiceFunctionCh
                 serviceFunctionChainsBuilder.setServiceFunctionChain(input.getServiceFunctionChain());
         ServiceFunctionChains sfcs = serviceFunctionChainsBuilder.build();
 
-        if (!SfcDataStoreAPI.writeMergeTransactionAPI(OpendaylightSfc.SFC_IID, sfcs,
-                LogicalDatastoreType.CONFIGURATION)) {
-            LOG.error("Failed to create service function chain: {}", input.getServiceFunctionChain().toString());
-        }
-        return Futures.immediateFuture(Rpcs.<Void>getRpcResult(true, Collections.<RpcError>emptySet()));
+        final List<ServiceFunctionChain> serviceFunctionChainList = input.getServiceFunctionChain();
+        ListenableFuture<Boolean> writeFuture =
+                SfcDataStoreAPI.toResultFuture(SfcProviderServiceChainAPI.putServiceFunctionChainsAsync(sfcs));
+        printTraceStop(LOG);
+        return Futures.transform(writeFuture, new Function<Boolean, RpcResult<Void>>() {
+
+            @Override
+            public RpcResult<Void> apply(Boolean committed) {
+                if (!committed) {
+                    LOG.error("Failed to create service function chain: {}", serviceFunctionChainList);
+                }
+                return Rpcs.<Void>getRpcResult(true, Collections.<RpcError>emptySet());
+            }
+        });
     }
 
     @SuppressWarnings("unused")
@@ -241,81 +262,132 @@ public class SfcProviderRpc implements ServiceFunctionService, ServiceFunctionCh
     public Future<RpcResult<CreateRenderedPathOutput>> createRenderedPath(
             CreateRenderedPathInput createRenderedPathInput) {
 
-        ServiceFunctionPath createdServiceFunctionPath;
-        RenderedServicePath renderedServicePath;
-        RenderedServicePath revRenderedServicePath;
-        CreateRenderedPathOutputBuilder createRenderedPathOutputBuilder = new CreateRenderedPathOutputBuilder();
-        RpcResult<CreateRenderedPathOutput> rpcResult;
-        RspName retRspName = null;
-
-        createdServiceFunctionPath = SfcProviderServicePathAPI
+        final ServiceFunctionPath createdServiceFunctionPath = SfcProviderServicePathAPI
             .readServiceFunctionPath(new SfpName(createRenderedPathInput.getParentServiceFunctionPath()));
 
-        if (createdServiceFunctionPath != null) {
-            renderedServicePath = SfcProviderRenderedPathAPI
-                .createRenderedServicePathAndState(createdServiceFunctionPath, createRenderedPathInput);
-            if (renderedServicePath != null) {
-                retRspName = renderedServicePath.getName();
-                createRenderedPathOutputBuilder.setName(retRspName.getValue());
-                rpcResult = RpcResultBuilder.success(createRenderedPathOutputBuilder.build()).build();
-                if ((createdServiceFunctionPath.isSymmetric() != null) && createdServiceFunctionPath.isSymmetric()) {
-
-                    revRenderedServicePath =
-                            SfcProviderRenderedPathAPI.createSymmetricRenderedServicePathAndState(renderedServicePath);
-                    if (revRenderedServicePath == null) {
-                        LOG.error("Failed to create symmetric service path: {}");
-                    } else {
-                        SfcProviderRenderedPathAPI.setSymmetricPathId(renderedServicePath,
-                                revRenderedServicePath.getPathId());
-                    }
-                }
-            } else {
-                rpcResult = RpcResultBuilder.<CreateRenderedPathOutput>failed()
-                    .withError(ErrorType.APPLICATION, "Failed to create RSP")
-                    .build();
-            }
-
-        } else {
-            rpcResult = RpcResultBuilder.<CreateRenderedPathOutput>failed()
+        if (createdServiceFunctionPath == null) {
+            return Futures.immediateFuture(RpcResultBuilder.<CreateRenderedPathOutput>failed()
                 .withError(ErrorType.APPLICATION, "Service Function Path does not exist")
-                .build();
+                .build());
         }
-        return Futures.immediateFuture(rpcResult);
+
+        ListenableFuture<RenderedServicePath> rspFuture = SfcProviderRenderedPathAPI
+            .createRenderedServicePathAndStateAsync(createdServiceFunctionPath, createRenderedPathInput);
+
+        return Futures.transform(rspFuture,
+                new AsyncFunction<RenderedServicePath, RpcResult<CreateRenderedPathOutput>>() {
+
+                    @Override
+                    public ListenableFuture<RpcResult<CreateRenderedPathOutput>> apply(
+                            final RenderedServicePath renderedServicePath) {
+                        if (renderedServicePath == null) {
+                            return Futures.immediateFuture(RpcResultBuilder.<CreateRenderedPathOutput>failed()
+                                .withError(ErrorType.APPLICATION, "Failed to create RSP")
+                                .build());
+                        }
+
+                        CreateRenderedPathOutputBuilder createRenderedPathOutputBuilder =
+                                new CreateRenderedPathOutputBuilder();
+                        createRenderedPathOutputBuilder.setName(renderedServicePath.getName().getValue());
+                        final RpcResult<CreateRenderedPathOutput> rpcResult =
+                                RpcResultBuilder.success(createRenderedPathOutputBuilder.build()).build();
+
+                        if ((createdServiceFunctionPath.isSymmetric() == null)
+                                || !createdServiceFunctionPath.isSymmetric()) {
+                            return Futures.immediateFuture(rpcResult);
+                        }
+
+                        // Also sets the symmetric path-id of the forward path
+                        return Futures.transform(SfcProviderRenderedPathAPI
+                            .createSymmetricRenderedServicePathAndStateAsync(renderedServicePath),
+                                new Function<RenderedServicePath, RpcResult<CreateRenderedPathOutput>>() {
+
+                                    @Override
+                                    public RpcResult<CreateRenderedPathOutput> apply(
+                                            RenderedServicePath revRenderedServicePath) {
+                                        if (revRenderedServicePath == null) {
+                                            LOG.error("Failed to create symmetric service path: {}",
+                                                    renderedServicePath.getName());
+                                        }
+                                        return rpcResult;
+                                    }
+                                });
+                    }
+                }, odlSfc.getExecutor());
     }
 
     @Override
-    public Future<RpcResult<DeleteRenderedPathOutput>> deleteRenderedPath(DeleteRenderedPathInput input) {
-
-        boolean ret;
-        RpcResultBuilder<DeleteRenderedPathOutput> rpcResultBuilder;
-        // If a RSP is deleted we delete both SF and SFF operational states.
-        // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-        /*
-         * XXX TODO Another example of Method overloading signature type confusion brought about by
-         * Strings. Fixing typing in RPC input/output will be another patch.
-         * Suggest after changing RPC inputs to be typedefs, that method names be cleaned up too.
-         * For instance:
-         * deletePathFromServiceForwarderState
-         * has signatures (ServiceFunctionPath) and what used to be (String) which is now (RspName)
-         * and another for SfpName so I *assume* I'm supposed to use SfpName here
-         * and test and hope for the best but unintended consequences if people see things like
-         * rspName used in place of sfpName and re-use same pattern elsewhere.
-         */
-        SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(new RspName(input.getName()));
-        SfcProviderServiceFunctionAPI.deleteServicePathFromServiceFunctionState(new SfpName(input.getName()));
-
-        ret = SfcProviderRenderedPathAPI.deleteRenderedServicePath(new RspName(input.getName()));
-        DeleteRenderedPathOutputBuilder deleteRenderedPathOutputBuilder = new DeleteRenderedPathOutputBuilder();
-        deleteRenderedPathOutputBuilder.setResult(ret);
-        if (ret) {
-            rpcResultBuilder = RpcResultBuilder.success(deleteRenderedPathOutputBuilder.build());
-        } else {
-            String message = "Error Deleting Rendered Service Path: " + input.getName();
-            rpcResultBuilder =
-                    RpcResultBuilder.<DeleteRenderedPathOutput>failed().withError(ErrorType.APPLICATION, message);
+    public Future<RpcResult<CreateRenderedPathsOutput>> createRenderedPaths(
+            CreateRenderedPathsInput createRenderedPathsInput) {
+
+        final List<RenderedPath> renderedPaths = createRenderedPathsInput.getRenderedPath() != null
+                ? createRenderedPathsInput.getRenderedPath() : Collections.<RenderedPath>emptyList();
+        List<CreateRenderedPathInput> createRenderedPathInputs = new ArrayList<>(renderedPaths.size());
+        for (RenderedPath renderedPath : renderedPaths) {
+            createRenderedPathInputs.add(new CreateRenderedPathInputBuilder()
+                .setParentServiceFunctionPath(renderedPath.getParentServiceFunctionPath())
+                .setName(renderedPath.getName())
+                .setSymmetric(renderedPath.isSymmetric())
+                .build());
         }
 
-        return Futures.immediateFuture(rpcResultBuilder.build());
+        ListenableFuture<List<RenderedServicePath>> rspsFuture =
+                SfcProviderRenderedPathAPI.createRenderedServicePathsAndStateAsync(createRenderedPathInputs);
+
+        return Futures.transform(rspsFuture,
+                new Function<List<RenderedServicePath>, RpcResult<CreateRenderedPathsOutput>>() {
+
+                    @Override
+                    public RpcResult<CreateRenderedPathsOutput> apply(List<RenderedServicePath> renderedServicePaths) {
+                        List<RenderedPathResult> renderedPathResults = new ArrayList<>(renderedPaths.size());
+                        for (int i = 0; i < renderedPaths.size(); i++) {
+                            RenderedServicePath renderedServicePath = renderedServicePaths.get(i);
+                            RenderedPathResultBuilder renderedPathResultBuilder = new RenderedPathResultBuilder();
+                            renderedPathResultBuilder
+                                .setParentServiceFunctionPath(renderedPaths.get(i).getParentServiceFunctionPath());
+                            renderedPathResultBuilder.setResult(renderedServicePath != null);
+                            if (renderedServicePath != null) {
+                                renderedPathResultBuilder.setName(renderedServicePath.getName().getValue());
+                                if (renderedServicePath.getSymmetricPathId() != null) {
+                                    renderedPathResultBuilder.setReverseName(SfcProviderRenderedPathAPI
+                                        .generateReversedPathName(renderedServicePath.getName())
+                                        .getValue());
+                                }
+                            }
+                            renderedPathResults.add(renderedPathResultBuilder.build());
+                        }
+                        CreateRenderedPathsOutputBuilder createRenderedPathsOutputBuilder =
+                                new CreateRenderedPathsOutputBuilder();
+                        createRenderedPathsOutputBuilder.setRenderedPathResult(renderedPathResults);
+                        return RpcResultBuilder.success(createRenderedPathsOutputBuilder.build()).build();
+                    }
+                });
+    }
+
+    @Override
+    public Future<RpcResult<DeleteRenderedPathOutput>> deleteRenderedPath(final DeleteRenderedPathInput input) {
+
+        // If a RSP is deleted we delete its SF, SFF and SFP operational states in the same transaction.
+        ListenableFuture<Boolean> deleteFuture =
+                SfcProviderRenderedPathAPI.deleteRenderedServicePathAndStateAsync(new RspName(input.getName()));
+
+        return Futures.transform(deleteFuture, new Function<Boolean, RpcResult<DeleteRenderedPathOutput>>() {
+
+            @Override
+            public RpcResult<DeleteRenderedPathOutput> apply(Boolean ret) {
+                RpcResultBuilder<DeleteRenderedPathOutput> rpcResultBuilder;
+                DeleteRenderedPathOutputBuilder deleteRenderedPathOutputBuilder = new DeleteRenderedPathOutputBuilder();
+                deleteRenderedPathOutputBuilder.setResult(ret);
+                if (ret) {
+                    rpcResultBuilder = RpcResultBuilder.success(deleteRenderedPathOutputBuilder.build());
+                } else {
+                    String message = "Error Deleting Rendered Service Path: " + input.getName();
+                    rpcResultBuilder = RpcResultBuilder.<DeleteRenderedPathOutput>failed()
+                        .withError(ErrorType.APPLICATION, message);
+                }
+                return rpcResultBuilder.build();
+            }
+        });
     }
 
     /**
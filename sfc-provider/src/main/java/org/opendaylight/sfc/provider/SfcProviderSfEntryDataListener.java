@@ -23,6 +23,7 @@ import org.opendaylight.sfc.provider.api.SfcProviderRenderedPathAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceTypeAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderTopologyAPI;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
@@ -47,7 +48,7 @@ public class SfcProviderSfEntryDataListener implements DataChangeListener {
 
     /**
      * This method is called whenever there is change in a SF. Before doing any changes
-     * it takes a global lock in order to ensure it is the only writer.
+     * it locks the affected SFs in order to ensure it is the only writer for them.
      *
      * @param change
      */
@@ -56,113 +57,138 @@ public class SfcProviderSfEntryDataListener implements DataChangeListener {
 
         printTraceStart(LOG);
 
-        if (SfcConcurrencyAPI.getLock()) {
-            try {
-
-                // SF ORIGINAL
-                Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataOriginalDataObject.entrySet()) {
-                    if (entry.getValue() instanceof ServiceFunction) {
-                        ServiceFunction originalServiceFunction = (ServiceFunction) entry.getValue();
-                        LOG.debug("\n########## getOriginalConfigurationData {}  {}", originalServiceFunction.getType(),
-                                originalServiceFunction.getName());
-                    }
+        // Only the SFs touched by this change are locked
+        List<SfName> entityNames = new ArrayList<>();
+        for (DataObject dataObject : change.getCreatedData().values()) {
+            if (dataObject instanceof ServiceFunction) {
+                entityNames.add(((ServiceFunction) dataObject).getName());
+            }
+        }
+        for (DataObject dataObject : change.getOriginalData().values()) {
+            if (dataObject instanceof ServiceFunction) {
+                entityNames.add(((ServiceFunction) dataObject).getName());
+            }
+        }
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(entityNames);
+        try {
+
+            // SF ORIGINAL
+            Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
+
+            // Topology graph, only SF creation and deletion change it
+            List<ServiceFunction> createdServiceFunctions = new ArrayList<>();
+            List<ServiceFunction> removedServiceFunctions = new ArrayList<>();
+            for (DataObject dataObject : change.getCreatedData().values()) {
+                if (dataObject instanceof ServiceFunction) {
+                    createdServiceFunctions.add((ServiceFunction) dataObject);
+                }
+            }
+            for (InstanceIdentifier<?> instanceIdentifier : change.getRemovedPaths()) {
+                DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
+                if (dataObject instanceof ServiceFunction) {
+                    removedServiceFunctions.add((ServiceFunction) dataObject);
+                }
+            }
+            SfcProviderTopologyAPI.updateServiceFunctions(createdServiceFunctions, removedServiceFunctions);
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataOriginalDataObject.entrySet()) {
+                if (entry.getValue() instanceof ServiceFunction) {
+                    ServiceFunction originalServiceFunction = (ServiceFunction) entry.getValue();
+                    LOG.debug("\n########## getOriginalConfigurationData {}  {}", originalServiceFunction.getType(),
+                            originalServiceFunction.getName());
                 }
+            }
 
-                // SF CREATION
-                Map<InstanceIdentifier<?>, DataObject> dataCreatedObject = change.getCreatedData();
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedObject.entrySet()) {
-                    if (entry.getValue() instanceof ServiceFunction) {
-                        ServiceFunction createdServiceFunction = (ServiceFunction) entry.getValue();
+            // SF CREATION
+            Map<InstanceIdentifier<?>, DataObject> dataCreatedObject = change.getCreatedData();
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedObject.entrySet()) {
+                if (entry.getValue() instanceof ServiceFunction) {
+                    ServiceFunction createdServiceFunction = (ServiceFunction) entry.getValue();
 
-                        if (!SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(createdServiceFunction)) {
-                            LOG.error("Failed to create service function type: {}", createdServiceFunction.getType());
-                        }
+                    if (!SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(createdServiceFunction)) {
+                        LOG.error("Failed to create service function type: {}", createdServiceFunction.getType());
                     }
                 }
+            }
 
-                // SF DELETION
-                Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
-                for (InstanceIdentifier instanceIdentifier : dataRemovedConfigurationIID) {
-                    DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
-                    if (dataObject instanceof ServiceFunction) {
-                        ServiceFunction originalServiceFunction = (ServiceFunction) dataObject;
+            // SF DELETION
+            Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
+            for (InstanceIdentifier instanceIdentifier : dataRemovedConfigurationIID) {
+                DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
+                if (dataObject instanceof ServiceFunction) {
+                    ServiceFunction originalServiceFunction = (ServiceFunction) dataObject;
 
-                        if (!SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(originalServiceFunction)) {
-                            LOG.error("Failed to delete Service Function Type for SF: {}",
-                                    originalServiceFunction.getName());
-                        }
+                    if (!SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(originalServiceFunction)) {
+                        LOG.error("Failed to delete Service Function Type for SF: {}",
+                                originalServiceFunction.getName());
+                    }
 
-                        /*
-                         * Before removing RSPs used by this Service Function, we need to remove all
-                         * references in the SFF/SF operational trees
-                         */
-                        SfName sfName = originalServiceFunction.getName();
-                        List<RspName> rspList = SfcProviderServiceFunctionAPI.getRspsBySfName(sfName);
-                        if ((rspList != null) && (!rspList.isEmpty())) {
-                            if (SfcProviderServiceFunctionAPI.deleteServiceFunctionState(sfName)) {
-                            } else {
-                                LOG.error("{}: Failed to delete SF {} operational state",
-                                        Thread.currentThread().getStackTrace()[1], sfName);
-                            }
-                            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(rspList);
-
-                            SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
+                    /*
+                     * Before removing RSPs used by this Service Function, we need to remove all
+                     * references in the SFF/SF operational trees
+                     */
+                    SfName sfName = originalServiceFunction.getName();
+                    List<RspName> rspList = SfcProviderServiceFunctionAPI.getRspsBySfName(sfName);
+                    if ((rspList != null) && (!rspList.isEmpty())) {
+                        if (SfcProviderServiceFunctionAPI.deleteServiceFunctionState(sfName)) {
+                        } else {
+                            LOG.error("{}: Failed to delete SF {} operational state",
+                                    Thread.currentThread().getStackTrace()[1], sfName);
                         }
+                        SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(rspList);
+
+                        SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
                     }
                 }
+            }
+
+            // SF UPDATE
+            Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject = change.getUpdatedData();
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
+                if ((entry.getValue() instanceof ServiceFunction)
+                        && (!(dataCreatedObject.containsKey(entry.getKey())))) {
+                    DataObject dataObject = dataOriginalDataObject.get(entry.getKey());
+                    ServiceFunction originalServiceFunction = (ServiceFunction) dataObject;
+                    ServiceFunction updatedServiceFunction = (ServiceFunction) entry.getValue();
+
+                    // We only update SF type entry if type has changed
+                    if (!updatedServiceFunction.getType().equals(originalServiceFunction.getType())) {
+                        // We remove the original SF from SF type list
+                        SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(originalServiceFunction);
+                        // We create a independent entry
+                        SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(updatedServiceFunction);
+                    }
 
-                // SF UPDATE
-                Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject = change.getUpdatedData();
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
-                    if ((entry.getValue() instanceof ServiceFunction)
-                            && (!(dataCreatedObject.containsKey(entry.getKey())))) {
-                        DataObject dataObject = dataOriginalDataObject.get(entry.getKey());
-                        ServiceFunction originalServiceFunction = (ServiceFunction) dataObject;
-                        ServiceFunction updatedServiceFunction = (ServiceFunction) entry.getValue();
-
-                        // We only update SF type entry if type has changed
-                        if (!updatedServiceFunction.getType().equals(originalServiceFunction.getType())) {
-                            // We remove the original SF from SF type list
-                            SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(originalServiceFunction);
-                            // We create a independent entry
-                            SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(updatedServiceFunction);
+                    /*
+                     * Before removing RSPs used by this Service Function, we need to remove all
+                     * references in the SFF/SF operational trees
+                     */
+                    SfName sfName = originalServiceFunction.getName();
+                    List<SfServicePath> sfServicePathList =
+                            SfcProviderServiceFunctionAPI.readServiceFunctionState(sfName);
+                    List<RspName> rspList = new ArrayList<>();
+                    if ((sfServicePathList != null) && (!sfServicePathList.isEmpty())) {
+                        if (!SfcProviderServiceFunctionAPI.deleteServiceFunctionState(sfName)) {
+                            LOG.error("{}: Failed to delete SF {} operational state",
+                                    Thread.currentThread().getStackTrace()[1], sfName);
                         }
+                        for (SfServicePath sfServicePath : sfServicePathList) {
+                            // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
 
-                        /*
-                         * Before removing RSPs used by this Service Function, we need to remove all
-                         * references in the SFF/SF operational trees
-                         */
-                        SfName sfName = originalServiceFunction.getName();
-                        List<SfServicePath> sfServicePathList =
-                                SfcProviderServiceFunctionAPI.readServiceFunctionState(sfName);
-                        List<RspName> rspList = new ArrayList<>();
-                        if ((sfServicePathList != null) && (!sfServicePathList.isEmpty())) {
-                            if (!SfcProviderServiceFunctionAPI.deleteServiceFunctionState(sfName)) {
-                                LOG.error("{}: Failed to delete SF {} operational state",
-                                        Thread.currentThread().getStackTrace()[1], sfName);
-                            }
-                            for (SfServicePath sfServicePath : sfServicePathList) {
-                                // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-
-                                RspName rspName = new RspName(sfServicePath.getName().getValue());
-                                SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(rspName);
-                                rspList.add(rspName);
-                            }
-                            SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
+                            RspName rspName = new RspName(sfServicePath.getName().getValue());
+                            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(rspName);
+                            rspList.add(rspName);
                         }
-                        /*
-                         * We do not update the SFF dictionary. Since the user configured it in the
-                         * first place,
-                         * (s)he is also responsible for updating it.
-                         */
+                        SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
                     }
+                    /*
+                     * We do not update the SFF dictionary. Since the user configured it in the
+                     * first place,
+                     * (s)he is also responsible for updating it.
+                     */
                 }
-            } finally {
-                SfcConcurrencyAPI.releaseLock();
             }
-        } else {
-            LOG.error("{}: Failed to Acquire Lock", Thread.currentThread().getStackTrace()[1]);
+        } finally {
+            entityLocks.unlock();
         }
         printTraceStop(LOG);
     }
@@ -22,6 +22,7 @@ import org.opendaylight.sfc.provider.api.SfcConcurrencyAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderRenderedPathAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderTopologyAPI;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
@@ -50,122 +51,153 @@ public class SfcProviderSffEntryDataListener implements DataChangeListener {
     public void onDataChanged(final AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change) {
 
         printTraceStart(LOG);
-        if (SfcConcurrencyAPI.getLock()) {
-            try {
+        // Only the SFFs touched by this change are locked
+        List<SffName> entityNames = new ArrayList<>();
+        for (DataObject dataObject : change.getCreatedData().values()) {
+            if (dataObject instanceof ServiceFunctionForwarder) {
+                entityNames.add(((ServiceFunctionForwarder) dataObject).getName());
+            }
+        }
+        for (DataObject dataObject : change.getOriginalData().values()) {
+            if (dataObject instanceof ServiceFunctionForwarder) {
+                entityNames.add(((ServiceFunctionForwarder) dataObject).getName());
+            }
+        }
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(entityNames);
+        try {
 
-                // SFF ORIGINAL
+            // SFF ORIGINAL
 
-                Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
+            Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
 
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataOriginalDataObject.entrySet()) {
-                    if (entry.getValue() instanceof ServiceFunctionForwarder) {
-                        ServiceFunctionForwarder originalServiceFunctionForwarder =
-                                (ServiceFunctionForwarder) entry.getValue();
-                        LOG.debug("Original SFF: {}", originalServiceFunctionForwarder.getName());
-                    }
+            // Topology graph, the edges of a created or updated SFF replace its previous ones
+            List<ServiceFunctionForwarder> updatedServiceFunctionForwarders = new ArrayList<>();
+            List<ServiceFunctionForwarder> removedServiceFunctionForwarders = new ArrayList<>();
+            for (DataObject dataObject : change.getCreatedData().values()) {
+                if (dataObject instanceof ServiceFunctionForwarder) {
+                    updatedServiceFunctionForwarders.add((ServiceFunctionForwarder) dataObject);
+                }
+            }
+            for (DataObject dataObject : change.getUpdatedData().values()) {
+                if (dataObject instanceof ServiceFunctionForwarder) {
+                    updatedServiceFunctionForwarders.add((ServiceFunctionForwarder) dataObject);
+                }
+            }
+            for (InstanceIdentifier<?> instanceIdentifier : change.getRemovedPaths()) {
+                DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
+                if (dataObject instanceof ServiceFunctionForwarder) {
+                    removedServiceFunctionForwarders.add((ServiceFunctionForwarder) dataObject);
+                }
+            }
+            SfcProviderTopologyAPI.updateServiceFunctionForwarders(updatedServiceFunctionForwarders,
+                    removedServiceFunctionForwarders);
+
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataOriginalDataObject.entrySet()) {
+                if (entry.getValue() instanceof ServiceFunctionForwarder) {
+                    ServiceFunctionForwarder originalServiceFunctionForwarder =
+                            (ServiceFunctionForwarder) entry.getValue();
+                    LOG.debug("Original SFF: {}", originalServiceFunctionForwarder.getName());
                 }
+            }
 
-                // SFF DELETION
-                Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
-                for (InstanceIdentifier instanceIdentifier : dataRemovedConfigurationIID) {
-                    DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
-                    if (dataObject instanceof ServiceFunctionForwarder) {
-                        ServiceFunctionForwarder serviceFunctionForwarder = (ServiceFunctionForwarder) dataObject;
-
-                        /*
-                         * Before removing RSPs used by this Service Function, we need to remove all
-                         * references in the SFF/SF operational trees
-                         */
-
-                        LOG.debug("{}: SFF {} deletion", Thread.currentThread().getStackTrace()[1],
-                                serviceFunctionForwarder.getName());
-                        SffName sffName = serviceFunctionForwarder.getName();
-                        List<RspName> rspList = new ArrayList<>();
-                        List<SffServicePath> sffServicePathList = SfcProviderServiceForwarderAPI.readSffState(sffName);
-                        if ((sffServicePathList != null) && !sffServicePathList.isEmpty()) {
-                            if (SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarderState(sffName)) {
-
-                            } else {
-                                LOG.error("{}: Failed to delete SFF {} operational state",
-                                        Thread.currentThread().getStackTrace()[1], sffName);
-                            }
-                            for (SffServicePath sffServicePath : sffServicePathList) {
-                                // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-
-                                RspName rspName = new RspName(sffServicePath.getName().getValue());
-                                // XXX Another example of Method Overloading confusion brought about
-                                // by Strings
-                                SfcProviderServiceFunctionAPI
-                                    .deleteServicePathFromServiceFunctionState(new SfpName(rspName.getValue()));
-                                rspList.add(rspName);
-                            }
-                            SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
+            // SFF DELETION
+            Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
+            for (InstanceIdentifier instanceIdentifier : dataRemovedConfigurationIID) {
+                DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
+                if (dataObject instanceof ServiceFunctionForwarder) {
+                    ServiceFunctionForwarder serviceFunctionForwarder = (ServiceFunctionForwarder) dataObject;
+
+                    /*
+                     * Before removing RSPs used by this Service Function, we need to remove all
+                     * references in the SFF/SF operational trees
+                     */
+
+                    LOG.debug("{}: SFF {} deletion", Thread.currentThread().getStackTrace()[1],
+                            serviceFunctionForwarder.getName());
+                    SffName sffName = serviceFunctionForwarder.getName();
+                    List<RspName> rspList = new ArrayList<>();
+                    List<SffServicePath> sffServicePathList = SfcProviderServiceForwarderAPI.readSffState(sffName);
+                    if ((sffServicePathList != null) && !sffServicePathList.isEmpty()) {
+                        if (SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarderState(sffName)) {
+
+                        } else {
+                            LOG.error("{}: Failed to delete SFF {} operational state",
+                                    Thread.currentThread().getStackTrace()[1], sffName);
+                        }
+                        for (SffServicePath sffServicePath : sffServicePathList) {
+                            // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
+
+                            RspName rspName = new RspName(sffServicePath.getName().getValue());
+                            // XXX Another example of Method Overloading confusion brought about
+                            // by Strings
+                            SfcProviderServiceFunctionAPI
+                                .deleteServicePathFromServiceFunctionState(new SfpName(rspName.getValue()));
+                            rspList.add(rspName);
                         }
+                        SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
                     }
                 }
+            }
 
-                // SFF CREATION
-
-                Map<InstanceIdentifier<?>, DataObject> dataCreatedObject = change.getCreatedData();
+            // SFF CREATION
 
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedObject.entrySet()) {
-                    if (entry.getValue() instanceof ServiceFunctionForwarder) {
-                        ServiceFunctionForwarder createdServiceFunctionForwarder =
-                                (ServiceFunctionForwarder) entry.getValue();
-                        SffVxlanClassifierType1 sffVxlanOverlayClassifierType1 =
-                                createdServiceFunctionForwarder.getAugmentation(SffVxlanClassifierType1.class);
-                        if (sffVxlanOverlayClassifierType1 != null) {
-                            VxlanClassifierType1 vxlanClassifierType1 =
-                                    sffVxlanOverlayClassifierType1.getVxlanClassifierType1();
-                        }
-                        LOG.debug("{}: SFF {} create", Thread.currentThread().getStackTrace()[1],
-                                createdServiceFunctionForwarder.getName());
+            Map<InstanceIdentifier<?>, DataObject> dataCreatedObject = change.getCreatedData();
 
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedObject.entrySet()) {
+                if (entry.getValue() instanceof ServiceFunctionForwarder) {
+                    ServiceFunctionForwarder createdServiceFunctionForwarder =
+                            (ServiceFunctionForwarder) entry.getValue();
+                    SffVxlanClassifierType1 sffVxlanOverlayClassifierType1 =
+                            createdServiceFunctionForwarder.getAugmentation(SffVxlanClassifierType1.class);
+                    if (sffVxlanOverlayClassifierType1 != null) {
+                        VxlanClassifierType1 vxlanClassifierType1 =
+                                sffVxlanOverlayClassifierType1.getVxlanClassifierType1();
                     }
+                    LOG.debug("{}: SFF {} create", Thread.currentThread().getStackTrace()[1],
+                            createdServiceFunctionForwarder.getName());
+
                 }
+            }
 
-                // SFF UPDATE
-                Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject = change.getUpdatedData();
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
-                    if ((entry.getValue() instanceof ServiceFunctionForwarder)
-                            && (!(dataCreatedObject.containsKey(entry.getKey())))) {
-
-                        ServiceFunctionForwarder serviceFunctionForwarder = (ServiceFunctionForwarder) entry.getValue();
-
-                        /*
-                         * Before removing RSPs used by this Service Function, we need to remove all
-                         * references in the SFF/SF operational trees
-                         */
-
-                        SffName sffName = serviceFunctionForwarder.getName();
-                        LOG.debug("{}: SFF {} update", Thread.currentThread().getStackTrace()[1], sffName);
-                        List<SffServicePath> sffServicePathList = SfcProviderServiceForwarderAPI.readSffState(sffName);
-                        List<RspName> rspList = new ArrayList<>();
-                        if ((sffServicePathList != null) && !sffServicePathList.isEmpty()) {
-                            if (!SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarderState(sffName)) {
-                                LOG.error("{}: Failed to delete SFF {} operational state",
-                                        Thread.currentThread().getStackTrace()[1], sffName);
-                            }
-                            for (SffServicePath sffServicePath : sffServicePathList) {
-                                // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-
-                                RspName rspName = new RspName(sffServicePath.getName().getValue());
-                                // XXX Another example of Method Overloading confusion brought about
-                                // by Strings
-                                SfcProviderServiceFunctionAPI
-                                    .deleteServicePathFromServiceFunctionState(new SfpName(rspName.getValue()));
-                                rspList.add(rspName);
-                            }
-                            SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
+            // SFF UPDATE
+            Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject = change.getUpdatedData();
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
+                if ((entry.getValue() instanceof ServiceFunctionForwarder)
+                        && (!(dataCreatedObject.containsKey(entry.getKey())))) {
+
+                    ServiceFunctionForwarder serviceFunctionForwarder = (ServiceFunctionForwarder) entry.getValue();
+
+                    /*
+                     * Before removing RSPs used by this Service Function, we need to remove all
+                     * references in the SFF/SF operational trees
+                     */
+
+                    SffName sffName = serviceFunctionForwarder.getName();
+                    LOG.debug("{}: SFF {} update", Thread.currentThread().getStackTrace()[1], sffName);
+                    List<SffServicePath> sffServicePathList = SfcProviderServiceForwarderAPI.readSffState(sffName);
+                    List<RspName> rspList = new ArrayList<>();
+                    if ((sffServicePathList != null) && !sffServicePathList.isEmpty()) {
+                        if (!SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarderState(sffName)) {
+                            LOG.error("{}: Failed to delete SFF {} operational state",
+                                    Thread.currentThread().getStackTrace()[1], sffName);
                         }
-
+                        for (SffServicePath sffServicePath : sffServicePathList) {
+                            // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
+
+                            RspName rspName = new RspName(sffServicePath.getName().getValue());
+                            // XXX Another example of Method Overloading confusion brought about
+                            // by Strings
+                            SfcProviderServiceFunctionAPI
+                                .deleteServicePathFromServiceFunctionState(new SfpName(rspName.getValue()));
+                            rspList.add(rspName);
+                        }
+                        SfcProviderRenderedPathAPI.deleteRenderedServicePaths(rspList);
                     }
+
                 }
-            } finally {
-                SfcConcurrencyAPI.releaseLock();
             }
-        } else {
-            LOG.error("{}: Failed to Acquire Lock", Thread.currentThread().getStackTrace()[1]);
+        } finally {
+            entityLocks.unlock();
         }
         printTraceStop(LOG);
     }
@@ -15,10 +15,11 @@ import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.opendaylight.controller.md.sal.binding.api.DataChangeListener;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
-import org.opendaylight.sfc.provider.api.SfcConcurrencyAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderScheduleTypeAPI;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ServiceFunctionSchedulerTypes;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.service.function.scheduler.types.ServiceFunctionSchedulerType;
@@ -33,10 +34,13 @@ public class SfcProviderSfstEntryDataListener implements DataChangeListener {
     private static final Logger LOG = LoggerFactory.getLogger(SfcProviderSfstEntryDataListener.class);
     private OpendaylightSfc odlSfc = OpendaylightSfc.getOpendaylightSfcObj();
     private static boolean isCreateTrue = false;
+    // Schedule types are not tied to any SF/SFF/SFP/RSP, so their changes
+    // only need to be serialized against each other
+    private static final Lock SFST_LOCK = new ReentrantLock();
 
     /**
      * This method is called whenever there is change in a SF Schedule Type. Before doing any changes
-     * it takes a global lock in order to ensure it is the only writer.
+     * it takes the schedule type lock in order to ensure it is the only writer.
      *
      * @param change
      */
@@ -44,31 +48,78 @@ public class SfcProviderSfstEntryDataListener implements DataChangeListener {
     public void onDataChanged(
             final AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change) {
         printTraceStart(LOG);
-        if (SfcConcurrencyAPI.getLock()) {
-            try {
-
-                // SF Schedule Type ORIGINAL
-                Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
-
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataOriginalDataObject.entrySet()) {
-                    if (entry.getValue() instanceof ServiceFunctionSchedulerType) {
-                        ServiceFunctionSchedulerType origServiceFunctionSchedulerType =
-                                (ServiceFunctionSchedulerType) entry.getValue();
-                        LOG.debug("\n########## getOriginalConfigurationData {} {}",
-                                origServiceFunctionSchedulerType.getType(), origServiceFunctionSchedulerType.getName());
+        SFST_LOCK.lock();
+        try {
+
+            // SF Schedule Type ORIGINAL
+            Map<InstanceIdentifier<?>, DataObject> dataOriginalDataObject = change.getOriginalData();
+
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataOriginalDataObject.entrySet()) {
+                if (entry.getValue() instanceof ServiceFunctionSchedulerType) {
+                    ServiceFunctionSchedulerType origServiceFunctionSchedulerType =
+                            (ServiceFunctionSchedulerType) entry.getValue();
+                    LOG.debug("\n########## getOriginalConfigurationData {} {}",
+                            origServiceFunctionSchedulerType.getType(), origServiceFunctionSchedulerType.getName());
+                }
+            }
+
+            // SF Schedule Type CREATION
+            Map<InstanceIdentifier<?>, DataObject> dataCreatedObject = change.getCreatedData();
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedObject.entrySet()) {
+                if (entry.getValue() instanceof ServiceFunctionSchedulerType) {
+                    ServiceFunctionSchedulerType createdServiceFunctionSchedulerType =
+                            (ServiceFunctionSchedulerType) entry.getValue();
+                    LOG.debug("\n########## createdServiceFunctionSchedulerType {} {}",
+                            createdServiceFunctionSchedulerType.getType(), createdServiceFunctionSchedulerType.getName());
+                    if (createdServiceFunctionSchedulerType.isEnabled() == true) {
+                        isCreateTrue = true;
+                        ServiceFunctionSchedulerTypes serviceFunctionSchedulerTypes = SfcProviderScheduleTypeAPI
+                                .readAllServiceFunctionScheduleTypes();
+                        if(serviceFunctionSchedulerTypes != null) {
+                            List<ServiceFunctionSchedulerType> sfScheduleTypeList =
+                                    serviceFunctionSchedulerTypes.getServiceFunctionSchedulerType();
+                            for (ServiceFunctionSchedulerType sfst : sfScheduleTypeList) {
+                                if (sfst.isEnabled() == true) {
+                                    if (!(sfst.getType().equals(createdServiceFunctionSchedulerType.getType()))) {
+                                        ServiceFunctionSchedulerType sfstUpdate = new ServiceFunctionSchedulerTypeBuilder()
+                                                                                    .setName(sfst.getName())
+                                                                                    .setType(sfst.getType())
+                                                                                    .setEnabled(false).build();
+
+                                        SfcProviderScheduleTypeAPI.putServiceFunctionScheduleType(sfstUpdate);
+                                        break;
+                                    }
+                                }
+                            }
+                        }
                     }
                 }
+            }
+
+            // SF Schedule Type DELETION
+            Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
+            for (InstanceIdentifier instanceIdentifier : dataRemovedConfigurationIID) {
+                DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
+                if (dataObject instanceof ServiceFunctionSchedulerType) {
+                    ServiceFunctionSchedulerType origServiceFunctionSchedulerType =
+                            (ServiceFunctionSchedulerType) dataObject;
+                    LOG.debug("\n########## deletedServiceFunctionSchedulerType {} {}",
+                        origServiceFunctionSchedulerType.getType(), origServiceFunctionSchedulerType.getName());
+                }
+            }
+
+            // SF Schedule Type UPDATE
+            Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject
+                    = change.getUpdatedData();
+            for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
+                if ((entry.getValue() instanceof ServiceFunctionSchedulerType) && (!(dataCreatedObject.containsKey(entry.getKey())))) {
+                    ServiceFunctionSchedulerType updatedServiceFunctionSchedulerType = (ServiceFunctionSchedulerType) entry.getValue();
 
-                // SF Schedule Type CREATION
-                Map<InstanceIdentifier<?>, DataObject> dataCreatedObject = change.getCreatedData();
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedObject.entrySet()) {
-                    if (entry.getValue() instanceof ServiceFunctionSchedulerType) {
-                        ServiceFunctionSchedulerType createdServiceFunctionSchedulerType =
-                                (ServiceFunctionSchedulerType) entry.getValue();
-                        LOG.debug("\n########## createdServiceFunctionSchedulerType {} {}",
-                                createdServiceFunctionSchedulerType.getType(), createdServiceFunctionSchedulerType.getName());
-                        if (createdServiceFunctionSchedulerType.isEnabled() == true) {
-                            isCreateTrue = true;
+                    LOG.debug("\n########## updatedServiceFunctionSchedulerType {} {}",
+                            updatedServiceFunctionSchedulerType.getType(), updatedServiceFunctionSchedulerType.getName());
+
+                    if (isCreateTrue==false) {
+                        if (updatedServiceFunctionSchedulerType.isEnabled() == true) {
                             ServiceFunctionSchedulerTypes serviceFunctionSchedulerTypes = SfcProviderScheduleTypeAPI
                                     .readAllServiceFunctionScheduleTypes();
                             if(serviceFunctionSchedulerTypes != null) {
@@ -76,7 +127,7 @@ public class SfcProviderSfstEntryDataListener implements DataChangeListener {
                                         serviceFunctionSchedulerTypes.getServiceFunctionSchedulerType();
                                 for (ServiceFunctionSchedulerType sfst : sfScheduleTypeList) {
                                     if (sfst.isEnabled() == true) {
-                                        if (!(sfst.getType().equals(createdServiceFunctionSchedulerType.getType()))) {
+                                        if (!(sfst.getType().equals(updatedServiceFunctionSchedulerType.getType()))) {
                                             ServiceFunctionSchedulerType sfstUpdate = new ServiceFunctionSchedulerTypeBuilder()
                                                                                         .setName(sfst.getName())
                                                                                         .setType(sfst.getType())
@@ -84,70 +135,20 @@ public class SfcProviderSfstEntryDataListener implements DataChangeListener {
 
                                             SfcProviderScheduleTypeAPI.putServiceFunctionScheduleType(sfstUpdate);
                                             break;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
 
-                // SF Schedule Type DELETION
-                Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
-                for (InstanceIdentifier instanceIdentifier : dataRemovedConfigurationIID) {
-                    DataObject dataObject = dataOriginalDataObject.get(instanceIdentifier);
-                    if (dataObject instanceof ServiceFunctionSchedulerType) {
-                        ServiceFunctionSchedulerType origServiceFunctionSchedulerType =
-                                (ServiceFunctionSchedulerType) dataObject;
-                        LOG.debug("\n########## deletedServiceFunctionSchedulerType {} {}",
-                            origServiceFunctionSchedulerType.getType(), origServiceFunctionSchedulerType.getName());
-                    }
-                }
-
-                // SF Schedule Type UPDATE
-                Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject
-                        = change.getUpdatedData();
-                for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
-                    if ((entry.getValue() instanceof ServiceFunctionSchedulerType) && (!(dataCreatedObject.containsKey(entry.getKey())))) {
-                        ServiceFunctionSchedulerType updatedServiceFunctionSchedulerType = (ServiceFunctionSchedulerType) entry.getValue();
-
-                        LOG.debug("\n########## updatedServiceFunctionSchedulerType {} {}",
-                                updatedServiceFunctionSchedulerType.getType(), updatedServiceFunctionSchedulerType.getName());
-
-                        if (isCreateTrue==false) {
-                            if (updatedServiceFunctionSchedulerType.isEnabled() == true) {
-                                ServiceFunctionSchedulerTypes serviceFunctionSchedulerTypes = SfcProviderScheduleTypeAPI
-                                        .readAllServiceFunctionScheduleTypes();
-                                if(serviceFunctionSchedulerTypes != null) {
-                                    List<ServiceFunctionSchedulerType> sfScheduleTypeList =
-                                            serviceFunctionSchedulerTypes.getServiceFunctionSchedulerType();
-                                    for (ServiceFunctionSchedulerType sfst : sfScheduleTypeList) {
-                                        if (sfst.isEnabled() == true) {
-                                            if (!(sfst.getType().equals(updatedServiceFunctionSchedulerType.getType()))) {
-                                                ServiceFunctionSchedulerType sfstUpdate = new ServiceFunctionSchedulerTypeBuilder()
-                                                                                            .setName(sfst.getName())
-                                                                                            .setType(sfst.getType())
-                                                                                            .setEnabled(false).build();
-
-                                                SfcProviderScheduleTypeAPI.putServiceFunctionScheduleType(sfstUpdate);
-                                                break;
-
-                                            }
                                         }
                                     }
                                 }
                             }
-                        } else if (isCreateTrue==true) {
-                            isCreateTrue=false;
                         }
+                    } else if (isCreateTrue==true) {
+                        isCreateTrue=false;
                     }
                 }
-
-            } finally {
-                SfcConcurrencyAPI.releaseLock();
             }
-        } else {
-            LOG.error("{}: Failed to Acquire Lock", Thread.currentThread().getStackTrace()[1]);
+
+        } finally {
+            SFST_LOCK.unlock();
         }
         printTraceStop(LOG);
     }
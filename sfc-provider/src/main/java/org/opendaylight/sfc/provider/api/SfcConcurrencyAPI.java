@@ -8,15 +8,36 @@
 
 package org.opendaylight.sfc.provider.api;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
 
-import java.util.concurrent.TimeUnit;
+import com.google.common.util.concurrent.Striped;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class holds SFC Concurrency high level APIs <p>
+ *
+ * Configuration changes are serialized per entity: every SF, SFF, SFP and
+ * RSP name maps onto one of a fixed number of lock stripes, so changes to
+ * unrelated entities proceed in parallel. To stay deadlock free all locks
+ * a thread needs are taken with a single {@link #lockEntities} call, which
+ * acquires them in a global order: SF stripes first, then SFF, SFP and RSP
+ * stripes, each kind in ascending stripe order. A thread already holding
+ * entity locks may only lock stripes after the ones it holds in that order
+ * (e.g. RSPs while holding SFs), or stripes it already holds. A nested
+ * acquisition breaking the order is rejected with an
+ * {@link IllegalStateException} instead of risking a deadlock.
+ * <p>
  * @author Reinaldo Penno (rapenno@gmail.com)
  * @version 0.1
  * @since 2015-06-23
@@ -24,38 +45,159 @@ import java.util.concurrent.locks.ReentrantLock;
 
 public class SfcConcurrencyAPI {
 
-    private static final Lock SFC_LOCK = new ReentrantLock();
-    private static final Lock SFC_PATHID_LOCK = new ReentrantLock();
-    private static final Logger LOG = LoggerFactory.getLogger(SfcConcurrencyAPI.class);
+    private static final int ENTITY_LOCK_STRIPES = 256;
+
+    // One independent set of stripes per entity kind, in acquisition order
+    private static final Striped<Lock> SF_LOCKS = Striped.lock(ENTITY_LOCK_STRIPES);
+    private static final Striped<Lock> SFF_LOCKS = Striped.lock(ENTITY_LOCK_STRIPES);
+    private static final Striped<Lock> SFP_LOCKS = Striped.lock(ENTITY_LOCK_STRIPES);
+    private static final Striped<Lock> RSP_LOCKS = Striped.lock(ENTITY_LOCK_STRIPES);
+
+    // Position of every stripe in the global acquisition order
+    private static final Map<Lock, Integer> LOCK_ORDER = new IdentityHashMap<>();
 
-    public static boolean getLock() {
+    static {
+        addLockOrder(SF_LOCKS);
+        addLockOrder(SFF_LOCKS);
+        addLockOrder(SFP_LOCKS);
+        addLockOrder(RSP_LOCKS);
+    }
+
+    // Stripes held by the current thread, once per acquisition
+    private static final ThreadLocal<List<Lock>> HELD_LOCKS = new ThreadLocal<List<Lock>>() {
+
+        @Override
+        protected List<Lock> initialValue() {
+            return new ArrayList<>();
+        }
+    };
+
+    /**
+     * Locks all given entities, blocking until every lock is held. Names
+     * may be {@link SfName}, {@link SffName}, {@link SfpName} or
+     * {@link RspName} in any mix and order; nulls and duplicates are
+     * ignored.
+     *
+     * @param entityNames entity names to lock
+     * @return handle used to release all the acquired locks
+     * @throws IllegalStateException if the current thread already holds
+     *         entity locks that come after some of the new ones
+     */
+    public static EntityLocks lockEntities(Collection<?> entityNames) {
+        List<Object> sfNames = new ArrayList<>();
+        List<Object> sffNames = new ArrayList<>();
+        List<Object> sfpNames = new ArrayList<>();
+        List<Object> rspNames = new ArrayList<>();
+
+        for (Object entityName : entityNames) {
+            if (entityName == null) {
+                continue;
+            } else if (entityName instanceof SfName) {
+                sfNames.add(entityName);
+            } else if (entityName instanceof SffName) {
+                sffNames.add(entityName);
+            } else if (entityName instanceof SfpName) {
+                sfpNames.add(entityName);
+            } else if (entityName instanceof RspName) {
+                rspNames.add(entityName);
+            } else {
+                throw new IllegalArgumentException("Not a lockable entity name: " + entityName.getClass());
+            }
+        }
+
+        // bulkGet() returns the stripes in ascending stripe order
+        List<Lock> locks = new ArrayList<>();
+        addStripes(SF_LOCKS, sfNames, locks);
+        addStripes(SFF_LOCKS, sffNames, locks);
+        addStripes(SFP_LOCKS, sfpNames, locks);
+        addStripes(RSP_LOCKS, rspNames, locks);
+        checkLockOrder(locks);
+
+        List<Lock> acquired = new ArrayList<>(locks.size());
         try {
-            if (SFC_LOCK.tryLock(2000, TimeUnit.MILLISECONDS)) {
-                return true;
+            for (Lock lock : locks) {
+                lock.lock();
+                acquired.add(lock);
+                HELD_LOCKS.get().add(lock);
             }
-        } catch (InterruptedException e) {
-            LOG.error("Failed to Acquire Lock");
+        } catch (RuntimeException e) {
+            new EntityLocks(acquired).unlock();
+            throw e;
         }
-        return false;
+        return new EntityLocks(acquired);
     }
 
-    public static void releaseLock() {
-        SFC_LOCK.unlock();
+    /**
+     * Convenience variant of {@link #lockEntities(Collection)}
+     *
+     * @param entityNames entity names to lock
+     * @return handle used to release all the acquired locks
+     */
+    public static EntityLocks lockEntities(Object... entityNames) {
+        return lockEntities(Arrays.asList(entityNames));
     }
 
-    public static boolean getPathIdLock() {
-        try {
-            if (SFC_PATHID_LOCK.tryLock(2000, TimeUnit.MILLISECONDS)) {
-                return true;
+    private static void addLockOrder(Striped<Lock> striped) {
+        for (int i = 0; i < striped.size(); i++) {
+            LOCK_ORDER.put(striped.getAt(i), LOCK_ORDER.size());
+        }
+    }
+
+    /**
+     * Nested acquisition is only deadlock free if every stripe not held
+     * yet comes after all the stripes the thread already holds
+     */
+    private static void checkLockOrder(List<Lock> locks) {
+        List<Lock> heldLocks = HELD_LOCKS.get();
+        int lastHeld = -1;
+        for (Lock heldLock : heldLocks) {
+            lastHeld = Math.max(lastHeld, LOCK_ORDER.get(heldLock));
+        }
+        for (Lock lock : locks) {
+            if (LOCK_ORDER.get(lock) < lastHeld && !heldLocks.contains(lock)) {
+                throw new IllegalStateException(
+                        "Nested entity locks out of order, lock all entities in one lockEntities call");
             }
-        } catch (InterruptedException e) {
-            LOG.error("Failed to Acquire Lock");
         }
-        return false;
     }
 
-    public static void releasePathIdLock() {
-        SFC_PATHID_LOCK.unlock();
+    private static void addStripes(Striped<Lock> striped, List<Object> names, List<Lock> locks) {
+        if (names.isEmpty()) {
+            return;
+        }
+        Lock previous = null;
+        for (Lock lock : striped.bulkGet(names)) {
+            // Keys sharing a stripe come out next to each other
+            if (lock != previous) {
+                locks.add(lock);
+            }
+            previous = lock;
+        }
     }
 
+    /**
+     * Set of entity locks held by the current thread. It must be released
+     * by the same thread, normally in a finally block.
+     */
+    public static final class EntityLocks {
+
+        private final List<Lock> locks;
+
+        private EntityLocks(List<Lock> locks) {
+            this.locks = locks;
+        }
+
+        /**
+         * Releases all the locks, in reverse acquisition order
+         */
+        public void unlock() {
+            List<Lock> reversed = new ArrayList<>(locks);
+            Collections.reverse(reversed);
+            for (Lock lock : reversed) {
+                lock.unlock();
+                HELD_LOCKS.get().remove(lock);
+            }
+            locks.clear();
+        }
+    }
 }
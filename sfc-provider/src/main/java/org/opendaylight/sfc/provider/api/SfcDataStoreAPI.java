@@ -8,14 +8,22 @@
 
 package org.opendaylight.sfc.provider.api;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
 import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
 import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yangtools.yang.binding.DataObject;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,9 +49,8 @@ public class SfcDataStoreAPI {
             (InstanceIdentifier<U> deleteIID, LogicalDatastoreType logicalDatastoreType)  {
         boolean ret;
 
-        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
-        writeTx.delete(logicalDatastoreType, deleteIID);
-        CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+        CheckedFuture<Void, TransactionCommitFailedException> submitFuture =
+                deleteTransactionAPIAsync(deleteIID, logicalDatastoreType);
         try {
             submitFuture.checkedGet();
             ret = true;
@@ -54,14 +61,28 @@ public class SfcDataStoreAPI {
         return ret;
     }
 
+    /**
+     * Non-blocking variant of {@link #deleteTransactionAPI}. The delete is
+     * submitted and the commit future is returned without waiting on it.
+     *
+     * @param deleteIID InstanceIdentifier of the data to delete
+     * @param logicalDatastoreType CONFIGURATION or OPERATIONAL
+     * @return commit future
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject>
+            CheckedFuture<Void, TransactionCommitFailedException> deleteTransactionAPIAsync
+            (InstanceIdentifier<U> deleteIID, LogicalDatastoreType logicalDatastoreType)  {
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        writeTx.delete(logicalDatastoreType, deleteIID);
+        return writeTx.submit();
+    }
 
     public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> boolean writeMergeTransactionAPI
             (InstanceIdentifier<U> addIID, U data, LogicalDatastoreType logicalDatastoreType) {
         boolean ret;
 
-        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
-        writeTx.merge(logicalDatastoreType, addIID, data, true);
-        CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+        CheckedFuture<Void, TransactionCommitFailedException> submitFuture =
+                writeMergeTransactionAPIAsync(addIID, data, logicalDatastoreType);
         try {
             submitFuture.checkedGet();
             ret = true;
@@ -72,12 +93,27 @@ public class SfcDataStoreAPI {
         return ret;
     }
 
+    /**
+     * Non-blocking variant of {@link #writeMergeTransactionAPI}.
+     *
+     * @param addIID InstanceIdentifier of the data to merge
+     * @param data data to merge
+     * @param logicalDatastoreType CONFIGURATION or OPERATIONAL
+     * @return commit future
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject>
+            CheckedFuture<Void, TransactionCommitFailedException> writeMergeTransactionAPIAsync
+            (InstanceIdentifier<U> addIID, U data, LogicalDatastoreType logicalDatastoreType) {
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        writeTx.merge(logicalDatastoreType, addIID, data, true);
+        return writeTx.submit();
+    }
+
     public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> boolean writePutTransactionAPI
             (InstanceIdentifier<U> addIID, U data, LogicalDatastoreType logicalDatastoreType)  {
         boolean ret;
-        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
-        writeTx.put(logicalDatastoreType, addIID, data, true);
-        CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+        CheckedFuture<Void, TransactionCommitFailedException> submitFuture =
+                writePutTransactionAPIAsync(addIID, data, logicalDatastoreType);
         try {
             submitFuture.checkedGet();
             ret = true;
@@ -88,12 +124,28 @@ public class SfcDataStoreAPI {
         return ret;
     }
 
+    /**
+     * Non-blocking variant of {@link #writePutTransactionAPI}.
+     *
+     * @param addIID InstanceIdentifier of the data to put
+     * @param data data to put
+     * @param logicalDatastoreType CONFIGURATION or OPERATIONAL
+     * @return commit future
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject>
+            CheckedFuture<Void, TransactionCommitFailedException> writePutTransactionAPIAsync
+            (InstanceIdentifier<U> addIID, U data, LogicalDatastoreType logicalDatastoreType)  {
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        writeTx.put(logicalDatastoreType, addIID, data, true);
+        return writeTx.submit();
+    }
+
     public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> U readTransactionAPI
             (InstanceIdentifier<U> readIID, LogicalDatastoreType logicalDatastoreType)  {
         U ret = null;
-        ReadOnlyTransaction readTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newReadOnlyTransaction();
         Optional<U> optionalDataObject;
-        CheckedFuture<Optional<U>, ReadFailedException> submitFuture = readTx.read(logicalDatastoreType, readIID);
+        CheckedFuture<Optional<U>, ReadFailedException> submitFuture =
+                readTransactionAPIAsync(readIID, logicalDatastoreType);
         try {
             optionalDataObject = submitFuture.checkedGet();
             if (optionalDataObject != null
@@ -108,4 +160,192 @@ public class SfcDataStoreAPI {
         }
         return ret;
     }
+
+    /**
+     * Non-blocking variant of {@link #readTransactionAPI}. The returned
+     * future holds an absent Optional if there is no data at readIID.
+     *
+     * @param readIID InstanceIdentifier of the data to read
+     * @param logicalDatastoreType CONFIGURATION or OPERATIONAL
+     * @return read future
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject>
+            CheckedFuture<Optional<U>, ReadFailedException> readTransactionAPIAsync
+            (InstanceIdentifier<U> readIID, LogicalDatastoreType logicalDatastoreType)  {
+        ReadOnlyTransaction readTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newReadOnlyTransaction();
+        return readTx.read(logicalDatastoreType, readIID);
+    }
+
+    /**
+     * Turns a read future into a future of the data read, like the result
+     * of {@link #readTransactionAPI}. Failures are logged and never
+     * propagated, so the result can be chained without a fallback.
+     *
+     * @param readFuture read future
+     * @return future of the data read, holding null if there was none or the read failed
+     */
+    public static <U extends DataObject> ListenableFuture<U> toValueFuture(
+            CheckedFuture<Optional<U>, ReadFailedException> readFuture) {
+        ListenableFuture<U> value = Futures.transform(readFuture, new Function<Optional<U>, U>() {
+
+            @Override
+            public U apply(Optional<U> optionalDataObject) {
+                return optionalDataObject != null ? optionalDataObject.orNull() : null;
+            }
+        });
+        return Futures.withFallback(value, new FutureFallback<U>() {
+
+            @Override
+            public ListenableFuture<U> create(Throwable t) {
+                LOG.warn("Read failed. Message: {}", t.getMessage());
+                return Futures.immediateFuture(null);
+            }
+        });
+    }
+
+    /**
+     * Turns a commit future into a future that holds true if the commit
+     * succeeded and false otherwise. Failures are logged and never
+     * propagated, so the result can be chained without a fallback.
+     *
+     * @param submitFuture commit future
+     * @return future of the commit outcome
+     */
+    public static ListenableFuture<Boolean> toResultFuture(
+            CheckedFuture<Void, TransactionCommitFailedException> submitFuture) {
+        ListenableFuture<Boolean> succeeded = Futures.transform(submitFuture, new Function<Void, Boolean>() {
+
+            @Override
+            public Boolean apply(Void input) {
+                return Boolean.TRUE;
+            }
+        });
+        return Futures.withFallback(succeeded, new FutureFallback<Boolean>() {
+
+            @Override
+            public ListenableFuture<Boolean> create(Throwable t) {
+                LOG.error("Transaction failed. Message: {}", t.getMessage());
+                return Futures.immediateFuture(Boolean.FALSE);
+            }
+        });
+    }
+
+    /**
+     * Creates an empty batch of datastore operations. Operations added to
+     * the batch are only applied when {@link Batch#submit()} is called, and
+     * then all together in one transaction.
+     *
+     * @return new empty batch
+     */
+    public static Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Collects puts, merges and deletes, on both CONFIGURATION and
+     * OPERATIONAL datastores, and commits them in a single write
+     * transaction. Either all of them are applied or none is.
+     */
+    public static final class Batch {
+
+        private final List<Operation> operations = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        public <U extends DataObject> Batch put(final InstanceIdentifier<U> addIID, final U data,
+                final LogicalDatastoreType logicalDatastoreType) {
+            operations.add(new Operation() {
+
+                @Override
+                void applyTo(WriteTransaction writeTx) {
+                    writeTx.put(logicalDatastoreType, addIID, data, true);
+                }
+            });
+            return this;
+        }
+
+        public <U extends DataObject> Batch merge(final InstanceIdentifier<U> addIID, final U data,
+                final LogicalDatastoreType logicalDatastoreType) {
+            operations.add(new Operation() {
+
+                @Override
+                void applyTo(WriteTransaction writeTx) {
+                    writeTx.merge(logicalDatastoreType, addIID, data, true);
+                }
+            });
+            return this;
+        }
+
+        public <U extends DataObject> Batch delete(final InstanceIdentifier<U> deleteIID,
+                final LogicalDatastoreType logicalDatastoreType) {
+            operations.add(new Operation() {
+
+                @Override
+                void applyTo(WriteTransaction writeTx) {
+                    writeTx.delete(logicalDatastoreType, deleteIID);
+                }
+            });
+            return this;
+        }
+
+        /**
+         * Appends all the operations collected by another batch to this one
+         *
+         * @param batch batch whose operations are appended
+         * @return this batch
+         */
+        public Batch addAll(final Batch batch) {
+            operations.addAll(batch.operations);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return operations.isEmpty();
+        }
+
+        public int size() {
+            return operations.size();
+        }
+
+        /**
+         * Applies all collected operations in one transaction and waits for
+         * the commit. An empty batch is trivially successful.
+         *
+         * @return true if the transaction was committed, false otherwise
+         */
+        public boolean submit() {
+            CheckedFuture<Void, TransactionCommitFailedException> submitFuture = submitAsync();
+            try {
+                submitFuture.checkedGet();
+                return true;
+            } catch (TransactionCommitFailedException e) {
+                LOG.error("Batch of {} operations failed. Message: {}", operations.size(), e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * Applies all collected operations in one transaction without
+         * waiting for the commit.
+         *
+         * @return commit future, already successful for an empty batch
+         */
+        public CheckedFuture<Void, TransactionCommitFailedException> submitAsync() {
+            if (operations.isEmpty()) {
+                return Futures.<Void, TransactionCommitFailedException>immediateCheckedFuture(null);
+            }
+            WriteTransaction writeTx =
+                    OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+            for (Operation operation : operations) {
+                operation.applyTo(writeTx);
+            }
+            return writeTx.submit();
+        }
+    }
+
+    private abstract static class Operation {
+
+        abstract void applyTo(WriteTransaction writeTx);
+    }
 }
@@ -0,0 +1,678 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctionsBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwarders;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwardersBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.ServiceFunctionPaths;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.ServiceFunctionPathsBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionType;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * In-memory cache of the SFC configuration entities (SF, SFF, SFT, SFC
+ * and SFP) used by the read APIs of this package.
+ * <p>
+ * Each entity type has its own {@link Table}, a concurrent map updated one
+ * key at a time, so readers never lock and an update never copies the
+ * table. It is kept up to date by
+ * {@link org.opendaylight.sfc.provider.SfcProviderConfigCacheDataListener}
+ * and is only consulted once the provider has enabled it, i.e. once the
+ * listener has been registered.
+ * <p>
+ * Writes done through the SFC APIs go through the write helpers of this
+ * class, which mark the written keys as pending before the transaction is
+ * submitted and again once it completes. A pending key is always read from
+ * the datastore until the data change event for it has been applied, so a
+ * caller reading back its own write never sees stale data. Keys that are
+ * missing from a table are read from the datastore as well and installed,
+ * provided that the table did not change while the read was in flight.
+ * <p>
+ * A whole table is only answered from the cache once it has been loaded
+ * from the datastore, so a list read never returns the partial content
+ * gathered from data change events and single reads.
+ * <p>
+ * The {@link ReadConsistency#DATASTORE} mode bypasses the cache entirely.
+ */
+public final class SfcProviderConfigCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcProviderConfigCache.class);
+
+    /**
+     * How the read APIs are answered
+     */
+    public enum ReadConsistency {
+        /** Answer from the cache, fall back to the datastore on a miss */
+        CACHED,
+        /** Always read from the datastore */
+        DATASTORE
+    }
+
+    private static final View VIEW = new View();
+    private static volatile boolean enabled = false;
+    private static volatile ReadConsistency readConsistency = ReadConsistency.CACHED;
+
+    static final EntityKind<SfName, ServiceFunction> SF = new EntityKind<SfName, ServiceFunction>() {
+
+        @Override
+        SfName keyOf(ServiceFunction value) {
+            return value.getName();
+        }
+    };
+
+    static final EntityKind<SffName, ServiceFunctionForwarder> SFF =
+            new EntityKind<SffName, ServiceFunctionForwarder>() {
+
+                @Override
+                SffName keyOf(ServiceFunctionForwarder value) {
+                    return value.getName();
+                }
+            };
+
+    static final EntityKind<SftType, ServiceFunctionType> SFT = new EntityKind<SftType, ServiceFunctionType>() {
+
+        @Override
+        SftType keyOf(ServiceFunctionType value) {
+            return value.getType();
+        }
+    };
+
+    static final EntityKind<SfcName, ServiceFunctionChain> SFC = new EntityKind<SfcName, ServiceFunctionChain>() {
+
+        @Override
+        SfcName keyOf(ServiceFunctionChain value) {
+            return value.getName();
+        }
+    };
+
+    static final EntityKind<SfpName, ServiceFunctionPath> SFP = new EntityKind<SfpName, ServiceFunctionPath>() {
+
+        @Override
+        SfpName keyOf(ServiceFunctionPath value) {
+            return value.getName();
+        }
+    };
+
+    private static final InstanceIdentifier<ServiceFunctions> SFS_IID =
+            InstanceIdentifier.builder(ServiceFunctions.class).build();
+    private static final InstanceIdentifier<ServiceFunctionForwarders> SFFS_IID =
+            InstanceIdentifier.builder(ServiceFunctionForwarders.class).build();
+    private static final InstanceIdentifier<ServiceFunctionPaths> SFPS_IID =
+            InstanceIdentifier.builder(ServiceFunctionPaths.class).build();
+
+    // Hiding the implicit public constructor
+    private SfcProviderConfigCache() {
+    }
+
+    /**
+     * Starts answering reads from the cache. Called by the provider once the
+     * cache data change listener has been registered.
+     */
+    public static void enable() {
+        clear();
+        enabled = true;
+        LOG.info("SFC configuration cache enabled");
+    }
+
+    /**
+     * Stops answering reads from the cache and drops its content
+     */
+    public static void disable() {
+        enabled = false;
+        clear();
+        LOG.info("SFC configuration cache disabled");
+    }
+
+    private static void clear() {
+        SF.table.clear();
+        SFF.table.clear();
+        SFT.table.clear();
+        SFC.table.clear();
+        SFP.table.clear();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static ReadConsistency getReadConsistency() {
+        return readConsistency;
+    }
+
+    public static void setReadConsistency(ReadConsistency consistency) {
+        readConsistency = consistency;
+    }
+
+    /**
+     * Returns a read-only view of the cache. The view is live, not a
+     * snapshot: it reflects the updates applied after it was returned, one
+     * key at a time, so two reads through it may see different content.
+     *
+     * @return live cache view
+     */
+    public static View getView() {
+        return VIEW;
+    }
+
+    /**
+     * Applies a set of changes, as received from a data change event, to
+     * the cache. The changes are applied one key at a time.
+     *
+     * @param update changes to apply
+     */
+    public static void apply(Update update) {
+        if (!enabled || update.isEmpty()) {
+            return;
+        }
+        update.sf.applyTo(SF.table);
+        update.sff.applyTo(SFF.table);
+        update.sft.applyTo(SFT.table);
+        update.sfc.applyTo(SFC.table);
+        update.sfp.applyTo(SFP.table);
+        LOG.debug("SFC configuration cache updated");
+    }
+
+    static <K, V extends DataObject> V read(EntityKind<K, V> kind, K key, InstanceIdentifier<V> iid) {
+        if (!enabled || readConsistency == ReadConsistency.DATASTORE) {
+            return SfcDataStoreAPI.readTransactionAPI(iid, LogicalDatastoreType.CONFIGURATION);
+        }
+
+        Table<K, V> table = kind.table;
+        if (!table.pending.contains(key)) {
+            V value = table.entries.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        long stamp = table.getModifications();
+        V value = SfcDataStoreAPI.readTransactionAPI(iid, LogicalDatastoreType.CONFIGURATION);
+        if (value != null || table.pending.contains(key)) {
+            table.install(key, value, stamp);
+        }
+        return value;
+    }
+
+    /**
+     * Non-blocking variant of {@link #read}. A key in the cache is answered
+     * with an immediate future, a missing key is read from the datastore
+     * and installed the same way.
+     *
+     * @return future of the value, holding null if there is none
+     */
+    static <K, V extends DataObject> ListenableFuture<V> readAsync(EntityKind<K, V> kind, final K key,
+            InstanceIdentifier<V> iid) {
+        if (!enabled || readConsistency == ReadConsistency.DATASTORE) {
+            return SfcDataStoreAPI.toValueFuture(
+                    SfcDataStoreAPI.readTransactionAPIAsync(iid, LogicalDatastoreType.CONFIGURATION));
+        }
+
+        final Table<K, V> table = kind.table;
+        if (!table.pending.contains(key)) {
+            V value = table.entries.get(key);
+            if (value != null) {
+                return Futures.immediateFuture(value);
+            }
+        }
+
+        final long stamp = table.getModifications();
+        return Futures.transform(SfcDataStoreAPI.toValueFuture(
+                SfcDataStoreAPI.readTransactionAPIAsync(iid, LogicalDatastoreType.CONFIGURATION)),
+                new Function<V, V>() {
+
+                    @Override
+                    public V apply(V value) {
+                        if (value != null || table.pending.contains(key)) {
+                            table.install(key, value, stamp);
+                        }
+                        return value;
+                    }
+                });
+    }
+
+    /**
+     * Answers a list read from the cache
+     *
+     * @return all the entries of the table, or null if the table has not
+     *         been loaded, has pending keys or is empty
+     */
+    static <K, V extends DataObject> List<V> readAll(EntityKind<K, V> kind) {
+        if (!enabled || readConsistency == ReadConsistency.DATASTORE) {
+            return null;
+        }
+        Table<K, V> table = kind.table;
+        if (!table.loaded || !table.pending.isEmpty() || table.entries.isEmpty()) {
+            return null;
+        }
+        return new ArrayList<>(table.entries.values());
+    }
+
+    /*
+     * Answers a list read from the cache if possible. Otherwise the list is
+     * read from the datastore and, if the table did not change meanwhile,
+     * loaded into it.
+     */
+    private static <K, V extends DataObject, C extends DataObject> C readAll(EntityKind<K, V> kind,
+            InstanceIdentifier<C> iid, ListAccessor<V, C> accessor) {
+        List<V> values = readAll(kind);
+        if (values != null) {
+            return accessor.build(values);
+        }
+        long stamp = kind.table.getModifications();
+        C container = SfcDataStoreAPI.readTransactionAPI(iid, LogicalDatastoreType.CONFIGURATION);
+        if (enabled && readConsistency == ReadConsistency.CACHED) {
+            kind.table.load(kind, container == null ? null : accessor.get(container), stamp);
+        }
+        return container;
+    }
+
+    /*
+     * Marks the keys written by this controller as pending, forcing reads of
+     * them to go to the datastore until their data change event is applied.
+     * The whole table is dropped if keys is null, for a write whose keys are
+     * not known.
+     */
+    private static <K> void invalidateKeys(EntityKind<K, ?> kind, Collection<K> keys) {
+        if (!enabled) {
+            return;
+        }
+        if (keys == null) {
+            kind.table.clear();
+            return;
+        }
+        for (K key : keys) {
+            kind.table.invalidate(key);
+        }
+    }
+
+    /*
+     * The written keys are invalidated again once the transaction completes,
+     * in case a data change event for an older write was applied while it
+     * was in flight.
+     */
+    private static <K> CheckedFuture<Void, TransactionCommitFailedException> invalidateOnCompletion(
+            final EntityKind<K, ?> kind, final Collection<K> keys,
+            CheckedFuture<Void, TransactionCommitFailedException> submitFuture) {
+        Futures.addCallback(submitFuture, new FutureCallback<Void>() {
+
+            @Override
+            public void onSuccess(Void result) {
+                invalidateKeys(kind, keys);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                invalidateKeys(kind, keys);
+            }
+        });
+        return submitFuture;
+    }
+
+    static boolean waitFor(CheckedFuture<Void, TransactionCommitFailedException> submitFuture) {
+        try {
+            submitFuture.checkedGet();
+            return true;
+        } catch (TransactionCommitFailedException e) {
+            LOG.error("Transaction failed. Message: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Merges configuration data written under the given keys of a table,
+     * keeping the cache consistent with the write
+     *
+     * @param kind table written to
+     * @param keys keys written to, null if unknown
+     * @param iid InstanceIdentifier of the data to merge
+     * @param data data to merge
+     * @return commit future
+     */
+    static <K, U extends DataObject> CheckedFuture<Void, TransactionCommitFailedException> writeMergeAsync(
+            EntityKind<K, ?> kind, Collection<K> keys, InstanceIdentifier<U> iid, U data) {
+        invalidateKeys(kind, keys);
+        return invalidateOnCompletion(kind, keys,
+                SfcDataStoreAPI.writeMergeTransactionAPIAsync(iid, data, LogicalDatastoreType.CONFIGURATION));
+    }
+
+    static <K, U extends DataObject> boolean writeMerge(EntityKind<K, ?> kind, K key, InstanceIdentifier<U> iid,
+            U data) {
+        return waitFor(writeMergeAsync(kind, Collections.singleton(key), iid, data));
+    }
+
+    /**
+     * Puts configuration data written under the given keys of a table,
+     * keeping the cache consistent with the write
+     *
+     * @param kind table written to
+     * @param keys keys written to, null if unknown
+     * @param iid InstanceIdentifier of the data to put
+     * @param data data to put
+     * @return commit future
+     */
+    static <K, U extends DataObject> CheckedFuture<Void, TransactionCommitFailedException> writePutAsync(
+            EntityKind<K, ?> kind, Collection<K> keys, InstanceIdentifier<U> iid, U data) {
+        invalidateKeys(kind, keys);
+        return invalidateOnCompletion(kind, keys,
+                SfcDataStoreAPI.writePutTransactionAPIAsync(iid, data, LogicalDatastoreType.CONFIGURATION));
+    }
+
+    static <K, U extends DataObject> boolean writePut(EntityKind<K, ?> kind, K key, InstanceIdentifier<U> iid,
+            U data) {
+        return waitFor(writePutAsync(kind, Collections.singleton(key), iid, data));
+    }
+
+    /**
+     * Deletes configuration data under the given key of a table, keeping
+     * the cache consistent with the delete
+     *
+     * @param kind table deleted from
+     * @param key key deleted from
+     * @param iid InstanceIdentifier of the data to delete
+     * @return true if the delete was committed, false otherwise
+     */
+    static <K, U extends DataObject> boolean delete(EntityKind<K, ?> kind, K key, InstanceIdentifier<U> iid) {
+        Collection<K> keys = Collections.singleton(key);
+        invalidateKeys(kind, keys);
+        return waitFor(invalidateOnCompletion(kind, keys,
+                SfcDataStoreAPI.deleteTransactionAPIAsync(iid, LogicalDatastoreType.CONFIGURATION)));
+    }
+
+    static ServiceFunctions readAllServiceFunctions() {
+        return readAll(SF, SFS_IID, new ListAccessor<ServiceFunction, ServiceFunctions>() {
+
+            @Override
+            ServiceFunctions build(List<ServiceFunction> values) {
+                return new ServiceFunctionsBuilder().setServiceFunction(values).build();
+            }
+
+            @Override
+            List<ServiceFunction> get(ServiceFunctions container) {
+                return container.getServiceFunction();
+            }
+        });
+    }
+
+    static ServiceFunctionForwarders readAllServiceFunctionForwarders() {
+        return readAll(SFF, SFFS_IID, new ListAccessor<ServiceFunctionForwarder, ServiceFunctionForwarders>() {
+
+            @Override
+            ServiceFunctionForwarders build(List<ServiceFunctionForwarder> values) {
+                return new ServiceFunctionForwardersBuilder().setServiceFunctionForwarder(values).build();
+            }
+
+            @Override
+            List<ServiceFunctionForwarder> get(ServiceFunctionForwarders container) {
+                return container.getServiceFunctionForwarder();
+            }
+        });
+    }
+
+    static ServiceFunctionPaths readAllServiceFunctionPaths() {
+        return readAll(SFP, SFPS_IID, new ListAccessor<ServiceFunctionPath, ServiceFunctionPaths>() {
+
+            @Override
+            ServiceFunctionPaths build(List<ServiceFunctionPath> values) {
+                return new ServiceFunctionPathsBuilder().setServiceFunctionPath(values).build();
+            }
+
+            @Override
+            List<ServiceFunctionPath> get(ServiceFunctionPaths container) {
+                return container.getServiceFunctionPath();
+            }
+        });
+    }
+
+    /**
+     * Live, read-only view of the cached configuration
+     */
+    public static final class View {
+
+        private View() {
+        }
+
+        public Map<SfName, ServiceFunction> getServiceFunctions() {
+            return SF.table.view;
+        }
+
+        public Map<SffName, ServiceFunctionForwarder> getServiceFunctionForwarders() {
+            return SFF.table.view;
+        }
+
+        public Map<SftType, ServiceFunctionType> getServiceFunctionTypes() {
+            return SFT.table.view;
+        }
+
+        public Map<SfcName, ServiceFunctionChain> getServiceFunctionChains() {
+            return SFC.table.view;
+        }
+
+        public Map<SfpName, ServiceFunctionPath> getServiceFunctionPaths() {
+            return SFP.table.view;
+        }
+    }
+
+    /**
+     * Collects the changes carried by one data change event
+     */
+    public static final class Update {
+
+        private final Changes<SfName, ServiceFunction> sf = new Changes<>();
+        private final Changes<SffName, ServiceFunctionForwarder> sff = new Changes<>();
+        private final Changes<SftType, ServiceFunctionType> sft = new Changes<>();
+        private final Changes<SfcName, ServiceFunctionChain> sfc = new Changes<>();
+        private final Changes<SfpName, ServiceFunctionPath> sfp = new Changes<>();
+        /**
+         * Records a created or updated entity. Objects of any other type
+         * are ignored.
+         *
+         * @param dataObject created or updated data object
+         * @return this update
+         */
+        public Update put(DataObject dataObject) {
+            if (dataObject instanceof ServiceFunction) {
+                sf.put(SF, (ServiceFunction) dataObject);
+            } else if (dataObject instanceof ServiceFunctionForwarder) {
+                sff.put(SFF, (ServiceFunctionForwarder) dataObject);
+            } else if (dataObject instanceof ServiceFunctionType) {
+                sft.put(SFT, (ServiceFunctionType) dataObject);
+            } else if (dataObject instanceof ServiceFunctionChain) {
+                sfc.put(SFC, (ServiceFunctionChain) dataObject);
+            } else if (dataObject instanceof ServiceFunctionPath) {
+                sfp.put(SFP, (ServiceFunctionPath) dataObject);
+            }
+            return this;
+        }
+
+        /**
+         * Records a removed entity. Objects of any other type are ignored.
+         *
+         * @param dataObject original data of the removed object
+         * @return this update
+         */
+        public Update remove(DataObject dataObject) {
+            if (dataObject instanceof ServiceFunction) {
+                sf.remove(SF, (ServiceFunction) dataObject);
+            } else if (dataObject instanceof ServiceFunctionForwarder) {
+                sff.remove(SFF, (ServiceFunctionForwarder) dataObject);
+            } else if (dataObject instanceof ServiceFunctionType) {
+                sft.remove(SFT, (ServiceFunctionType) dataObject);
+            } else if (dataObject instanceof ServiceFunctionChain) {
+                sfc.remove(SFC, (ServiceFunctionChain) dataObject);
+            } else if (dataObject instanceof ServiceFunctionPath) {
+                sfp.remove(SFP, (ServiceFunctionPath) dataObject);
+            }
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return sf.isEmpty() && sff.isEmpty() && sft.isEmpty() && sfc.isEmpty() && sfp.isEmpty();
+        }
+    }
+
+    private static final class Changes<K, V extends DataObject> {
+
+        private final Map<K, V> puts = new HashMap<>();
+        private final Set<K> removes = new HashSet<>();
+
+        void put(EntityKind<K, V> kind, V value) {
+            K key = kind.keyOf(value);
+            removes.remove(key);
+            puts.put(key, value);
+        }
+
+        void remove(EntityKind<K, V> kind, V value) {
+            K key = kind.keyOf(value);
+            puts.remove(key);
+            removes.add(key);
+        }
+
+        boolean isEmpty() {
+            return puts.isEmpty() && removes.isEmpty();
+        }
+
+        void applyTo(Table<K, V> table) {
+            if (!isEmpty()) {
+                table.apply(puts, removes);
+            }
+        }
+    }
+
+    /**
+     * Entries of one entity type together with the keys that have been
+     * written locally but whose data change event has not been applied yet.
+     * <p>
+     * Reads don't lock. Changes lock the table, and every change that can
+     * make a datastore read outdated counts as a modification, so a value
+     * read from the datastore is only installed if no modification happened
+     * since the read started.
+     */
+    static final class Table<K, V extends DataObject> {
+
+        private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<>();
+        private final Map<K, V> view = Collections.unmodifiableMap(entries);
+        private final Set<K> pending = Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>());
+        private volatile long modifications = 0;
+        private volatile boolean loaded = false;
+
+        long getModifications() {
+            return modifications;
+        }
+
+        synchronized void apply(Map<K, V> puts, Set<K> removes) {
+            modifications++;
+            for (K key : removes) {
+                entries.remove(key);
+                pending.remove(key);
+            }
+            for (Map.Entry<K, V> put : puts.entrySet()) {
+                entries.put(put.getKey(), put.getValue());
+                pending.remove(put.getKey());
+            }
+        }
+
+        synchronized void install(K key, V value, long stamp) {
+            if (modifications != stamp) {
+                return;
+            }
+            if (value == null) {
+                entries.remove(key);
+            } else {
+                entries.put(key, value);
+            }
+            pending.remove(key);
+        }
+
+        /*
+         * The whole table is replaced by what was read: with no modification
+         * since the read started, the datastore content is newer than any
+         * entry or pending key of the table.
+         */
+        synchronized void load(EntityKind<K, V> kind, List<V> values, long stamp) {
+            if (modifications != stamp) {
+                return;
+            }
+            Map<K, V> newEntries = new HashMap<>();
+            if (values != null) {
+                for (V value : values) {
+                    newEntries.put(kind.keyOf(value), value);
+                }
+            }
+            entries.keySet().retainAll(newEntries.keySet());
+            entries.putAll(newEntries);
+            pending.clear();
+            loaded = true;
+        }
+
+        synchronized void invalidate(K key) {
+            modifications++;
+            pending.add(key);
+        }
+
+        synchronized void clear() {
+            modifications++;
+            loaded = false;
+            entries.clear();
+            pending.clear();
+        }
+    }
+
+    /**
+     * Binds an entity type to its key and to its table
+     */
+    abstract static class EntityKind<K, V extends DataObject> {
+
+        private final Table<K, V> table = new Table<>();
+
+        abstract K keyOf(V value);
+    }
+
+    /**
+     * Builds and reads the list container of an entity type
+     */
+    private abstract static class ListAccessor<V, C> {
+
+        abstract C build(List<V> values);
+
+        abstract List<V> get(C container);
+    }
+}
@@ -12,10 +12,20 @@ import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStart;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
@@ -43,10 +53,12 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunctionBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocator;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.ServiceFunctionGroups;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroup;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPathBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.VxlanGpe;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.Ip;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.LoadBalance;
@@ -54,11 +66,21 @@ import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.RoundRobin;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ServiceFunctionSchedulerTypeIdentity;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ShortestPath;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.WeightedShortestPath;
 import org.opendaylight.yangtools.yang.binding.DataContainer;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.SettableFuture;
+
 /**
  * This class has the APIs to operate on the Service Classifier datastore.
  * <p>
@@ -77,6 +99,10 @@ public class SfcProviderRenderedPathAPI {
     private static final int MAX_STARTING_INDEX = 255;
     private static SfcServiceFunctionSchedulerAPI defaultScheduler;
     private static final String REVERSED_PATH_SUFFIX = "-Reverse";
+    private static final int MAX_RENDERED_PATHS_PER_TRANSACTION = 64;
+    // The asynchronous RSP deletes whose commit didn't complete yet
+    private static final ConcurrentMap<RspName, ListenableFuture<Boolean>> PENDING_DELETES =
+            new ConcurrentHashMap<>();
 
     private static SfcServiceFunctionSchedulerAPI getServiceFunctionScheduler(
             Class<? extends ServiceFunctionSchedulerTypeIdentity> serviceFunctionSchedulerType) {
@@ -90,6 +116,8 @@ public class SfcProviderRenderedPathAPI {
             scheduler = new SfcServiceFunctionRandomSchedulerAPI();
         } else if (serviceFunctionSchedulerType == ShortestPath.class) {
             scheduler = new SfcServiceFunctionShortestPathSchedulerAPI();
+        } else if (serviceFunctionSchedulerType == WeightedShortestPath.class) {
+            scheduler = new SfcServiceFunctionWeightedShortestPathSchedulerAPI();
         } else {
             scheduler = new SfcServiceFunctionRandomSchedulerAPI();
         }
@@ -122,65 +150,243 @@ public class SfcProviderRenderedPathAPI {
      */
     public static RenderedServicePath createRenderedServicePathAndState(ServiceFunctionPath createdServiceFunctionPath,
             CreateRenderedPathInput createRenderedPathInput, SfcServiceFunctionSchedulerAPI scheduler) {
-        RenderedServicePath renderedServicePath;
 
-        boolean rspSuccessful = false;
-        boolean addPathToSffStateSuccessful = false;
-        boolean addPathToSfStateSuccessful = false;
+        SfcConcurrencyAPI.EntityLocks entityLocks =
+                lockRenderedServicePath(createdServiceFunctionPath, createRenderedPathInput);
+        try {
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            RenderedServicePath renderedServicePath = buildRenderedServicePathAndState(createdServiceFunctionPath,
+                    createRenderedPathInput, scheduler, SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroups(),
+                    batch);
+            if (renderedServicePath == null) {
+                return null;
+            }
+            return onRenderedServicePathCommitted(batch.submit(), renderedServicePath,
+                    createdServiceFunctionPath.getName());
+        } finally {
+            entityLocks.unlock();
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #createRenderedServicePathAndState(ServiceFunctionPath,
+     * CreateRenderedPathInput, SfcServiceFunctionSchedulerAPI)}. The
+     * configuration the RSP is built from is read without blocking. Only
+     * then are the locks taken, and the RSP scheduled and built from the
+     * configuration cache, on the SFC executor. The returned future
+     * completes once RSP and state have been committed.
+     * <p>
+     *
+     * @param createdServiceFunctionPath Service Function Path
+     * @param createRenderedPathInput CreateRenderedPathInput object
+     * @param scheduler SfcServiceFunctionSchedulerAPI object
+     * @return future of the created RSP, holding null on failure
+     */
+    public static ListenableFuture<RenderedServicePath> createRenderedServicePathAndStateAsync(
+            final ServiceFunctionPath createdServiceFunctionPath,
+            final CreateRenderedPathInput createRenderedPathInput, final SfcServiceFunctionSchedulerAPI scheduler) {
+
+        return Futures.transform(readRenderedServicePathConfigAsync(createdServiceFunctionPath),
+                new AsyncFunction<ServiceFunctionGroups, RenderedServicePath>() {
+
+                    @Override
+                    public ListenableFuture<RenderedServicePath> apply(ServiceFunctionGroups serviceFunctionGroups) {
+                        return submitRenderedServicePathAndState(createdServiceFunctionPath,
+                                createRenderedPathInput, scheduler, serviceFunctionGroups);
+                    }
+                }, getCallbackExecutor());
+    }
+
+    /**
+     * Reads the configuration a RSP is built from without blocking. The
+     * SFC of the SFP, the SFTs of the chain, their SFs and the SFFs of
+     * those SFs are read one level after the other into the configuration
+     * cache, while the SFGs are read alongside.
+     *
+     * @return future of the SFGs, holding null if there are none
+     */
+    private static ListenableFuture<ServiceFunctionGroups> readRenderedServicePathConfigAsync(
+            ServiceFunctionPath serviceFunctionPath) {
+
+        final ListenableFuture<ServiceFunctionGroups> sfgsFuture =
+                SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroupsAsync();
+        SfcName serviceFunctionChainName = serviceFunctionPath.getServiceChainName();
+        ListenableFuture<ServiceFunctionChain> sfcFuture = serviceFunctionChainName != null
+                ? SfcProviderServiceChainAPI.readServiceFunctionChainAsync(serviceFunctionChainName)
+                : Futures.<ServiceFunctionChain>immediateFuture(null);
+
+        ListenableFuture<List<ServiceFunctionType>> sftsFuture = Futures.transform(sfcFuture,
+                new AsyncFunction<ServiceFunctionChain, List<ServiceFunctionType>>() {
+
+                    @Override
+                    public ListenableFuture<List<ServiceFunctionType>> apply(
+                            ServiceFunctionChain serviceFunctionChain) {
+                        List<ListenableFuture<ServiceFunctionType>> sftFutures = new ArrayList<>();
+                        if (serviceFunctionChain != null && serviceFunctionChain.getSfcServiceFunction() != null) {
+                            for (SfcServiceFunction sfcServiceFunction : serviceFunctionChain
+                                .getSfcServiceFunction()) {
+                                sftFutures.add(
+                                        SfcProviderServiceTypeAPI.readServiceFunctionTypeAsync(sfcServiceFunction
+                                            .getType()));
+                            }
+                        }
+                        return Futures.allAsList(sftFutures);
+                    }
+                });
+
+        ListenableFuture<List<ServiceFunction>> sfsFuture = Futures.transform(sftsFuture,
+                new AsyncFunction<List<ServiceFunctionType>, List<ServiceFunction>>() {
+
+                    @Override
+                    public ListenableFuture<List<ServiceFunction>> apply(
+                            List<ServiceFunctionType> serviceFunctionTypes) {
+                        List<ListenableFuture<ServiceFunction>> sfFutures = new ArrayList<>();
+                        for (ServiceFunctionType serviceFunctionType : serviceFunctionTypes) {
+                            if (serviceFunctionType == null
+                                    || serviceFunctionType.getSftServiceFunctionName() == null) {
+                                continue;
+                            }
+                            for (SftServiceFunctionName sftServiceFunctionName : serviceFunctionType
+                                .getSftServiceFunctionName()) {
+                                sfFutures.add(SfcProviderServiceFunctionAPI
+                                    .readServiceFunctionAsync(new SfName(sftServiceFunctionName.getName())));
+                            }
+                        }
+                        return Futures.allAsList(sfFutures);
+                    }
+                });
+
+        ListenableFuture<List<ServiceFunctionForwarder>> sffsFuture = Futures.transform(sfsFuture,
+                new AsyncFunction<List<ServiceFunction>, List<ServiceFunctionForwarder>>() {
+
+                    @Override
+                    public ListenableFuture<List<ServiceFunctionForwarder>> apply(
+                            List<ServiceFunction> serviceFunctions) {
+                        Set<SffName> sffNames = new HashSet<>();
+                        List<ListenableFuture<ServiceFunctionForwarder>> sffFutures = new ArrayList<>();
+                        for (ServiceFunction serviceFunction : serviceFunctions) {
+                            if (serviceFunction == null || serviceFunction.getSfDataPlaneLocator() == null
+                                    || serviceFunction.getSfDataPlaneLocator().isEmpty()) {
+                                continue;
+                            }
+                            SffName sffName = serviceFunction.getSfDataPlaneLocator().get(0)
+                                .getServiceFunctionForwarder();
+                            if (sffName != null && sffNames.add(sffName)) {
+                                sffFutures.add(
+                                        SfcProviderServiceForwarderAPI.readServiceFunctionForwarderAsync(sffName));
+                            }
+                        }
+                        return Futures.allAsList(sffFutures);
+                    }
+                });
+
+        return Futures.transform(sffsFuture,
+                new AsyncFunction<List<ServiceFunctionForwarder>, ServiceFunctionGroups>() {
+
+                    @Override
+                    public ListenableFuture<ServiceFunctionGroups> apply(
+                            List<ServiceFunctionForwarder> serviceFunctionForwarders) {
+                        return sfgsFuture;
+                    }
+                });
+    }
+
+    /**
+     * Builds a RSP and submits it with its state, under the locks of the
+     * RSP. The configuration it is built from should already be cached.
+     *
+     * @return future of the created RSP, holding null on failure
+     */
+    private static ListenableFuture<RenderedServicePath> submitRenderedServicePathAndState(
+            final ServiceFunctionPath createdServiceFunctionPath, CreateRenderedPathInput createRenderedPathInput,
+            SfcServiceFunctionSchedulerAPI scheduler, ServiceFunctionGroups serviceFunctionGroups) {
+
+        final RenderedServicePath renderedServicePath;
+        ListenableFuture<Boolean> commitFuture;
+        // The locks cover building and submitting; commits are applied in submission order
+        SfcConcurrencyAPI.EntityLocks entityLocks =
+                lockRenderedServicePath(createdServiceFunctionPath, createRenderedPathInput);
+        try {
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            renderedServicePath = buildRenderedServicePathAndState(createdServiceFunctionPath,
+                    createRenderedPathInput, scheduler, serviceFunctionGroups, batch);
+            if (renderedServicePath == null) {
+                return Futures.immediateFuture(null);
+            }
+            commitFuture = SfcDataStoreAPI.toResultFuture(batch.submitAsync());
+        } finally {
+            entityLocks.unlock();
+        }
+        return Futures.transform(commitFuture,
+                new Function<Boolean, RenderedServicePath>() {
+
+                    @Override
+                    public RenderedServicePath apply(Boolean committed) {
+                        return onRenderedServicePathCommitted(committed, renderedServicePath,
+                                createdServiceFunctionPath.getName());
+                    }
+                }, getCallbackExecutor());
+    }
+
+    /**
+     * Builds a RSP and adds it, together with its operational state, to
+     * the given batch
+     * <p>
+     *
+     * @return RenderedServicePath or null if it could not be built
+     */
+    private static RenderedServicePath buildRenderedServicePathAndState(
+            ServiceFunctionPath createdServiceFunctionPath, CreateRenderedPathInput createRenderedPathInput,
+            SfcServiceFunctionSchedulerAPI scheduler, ServiceFunctionGroups serviceFunctionGroups,
+            SfcDataStoreAPI.Batch batch) {
+        RenderedServicePath renderedServicePath;
 
         if (scheduler == null) {// Fall back to defaultScheduler
             SfcProviderRenderedPathAPI.initDefaultServiceFunctionScheduler();
             scheduler = defaultScheduler;
         }
 
-        // Create RSP
-        if ((renderedServicePath = SfcProviderRenderedPathAPI.createRenderedServicePathEntry(createdServiceFunctionPath,
-                createRenderedPathInput, scheduler)) != null) {
-            rspSuccessful = true;
-
-        } else {
-            LOG.error("Could not create RSP. System state inconsistent. Deleting and add SFP {} back",
-                    createdServiceFunctionPath.getName());
+        // Build RSP
+        renderedServicePath = SfcProviderRenderedPathAPI.buildRenderedServicePathEntry(createdServiceFunctionPath,
+                createRenderedPathInput, scheduler, serviceFunctionGroups);
+        if (renderedServicePath == null) {
+            LOG.error("Failed to create RSP for SFP {}", createdServiceFunctionPath.getName());
+            return null;
         }
 
-        // Add Path name to SFF operational state
-        if (rspSuccessful && SfcProviderServiceForwarderAPI.addPathToServiceForwarderState(renderedServicePath)) {
-            addPathToSffStateSuccessful = true;
-        } else {
-            if (renderedServicePath != null) {
-                SfcProviderRenderedPathAPI.deleteRenderedServicePath(renderedServicePath.getName());
-            }
+        // RSP, SFF, SF and SFP operational state are committed together, so
+        // nothing needs to be rolled back if the commit fails
+        if (!putRenderedServicePathAndState(renderedServicePath, batch)) {
+            LOG.error("Could not add RSP {} to the operational state of its SFs. Deleting it",
+                    renderedServicePath.getName());
+            SfcServicePathId.free_pathid(renderedServicePath.getPathId());
+            return null;
         }
+        return renderedServicePath;
+    }
 
-        // Add Path to SF operational state
-        if (addPathToSffStateSuccessful
-                && SfcProviderServiceFunctionAPI.addPathToServiceFunctionState(renderedServicePath)) {
-
-            addPathToSfStateSuccessful = true;
-        } else {
-            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(createdServiceFunctionPath);
-            if (renderedServicePath != null) {
-                SfcProviderRenderedPathAPI.deleteRenderedServicePath(renderedServicePath.getName());
-            }
+    /**
+     * Locks the SFP a RSP is created from, and the RSP name if the caller
+     * chose it
+     */
+    private static SfcConcurrencyAPI.EntityLocks lockRenderedServicePath(ServiceFunctionPath serviceFunctionPath,
+            CreateRenderedPathInput createRenderedPathInput) {
+        RspName rspName = null;
+        if (createRenderedPathInput.getName() != null && !createRenderedPathInput.getName().isEmpty()) {
+            rspName = new RspName(createRenderedPathInput.getName());
         }
+        return SfcConcurrencyAPI.lockEntities(serviceFunctionPath.getName(), rspName);
+    }
 
-        // Add RSP to SFP operational state
-        if (!(addPathToSfStateSuccessful && SfcProviderServicePathAPI
-            .addRenderedPathToServicePathState(createdServiceFunctionPath.getName(), renderedServicePath.getName()))) {
-            SfcProviderServiceFunctionAPI
-                .deleteServicePathFromServiceFunctionState(createdServiceFunctionPath.getName());
-            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(createdServiceFunctionPath);
-            if (renderedServicePath != null) {
-                SfcProviderRenderedPathAPI.deleteRenderedServicePath(renderedServicePath.getName());
-            }
+    private static RenderedServicePath onRenderedServicePathCommitted(boolean committed,
+            RenderedServicePath renderedServicePath, SfpName sfpName) {
+        if (!committed) {
+            LOG.error("Failed to create RSP {} for SFP {}", renderedServicePath.getName(), sfpName);
+            SfcServicePathId.free_pathid(renderedServicePath.getPathId());
+            return null;
         }
 
-        if (renderedServicePath == null) {
-            LOG.error("Failed to create RSP for SFP {}", createdServiceFunctionPath.getName());
-        } else {
-            LOG.info("Create RSP {} for SFP {} successfully", renderedServicePath.getName(),
-                    createdServiceFunctionPath.getName());
-        }
+        LOG.info("Create RSP {} for SFP {} successfully", renderedServicePath.getName(), sfpName);
 
         return renderedServicePath;
     }
@@ -199,6 +405,21 @@ public class SfcProviderRenderedPathAPI {
         return createRenderedServicePathAndState(createdServiceFunctionPath, createRenderedPathInput, defaultScheduler);
     }
 
+    /**
+     * Non-blocking variant of
+     * {@link #createRenderedServicePathAndState(ServiceFunctionPath, CreateRenderedPathInput)}
+     * <p>
+     *
+     * @param createdServiceFunctionPath Service Function Path
+     * @param createRenderedPathInput CreateRenderedPathInput object
+     * @return future of the created RSP, holding null on failure
+     */
+    public static ListenableFuture<RenderedServicePath> createRenderedServicePathAndStateAsync(
+            ServiceFunctionPath createdServiceFunctionPath, CreateRenderedPathInput createRenderedPathInput) {
+        return createRenderedServicePathAndStateAsync(createdServiceFunctionPath, createRenderedPathInput,
+                defaultScheduler);
+    }
+
     /**
      * Create a Symmetric Path and all the associated operational state based on the
      * given rendered service path
@@ -210,69 +431,343 @@ public class SfcProviderRenderedPathAPI {
     public static RenderedServicePath createSymmetricRenderedServicePathAndState(
             RenderedServicePath renderedServicePath) {
 
-        RenderedServicePath revRenderedServicePath;
-        boolean revRspSuccessful = false;
-        boolean addRevPathToSffStateSuccessful = false;
-        boolean addRevPathToSfStateSuccessful = false;
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(renderedServicePath.getName(),
+                generateReversedPathName(renderedServicePath.getName()));
+        try {
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            RenderedServicePath revRenderedServicePath =
+                    buildSymmetricRenderedServicePathAndState(renderedServicePath, batch);
+            if (revRenderedServicePath == null) {
+                return null;
+            }
+            return onSymmetricRenderedServicePathCommitted(batch.submit(), revRenderedServicePath);
+        } finally {
+            entityLocks.unlock();
+        }
+    }
 
-        // Reverse Path
+    /**
+     * Non-blocking variant of
+     * {@link #createSymmetricRenderedServicePathAndState(RenderedServicePath)}.
+     * The reverse RSP is built on the SFC executor.
+     * <p>
+     *
+     * @param renderedServicePath RSP Object
+     * @return future of the reverse RSP, holding null on failure
+     */
+    public static ListenableFuture<RenderedServicePath> createSymmetricRenderedServicePathAndStateAsync(
+            final RenderedServicePath renderedServicePath) {
+
+        ListenableFutureTask<ListenableFuture<RenderedServicePath>> createTask =
+                ListenableFutureTask.create(new Callable<ListenableFuture<RenderedServicePath>>() {
+
+                    @Override
+                    public ListenableFuture<RenderedServicePath> call() {
+                        return submitSymmetricRenderedServicePathAndState(renderedServicePath);
+                    }
+                });
+        getCallbackExecutor().execute(createTask);
+        return Futures.dereference(createTask);
+    }
 
-        if ((revRenderedServicePath =
-                SfcProviderRenderedPathAPI.createReverseRenderedServicePathEntry(renderedServicePath)) != null) {
-            revRspSuccessful = true;
-        } else {
-            LOG.error("Could not create Reverse RSP {}", renderedServicePath.getName());
+    /**
+     * Builds the reverse RSP of a RSP and submits it with its state, under
+     * the locks of both RSPs. Nothing is read from the datastore, the
+     * path-id is allocated from the in-memory path-id bitmap.
+     *
+     * @return future of the reverse RSP, holding null on failure
+     */
+    private static ListenableFuture<RenderedServicePath> submitSymmetricRenderedServicePathAndState(
+            RenderedServicePath renderedServicePath) {
+
+        final RenderedServicePath revRenderedServicePath;
+        ListenableFuture<Boolean> commitFuture;
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(renderedServicePath.getName(),
+                generateReversedPathName(renderedServicePath.getName()));
+        try {
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            revRenderedServicePath = buildSymmetricRenderedServicePathAndState(renderedServicePath, batch);
+            if (revRenderedServicePath == null) {
+                return Futures.immediateFuture(null);
+            }
+            commitFuture = SfcDataStoreAPI.toResultFuture(batch.submitAsync());
+        } finally {
+            entityLocks.unlock();
         }
+        return Futures.transform(commitFuture,
+                new Function<Boolean, RenderedServicePath>() {
+
+                    @Override
+                    public RenderedServicePath apply(Boolean committed) {
+                        return onSymmetricRenderedServicePathCommitted(committed, revRenderedServicePath);
+                    }
+                }, getCallbackExecutor());
+    }
 
-        // Add Path name to SFF operational state
-        if (revRspSuccessful && SfcProviderServiceForwarderAPI.addPathToServiceForwarderState(revRenderedServicePath)) {
-            addRevPathToSffStateSuccessful = true;
-        } else {
-            SfcProviderRenderedPathAPI.deleteRenderedServicePath(revRenderedServicePath.getName());
+    /**
+     * Creates a batch of RSPs and all their associated operational state.
+     * The batch is split in chunks of at most {@value #MAX_RENDERED_PATHS_PER_TRANSACTION}
+     * RSPs which are created in parallel on the SFC executor. Each chunk
+     * is written in one transaction, plus one more for the reverse RSPs
+     * of its symmetric paths. A chunk that fails doesn't fail the others.
+     * <p>
+     *
+     * @param createRenderedPathInputs one input per RSP, holding at least
+     *        its parent SFP. When symmetric is not set the SFP decides
+     * @return future of the created RSPs in the order of the inputs,
+     *         holding null for every RSP that could not be created. A RSP
+     *         whose reverse RSP was created carries its symmetric path-id
+     */
+    public static ListenableFuture<List<RenderedServicePath>> createRenderedServicePathsAndStateAsync(
+            List<CreateRenderedPathInput> createRenderedPathInputs) {
+
+        List<ListenableFuture<List<RenderedServicePath>>> chunkFutures = new ArrayList<>();
+        final List<Integer> chunkSizes = new ArrayList<>();
+        for (int from = 0; from < createRenderedPathInputs.size(); from += MAX_RENDERED_PATHS_PER_TRANSACTION) {
+            int to = Math.min(from + MAX_RENDERED_PATHS_PER_TRANSACTION, createRenderedPathInputs.size());
+            final List<CreateRenderedPathInput> chunk = new ArrayList<>(createRenderedPathInputs.subList(from, to));
+            ListenableFutureTask<ListenableFuture<List<RenderedServicePath>>> chunkTask =
+                    ListenableFutureTask.create(new Callable<ListenableFuture<List<RenderedServicePath>>>() {
+
+                        @Override
+                        public ListenableFuture<List<RenderedServicePath>> call() {
+                            return createRenderedServicePathsAndStateAsync(chunk, defaultScheduler);
+                        }
+                    });
+            getCallbackExecutor().execute(chunkTask);
+            chunkFutures.add(Futures.dereference(chunkTask));
+            chunkSizes.add(chunk.size());
         }
 
-        // Add Path to SF operational state
-        if (addRevPathToSffStateSuccessful
-                && SfcProviderServiceFunctionAPI.addPathToServiceFunctionState(revRenderedServicePath)) {
+        return Futures.transform(Futures.successfulAsList(chunkFutures),
+                new Function<List<List<RenderedServicePath>>, List<RenderedServicePath>>() {
+
+                    @Override
+                    public List<RenderedServicePath> apply(List<List<RenderedServicePath>> chunkResults) {
+                        List<RenderedServicePath> renderedServicePaths = new ArrayList<>();
+                        for (int i = 0; i < chunkResults.size(); i++) {
+                            List<RenderedServicePath> chunkResult = chunkResults.get(i);
+                            if (chunkResult == null) {
+                                LOG.error("Failed to create a chunk of {} RSPs", chunkSizes.get(i));
+                                chunkResult = Collections.<RenderedServicePath>nCopies(chunkSizes.get(i), null);
+                            }
+                            renderedServicePaths.addAll(chunkResult);
+                        }
+                        return renderedServicePaths;
+                    }
+                });
+    }
 
-            addRevPathToSfStateSuccessful = true;
-            // Send to SB REST
-            /*
-             * SfcProviderServicePathAPI.checkServiceFunctionPathExecutor
-             * (revRenderedServicePath,HttpMethod.PUT);
-             */
-        } else {
-            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(revRenderedServicePath.getName());
-            SfcProviderRenderedPathAPI.deleteRenderedServicePath(revRenderedServicePath.getName());
-
-        }
-        // Add RSP to SFP operational state
-        if (!(addRevPathToSfStateSuccessful && SfcProviderServicePathAPI.addRenderedPathToServicePathState(
-                renderedServicePath.getParentServiceFunctionPath(), revRenderedServicePath.getName()))) {
-            // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-            /*
-             * XXX TODO this exemplifies the issue. There is no method called
-             * SfcProviderServiceFunctionAPI.deleteServicePathFromServiceFunctionState()
-             * with signature (RspName):
-             * ie SfcProviderServiceFunctionAPI.deleteServicePathFromServiceFunctionState(
-             * revRenderedServicePath.getName());
-             * There is one with signature (RspName, SfName).... and there's one with signature
-             * (SfpName) ... so what should this method be?
-             * Which one should I really be using? If you use rspName and sfpName interchangeably
-             * because they were strings, then you get this sort of confusion
-             * going on.
-             * I suspect that SfpName is correct, so I'll make the change here, and test.
-             */
-
-            SfcProviderServiceFunctionAPI
-                .deleteServicePathFromServiceFunctionState(new SfpName(revRenderedServicePath.getName().getValue()));
-            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(revRenderedServicePath.getName());
-            SfcProviderRenderedPathAPI.deleteRenderedServicePath(revRenderedServicePath.getName());
+    /**
+     * Creates one chunk of a batch of RSPs: all the RSPs are committed in
+     * one transaction, then all the reverse RSPs in another one. As entity
+     * locks can't be nested, each transaction takes its own locks. The
+     * locks are released once the transaction is submitted, commits are
+     * applied in submission order.
+     */
+    private static ListenableFuture<List<RenderedServicePath>> createRenderedServicePathsAndStateAsync(
+            final List<CreateRenderedPathInput> createRenderedPathInputs, SfcServiceFunctionSchedulerAPI scheduler) {
+
+        int size = createRenderedPathInputs.size();
+        final ServiceFunctionPath[] serviceFunctionPaths = new ServiceFunctionPath[size];
+        final RenderedServicePath[] renderedServicePaths = new RenderedServicePath[size];
+
+        List<Object> entityNames = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            CreateRenderedPathInput createRenderedPathInput = createRenderedPathInputs.get(i);
+            String sfpName = createRenderedPathInput.getParentServiceFunctionPath();
+            serviceFunctionPaths[i] =
+                    sfpName != null ? SfcProviderServicePathAPI.readServiceFunctionPath(new SfpName(sfpName)) : null;
+            if (serviceFunctionPaths[i] == null) {
+                LOG.error("Service Function Path {} does not exist", sfpName);
+                continue;
+            }
+            entityNames.add(serviceFunctionPaths[i].getName());
+            if (createRenderedPathInput.getName() != null && !createRenderedPathInput.getName().isEmpty()) {
+                entityNames.add(new RspName(createRenderedPathInput.getName()));
+            }
+        }
+
+        ServiceFunctionGroups serviceFunctionGroups = SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroups();
+        ListenableFuture<Boolean> commitFuture = null;
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(entityNames);
+        try {
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            for (int i = 0; i < size; i++) {
+                if (serviceFunctionPaths[i] != null) {
+                    renderedServicePaths[i] = buildRenderedServicePathAndState(serviceFunctionPaths[i],
+                            createRenderedPathInputs.get(i), scheduler, serviceFunctionGroups, batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                commitFuture = SfcDataStoreAPI.toResultFuture(batch.submitAsync());
+            }
+        } finally {
+            entityLocks.unlock();
+        }
+        if (commitFuture == null) {
+            return Futures.immediateFuture(Arrays.asList(renderedServicePaths));
+        }
+
+        return Futures.transform(commitFuture,
+                new AsyncFunction<Boolean, List<RenderedServicePath>>() {
+
+                    @Override
+                    public ListenableFuture<List<RenderedServicePath>> apply(Boolean committed) {
+                        for (int i = 0; i < renderedServicePaths.length; i++) {
+                            if (renderedServicePaths[i] != null) {
+                                renderedServicePaths[i] = onRenderedServicePathCommitted(committed,
+                                        renderedServicePaths[i], serviceFunctionPaths[i].getName());
+                            }
+                        }
+                        return createSymmetricRenderedServicePathsAndStateAsync(createRenderedPathInputs,
+                                serviceFunctionPaths, renderedServicePaths);
+                    }
+                }, getCallbackExecutor());
+    }
+
+    /**
+     * Creates the reverse RSPs of the symmetric RSPs of a chunk, committed
+     * in one transaction
+     */
+    private static ListenableFuture<List<RenderedServicePath>> createSymmetricRenderedServicePathsAndStateAsync(
+            List<CreateRenderedPathInput> createRenderedPathInputs, ServiceFunctionPath[] serviceFunctionPaths,
+            final RenderedServicePath[] renderedServicePaths) {
+
+        int size = renderedServicePaths.length;
+        List<Object> entityNames = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (renderedServicePaths[i] != null
+                    && isSymmetric(createRenderedPathInputs.get(i), serviceFunctionPaths[i])) {
+                entityNames.add(renderedServicePaths[i].getName());
+                entityNames.add(generateReversedPathName(renderedServicePaths[i].getName()));
+            }
+        }
+        if (entityNames.isEmpty()) {
+            return Futures.immediateFuture(Arrays.asList(renderedServicePaths));
+        }
 
+        final RenderedServicePath[] revRenderedServicePaths = new RenderedServicePath[size];
+        ListenableFuture<Boolean> commitFuture = null;
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(entityNames);
+        try {
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            for (int i = 0; i < size; i++) {
+                if (renderedServicePaths[i] != null
+                        && isSymmetric(createRenderedPathInputs.get(i), serviceFunctionPaths[i])) {
+                    revRenderedServicePaths[i] = buildSymmetricRenderedServicePathAndState(renderedServicePaths[i],
+                            batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                commitFuture = SfcDataStoreAPI.toResultFuture(batch.submitAsync());
+            }
+        } finally {
+            entityLocks.unlock();
+        }
+        if (commitFuture == null) {
+            return Futures.immediateFuture(Arrays.asList(renderedServicePaths));
+        }
+
+        return Futures.transform(commitFuture,
+                new Function<Boolean, List<RenderedServicePath>>() {
+
+                    @Override
+                    public List<RenderedServicePath> apply(Boolean committed) {
+                        for (int i = 0; i < revRenderedServicePaths.length; i++) {
+                            if (revRenderedServicePaths[i] == null) {
+                                continue;
+                            }
+                            revRenderedServicePaths[i] =
+                                    onSymmetricRenderedServicePathCommitted(committed, revRenderedServicePaths[i]);
+                            if (revRenderedServicePaths[i] != null) {
+                                renderedServicePaths[i] = new RenderedServicePathBuilder(renderedServicePaths[i])
+                                    .setSymmetricPathId(revRenderedServicePaths[i].getPathId())
+                                    .build();
+                            }
+                        }
+                        return Arrays.asList(renderedServicePaths);
+                    }
+                }, getCallbackExecutor());
+    }
+
+    private static boolean isSymmetric(CreateRenderedPathInput createRenderedPathInput,
+            ServiceFunctionPath serviceFunctionPath) {
+        if (createRenderedPathInput.isSymmetric() != null) {
+            return createRenderedPathInput.isSymmetric();
+        }
+        return serviceFunctionPath.isSymmetric() != null && serviceFunctionPath.isSymmetric();
+    }
+
+    private static RenderedServicePath buildSymmetricRenderedServicePathAndState(
+            RenderedServicePath renderedServicePath, SfcDataStoreAPI.Batch batch) {
+
+        RenderedServicePath revRenderedServicePath;
+
+        // Reverse Path
+        revRenderedServicePath = SfcProviderRenderedPathAPI.buildReverseRenderedServicePathEntry(renderedServicePath);
+        if (revRenderedServicePath == null) {
+            LOG.error("Could not create Reverse RSP {}", renderedServicePath.getName());
+            return null;
+        }
+
+        // The forward RSP learns its symmetric path-id in the same transaction
+        RenderedServicePathBuilder renderedServicePathBuilder = new RenderedServicePathBuilder(renderedServicePath);
+        renderedServicePathBuilder.setSymmetricPathId(revRenderedServicePath.getPathId());
+
+        if (!putRenderedServicePathAndState(revRenderedServicePath, batch)) {
+            LOG.error("Could not add Reverse RSP {} to the operational state of its SFs. Deleting it",
+                    revRenderedServicePath.getName());
+            SfcServicePathId.free_pathid(revRenderedServicePath.getPathId());
+            return null;
+        }
+        batch.merge(getRenderedServicePathIID(renderedServicePath.getName()), renderedServicePathBuilder.build(),
+                LogicalDatastoreType.OPERATIONAL);
+        return revRenderedServicePath;
+    }
+
+    private static RenderedServicePath onSymmetricRenderedServicePathCommitted(boolean committed,
+            RenderedServicePath revRenderedServicePath) {
+        if (!committed) {
+            LOG.error("Failed to create Reverse RSP {}", revRenderedServicePath.getName());
+            SfcServicePathId.free_pathid(revRenderedServicePath.getPathId());
+            return null;
         }
         return revRenderedServicePath;
     }
 
+    /**
+     * Adds the RSP together with all its associated operational state
+     * (SFF, SF and SFP) to the given batch. Nothing is added if the RSP
+     * can't be added to the operational state of any of its SFs, in which
+     * case the RSP must not be created.
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param batch batch the operations are added to
+     * @return true if the RSP and its state were added, false otherwise
+     */
+    private static boolean putRenderedServicePathAndState(RenderedServicePath renderedServicePath,
+            SfcDataStoreAPI.Batch batch) {
+        SfcDataStoreAPI.Batch rspBatch = SfcDataStoreAPI.newBatch();
+        rspBatch.merge(getRenderedServicePathIID(renderedServicePath.getName()), renderedServicePath,
+                LogicalDatastoreType.OPERATIONAL);
+        SfcProviderServiceForwarderAPI.addPathToServiceForwarderState(renderedServicePath, rspBatch);
+        if (!SfcProviderServiceFunctionAPI.addPathToServiceFunctionState(renderedServicePath, rspBatch)) {
+            return false;
+        }
+        SfcProviderServicePathAPI.addRenderedPathToServicePathState(renderedServicePath.getParentServiceFunctionPath(),
+                renderedServicePath.getName(), rspBatch);
+        batch.addAll(rspBatch);
+        return true;
+    }
+
+    private static InstanceIdentifier<RenderedServicePath> getRenderedServicePathIID(RspName rspName) {
+        return InstanceIdentifier.builder(RenderedServicePaths.class)
+            .child(RenderedServicePath.class, new RenderedServicePathKey(rspName))
+            .build();
+    }
+
     /**
      * Given a list of Service Functions, create a RenderedServicePath Hop List
      *
@@ -389,9 +884,48 @@ public class SfcProviderRenderedPathAPI {
 
         printTraceStart(LOG);
 
+        RenderedServicePath ret = null;
+        RenderedServicePath renderedServicePath =
+                buildRenderedServicePathEntry(serviceFunctionPath, createRenderedPathInput, scheduler);
+        if (renderedServicePath == null) {
+            return null;
+        }
+
+        if (SfcDataStoreAPI.writeMergeTransactionAPI(getRenderedServicePathIID(renderedServicePath.getName()),
+                renderedServicePath, LogicalDatastoreType.OPERATIONAL)) {
+            ret = renderedServicePath;
+        } else {
+            LOG.error("{}: Failed to create Rendered Service Path: {}", Thread.currentThread().getStackTrace()[1],
+                    serviceFunctionPath.getName());
+            SfcServicePathId.free_pathid(renderedServicePath.getPathId());
+        }
+        printTraceStop(LOG);
+        return ret;
+    }
+
+    /**
+     * Build a Rendered Path based on the given service function path and
+     * scheduler. A path-id is allocated for it but nothing is written to the
+     * datastore.
+     * <p>
+     *
+     * @param serviceFunctionPath RSP Object
+     * @param createRenderedPathInput CreateRenderedPathInput object
+     * @param scheduler SfcServiceFunctionSchedulerAPI object
+     * @return RenderedServicePath or null
+     */
+    protected static RenderedServicePath buildRenderedServicePathEntry(ServiceFunctionPath serviceFunctionPath,
+            CreateRenderedPathInput createRenderedPathInput, SfcServiceFunctionSchedulerAPI scheduler) {
+        return buildRenderedServicePathEntry(serviceFunctionPath, createRenderedPathInput, scheduler,
+                SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroups());
+    }
+
+    private static RenderedServicePath buildRenderedServicePathEntry(ServiceFunctionPath serviceFunctionPath,
+            CreateRenderedPathInput createRenderedPathInput, SfcServiceFunctionSchedulerAPI scheduler,
+            ServiceFunctionGroups serviceFunctionGroups) {
+
         long pathId;
         int serviceIndex;
-        RenderedServicePath ret = null;
 
         // Provisional code to test new RPC parameters
 
@@ -420,7 +954,8 @@ public class SfcProviderRenderedPathAPI {
         // Descending order
         serviceIndex = MAX_STARTING_INDEX;
 
-        List<String> sfgNameList = SfcProviderServiceFunctionGroupAPI.getSfgNameList(serviceFunctionChain);
+        List<String> sfgNameList =
+                SfcProviderServiceFunctionGroupAPI.getSfgNameList(serviceFunctionChain, serviceFunctionGroups);
         List<SfName> sfNameList =
                 scheduler.scheduleServiceFunctions(serviceFunctionChain, serviceIndex, serviceFunctionPath);
         if (sfNameList == null && sfgNameList == null) {
@@ -462,6 +997,7 @@ public class SfcProviderRenderedPathAPI {
             } else {
                 LOG.error("{}: Failed to set RSP Name as it was null and SFP Name was null.",
                         Thread.currentThread().getStackTrace()[1]);
+                SfcServicePathId.free_pathid(pathId);
                 return null;
             }
         } else {
@@ -488,46 +1024,60 @@ public class SfcProviderRenderedPathAPI {
             renderedServicePathBuilder.setTransportType(serviceFunctionPath.getTransportType());
         }
 
-        RenderedServicePathKey renderedServicePathKey =
-                new RenderedServicePathKey(renderedServicePathBuilder.getName());
-        InstanceIdentifier<RenderedServicePath> rspIID;
-        rspIID = InstanceIdentifier.builder(RenderedServicePaths.class)
-            .child(RenderedServicePath.class, renderedServicePathKey)
-            .build();
+        return renderedServicePathBuilder.build();
+    }
 
-        RenderedServicePath renderedServicePath = renderedServicePathBuilder.build();
+    /**
+     * Creates a RSP that is mirror image of the given one. It reverses the
+     * hop list and adjusts hop number and service index accordingly
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @return Nothing
+     */
+    public static RenderedServicePath createReverseRenderedServicePathEntry(RenderedServicePath renderedServicePath) {
 
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(rspIID, renderedServicePath, LogicalDatastoreType.OPERATIONAL)) {
-            ret = renderedServicePath;
+        RenderedServicePath ret = null;
+        printTraceStart(LOG);
+
+        RenderedServicePath revRenderedServicePath = buildReverseRenderedServicePathEntry(renderedServicePath);
+        if (revRenderedServicePath == null) {
+            return null;
+        }
+
+        if (SfcDataStoreAPI.writeMergeTransactionAPI(getRenderedServicePathIID(revRenderedServicePath.getName()),
+                revRenderedServicePath, LogicalDatastoreType.OPERATIONAL)) {
+            ret = revRenderedServicePath;
         } else {
-            LOG.error("{}: Failed to create Rendered Service Path: {}", Thread.currentThread().getStackTrace()[1],
-                    serviceFunctionPath.getName());
+            LOG.error("{}: Failed to create Reverse Rendered Service Path: {}",
+                    Thread.currentThread().getStackTrace()[1], revRenderedServicePath.getName());
+            SfcServicePathId.free_pathid(revRenderedServicePath.getPathId());
         }
         printTraceStop(LOG);
         return ret;
     }
 
     /**
-     * Creates a RSP that is mirror image of the given one. It reverses the
-     * hop list and adjusts hop number and service index accordingly
+     * Builds a RSP that is mirror image of the given one and allocates its
+     * symmetric path-id, without writing it to the datastore.
      * <p>
      *
      * @param renderedServicePath RSP object
-     * @return Nothing
+     * @return reverse RSP object or null
      */
-    public static RenderedServicePath createReverseRenderedServicePathEntry(RenderedServicePath renderedServicePath) {
+    protected static RenderedServicePath buildReverseRenderedServicePathEntry(
+            RenderedServicePath renderedServicePath) {
 
-        RenderedServicePath ret = null;
         RspName revPathName;
         short revServiceHop;
         List<RenderedServicePathHop> revRenderedServicePathHopArrayList = new ArrayList<>();
         // long pathId = numCreatedPathIncrementGet();
         long pathId = SfcServicePathId.check_and_allocate_symmetric_pathid(renderedServicePath.getPathId());
-        printTraceStart(LOG);
 
         if (pathId == -1) {
             LOG.error("{}: Failed to allocate symmetric path Id for Path Id: {}",
                     Thread.currentThread().getStackTrace()[1], renderedServicePath.getPathId());
+            return null;
         }
 
         RenderedServicePathBuilder revRenderedServicePathBuilder = new RenderedServicePathBuilder(renderedServicePath);
@@ -578,24 +1128,7 @@ public class SfcProviderRenderedPathAPI {
         revRenderedServicePathBuilder.setRenderedServicePathHop(revRenderedServicePathHopArrayList);
         revRenderedServicePathBuilder.setSymmetricPathId(renderedServicePath.getPathId());
 
-        InstanceIdentifier<RenderedServicePath> rspIID;
-
-        rspIID = InstanceIdentifier.builder(RenderedServicePaths.class)
-            .child(RenderedServicePath.class, revRenderedServicePathKey)
-            .build();
-
-        RenderedServicePath revRenderedServicePath = revRenderedServicePathBuilder.build();
-
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(rspIID, revRenderedServicePath,
-                LogicalDatastoreType.OPERATIONAL)) {
-            ret = revRenderedServicePath;
-        } else {
-            LOG.error("{}: Failed to create Reverse Rendered Service Path: {}",
-                    Thread.currentThread().getStackTrace()[1], revPathName);
-        }
-        printTraceStop(LOG);
-        return ret;
-
+        return revRenderedServicePathBuilder.build();
     }
 
     public static RspName generateReversedPathName(RspName directRspName) {
@@ -636,18 +1169,24 @@ public class SfcProviderRenderedPathAPI {
         printTraceStart(LOG);
         boolean ret = false;
 
-        for (RspName rspName : servicePaths) {
-            if (SfcProviderRenderedPathAPI.readRenderedServicePath(rspName) != null) {
-                if (SfcProviderRenderedPathAPI.deleteRenderedServicePath(rspName)) {
-                    ret = true;
+        // All RSPs are locked up front, in order, before deleting any of them
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(servicePaths);
+        try {
+            for (RspName rspName : servicePaths) {
+                if (SfcProviderRenderedPathAPI.readRenderedServicePath(rspName) != null) {
+                    if (SfcProviderRenderedPathAPI.deleteRenderedServicePathAndState(rspName)) {
+                        ret = true;
+                    } else {
+                        LOG.error("Could not delete RSP: {}", rspName);
+                        ret = false;
+                    }
                 } else {
-                    LOG.error("Could not delete RSP: {}", rspName);
-                    ret = false;
+                    LOG.debug("RSP {} already deleted by another thread or client", rspName);
+                    ret = true;
                 }
-            } else {
-                LOG.debug("RSP {} already deleted by another thread or client", rspName);
-                ret = true;
             }
+        } finally {
+            entityLocks.unlock();
         }
         return ret;
     }
@@ -687,6 +1226,154 @@ public class SfcProviderRenderedPathAPI {
         return ret;
     }
 
+    /**
+     * This method deletes a RSP together with all the associated SFF, SF
+     * and SFP operational state in a single transaction, and frees the
+     * Path ID
+     * <p>
+     *
+     * @param renderedServicePathName RSP name
+     * @return true if the RSP was deleted or did not exist, false otherwise
+     */
+    public static boolean deleteRenderedServicePathAndState(RspName renderedServicePathName) {
+        boolean ret = true;
+        printTraceStart(LOG);
+
+        ListenableFuture<Boolean> pendingDelete;
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(renderedServicePathName);
+        try {
+            // The RSP may already be being deleted asynchronously
+            pendingDelete = PENDING_DELETES.get(renderedServicePathName);
+            if (pendingDelete == null) {
+                RenderedServicePath renderedServicePath = readRenderedServicePath(renderedServicePathName);
+                if (renderedServicePath != null) {
+                    SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+                    deleteRenderedServicePathAndState(renderedServicePath, batch);
+                    ret = onRenderedServicePathDeleted(batch.submit(), renderedServicePath);
+                }
+            }
+        } finally {
+            entityLocks.unlock();
+        }
+
+        if (pendingDelete != null) {
+            try {
+                ret = pendingDelete.get();
+            } catch (InterruptedException | ExecutionException e) {
+                LOG.error("Failed to delete RSP {}: {}", renderedServicePathName, e.getMessage());
+                ret = false;
+            }
+        }
+        printTraceStop(LOG);
+        return ret;
+    }
+
+    /**
+     * Non-blocking variant of {@link #deleteRenderedServicePathAndState(RspName)}.
+     * The RSP is claimed under its lock before it is read, and the claim is
+     * only released once the delete commit completed, so concurrent deletes
+     * of the same RSP share a single read, commit and path-id release. The
+     * state entries to remove are collected on the SFC executor.
+     * <p>
+     *
+     * @param renderedServicePathName RSP name
+     * @return future holding true if the RSP was deleted or did not exist
+     */
+    public static ListenableFuture<Boolean> deleteRenderedServicePathAndStateAsync(
+            final RspName renderedServicePathName) {
+        final SettableFuture<Boolean> deleteFuture = SettableFuture.create();
+        // Waits for a synchronous delete of the RSP, which holds the lock until it committed
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(renderedServicePathName);
+        try {
+            ListenableFuture<Boolean> pendingDelete =
+                    PENDING_DELETES.putIfAbsent(renderedServicePathName, deleteFuture);
+            if (pendingDelete != null) {
+                return pendingDelete;
+            }
+        } finally {
+            entityLocks.unlock();
+        }
+
+        ListenableFuture<Optional<RenderedServicePath>> readFuture = SfcDataStoreAPI.readTransactionAPIAsync(
+                getRenderedServicePathIID(renderedServicePathName), LogicalDatastoreType.OPERATIONAL);
+
+        // The claim keeps the other deletes out, so the continuations don't take the lock
+        AsyncFunction<Optional<RenderedServicePath>, Boolean> deleteFunction =
+                new AsyncFunction<Optional<RenderedServicePath>, Boolean>() {
+
+                    @Override
+                    public ListenableFuture<Boolean> apply(Optional<RenderedServicePath> optionalRsp) {
+                        if (!optionalRsp.isPresent()) {
+                            return Futures.immediateFuture(Boolean.TRUE);
+                        }
+                        final RenderedServicePath renderedServicePath = optionalRsp.get();
+
+                        SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+                        deleteRenderedServicePathAndState(renderedServicePath, batch);
+                        return Futures.transform(SfcDataStoreAPI.toResultFuture(batch.submitAsync()),
+                                new Function<Boolean, Boolean>() {
+
+                                    @Override
+                                    public Boolean apply(Boolean committed) {
+                                        return onRenderedServicePathDeleted(committed, renderedServicePath);
+                                    }
+                                }, getCallbackExecutor());
+                    }
+                };
+        ListenableFuture<Boolean> deletedFuture =
+                Futures.transform(readFuture, deleteFunction, getCallbackExecutor());
+
+        Futures.addCallback(deletedFuture, new FutureCallback<Boolean>() {
+
+            @Override
+            public void onSuccess(Boolean deleted) {
+                PENDING_DELETES.remove(renderedServicePathName, deleteFuture);
+                deleteFuture.set(deleted);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                PENDING_DELETES.remove(renderedServicePathName, deleteFuture);
+                deleteFuture.setException(t);
+            }
+        });
+        return deleteFuture;
+    }
+
+    /**
+     * Adds the deletion of the RSP and of all its SFF, SF and SFP
+     * operational state to the given batch
+     */
+    private static void deleteRenderedServicePathAndState(RenderedServicePath renderedServicePath,
+            SfcDataStoreAPI.Batch batch) {
+        SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(renderedServicePath, batch);
+        SfcProviderServiceFunctionAPI.deleteServicePathFromServiceFunctionState(renderedServicePath, batch);
+        if (renderedServicePath.getParentServiceFunctionPath() != null) {
+            SfcProviderServicePathAPI.deleteRenderedPathFromServicePathState(
+                    renderedServicePath.getParentServiceFunctionPath(), renderedServicePath.getName(), batch);
+        }
+        batch.delete(getRenderedServicePathIID(renderedServicePath.getName()), LogicalDatastoreType.OPERATIONAL);
+    }
+
+    private static boolean onRenderedServicePathDeleted(boolean committed, RenderedServicePath renderedServicePath) {
+        if (committed) {
+            // Free pathId
+            SfcServicePathId.free_pathid(renderedServicePath.getPathId());
+        } else {
+            LOG.error("Failed to delete RSP: {}", renderedServicePath.getName());
+        }
+        return committed;
+    }
+
+    /**
+     * Continuations read from and write to the datastore (path-id release,
+     * state lookups), so they must not run on the thread completing the
+     * commit and are handed over to the SFC executor instead.
+     */
+    static Executor getCallbackExecutor() {
+        return OpendaylightSfc.getOpendaylightSfcObj().getExecutor();
+    }
+
     /**
      * This method provides all necessary information for a system to construct
      * a NSH header and associated overlay packet to target the first
@@ -11,7 +11,10 @@ package org.opendaylight.sfc.provider.api;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStart;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
 
-import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.ServiceFunctionChains;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
@@ -20,6 +23,9 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * This class has the APIs to operate on the ServiceFunctionChain
  * datastore.
@@ -55,12 +61,26 @@ public class SfcProviderServiceChainAPI {
             .child(ServiceFunctionChain.class, serviceFunctionChainKey)
             .build();
 
-        sfc = SfcDataStoreAPI.readTransactionAPI(sfcIID, LogicalDatastoreType.CONFIGURATION);
+        sfc = SfcProviderConfigCache.read(SfcProviderConfigCache.SFC, serviceFunctionChainName, sfcIID);
 
         printTraceStop(LOG);
         return sfc;
     }
 
+    /**
+     * Non-blocking variant of {@link #readServiceFunctionChain(SfcName)}
+     *
+     * @param serviceFunctionChainName SFC name
+     * @return future of the SFC, holding null if not found
+     */
+    public static ListenableFuture<ServiceFunctionChain> readServiceFunctionChainAsync(
+            SfcName serviceFunctionChainName) {
+        InstanceIdentifier<ServiceFunctionChain> sfcIID = InstanceIdentifier.builder(ServiceFunctionChains.class)
+            .child(ServiceFunctionChain.class, new ServiceFunctionChainKey(serviceFunctionChainName))
+            .build();
+        return SfcProviderConfigCache.readAsync(SfcProviderConfigCache.SFC, serviceFunctionChainName, sfcIID);
+    }
+
     /**
      * This method creates a SFC from the datastore.
      *
@@ -75,8 +95,8 @@ public class SfcProviderServiceChainAPI {
             .child(ServiceFunctionChain.class, serviceFunctionChain.getKey())
             .build();
 
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(sfcEntryIID, serviceFunctionChain,
-                LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderConfigCache.writeMerge(SfcProviderConfigCache.SFC, serviceFunctionChain.getName(), sfcEntryIID,
+                serviceFunctionChain)) {
             ret = true;
         } else {
             LOG.error("Failed to create Service Function Chain: {}", serviceFunctionChain);
@@ -85,4 +105,26 @@ public class SfcProviderServiceChainAPI {
         printTraceStop(LOG);
         return ret;
     }
+
+    /**
+     * This method merges a set of SFCs into the datastore without waiting
+     * for the commit.
+     *
+     * @param serviceFunctionChains SFCs to merge
+     * @return commit future
+     */
+    public static CheckedFuture<Void, TransactionCommitFailedException> putServiceFunctionChainsAsync(
+            ServiceFunctionChains serviceFunctionChains) {
+        InstanceIdentifier<ServiceFunctionChains> sfcsIID = InstanceIdentifier.builder(ServiceFunctionChains.class)
+            .build();
+
+        List<SfcName> sfcNames = new ArrayList<>();
+        if (serviceFunctionChains.getServiceFunctionChain() != null) {
+            for (ServiceFunctionChain serviceFunctionChain : serviceFunctionChains.getServiceFunctionChain()) {
+                sfcNames.add(serviceFunctionChain.getName());
+            }
+        }
+        return SfcProviderConfigCache.writeMergeAsync(SfcProviderConfigCache.SFC, sfcNames, sfcsIID,
+                serviceFunctionChains);
+    }
 }
@@ -38,6 +38,8 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * This class has the APIs to operate on the ServiceFunction
  * datastore.
@@ -70,7 +72,7 @@ public class SfcProviderServiceForwarderAPI {
         InstanceIdentifier<ServiceFunctionForwarder> sffEntryIID = InstanceIdentifier
             .builder(ServiceFunctionForwarders.class).child(ServiceFunctionForwarder.class, sff.getKey()).build();
 
-        ret = SfcDataStoreAPI.writePutTransactionAPI(sffEntryIID, sff, LogicalDatastoreType.CONFIGURATION);
+        ret = SfcProviderConfigCache.writePut(SfcProviderConfigCache.SFF, sff.getName(), sffEntryIID, sff);
 
         printTraceStop(LOG);
         return ret;
@@ -117,11 +119,26 @@ public class SfcProviderServiceForwarderAPI {
             .child(ServiceFunctionForwarder.class, serviceFunctionForwarderKey)
             .build();
 
-        sff = SfcDataStoreAPI.readTransactionAPI(sffIID, LogicalDatastoreType.CONFIGURATION);
+        sff = SfcProviderConfigCache.read(SfcProviderConfigCache.SFF, serviceFunctionForwarderName, sffIID);
         printTraceStop(LOG);
         return sff;
     }
 
+    /**
+     * Non-blocking variant of {@link #readServiceFunctionForwarder(SffName)}
+     *
+     * @param serviceFunctionForwarderName SFF name
+     * @return future of the SFF, holding null if not found
+     */
+    public static ListenableFuture<ServiceFunctionForwarder> readServiceFunctionForwarderAsync(
+            SffName serviceFunctionForwarderName) {
+        InstanceIdentifier<ServiceFunctionForwarder> sffIID =
+                InstanceIdentifier.builder(ServiceFunctionForwarders.class)
+                    .child(ServiceFunctionForwarder.class, new ServiceFunctionForwarderKey(serviceFunctionForwarderName))
+                    .build();
+        return SfcProviderConfigCache.readAsync(SfcProviderConfigCache.SFF, serviceFunctionForwarderName, sffIID);
+    }
+
     /**
      * This method deletes a SFF from the datastore
      * <p>
@@ -139,7 +156,7 @@ public class SfcProviderServiceForwarderAPI {
                     .child(ServiceFunctionForwarder.class, serviceFunctionForwarderKey)
                     .build();
 
-        if (SfcDataStoreAPI.deleteTransactionAPI(sffEntryIID, LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderConfigCache.delete(SfcProviderConfigCache.SFF, serviceFunctionForwarderName, sffEntryIID)) {
             ret = true;
         } else {
             LOG.error("Could not delete SFF: {}", serviceFunctionForwarderName);
@@ -158,10 +175,7 @@ public class SfcProviderServiceForwarderAPI {
     protected static ServiceFunctionForwarders readAllServiceFunctionForwarders() {
         ServiceFunctionForwarders sffs;
         printTraceStart(LOG);
-        InstanceIdentifier<ServiceFunctionForwarders> sffsIID =
-                InstanceIdentifier.builder(ServiceFunctionForwarders.class).build();
-
-        sffs = SfcDataStoreAPI.readTransactionAPI(sffsIID, LogicalDatastoreType.CONFIGURATION);
+        sffs = SfcProviderConfigCache.readAllServiceFunctionForwarders();
 
         printTraceStop(LOG);
         return sffs;
@@ -178,9 +192,27 @@ public class SfcProviderServiceForwarderAPI {
 
         printTraceStart(LOG);
 
-        boolean ret = true;
-        ServiceFunctionForwarderStateBuilder serviceFunctionForwarderStateBuilder =
-                new ServiceFunctionForwarderStateBuilder();
+        SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+        addPathToServiceForwarderState(renderedServicePath, batch);
+        boolean ret = batch.submit();
+        if (!ret) {
+            LOG.error("Failed to add path {} to SFF state.", renderedServicePath.getName());
+        }
+        printTraceStop(LOG);
+        return ret;
+    }
+
+    /**
+     * Adds the operations needed to add the path name to the operational
+     * store of each SFF to the given batch. Nothing is written until the
+     * batch is submitted.
+     * <p>
+     *
+     * @param renderedServicePath RSP Object
+     * @param batch batch the operations are added to
+     */
+    public static void addPathToServiceForwarderState(RenderedServicePath renderedServicePath,
+            SfcDataStoreAPI.Batch batch) {
 
         // TODO another example of strings being used to interchange types. Note the constructor of
         // a new SfpName. See prior TODO on RPC
@@ -199,17 +231,51 @@ public class SfcProviderServiceForwarderAPI {
                         .child(ServiceFunctionForwarderState.class, serviceFunctionForwarderStateKey)
                         .child(SffServicePath.class, sffServicePathKey)
                         .build();
-            serviceFunctionForwarderStateBuilder.setName(renderedServicePathHop.getServiceFunctionForwarder());
+            batch.put(sfStateIID, sffServicePathBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+        }
+    }
 
-            if (!SfcDataStoreAPI.writePutTransactionAPI(sfStateIID, sffServicePathBuilder.build(),
-                    LogicalDatastoreType.OPERATIONAL)) {
-                ret = false;
-                LOG.error("Failed to add path {} to SFF {} state.", renderedServicePath.getName(),
-                        renderedServicePathHop.getServiceFunctionForwarder());
+    /**
+     * Adds the operations needed to remove the path from the operational
+     * state of each SFF it traverses to the given batch. The SFF state is
+     * removed altogether when this path is the last one using the SFF.
+     * <p>
+     *
+     * @param renderedServicePath RSP Object
+     * @param batch batch the operations are added to
+     */
+    public static void deletePathFromServiceForwarderState(RenderedServicePath renderedServicePath,
+            SfcDataStoreAPI.Batch batch) {
+
+        RspName rspName = renderedServicePath.getName();
+        // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
+        SfpName sfpName = new SfpName(rspName.getValue());
+        SffServicePathKey sffServicePathKey = new SffServicePathKey(sfpName);
+        Set<SffName> sffNameSet = new HashSet<>();
+        for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
+            SffName sffName = renderedServicePathHop.getServiceFunctionForwarder();
+            if (!sffNameSet.add(sffName)) {
+                continue;
+            }
+            ServiceFunctionForwarderStateKey serviceFunctionForwarderStateKey =
+                    new ServiceFunctionForwarderStateKey(sffName);
+            List<SffServicePath> sffServicePathList = readSffState(sffName);
+            if ((sffServicePathList != null) && (sffServicePathList.size() == 1)
+                    && sffServicePathList.get(0).getName().equals(sfpName)) {
+                InstanceIdentifier<ServiceFunctionForwarderState> sffStateIID =
+                        InstanceIdentifier.builder(ServiceFunctionForwardersState.class)
+                            .child(ServiceFunctionForwarderState.class, serviceFunctionForwarderStateKey)
+                            .build();
+                batch.delete(sffStateIID, LogicalDatastoreType.OPERATIONAL);
+            } else {
+                InstanceIdentifier<SffServicePath> sfStateIID =
+                        InstanceIdentifier.builder(ServiceFunctionForwardersState.class)
+                            .child(ServiceFunctionForwarderState.class, serviceFunctionForwarderStateKey)
+                            .child(SffServicePath.class, sffServicePathKey)
+                            .build();
+                batch.delete(sfStateIID, LogicalDatastoreType.OPERATIONAL);
             }
         }
-        printTraceStop(LOG);
-        return ret;
     }
 
     /**
@@ -12,9 +12,11 @@ import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStart;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
@@ -36,6 +38,9 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * This class has the APIs to operate on the ServiceFunction
  * datastore.
@@ -185,7 +190,34 @@ public class SfcProviderServiceFunctionAPI {
         boolean ret = false;
         printTraceStart(LOG);
 
-        ServiceFunctionStateBuilder serviceFunctionStateBuilder = new ServiceFunctionStateBuilder();
+        SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+        if (addPathToServiceFunctionState(renderedServicePath, batch)) {
+            if (batch.submit()) {
+                ret = true;
+            } else {
+                LOG.error("{}: Could not add SFP {} to operational state of its SFs",
+                        Thread.currentThread().getStackTrace()[1], renderedServicePath.getName());
+            }
+        }
+        printTraceStop(LOG);
+        return ret;
+
+    }
+
+    /**
+     * This method adds the operations needed to add a RSP name to the
+     * corresponding SF operational state to the given batch.
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param batch batch the operations are added to
+     * @return true if at least one hop was handled, false otherwise
+     */
+    public static boolean addPathToServiceFunctionState(RenderedServicePath renderedServicePath,
+            SfcDataStoreAPI.Batch batch) {
+
+        boolean ret = false;
+
         // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
         SfpName sfpName = new SfpName(renderedServicePath.getName().getValue());
         SfServicePathKey sfServicePathKey = new SfServicePathKey(sfpName);
@@ -206,16 +238,9 @@ public class SfcProviderServiceFunctionAPI {
                     .child(ServiceFunctionState.class, serviceFunctionStateKey)
                     .child(SfServicePath.class, sfServicePathKey)
                     .build();
-                serviceFunctionStateBuilder.setName(renderedServicePathHop.getServiceFunctionName());
 
-                if (SfcDataStoreAPI.writePutTransactionAPI(sfStateIID, sfServicePathBuilder.build(),
-                        LogicalDatastoreType.OPERATIONAL)) {
-                    ret = true;
-                } else {
-                    LOG.error("{}: Could not add SFP {} to operational state of SF: {}",
-                            Thread.currentThread().getStackTrace()[1], renderedServicePath.getName(),
-                            renderedServicePathHop.getServiceFunctionName());
-                }
+                batch.put(sfStateIID, sfServicePathBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+                ret = true;
             } else if (serviceFunctionGroupName != null) {
                 LOG.info("{}: Could not add SFP {} to operational state of SFG: {}",
                         Thread.currentThread().getStackTrace()[1], renderedServicePath.getName(),
@@ -224,9 +249,35 @@ public class SfcProviderServiceFunctionAPI {
             }
 
         }
-        printTraceStop(LOG);
         return ret;
+    }
 
+    /**
+     * This method adds the operations needed to remove the given RSP from
+     * the operational state of all the SFs it uses to the given batch.
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param batch batch the operations are added to
+     */
+    public static void deleteServicePathFromServiceFunctionState(RenderedServicePath renderedServicePath,
+            SfcDataStoreAPI.Batch batch) {
+
+        // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
+        SfServicePathKey sfServicePathKey =
+                new SfServicePathKey(new SfpName(renderedServicePath.getName().getValue()));
+        for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
+            SfName sfName = renderedServicePathHop.getServiceFunctionName();
+            if (sfName == null) {
+                continue;
+            }
+            ServiceFunctionStateKey serviceFunctionStateKey = new ServiceFunctionStateKey(sfName);
+            InstanceIdentifier<SfServicePath> sfStateIID = InstanceIdentifier.builder(ServiceFunctionsState.class)
+                .child(ServiceFunctionState.class, serviceFunctionStateKey)
+                .child(SfServicePath.class, sfServicePathKey)
+                .build();
+            batch.delete(sfStateIID, LogicalDatastoreType.OPERATIONAL);
+        }
     }
 
     /**
@@ -243,12 +294,26 @@ public class SfcProviderServiceFunctionAPI {
         InstanceIdentifier<ServiceFunction> sfEntryIID =
                 InstanceIdentifier.builder(ServiceFunctions.class).child(ServiceFunction.class, sf.getKey()).build();
 
-        ret = SfcDataStoreAPI.writeMergeTransactionAPI(sfEntryIID, sf, LogicalDatastoreType.CONFIGURATION);
+        ret = SfcProviderConfigCache.writeMerge(SfcProviderConfigCache.SF, sf.getName(), sfEntryIID, sf);
 
         printTraceStop(LOG);
         return ret;
     }
 
+    /**
+     * Non-blocking variant of {@link #putServiceFunction}.
+     *
+     * @param sf Service Function
+     * @return commit future
+     */
+    public static CheckedFuture<Void, TransactionCommitFailedException> putServiceFunctionAsync(ServiceFunction sf) {
+        InstanceIdentifier<ServiceFunction> sfEntryIID =
+                InstanceIdentifier.builder(ServiceFunctions.class).child(ServiceFunction.class, sf.getKey()).build();
+
+        return SfcProviderConfigCache.writeMergeAsync(SfcProviderConfigCache.SF, Collections.singleton(sf.getName()),
+                sfEntryIID, sf);
+    }
+
     /**
      * Add ServiceFunctionState to datastore
      * <p>
@@ -301,18 +366,29 @@ public class SfcProviderServiceFunctionAPI {
             .child(ServiceFunction.class, serviceFunctionKey)
             .build();
 
-        sf = SfcDataStoreAPI.readTransactionAPI(sfIID, LogicalDatastoreType.CONFIGURATION);
+        sf = SfcProviderConfigCache.read(SfcProviderConfigCache.SF, serviceFunctionName, sfIID);
 
         printTraceStop(LOG);
         return sf;
     }
 
+    /**
+     * Non-blocking variant of {@link #readServiceFunction(SfName)}
+     *
+     * @param serviceFunctionName SF name
+     * @return future of the SF, holding null if not found
+     */
+    public static ListenableFuture<ServiceFunction> readServiceFunctionAsync(SfName serviceFunctionName) {
+        InstanceIdentifier<ServiceFunction> sfIID = InstanceIdentifier.builder(ServiceFunctions.class)
+            .child(ServiceFunction.class, new ServiceFunctionKey(serviceFunctionName))
+            .build();
+        return SfcProviderConfigCache.readAsync(SfcProviderConfigCache.SF, serviceFunctionName, sfIID);
+    }
+
     protected static ServiceFunctions readAllServiceFunctions() {
         ServiceFunctions sfs;
         printTraceStart(LOG);
-        InstanceIdentifier<ServiceFunctions> sfsIID = InstanceIdentifier.builder(ServiceFunctions.class).build();
-
-        sfs = SfcDataStoreAPI.readTransactionAPI(sfsIID, LogicalDatastoreType.CONFIGURATION);
+        sfs = SfcProviderConfigCache.readAllServiceFunctions();
 
         printTraceStop(LOG);
         return sfs;
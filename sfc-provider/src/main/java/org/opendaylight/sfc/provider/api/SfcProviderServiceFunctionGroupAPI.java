@@ -26,6 +26,8 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * This class has the APIs to operate on the ServiceFunctionGroup datastore.
  * <p>
@@ -42,16 +44,30 @@ import org.slf4j.LoggerFactory;
 public class SfcProviderServiceFunctionGroupAPI {
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcProviderServiceFunctionGroupAPI.class);
+    private static final InstanceIdentifier<ServiceFunctionGroups> SFGS_IID =
+            InstanceIdentifier.builder(ServiceFunctionGroups.class).build();
 
     public static List<String> getSfgNameList(ServiceFunctionChain serviceFunctionChain) {
+        return getSfgNameList(serviceFunctionChain, readServiceFunctionGroups());
+    }
+
+    /**
+     * Gets the names of the SFGs of the SF types of a chain, looking them
+     * up in SFGs that were already read
+     * <p>
+     *
+     * @param serviceFunctionChain the chain
+     * @param sfgs all the SFGs, null if there are none
+     * @return the SFG names in chain order, or null if a SF type has no SFG
+     */
+    public static List<String> getSfgNameList(ServiceFunctionChain serviceFunctionChain, ServiceFunctionGroups sfgs) {
         List<String> ret = new ArrayList<>();
         List<SfcServiceFunction> sfcServiceFunction = serviceFunctionChain.getSfcServiceFunction();
         LOG.debug("searching groups for chain {} which has the elements {}", serviceFunctionChain.getName(),
                 serviceFunctionChain.getSfcServiceFunction());
         if (sfcServiceFunction != null) {
             for (SfcServiceFunction sf : sfcServiceFunction) {
-                ServiceFunctionGroup sfg =
-                        SfcProviderServiceFunctionGroupAPI.getServiceFunctionGroupByType(sf.getType());
+                ServiceFunctionGroup sfg = getServiceFunctionGroupByType(sfgs, sf.getType());
                 LOG.debug("look for service function group of type {} and found {}", sf.getType(), sfg);
                 if (sfg != null) {
                     ret.add(sfg.getName());
@@ -84,6 +100,26 @@ public class SfcProviderServiceFunctionGroupAPI {
         return sfg;
     }
 
+    /**
+     * Reads all the SFGs from the datastore
+     * <p>
+     *
+     * @return ServiceFunctionGroups object or null if there are none
+     */
+    public static ServiceFunctionGroups readServiceFunctionGroups() {
+        return SfcDataStoreAPI.readTransactionAPI(SFGS_IID, LogicalDatastoreType.CONFIGURATION);
+    }
+
+    /**
+     * Non-blocking variant of {@link #readServiceFunctionGroups()}
+     *
+     * @return future of the ServiceFunctionGroups object, holding null if there are none
+     */
+    public static ListenableFuture<ServiceFunctionGroups> readServiceFunctionGroupsAsync() {
+        return SfcDataStoreAPI.toValueFuture(
+                SfcDataStoreAPI.readTransactionAPIAsync(SFGS_IID, LogicalDatastoreType.CONFIGURATION));
+    }
+
     /**
      * Reads a SFG from the datastore
      * <p>
@@ -92,14 +128,15 @@ public class SfcProviderServiceFunctionGroupAPI {
      * @return ServiceFunctionGroup object or null if not found
      */
     protected static ServiceFunctionGroup getServiceFunctionGroupByType(SftType serviceFunctionType) {
+        return getServiceFunctionGroupByType(readServiceFunctionGroups(), serviceFunctionType);
+    }
+
+    private static ServiceFunctionGroup getServiceFunctionGroupByType(ServiceFunctionGroups sfgs,
+            SftType serviceFunctionType) {
         printTraceStart(LOG);
         ServiceFunctionGroup sfg = null;
-        InstanceIdentifier<ServiceFunctionGroups> sfgIID;
-        sfgIID = InstanceIdentifier.builder(ServiceFunctionGroups.class).build();
-
-        ServiceFunctionGroups sfgs = SfcDataStoreAPI.readTransactionAPI(sfgIID, LogicalDatastoreType.CONFIGURATION);
 
-        if (sfgs != null) {
+        if (sfgs != null && sfgs.getServiceFunctionGroup() != null) {
             for (ServiceFunctionGroup element : sfgs.getServiceFunctionGroup()) {
                 if (element.getType().equals(serviceFunctionType)) {
                     sfg = element;
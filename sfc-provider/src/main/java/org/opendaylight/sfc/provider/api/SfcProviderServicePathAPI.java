@@ -109,6 +109,47 @@ public class SfcProviderServicePathAPI {
         return ret;
     }
 
+    /**
+     * Adds the operation needed to add a RSP to the Service Function Path
+     * operational state to the given batch.
+     *
+     * @param servicePathName Service Function Path name
+     * @param renderedPathName Rendered Path name
+     * @param batch batch the operation is added to
+     */
+    public static void addRenderedPathToServicePathState(SfpName servicePathName, RspName renderedPathName,
+            SfcDataStoreAPI.Batch batch) {
+
+        SfpRenderedServicePathBuilder sfpRenderedServicePathBuilder = new SfpRenderedServicePathBuilder();
+        SfpRenderedServicePathKey sfpRenderedServicePathKey = new SfpRenderedServicePathKey(renderedPathName);
+        sfpRenderedServicePathBuilder.setKey(sfpRenderedServicePathKey).setName(renderedPathName);
+
+        batch.merge(getSfpRenderedServicePathIID(servicePathName, renderedPathName),
+                sfpRenderedServicePathBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+    }
+
+    /**
+     * Adds the operation needed to remove a RSP from the Service Function
+     * Path operational state to the given batch.
+     *
+     * @param servicePathName Service Function Path name
+     * @param renderedPathName Rendered Path name
+     * @param batch batch the operation is added to
+     */
+    public static void deleteRenderedPathFromServicePathState(SfpName servicePathName, RspName renderedPathName,
+            SfcDataStoreAPI.Batch batch) {
+        batch.delete(getSfpRenderedServicePathIID(servicePathName, renderedPathName),
+                LogicalDatastoreType.OPERATIONAL);
+    }
+
+    private static InstanceIdentifier<SfpRenderedServicePath> getSfpRenderedServicePathIID(SfpName servicePathName,
+            RspName renderedPathName) {
+        return InstanceIdentifier.builder(ServiceFunctionPathsState.class)
+            .child(ServiceFunctionPathState.class, new ServiceFunctionPathStateKey(servicePathName))
+            .child(SfpRenderedServicePath.class, new SfpRenderedServicePathKey(renderedPathName))
+            .build();
+    }
+
     /**
      * This function reads a SFP from the datastore
      *
@@ -124,7 +165,7 @@ public class SfcProviderServicePathAPI {
             .child(ServiceFunctionPath.class, serviceFunctionPathKey)
             .build();
 
-        sfp = SfcDataStoreAPI.readTransactionAPI(sfpIID, LogicalDatastoreType.CONFIGURATION);
+        sfp = SfcProviderConfigCache.read(SfcProviderConfigCache.SFP, serviceFunctionPathName, sfpIID);
         printTraceStop(LOG);
         return sfp;
     }
@@ -132,10 +173,7 @@ public class SfcProviderServicePathAPI {
     public static ServiceFunctionPaths readAllServiceFunctionPaths() {
         ServiceFunctionPaths sfps;
         printTraceStart(LOG);
-        InstanceIdentifier<ServiceFunctionPaths> sfpsIID =
-                InstanceIdentifier.builder(ServiceFunctionPaths.class).build();
-
-        sfps = SfcDataStoreAPI.readTransactionAPI(sfpsIID, LogicalDatastoreType.CONFIGURATION);
+        sfps = SfcProviderConfigCache.readAllServiceFunctionPaths();
 
         printTraceStop(LOG);
         return sfps;
@@ -149,7 +187,7 @@ public class SfcProviderServicePathAPI {
             .child(ServiceFunctionPath.class, sfp.getKey())
             .build();
 
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(sfpEntryIID, sfp, LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderConfigCache.writeMerge(SfcProviderConfigCache.SFP, sfp.getName(), sfpEntryIID, sfp)) {
             LOG.debug("Created Service Function Path: {}", sfp.getName());
             ret = true;
         } else {
@@ -26,6 +26,8 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * This class has the APIs to operate on the ServiceFunctionType
  * datastore.
@@ -74,8 +76,8 @@ public class SfcProviderServiceTypeAPI {
         sftServiceFunctionNameBuilder = sftServiceFunctionNameBuilder.setName(serviceFunction.getName().getValue());
         SftServiceFunctionName sftServiceFunctionName = sftServiceFunctionNameBuilder.build();
 
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(sftentryIID, sftServiceFunctionName,
-                LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderConfigCache.writeMerge(SfcProviderConfigCache.SFT, serviceFunction.getType(), sftentryIID,
+                sftServiceFunctionName)) {
             ret = true;
         } else {
             LOG.error("Failed to create Service Function Type for Service Function: {}", serviceFunction.getName());
@@ -92,7 +94,27 @@ public class SfcProviderServiceTypeAPI {
             .child(ServiceFunctionType.class, sft.getKey())
             .build();
 
-        ret = SfcDataStoreAPI.writePutTransactionAPI(sftEntryIID, sft, LogicalDatastoreType.CONFIGURATION);
+        ret = SfcProviderConfigCache.writePut(SfcProviderConfigCache.SFT, sft.getType(), sftEntryIID, sft);
+
+        printTraceStop(LOG);
+        return ret;
+    }
+
+    /**
+     * This method replaces all the Service Function Types in the datastore.
+     *
+     * @param sfts ServiceFunctionTypes object
+     * @return true if the Service Function Types were written, false otherwise
+     */
+    public static boolean putServiceFunctionTypes(ServiceFunctionTypes sfts) {
+        printTraceStart(LOG);
+
+        InstanceIdentifier<ServiceFunctionTypes> sftsIID = InstanceIdentifier.builder(ServiceFunctionTypes.class)
+            .build();
+
+        // A put replaces the whole container, so the cached types are dropped
+        boolean ret = SfcProviderConfigCache.waitFor(
+                SfcProviderConfigCache.writePutAsync(SfcProviderConfigCache.SFT, null, sftsIID, sfts));
 
         printTraceStop(LOG);
         return ret;
@@ -112,7 +134,7 @@ public class SfcProviderServiceTypeAPI {
         sftIID = InstanceIdentifier.builder(ServiceFunctionTypes.class)
             .child(ServiceFunctionType.class, serviceFunctionTypeKey)
             .build();
-        sft = SfcDataStoreAPI.readTransactionAPI(sftIID, LogicalDatastoreType.CONFIGURATION);
+        sft = SfcProviderConfigCache.read(SfcProviderConfigCache.SFT, serviceFunctionType, sftIID);
         if (sft == null) {
             LOG.error("Could not read Service Function list for Type {} " + "", serviceFunctionType);
         }
@@ -120,6 +142,20 @@ public class SfcProviderServiceTypeAPI {
         return sft;
     }
 
+    /**
+     * Non-blocking variant of {@link #readServiceFunctionType(SftType)}
+     *
+     * @param serviceFunctionType Service Function Type abstract class
+     * @return future of the Service Function Type, holding null if not found
+     */
+    public static ListenableFuture<ServiceFunctionType> readServiceFunctionTypeAsync(
+            SftType serviceFunctionType) {
+        InstanceIdentifier<ServiceFunctionType> sftIID = InstanceIdentifier.builder(ServiceFunctionTypes.class)
+            .child(ServiceFunctionType.class, new ServiceFunctionTypeKey(serviceFunctionType))
+            .build();
+        return SfcProviderConfigCache.readAsync(SfcProviderConfigCache.SFT, serviceFunctionType, sftIID);
+    }
+
     /**
      * This method is used to delete a Service Function entry from the
      * Service Function Type list
@@ -143,7 +179,7 @@ public class SfcProviderServiceTypeAPI {
             .child(SftServiceFunctionName.class, sftServiceFunctionNameKey)
             .build();
 
-        if (SfcDataStoreAPI.deleteTransactionAPI(sftentryIID, LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderConfigCache.delete(SfcProviderConfigCache.SFT, serviceFunction.getType(), sftentryIID)) {
             ret = true;
         } else {
             LOG.error("Failed to delete Service Function Type: {}, for Service Function: {}", serviceFunction.getType(),
@@ -192,7 +228,7 @@ public class SfcProviderServiceTypeAPI {
         InstanceIdentifier<ServiceFunctionType> sftEntryIID = InstanceIdentifier.builder(ServiceFunctionTypes.class)
             .child(ServiceFunctionType.class, serviceFunctionTypeKey)
             .build();
-        if (SfcDataStoreAPI.deleteTransactionAPI(sftEntryIID, LogicalDatastoreType.CONFIGURATION)) {
+        if (SfcProviderConfigCache.delete(SfcProviderConfigCache.SFT, serviceFunctionType.getType(), sftEntryIID)) {
             ret = true;
         } else {
             LOG.error("Failed to delete Service Type: {}", serviceFunctionType);
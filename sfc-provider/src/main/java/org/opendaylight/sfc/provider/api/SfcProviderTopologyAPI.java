@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.opendaylight.sfc.provider.topology.SfcProviderGraph;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwarders;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class holds the topology graph of all the SFs and SFFs used by
+ * the shortest path scheduler.
+ * <p>
+ * Once enabled by the provider, the graph is long-lived: it is loaded
+ * from the datastore on first use and then updated incrementally by the
+ * SF and SFF data listeners. Schedulers read an immutable snapshot of it
+ * without locking. When it is not enabled every call builds a new graph
+ * from the datastore.
+ */
+public final class SfcProviderTopologyAPI {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcProviderTopologyAPI.class);
+    private static final int MAX_LOAD_TRIES = 3;
+    private static final SfcProviderGraph TOPOLOGY_GRAPH = new SfcProviderGraph();
+    private static volatile boolean enabled = false;
+    private static volatile boolean loaded = false;
+
+    // Hiding the implicit public constructor
+    private SfcProviderTopologyAPI() {
+    }
+
+    /**
+     * Starts maintaining the long-lived graph. Called by the provider
+     * before the SF and SFF data listeners are registered.
+     */
+    public static void enable() {
+        TOPOLOGY_GRAPH.newUpdate().clear().commit();
+        loaded = false;
+        enabled = true;
+        LOG.info("SFC topology graph enabled");
+    }
+
+    /**
+     * Stops maintaining the long-lived graph and drops its content
+     */
+    public static void disable() {
+        enabled = false;
+        loaded = false;
+        TOPOLOGY_GRAPH.newUpdate().clear().commit();
+        LOG.info("SFC topology graph disabled");
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the current topology of all the SFs and SFFs.
+     *
+     * @return immutable topology graph snapshot
+     */
+    public static SfcProviderGraph.Snapshot getTopologySnapshot() {
+        if (!enabled) {
+            SfcProviderGraph sfcProviderGraph = new SfcProviderGraph();
+            SfcProviderGraph.Update update = sfcProviderGraph.newUpdate();
+            buildTopologyGraph(update);
+            return update.commit();
+        }
+        if (!loaded) {
+            load();
+        }
+        return TOPOLOGY_GRAPH.getSnapshot();
+    }
+
+    /**
+     * Applies a Service Function data change event to the graph
+     *
+     * @param createdServiceFunctions SFs created by the event
+     * @param removedServiceFunctions SFs removed by the event
+     */
+    public static void updateServiceFunctions(Collection<ServiceFunction> createdServiceFunctions,
+            Collection<ServiceFunction> removedServiceFunctions) {
+        if (!enabled) {
+            return;
+        }
+        SfcProviderGraph.Update update = TOPOLOGY_GRAPH.newUpdate();
+        for (ServiceFunction serviceFunction : removedServiceFunctions) {
+            update.removeNode(serviceFunction.getName().getValue());
+        }
+        for (ServiceFunction serviceFunction : createdServiceFunctions) {
+            update.addNode(serviceFunction.getName().getValue());
+        }
+        update.commit();
+    }
+
+    /**
+     * Applies a Service Function Forwarder data change event to the graph.
+     * The edges of a created or updated SFF replace its previous ones.
+     *
+     * @param updatedServiceFunctionForwarders SFFs created or updated by the event
+     * @param removedServiceFunctionForwarders SFFs removed by the event
+     */
+    public static void updateServiceFunctionForwarders(
+            Collection<ServiceFunctionForwarder> updatedServiceFunctionForwarders,
+            Collection<ServiceFunctionForwarder> removedServiceFunctionForwarders) {
+        if (!enabled) {
+            return;
+        }
+        SfcProviderGraph.Update update = TOPOLOGY_GRAPH.newUpdate();
+        for (ServiceFunctionForwarder serviceFunctionForwarder : removedServiceFunctionForwarders) {
+            String sffName = serviceFunctionForwarder.getName().getValue();
+            update.setEdges(sffName, new ArrayList<String>());
+            update.removeNode(sffName);
+        }
+        for (ServiceFunctionForwarder serviceFunctionForwarder : updatedServiceFunctionForwarders) {
+            addServiceFunctionForwarder(update, serviceFunctionForwarder);
+        }
+        update.commit();
+    }
+
+    /*
+     * The graph is read from the datastore and only published if the
+     * listeners did not update it meanwhile, otherwise the read may be
+     * older than what they applied. If it is never published, the
+     * current snapshot is used until the next access loads it again.
+     */
+    private static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        for (int tries = 0; tries < MAX_LOAD_TRIES; tries++) {
+            long version = TOPOLOGY_GRAPH.getSnapshot().getVersion();
+            SfcProviderGraph.Update update = TOPOLOGY_GRAPH.newUpdate().clear();
+            buildTopologyGraph(update);
+            if (update.commitIfVersion(version) != null) {
+                LOG.debug("Topology graph loaded at version {}", version + 1);
+                loaded = true;
+                return;
+            }
+        }
+        // Not marked as loaded, so the next access tries again
+        LOG.warn("Topology graph kept changing while being loaded, loading it again on next access");
+    }
+
+    /**
+     * This method adds all the SFs and SFFs to the topology graph.
+     * Each SFF declares an edge to every SF in its dictionary and
+     * to every connected SFF, with the link cost of the latter if any.
+     * <p>
+     *
+     * @param update graph update to fill in
+     */
+    private static void buildTopologyGraph(SfcProviderGraph.Update update) {
+        /* Add all the ServiceFunction nodes */
+        ServiceFunctions sfs = SfcProviderServiceFunctionAPI.readAllServiceFunctions();
+        if (sfs != null && sfs.getServiceFunction() != null) {
+            for (ServiceFunction serviceFunction : sfs.getServiceFunction()) {
+                update.addNode(serviceFunction.getName().getValue());
+                LOG.debug("Add ServiceFunction: {}", serviceFunction.getName());
+            }
+        }
+
+        /* Add edges and node for every ServiceFunctionForwarder */
+        ServiceFunctionForwarders sffs = SfcProviderServiceForwarderAPI.readAllServiceFunctionForwarders();
+        if (sffs != null && sffs.getServiceFunctionForwarder() != null) {
+            for (ServiceFunctionForwarder serviceFunctionForwarder : sffs.getServiceFunctionForwarder()) {
+                addServiceFunctionForwarder(update, serviceFunctionForwarder);
+            }
+        }
+    }
+
+    private static void addServiceFunctionForwarder(SfcProviderGraph.Update update,
+            ServiceFunctionForwarder serviceFunctionForwarder) {
+        SffName sffName = serviceFunctionForwarder.getName();
+        Map<String, Integer> toNodeCosts = new HashMap<>();
+
+        /* Add edge for every ServiceFunction attached to serviceFunctionForwarder */
+        if (serviceFunctionForwarder.getServiceFunctionDictionary() != null) {
+            for (ServiceFunctionDictionary serviceFunctionDictionary : serviceFunctionForwarder
+                .getServiceFunctionDictionary()) {
+                SfName sfName = serviceFunctionDictionary.getName();
+                toNodeCosts.put(sfName.getValue(), SfcProviderGraph.DEFAULT_EDGE_COST);
+                LOG.debug("Add SF-to-SFF edge: {} => {}", sfName, sffName);
+            }
+        }
+
+        /* Add edge for every ServiceFunctionForwarder connected to serviceFunctionForwarder */
+        if (serviceFunctionForwarder.getConnectedSffDictionary() != null) {
+            for (ConnectedSffDictionary connectedSffDictionary : serviceFunctionForwarder
+                .getConnectedSffDictionary()) {
+                SffName toSffName = connectedSffDictionary.getName();
+                Integer linkCost = connectedSffDictionary.getLinkCost();
+                toNodeCosts.put(toSffName.getValue(), linkCost != null ? linkCost : SfcProviderGraph.DEFAULT_EDGE_COST);
+                LOG.debug("Add SFF-to-SFF edge: {} => {}, cost {}", sffName, toSffName, linkCost);
+            }
+        }
+
+        update.addNode(sffName.getValue());
+        update.setEdges(sffName.getValue(), toNodeCosts);
+        LOG.debug("Add ServiceFunctionForwarder: {}", sffName);
+    }
+}
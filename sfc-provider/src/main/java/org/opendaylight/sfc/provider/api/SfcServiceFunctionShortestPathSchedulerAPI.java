@@ -14,17 +14,11 @@ import java.util.Map;
 import java.util.Random;
 
 import org.opendaylight.sfc.provider.topology.SfcProviderGraph;
+import org.opendaylight.sfc.provider.topology.SfcProviderShortestPathTree;
 import org.opendaylight.sfc.provider.topology.SfcProviderTopologyNode;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwarders;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionName;
@@ -49,6 +43,20 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
                 org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ShortestPath.class);
     }
 
+    /**
+     * This method returns the distance from preSfName to every node, the
+     * closest Service Function is the one with the smallest distance.
+     * <p>
+     *
+     * @param sfcProviderGraph Topology graph snapshot comprised of all the SFs and SFFs
+     * @param preSfName Name of previous Service Function in Service Function Path
+     * @return shortest path tree of preSfName in hops or null if it doesn't exist
+     */
+    protected SfcProviderShortestPathTree getShortestPathTree(SfcProviderGraph.Snapshot sfcProviderGraph,
+            SfName preSfName) {
+        return sfcProviderGraph.getShortestPathTree(preSfName.getValue());
+    }
+
     /**
      * This method finds out name of the Service Function closest to
      * Service Function preSfName per serviceFunctionType.
@@ -56,11 +64,11 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
      *
      * @param serviceFunctionType Type of Service Function to find
      * @param preSfName Name of previous Service Function in Service Function Path
-     * @param sfcProviderGraph Topology graph comprised of all the SFs and SFFs
+     * @param sfcProviderGraph Topology graph snapshot comprised of all the SFs and SFFs
      * @return String Name of the Service Function with type serviceFunctionType
      */
     private SfName getServiceFunctionByType(ServiceFunctionType serviceFunctionType, SfName preSfName,
-            SfcProviderGraph sfcProviderGraph) {
+            SfcProviderGraph.Snapshot sfcProviderGraph) {
         SfName sfcProviderTopologyNodeName = null;
         List<SftServiceFunctionName> sftServiceFunctionNameList = serviceFunctionType.getSftServiceFunctionName();
         int maxTries = sftServiceFunctionNameList.size();
@@ -101,34 +109,32 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
             return sfcProviderTopologyNodeName; // The first hop
         }
 
-        SfcProviderTopologyNode preSfcProviderTopologyNode = sfcProviderGraph.getNode(preSfName.getValue());
+        /*
+         * One search from preSfName gives the distance to every candidate,
+         * it is cached in the snapshot for the next hops and RSPs
+         */
+        SfcProviderShortestPathTree shortestPathTree = getShortestPathTree(sfcProviderGraph, preSfName);
 
         /* return null if preSfName doesn't exist in sfcProviderGraph */
-        if (preSfcProviderTopologyNode == null) {
+        if (shortestPathTree == null) {
             LOG.debug("Node {} doesn't exist", preSfName);
             return null;
         }
 
         /* Find one instance of serviceFunctionType closest to preSfName */
-        int minLength = Integer.MAX_VALUE;
-        int length;
+        int minDistance = Integer.MAX_VALUE;
+        int distance;
         sfcProviderTopologyNodeName = null;
         for (SftServiceFunctionName sftServiceFunctionName : sftServiceFunctionNameList) {
             SfName curSfName = new SfName(sftServiceFunctionName.getName());
-            SfcProviderTopologyNode curSfcProviderTopologyNode = sfcProviderGraph.getNode(curSfName.getValue());
-            if (curSfcProviderTopologyNode == null) {
-                // curSfName doesn't exist in sfcProviderGraph, so skip it
-                continue;
-            }
-            List<SfcProviderTopologyNode> sfcProviderTopologyNodeList =
-                    sfcProviderGraph.getShortestPath(preSfName.getValue(), curSfName.getValue());
-            length = sfcProviderTopologyNodeList.size();
-            if (length <= 1) {
+            distance = shortestPathTree.getDistance(curSfName.getValue());
+            /* Skip curSfName if it doesn't exist, can't be reached or is preSfName itself */
+            if (distance <= 0) {
                 LOG.debug("No path from {} to {}", preSfName, curSfName);
                 continue;
             }
-            if (minLength > length) {
-                minLength = length;
+            if (minDistance > distance) {
+                minDistance = distance;
                 sfcProviderTopologyNodeName = curSfName;
             }
         }
@@ -143,66 +149,6 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
         return sfcProviderTopologyNodeName;
     }
 
-    /**
-     * This method builds a SfcProviderGraph comprised of
-     * all the SFs and SFFs. sfcProviderGraph will store
-     * all the info about vertex/node and edge.
-     * <p>
-     *
-     * @param sfcProviderGraph input and output of this method
-     */
-    private void buildTopologyGraph(SfcProviderGraph sfcProviderGraph) {
-        SfName sfName;
-        SffName sffName;
-        SffName toSffName;
-
-        /* Add all the ServiceFunction nodes */
-        ServiceFunctions sfs = SfcProviderServiceFunctionAPI.readAllServiceFunctions();
-        List<ServiceFunction> serviceFunctionList = sfs.getServiceFunction();
-        for (ServiceFunction serviceFunction : serviceFunctionList) {
-            sfName = serviceFunction.getName();
-            sfcProviderGraph.addNode(sfName.getValue());
-            LOG.debug("Add ServiceFunction: {}", sfName);
-        }
-
-        ServiceFunctionForwarders sffs = SfcProviderServiceForwarderAPI.readAllServiceFunctionForwarders();
-        List<ServiceFunctionForwarder> serviceFunctionForwarderList = sffs.getServiceFunctionForwarder();
-
-        /* Add edges and node for every ServiceFunctionForwarder */
-        for (ServiceFunctionForwarder serviceFunctionForwarder : serviceFunctionForwarderList) {
-            /* Add ServiceFunctionForwarder node */
-            sffName = serviceFunctionForwarder.getName();
-            sfcProviderGraph.addNode(sffName.getValue());
-            LOG.debug("Add ServiceFunctionForwarder: {}", sffName);
-
-            List<ServiceFunctionDictionary> serviceFunctionDictionaryList =
-                    serviceFunctionForwarder.getServiceFunctionDictionary();
-
-            /*
-             * Add edge for every ServiceFunction attached
-             * to serviceFunctionForwarder
-             */
-            for (ServiceFunctionDictionary serviceFunctionDictionary : serviceFunctionDictionaryList) {
-                sfName = serviceFunctionDictionary.getName();
-                sfcProviderGraph.addEdge(sfName.getValue(), sffName.getValue());
-                LOG.debug("Add SF-to-SFF edge: {} => {}", sfName, sffName);
-            }
-
-            List<ConnectedSffDictionary> connectedSffDictionaryList =
-                    serviceFunctionForwarder.getConnectedSffDictionary();
-
-            /*
-             * Add edge for every ServiceFunctionForwarder connected
-             * to serviceFunctionForwarder
-             */
-            for (ConnectedSffDictionary connectedSffDictionary : connectedSffDictionaryList) {
-                toSffName = connectedSffDictionary.getName();
-                sfcProviderGraph.addEdge(sffName.getValue(), toSffName.getValue());
-                LOG.debug("Add SFF-to-SFF edge: {} => {}", sffName, toSffName);
-            }
-        }
-    }
-
     /**
      * This method finds out the shortest Service Function Path
      * for the given Service Function Chain chain, any two adjacent
@@ -223,15 +169,14 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
         List<SfName> sfNameList = new ArrayList<>();
         List<SfcServiceFunction> sfcServiceFunctionList = new ArrayList<>();
         sfcServiceFunctionList.addAll(chain.getSfcServiceFunction());
-        SfcProviderGraph sfcProviderGraph = new SfcProviderGraph();
         short index = 0;
         Map<Short, SfName> sfpMapping = getSFPHopSfMapping(sfp);
 
         /*
-         * Build topology graph for all the nodes,
+         * Topology graph for all the nodes,
          * including every ServiceFunction and ServiceFunctionForwarder
          */
-        buildTopologyGraph(sfcProviderGraph);
+        SfcProviderGraph.Snapshot sfcProviderGraph = SfcProviderTopologyAPI.getTopologySnapshot();
 
         /*
          * Select a SF instance closest to previous hop in SFP
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import org.opendaylight.sfc.provider.topology.SfcProviderGraph;
+import org.opendaylight.sfc.provider.topology.SfcProviderShortestPathTree;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.WeightedShortestPath;
+
+/**
+ * This class implements weighted shortest path scheduling mode.
+ * <p>
+ * It selects Service Functions like the shortest path scheduler but the
+ * distance between two Service Functions is the total link cost of the
+ * path between them instead of its number of hops. The cost of a link
+ * between two SFFs is the link-cost of the connected SFF dictionary,
+ * every other link counts as one hop.
+ */
+public class SfcServiceFunctionWeightedShortestPathSchedulerAPI extends SfcServiceFunctionShortestPathSchedulerAPI {
+
+    SfcServiceFunctionWeightedShortestPathSchedulerAPI() {
+        super.setSfcServiceFunctionSchedulerType(WeightedShortestPath.class);
+    }
+
+    @Override
+    protected SfcProviderShortestPathTree getShortestPathTree(SfcProviderGraph.Snapshot sfcProviderGraph,
+            SfName preSfName) {
+        return sfcProviderGraph.getWeightedShortestPathTree(preSfName.getValue());
+    }
+}
@@ -13,16 +13,17 @@ import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIds;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIdsBuilder;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathId;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdBuilder;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdKey;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class has the APIs to operate on the Service PathIds.
  * <p>
+ * Allocation state lives in {@link SfcServicePathIdBitmap}, which is written
+ * through to the datastore in the background.
+ * <p>
  *
  * @author Reinaldo Penno (rapenno@gmail.com)
  * @version 0.1
@@ -41,7 +42,8 @@ public class SfcServicePathId {
     private final static int MIN_PATH_ID = 0;
     private final static int DEFAULT_GENERATION_ALGORITHM = GenerationAlgorithmEnum.Random.getIntValue();
     private static final Random randomGenerator = new Random();
-    private static int next_pathid = 0;
+    private static final AtomicLong next_pathid = new AtomicLong(0);
+    private static final AtomicLong next_sequential_pathid = new AtomicLong(0);
     private final static int num_pathid = MAX_PATH_ID -  MIN_PATH_ID + 1;
 
     /* Determines the trade-off */
@@ -50,27 +52,20 @@ public class SfcServicePathId {
     /**
      * Algorithm to randomize the generation of pathIds. Provides
      * security by making path-id less predictable. Adapted
-     * from NAT port allocation algorithm
+     * from NAT port allocation algorithm. If the random candidate
+     * is taken the next free path-id after it is used instead.
      *
      * <p>
      * @return Pathid or error if none available
      */
     public static int generatePathIdRandomIncrements() {
-        int pathid;
-        int count = num_pathid;
-
-        do {
-            next_pathid = next_pathid + (randomGenerator.nextInt(num_pathid) % N) + 1;
-            pathid = MIN_PATH_ID + (next_pathid % num_pathid);
-
-            if (check_suitable_pathid(pathid)) {
-                return pathid;
-            }
-
-            count--;
-        } while (count > 0);
-
-        return -1;
+        long candidate = next_pathid.addAndGet((randomGenerator.nextInt(num_pathid) % N) + 1);
+        long pathid = SfcServicePathIdBitmap.getInstance()
+            .findFree(MIN_PATH_ID + (candidate % num_pathid), MIN_PATH_ID, MAX_PATH_ID);
+        if (pathid >= 0) {
+            next_pathid.set(pathid);
+        }
+        return (int) pathid;
     }
 
     /**
@@ -80,21 +75,12 @@ public class SfcServicePathId {
      * @return Pathid or error if none available
      */
     public static int generatePathIdSequentialIncrements() {
-        int pathid;
-        int count = num_pathid;
-
-        do {
-            next_pathid = next_pathid + 1;
-            pathid = MIN_PATH_ID + next_pathid;
-
-            if (check_suitable_pathid(pathid) && allocate_pathid(pathid)) {
-                return pathid;
-            }
-
-            count--;
-        } while (count > 0);
-
-        return -1;
+        long start = MIN_PATH_ID + ((next_sequential_pathid.get() + 1) % num_pathid);
+        long pathid = SfcServicePathIdBitmap.getInstance().allocateFrom(start, MIN_PATH_ID, MAX_PATH_ID);
+        if (pathid >= 0) {
+            next_sequential_pathid.set(pathid);
+        }
+        return (int) pathid;
     }
 
     /**
@@ -105,19 +91,7 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static long check_and_allocate_pathid(long pathid) {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                if (check_suitable_pathid(pathid) && allocate_pathid(pathid)) {
-                    return pathid;
-                } else {
-                    return -1;
-                }
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        } else {
-            return -1;
-        }
+        return SfcServicePathIdBitmap.getInstance().allocate(pathid) ? pathid : -1;
     }
 
     /**
@@ -128,30 +102,14 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static long check_and_allocate_symmetric_pathid(long pathid) {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                long symmetric_id = -1;
-                GenerationAlgorithmEnum genAlg = getGenerationAlgorithm();
-                if(genAlg == GenerationAlgorithmEnum.Random) {
-                    symmetric_id = pathid ^ (1 << 23);
-                    if(!check_suitable_pathid(symmetric_id)) {
-                        symmetric_id = -1;
-                    }
-                } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
-                    symmetric_id = generatePathIdSequentialIncrements();
-                }
-
-                if ((symmetric_id >= MIN_PATH_ID) && allocate_pathid(symmetric_id)) {
-                    return symmetric_id;
-                } else {
-                    return -1;
-                }
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        } else {
-            return -1;
+        GenerationAlgorithmEnum genAlg = getGenerationAlgorithm();
+        if(genAlg == GenerationAlgorithmEnum.Random) {
+            long symmetric_id = pathid ^ (1 << 23);
+            return SfcServicePathIdBitmap.getInstance().allocate(symmetric_id) ? symmetric_id : -1;
+        } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
+            return generatePathIdSequentialIncrements();
         }
+        return -1;
     }
 
     /**
@@ -161,27 +119,22 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static long check_and_allocate_pathid() {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                long pathId = -1;
-                GenerationAlgorithmEnum genAlg = getGenerationAlgorithm();
-                if(genAlg == GenerationAlgorithmEnum.Random) {
-                    pathId = generatePathIdRandomIncrements();
-                } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
-                    pathId = generatePathIdSequentialIncrements();
+        GenerationAlgorithmEnum genAlg = getGenerationAlgorithm();
+        if(genAlg == GenerationAlgorithmEnum.Random) {
+            // A candidate can only be lost to a concurrent allocation
+            for (int attempt = 0; attempt < N; attempt++) {
+                long pathId = generatePathIdRandomIncrements();
+                if (pathId < MIN_PATH_ID) {
+                    return -1;
                 }
-
-                if ((pathId >= MIN_PATH_ID) && allocate_pathid(pathId)) {
+                if (SfcServicePathIdBitmap.getInstance().allocate(pathId)) {
                     return pathId;
-                } else {
-                    return -1;
                 }
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
             }
-        } else {
-            return -1;
+        } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
+            return generatePathIdSequentialIncrements();
         }
+        return -1;
     }
 
     /**
@@ -192,20 +145,7 @@ public class SfcServicePathId {
      * @return True if available, otherwise false.
      */
     public static boolean check_suitable_pathid(long pathid) {
-        ServicePathIdKey servicePathIdKey = new
-                ServicePathIdKey(pathid/Long.SIZE);
-
-        /* Entry into the bitarray */
-        long bitEntry = pathid % Long.SIZE;
-
-        InstanceIdentifier<ServicePathId> spIID;
-        spIID = InstanceIdentifier.builder(ServicePathIds.class)
-                .child(ServicePathId.class, servicePathIdKey)
-                .build();
-        ServicePathId servicePathId = SfcDataStoreAPI.
-                readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-        return ((servicePathId == null) || (((1L << (64 - bitEntry)) & servicePathId.getPathIdBitarray()) == 0));
+        return SfcServicePathIdBitmap.getInstance().isFree(pathid);
     }
 
     /**
@@ -216,32 +156,7 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static boolean allocate_pathid(long pathid) {
-        ServicePathIdKey servicePathIdKey = new
-                ServicePathIdKey(pathid/Long.SIZE);
-
-        /* Entry into the bitarray */
-        long bitEntry = pathid % Long.SIZE;
-
-        long pathIdBitArray = 0;
-
-        InstanceIdentifier<ServicePathId> spIID;
-        spIID = InstanceIdentifier.builder(ServicePathIds.class)
-                .child(ServicePathId.class, servicePathIdKey)
-                .build();
-        ServicePathId servicePathId = SfcDataStoreAPI.
-                readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-        if (servicePathId != null) {
-            pathIdBitArray = (servicePathId.getPathIdBitarray() != null) ? servicePathId.getPathIdBitarray() : 0;
-        }
-
-        ServicePathIdBuilder servicePathIdBuilder = new ServicePathIdBuilder();
-
-        servicePathIdBuilder.setPathIdBitarray(pathIdBitArray | (1L << (Long.SIZE - bitEntry)));
-        servicePathIdBuilder.setKey(servicePathIdKey);
-
-        return SfcDataStoreAPI.
-                writeMergeTransactionAPI(spIID, servicePathIdBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+        return SfcServicePathIdBitmap.getInstance().allocate(pathid);
     }
 
     /**
@@ -252,32 +167,7 @@ public class SfcServicePathId {
      * @return True if freed, otherwise false.
      */
     public static boolean free_pathid(long pathid) {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                ServicePathIdKey servicePathIdKey = new
-                        ServicePathIdKey(pathid/Long.SIZE);
-
-                /* Entry into the bitarray */
-                long bitEntry = pathid % Long.SIZE;
-
-                InstanceIdentifier<ServicePathId> spIID;
-                spIID = InstanceIdentifier.builder(ServicePathIds.class)
-                        .child(ServicePathId.class, servicePathIdKey)
-                        .build();
-                ServicePathId servicePathId = SfcDataStoreAPI.
-                        readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-                ServicePathIdBuilder servicePathIdBuilder = new ServicePathIdBuilder(servicePathId);
-                servicePathIdBuilder.setKey(servicePathIdKey);
-                servicePathIdBuilder.setPathIdBitarray(servicePathId.getPathIdBitarray() & ~(1L << (Long.SIZE - bitEntry)));
-
-                return SfcDataStoreAPI.
-                        writeMergeTransactionAPI(spIID, servicePathIdBuilder.build(), LogicalDatastoreType.OPERATIONAL);
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        }
-        return false;
+        return SfcServicePathIdBitmap.getInstance().free(pathid);
     }
 
     /**
@@ -289,18 +179,8 @@ public class SfcServicePathId {
      * @return generation-algorithm enum value
      */
     public static GenerationAlgorithmEnum getGenerationAlgorithm() {
-        InstanceIdentifier<ServicePathIds> spIID =
-                InstanceIdentifier.builder(ServicePathIds.class).build();
-        ServicePathIds servicePathIds =
-                SfcDataStoreAPI.
-                    readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-        if(servicePathIds == null) {
-            setGenerationAlgorithm(DEFAULT_GENERATION_ALGORITHM);
-            return GenerationAlgorithmEnum.forValue(DEFAULT_GENERATION_ALGORITHM);
-        }
-
-        GenerationAlgorithmEnum genAlgorithm = servicePathIds.getGenerationAlgorithm();
+        // Loaded together with the path-id bitmap and kept up to date by setGenerationAlgorithm()
+        GenerationAlgorithmEnum genAlgorithm = SfcServicePathIdBitmap.getInstance().getGenerationAlgorithm();
 
         if(genAlgorithm == null) {
             setGenerationAlgorithm(DEFAULT_GENERATION_ALGORITHM);
@@ -335,8 +215,12 @@ public class SfcServicePathId {
         ServicePathIdsBuilder servicePathIdsBuilder = new ServicePathIdsBuilder();
         servicePathIdsBuilder.setGenerationAlgorithm(genAlgorithm);
 
-        return SfcDataStoreAPI.
-                writeMergeTransactionAPI(spIID, servicePathIdsBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+        if (SfcDataStoreAPI.
+                writeMergeTransactionAPI(spIID, servicePathIdsBuilder.build(), LogicalDatastoreType.OPERATIONAL)) {
+            SfcServicePathIdBitmap.getInstance().setGenerationAlgorithm(genAlgorithm);
+            return true;
+        }
+        return false;
     }
 
 }
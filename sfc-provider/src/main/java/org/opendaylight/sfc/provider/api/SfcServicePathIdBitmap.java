@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIds;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathId;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * In-memory copy of the service path-id bit array kept in the OPERATIONAL
+ * ServicePathIds container.
+ * <p>
+ * Path-ids are allocated and freed with CAS on an {@link AtomicLongArray},
+ * so no lock and no datastore round trip is needed. Every modified 64-bit
+ * word is marked dirty and written through to its ServicePathId entry by a
+ * background flush, which batches all words dirtied since the previous
+ * flush into one transaction. Only one flush is committed at a time, and
+ * the words of a failed flush are marked dirty again. The bitmap is
+ * rebuilt from the datastore the first time it is used with a given data
+ * broker, i.e. on startup.
+ * <p>
+ * The 24-bit path-id space is split into chunks that are only created once
+ * a path-id in them is used.
+ *
+ * @see SfcServicePathId
+ */
+final class SfcServicePathIdBitmap {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcServicePathIdBitmap.class);
+
+    static final long MAX_PATH_ID = (1L << 24) - 1;
+
+    private static final int WORD_BITS = Long.SIZE;
+    private static final int CHUNK_WORDS = 1024;
+    private static final int NUM_CHUNKS = (int) ((MAX_PATH_ID + 1) / WORD_BITS / CHUNK_WORDS);
+
+    private static volatile SfcServicePathIdBitmap instance;
+
+    private final DataBroker dataBroker;
+    private final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<>(NUM_CHUNKS);
+    // One dirty bit per word, same chunking as the path-id bits
+    private final AtomicReferenceArray<AtomicLongArray> dirtyChunks = new AtomicReferenceArray<>(NUM_CHUNKS);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final Object flushLock = new Object();
+    // Guarded by flushLock
+    private boolean flushInProgress = false;
+    private boolean flushPending = false;
+    private volatile GenerationAlgorithmEnum generationAlgorithm;
+
+    private SfcServicePathIdBitmap(DataBroker dataBroker) {
+        this.dataBroker = dataBroker;
+    }
+
+    /**
+     * Returns the bitmap of the current data broker, loading it from the
+     * datastore if the broker changed since the last call
+     */
+    static SfcServicePathIdBitmap getInstance() {
+        DataBroker dataBroker = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider();
+        SfcServicePathIdBitmap bitmap = instance;
+        if (bitmap != null && bitmap.dataBroker == dataBroker) {
+            return bitmap;
+        }
+        synchronized (SfcServicePathIdBitmap.class) {
+            bitmap = instance;
+            if (bitmap == null || bitmap.dataBroker != dataBroker) {
+                bitmap = new SfcServicePathIdBitmap(dataBroker);
+                bitmap.load();
+                instance = bitmap;
+            }
+            return bitmap;
+        }
+    }
+
+    private void load() {
+        if (dataBroker == null) {
+            return;
+        }
+        InstanceIdentifier<ServicePathIds> spIID = InstanceIdentifier.builder(ServicePathIds.class).build();
+        ServicePathIds servicePathIds = SfcDataStoreAPI.readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
+        if (servicePathIds == null) {
+            return;
+        }
+        generationAlgorithm = servicePathIds.getGenerationAlgorithm();
+        if (servicePathIds.getServicePathId() == null) {
+            return;
+        }
+        int numPathIds = 0;
+        for (ServicePathId servicePathId : servicePathIds.getServicePathId()) {
+            Long key = servicePathId.getPathIdKey();
+            Long bitarray = servicePathId.getPathIdBitarray();
+            if (key == null || bitarray == null || key < 0 || key > MAX_PATH_ID / WORD_BITS) {
+                continue;
+            }
+            long word = fromDatastoreBitarray(bitarray);
+            words(key.intValue()).set(key.intValue() % CHUNK_WORDS, word);
+            numPathIds += Long.bitCount(word);
+        }
+        LOG.info("Loaded {} allocated path-ids from the datastore", numPathIds);
+    }
+
+    GenerationAlgorithmEnum getGenerationAlgorithm() {
+        return generationAlgorithm;
+    }
+
+    void setGenerationAlgorithm(GenerationAlgorithmEnum generationAlgorithm) {
+        this.generationAlgorithm = generationAlgorithm;
+    }
+
+    static boolean isValid(long pathId) {
+        return pathId >= 0 && pathId <= MAX_PATH_ID;
+    }
+
+    boolean isFree(long pathId) {
+        if (!isValid(pathId)) {
+            return false;
+        }
+        int wordIndex = (int) (pathId / WORD_BITS);
+        AtomicLongArray words = chunks.get(wordIndex / CHUNK_WORDS);
+        return words == null || (words.get(wordIndex % CHUNK_WORDS) & bit(pathId)) == 0;
+    }
+
+    /**
+     * Allocates the given path-id
+     *
+     * @return true if it was free and is now allocated, false otherwise
+     */
+    boolean allocate(long pathId) {
+        if (!isValid(pathId)) {
+            return false;
+        }
+        int wordIndex = (int) (pathId / WORD_BITS);
+        AtomicLongArray words = words(wordIndex);
+        long mask = bit(pathId);
+        long word;
+        do {
+            word = words.get(wordIndex % CHUNK_WORDS);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(wordIndex % CHUNK_WORDS, word, word | mask));
+        markDirty(wordIndex);
+        return true;
+    }
+
+    /**
+     * Frees the given path-id. Freeing a path-id that is not allocated
+     * has no effect.
+     *
+     * @return false if pathId is out of range, true otherwise
+     */
+    boolean free(long pathId) {
+        if (!isValid(pathId)) {
+            return false;
+        }
+        int wordIndex = (int) (pathId / WORD_BITS);
+        AtomicLongArray words = chunks.get(wordIndex / CHUNK_WORDS);
+        if (words == null) {
+            return true;
+        }
+        long mask = bit(pathId);
+        long word;
+        do {
+            word = words.get(wordIndex % CHUNK_WORDS);
+            if ((word & mask) == 0) {
+                return true;
+            }
+        } while (!words.compareAndSet(wordIndex % CHUNK_WORDS, word, word & ~mask));
+        markDirty(wordIndex);
+        return true;
+    }
+
+    /**
+     * Next-fit search: returns the first free path-id at or after start,
+     * wrapping around within [minPathId, maxPathId]. Whole words are
+     * skipped at once, so the cost is bounded by the size of the range in
+     * words, not by the number of allocated path-ids.
+     *
+     * @return a free path-id or -1 if the range is full
+     */
+    long findFree(long start, long minPathId, long maxPathId) {
+        if (start < minPathId || start > maxPathId) {
+            start = minPathId;
+        }
+        long pathId = start;
+        long remaining = maxPathId - minPathId + 1;
+        while (remaining > 0) {
+            int wordIndex = (int) (pathId / WORD_BITS);
+            AtomicLongArray words = chunks.get(wordIndex / CHUNK_WORDS);
+            long word = words == null ? 0 : words.get(wordIndex % CHUNK_WORDS);
+            // Ignore the bits before pathId and after maxPathId
+            long free = ~word & (-1L << (pathId % WORD_BITS));
+            long wordEnd = (long) wordIndex * WORD_BITS + WORD_BITS - 1;
+            if (wordEnd > maxPathId) {
+                free &= -1L >>> (wordEnd - maxPathId);
+                wordEnd = maxPathId;
+            }
+            if (free != 0) {
+                return (long) wordIndex * WORD_BITS + Long.numberOfTrailingZeros(free);
+            }
+            remaining -= wordEnd - pathId + 1;
+            pathId = wordEnd == maxPathId ? minPathId : wordEnd + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Next-fit allocation: allocates the first free path-id at or after
+     * start within [minPathId, maxPathId]
+     *
+     * @return the allocated path-id or -1 if the range is full
+     */
+    long allocateFrom(long start, long minPathId, long maxPathId) {
+        long pathId = findFree(start, minPathId, maxPathId);
+        while (pathId >= 0 && !allocate(pathId)) {
+            // Lost the race for this path-id, look further
+            pathId = findFree(pathId, minPathId, maxPathId);
+        }
+        return pathId;
+    }
+
+    private static long bit(long pathId) {
+        return 1L << (pathId % WORD_BITS);
+    }
+
+    private AtomicLongArray words(int wordIndex) {
+        return getOrCreateChunk(chunks, wordIndex / CHUNK_WORDS);
+    }
+
+    private static AtomicLongArray getOrCreateChunk(AtomicReferenceArray<AtomicLongArray> chunkArray,
+            int chunkIndex) {
+        AtomicLongArray chunk = chunkArray.get(chunkIndex);
+        if (chunk == null) {
+            chunkArray.compareAndSet(chunkIndex, null, new AtomicLongArray(CHUNK_WORDS));
+            chunk = chunkArray.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    /*
+     * The datastore entry of a word keeps path-id (64 * key + n) at bit
+     * (64 - n) % 64, while the in-memory word keeps it at bit n.
+     */
+    static long toDatastoreBitarray(long word) {
+        return Long.reverse(Long.rotateRight(word, 1));
+    }
+
+    static long fromDatastoreBitarray(long bitarray) {
+        return Long.rotateLeft(Long.reverse(bitarray), 1);
+    }
+
+    private void markDirty(int wordIndex) {
+        setDirty(wordIndex);
+        scheduleFlush();
+    }
+
+    private void setDirty(int wordIndex) {
+        AtomicLongArray dirty = getOrCreateChunk(dirtyChunks, wordIndex / WORD_BITS / CHUNK_WORDS);
+        int dirtyIndex = (wordIndex / WORD_BITS) % CHUNK_WORDS;
+        long mask = 1L << (wordIndex % WORD_BITS);
+        long current;
+        do {
+            current = dirty.get(dirtyIndex);
+        } while ((current & mask) == 0 && !dirty.compareAndSet(dirtyIndex, current, current | mask));
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            OpendaylightSfc.getOpendaylightSfcObj().getExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes all dirty words to the datastore in one transaction. Flushes
+     * are serialized until committed, so a word is never overwritten with
+     * an older value. A flush requested while another one is committing is
+     * done once it completes.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            // Words dirtied from now on schedule another flush
+            flushScheduled.set(false);
+            if (flushInProgress) {
+                flushPending = true;
+                return;
+            }
+            final List<Integer> wordIndexes = new ArrayList<>();
+            SfcDataStoreAPI.Batch batch = SfcDataStoreAPI.newBatch();
+            for (int dirtyChunkIndex = 0; dirtyChunkIndex < dirtyChunks.length(); dirtyChunkIndex++) {
+                AtomicLongArray dirty = dirtyChunks.get(dirtyChunkIndex);
+                if (dirty == null) {
+                    continue;
+                }
+                for (int dirtyIndex = 0; dirtyIndex < CHUNK_WORDS; dirtyIndex++) {
+                    long dirtyWords = dirty.getAndSet(dirtyIndex, 0);
+                    while (dirtyWords != 0) {
+                        int bitIndex = Long.numberOfTrailingZeros(dirtyWords);
+                        dirtyWords &= dirtyWords - 1;
+                        int wordIndex = (dirtyChunkIndex * CHUNK_WORDS + dirtyIndex) * WORD_BITS + bitIndex;
+                        wordIndexes.add(wordIndex);
+                        addWord(batch, wordIndex);
+                    }
+                }
+            }
+            if (batch.isEmpty() || dataBroker == null
+                    || OpendaylightSfc.getOpendaylightSfcObj().getDataProvider() != dataBroker) {
+                return;
+            }
+            flushInProgress = true;
+            try {
+                Futures.addCallback(batch.submitAsync(), new FutureCallback<Void>() {
+
+                    @Override
+                    public void onSuccess(Void result) {
+                        flushCompleted();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        LOG.error("Failed to write {} path-id entries. Message: {}", wordIndexes.size(),
+                                t.getMessage());
+                        redirty(wordIndexes);
+                        flushCompleted();
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOG.error("Failed to write {} path-id entries. Message: {}", wordIndexes.size(), e.getMessage());
+                redirty(wordIndexes);
+                flushCompleted();
+            }
+        }
+    }
+
+    /*
+     * The words of a failed flush are written by the next flush, which is
+     * not scheduled right away so a failing datastore isn't retried in a
+     * loop: the next allocated or freed path-id schedules it.
+     */
+    private void redirty(List<Integer> wordIndexes) {
+        for (int wordIndex : wordIndexes) {
+            setDirty(wordIndex);
+        }
+    }
+
+    private void flushCompleted() {
+        synchronized (flushLock) {
+            flushInProgress = false;
+            if (!flushPending) {
+                return;
+            }
+            flushPending = false;
+        }
+        scheduleFlush();
+    }
+
+    private void addWord(SfcDataStoreAPI.Batch batch, int wordIndex) {
+        long word = words(wordIndex).get(wordIndex % CHUNK_WORDS);
+        ServicePathIdKey servicePathIdKey = new ServicePathIdKey((long) wordIndex);
+        InstanceIdentifier<ServicePathId> spIID = InstanceIdentifier.builder(ServicePathIds.class)
+            .child(ServicePathId.class, servicePathIdKey)
+            .build();
+        ServicePathIdBuilder servicePathIdBuilder = new ServicePathIdBuilder();
+        servicePathIdBuilder.setKey(servicePathIdKey);
+        servicePathIdBuilder.setPathIdBitarray(toDatastoreBitarray(word));
+        batch.put(spIID, servicePathIdBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+    }
+}
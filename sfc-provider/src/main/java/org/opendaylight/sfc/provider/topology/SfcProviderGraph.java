@@ -11,12 +11,20 @@ package org.opendaylight.sfc.provider.topology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.Queue;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class represents a topology graph, node/vertex
@@ -26,6 +34,15 @@ import java.util.LinkedList;
  * shortest path algorithm, method getShortestPath can find
  * the shortest path between 'from' node and 'to' node in a graph.
  * <p>
+ * The graph is copy-on-write: its content is an immutable {@link Snapshot}
+ * which is replaced as a whole by every {@link Update}, so it can be kept
+ * for a long time, updated incrementally by one thread and read by many
+ * others without locking. Edges are declared by an owner node (a SFF
+ * declares its SFs and its connected SFFs) and an edge exists as long as
+ * one of its two ends declares it. A node exists as long as it has been
+ * added explicitly or it has an edge. An edge may also carry a cost, the
+ * lowest cost declared by its ends, used by the weighted searches.
+ * <p>
  *
  * @author Shuqiang Zhao (shuqiangx.zhao@intel.com)
  * @author Yi Yang (yi.y.yang@intel.com)
@@ -40,90 +57,75 @@ public class SfcProviderGraph {
     private static final int GRAY     = 1;
     private static final int BLACK    = 0;
     private static final int MAX    = 10000;
+    // Bound of the node entries held by the cached shortest path trees of a
+    // snapshot, per search mode. An entry is two ints, so this is about 2 MB
+    // per mode, and the bigger the graph the fewer trees are cached
+    private static final int MAX_CACHED_TREE_ENTRIES = 1 << 18;
 
-    private HashMap<SfcProviderTopologyNode, TreeSet<SfcProviderTopologyNode>> sfcProviderTopoEdges;
-    private HashMap<String, SfcProviderTopologyNode> sfcProviderTopoNodes;
-    private int nodeNum;
-    private int edgeNum;
+    /** Cost of the edges declared without one, i.e. one hop */
+    public static final int DEFAULT_EDGE_COST = 1;
+
+    private volatile Snapshot snapshot;
 
     public SfcProviderGraph() {
-        sfcProviderTopoEdges = new HashMap<SfcProviderTopologyNode, TreeSet<SfcProviderTopologyNode>>();
-        sfcProviderTopoNodes = new HashMap<String, SfcProviderTopologyNode>();
-        nodeNum = 0;
-        edgeNum = 0;
+        snapshot = Snapshot.EMPTY;
+    }
+
+    /**
+     * Returns the current content of the graph. A snapshot never changes,
+     * later updates are only visible through later calls to this method.
+     *
+     * @return current graph snapshot
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Update newUpdate() {
+        return new Update();
     }
 
     public SfcProviderTopologyNode addNode(String nodeName) {
-        SfcProviderTopologyNode node;
-        node = sfcProviderTopoNodes.get(nodeName);
-        if (node == null) {
-            node = new SfcProviderTopologyNode(nodeName);
-            sfcProviderTopoNodes.put(nodeName, node);
-            sfcProviderTopoEdges.put(node, new TreeSet<SfcProviderTopologyNode>());
-            nodeNum++;
-        }
-        return node;
+        return newUpdate().addNode(nodeName).commit().getNode(nodeName);
     }
 
     public SfcProviderTopologyNode getNode(String nodeName) {
-        return sfcProviderTopoNodes.get(nodeName);
+        return snapshot.getNode(nodeName);
     }
 
     public boolean hasNode(String nodeName) {
-        return sfcProviderTopoNodes.containsKey(nodeName);
+        return snapshot.hasNode(nodeName);
     }
 
     public boolean hasEdge(String fromNodeName, String toNodeName) {
-        SfcProviderTopologyNode fromNode;
-        SfcProviderTopologyNode toNode;
-        if (!hasNode(fromNodeName) || !hasNode(toNodeName)) {
-            return false;
-        }
-        fromNode = sfcProviderTopoNodes.get(fromNodeName);
-        toNode = sfcProviderTopoNodes.get(toNodeName);
-        return sfcProviderTopoEdges.get(fromNode).contains(toNode);
+        return snapshot.hasEdge(fromNodeName, toNodeName);
     }
 
     public boolean addEdge(String fromNodeName, String toNodeName) {
-        SfcProviderTopologyNode fromNode;
-        SfcProviderTopologyNode toNode;
-
         if (!hasEdge(fromNodeName, toNodeName)) {
-            fromNode = getNode(fromNodeName);
-            if (fromNode == null) {
-                fromNode = addNode(fromNodeName);
-            }
-            toNode = getNode(toNodeName);
-            if (toNode == null) {
-                toNode = addNode(toNodeName);
-            }
-            sfcProviderTopoEdges.get(fromNode).add(toNode);
-            sfcProviderTopoEdges.get(toNode).add(fromNode);
+            newUpdate().addEdge(fromNodeName, toNodeName).commit();
         }
         return true;
     }
 
     public Iterable<SfcProviderTopologyNode> getNeighborNodes(String nodeName) {
-        if (!hasNode(nodeName)) {
-            return EMPTY_SET;
-        }
-        return sfcProviderTopoEdges.get(getNode(nodeName));
+        return snapshot.getNeighborNodes(nodeName);
     }
 
     public Iterable<SfcProviderTopologyNode> getAllNodes() {
-        return sfcProviderTopoNodes.values();
+        return snapshot.getAllNodes();
     }
 
-    private void breadthFirstSearch(String fromNodeName) {
+    private void breadthFirstSearch(Snapshot graph, String fromNodeName) {
         /* Reset all nodes' color, dist, parent */
-        for (SfcProviderTopologyNode sfcNode : getAllNodes()) {
+        for (SfcProviderTopologyNode sfcNode : graph.getAllNodes()) {
             sfcNode.setColor(WHITE);
             sfcNode.setDist(0);
             sfcNode.setParent(null);
         }
 
         /* Mark fromNode as GRAY */
-        SfcProviderTopologyNode sfcProviderTopologyNode = getNode(fromNodeName);
+        SfcProviderTopologyNode sfcProviderTopologyNode = graph.getNode(fromNodeName);
         sfcProviderTopologyNode.setColor(GRAY);
         sfcProviderTopologyNode.setDist(0);
         sfcProviderTopologyNode.setParent(null);
@@ -133,7 +135,7 @@ public class SfcProviderGraph {
 
         while (!queue.isEmpty()) {
             SfcProviderTopologyNode qSfcNode = queue.poll();
-            for (SfcProviderTopologyNode sfcNode : getNeighborNodes(qSfcNode.getName())) {
+            for (SfcProviderTopologyNode sfcNode : graph.getNeighborNodes(qSfcNode.getName())) {
                 if (sfcNode.getColor() == WHITE) {
                     sfcNode.setColor(GRAY);
                     sfcNode.setDist(qSfcNode.getDist() + 1);
@@ -146,9 +148,16 @@ public class SfcProviderGraph {
         return;
     }
 
-    public List<SfcProviderTopologyNode> getShortestPath(String fromNodeName, String toNodeName) {
-        SfcProviderTopologyNode fromNode = getNode(fromNodeName);
-        SfcProviderTopologyNode toNode = getNode(toNodeName);
+    /**
+     * Finds the shortest path between two nodes and records the distance
+     * and parent of every visited node in the nodes themselves. Concurrent
+     * callers should use {@link Snapshot#getShortestPath(String, String)},
+     * which leaves the nodes untouched.
+     */
+    public synchronized List<SfcProviderTopologyNode> getShortestPath(String fromNodeName, String toNodeName) {
+        Snapshot graph = snapshot;
+        SfcProviderTopologyNode fromNode = graph.getNode(fromNodeName);
+        SfcProviderTopologyNode toNode = graph.getNode(toNodeName);
         if (fromNode == null || toNode == null) {
             LOG.error(" Node {} or {} doesn't exist in topology graph!", fromNodeName, toNodeName);
             return null;
@@ -160,8 +169,8 @@ public class SfcProviderGraph {
             return sfcProviderTopologyNodePath;
         }
 
-        breadthFirstSearch(fromNodeName);
-        SfcProviderTopologyNode sfcProviderTopologyNode = getNode(toNodeName);
+        breadthFirstSearch(graph, fromNodeName);
+        SfcProviderTopologyNode sfcProviderTopologyNode = toNode;
         while (sfcProviderTopologyNode != null) {
             sfcProviderTopologyNodePath.add(0, sfcProviderTopologyNode);
             sfcProviderTopologyNode = sfcProviderTopologyNode.getParent();
@@ -174,4 +183,633 @@ public class SfcProviderGraph {
         }
         return sfcProviderTopologyNodePath;
     }
+
+    private synchronized Snapshot apply(List<Operation> operations, long expectedVersion) {
+        Snapshot current = snapshot;
+        if (expectedVersion >= 0 && current.version != expectedVersion) {
+            return null;
+        }
+        if (operations.isEmpty()) {
+            return current;
+        }
+        WorkingCopy workingCopy = new WorkingCopy(current);
+        for (Operation operation : operations) {
+            operation.applyTo(workingCopy);
+        }
+        snapshot = workingCopy.publish(current.version + 1);
+        LOG.debug("Topology graph updated to version {}: {} nodes", snapshot.version, snapshot.nodes.size());
+        return snapshot;
+    }
+
+    /**
+     * An immutable version of the graph content
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0,
+                Collections.<String, SfcProviderTopologyNode>emptyMap(),
+                Collections.<String, TreeSet<SfcProviderTopologyNode>>emptyMap(),
+                Collections.<String>emptySet(),
+                Collections.<String, Map<String, Integer>>emptyMap());
+
+        private final long version;
+        private final Map<String, SfcProviderTopologyNode> nodes;
+        private final Map<String, TreeSet<SfcProviderTopologyNode>> edges;
+        private final Set<String> addedNodes;
+        private final Map<String, Map<String, Integer>> declaredEdges;
+        private final ConcurrentMap<String, SfcProviderShortestPathTree> shortestPathTrees =
+                new ConcurrentHashMap<String, SfcProviderShortestPathTree>();
+        private final ConcurrentMap<String, SfcProviderShortestPathTree> weightedShortestPathTrees =
+                new ConcurrentHashMap<String, SfcProviderShortestPathTree>();
+        private volatile IndexedGraph indexedGraph;
+
+        private Snapshot(long version, Map<String, SfcProviderTopologyNode> nodes,
+                Map<String, TreeSet<SfcProviderTopologyNode>> edges, Set<String> addedNodes,
+                Map<String, Map<String, Integer>> declaredEdges) {
+            this.version = version;
+            this.nodes = nodes;
+            this.edges = edges;
+            this.addedNodes = addedNodes;
+            this.declaredEdges = declaredEdges;
+        }
+
+        /**
+         * @return a number which grows with every update of the graph
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public int getNodeCount() {
+            return nodes.size();
+        }
+
+        public SfcProviderTopologyNode getNode(String nodeName) {
+            return nodes.get(nodeName);
+        }
+
+        public boolean hasNode(String nodeName) {
+            return nodes.containsKey(nodeName);
+        }
+
+        public boolean hasEdge(String fromNodeName, String toNodeName) {
+            SfcProviderTopologyNode toNode = nodes.get(toNodeName);
+            if (toNode == null || !nodes.containsKey(fromNodeName)) {
+                return false;
+            }
+            return edges.get(fromNodeName).contains(toNode);
+        }
+
+        /**
+         * @return the cost of the edge, -1 if there is no such edge
+         */
+        public int getEdgeCost(String fromNodeName, String toNodeName) {
+            if (!hasEdge(fromNodeName, toNodeName)) {
+                return -1;
+            }
+            return edgeCost(declaredEdges, fromNodeName, toNodeName);
+        }
+
+        public Iterable<SfcProviderTopologyNode> getNeighborNodes(String nodeName) {
+            TreeSet<SfcProviderTopologyNode> neighbors = edges.get(nodeName);
+            if (neighbors == null) {
+                return EMPTY_SET;
+            }
+            return neighbors;
+        }
+
+        public Iterable<SfcProviderTopologyNode> getAllNodes() {
+            return Collections.unmodifiableCollection(nodes.values());
+        }
+
+        /**
+         * Finds the shortest path between two nodes. The search state is
+         * kept locally, so any number of threads may call this method on
+         * the same snapshot.
+         *
+         * @param fromNodeName name of the first node
+         * @param toNodeName name of the last node
+         * @return the nodes of the path, empty if there is no path or null
+         *         if one of the nodes doesn't exist
+         */
+        public List<SfcProviderTopologyNode> getShortestPath(String fromNodeName, String toNodeName) {
+            if (!nodes.containsKey(fromNodeName) || !nodes.containsKey(toNodeName)) {
+                LOG.error(" Node {} or {} doesn't exist in topology graph!", fromNodeName, toNodeName);
+                return null;
+            }
+            return getShortestPathTree(fromNodeName).getPath(toNodeName);
+        }
+
+        /**
+         * Runs one breadth first search from the given node and returns the
+         * distance to every other node. Results are cached in the snapshot,
+         * i.e. per topology version, so repeated searches from the same
+         * node cost a single lookup.
+         *
+         * @param fromNodeName name of the source node
+         * @return shortest path tree of the source, null if it doesn't exist
+         */
+        public SfcProviderShortestPathTree getShortestPathTree(String fromNodeName) {
+            return getShortestPathTree(fromNodeName, false);
+        }
+
+        /**
+         * Same as {@link #getShortestPathTree(String)} but the distance of a
+         * node is the total cost of the edges to reach it, computed with
+         * Dijkstra's algorithm.
+         *
+         * @param fromNodeName name of the source node
+         * @return weighted shortest path tree of the source, null if it doesn't exist
+         */
+        public SfcProviderShortestPathTree getWeightedShortestPathTree(String fromNodeName) {
+            return getShortestPathTree(fromNodeName, true);
+        }
+
+        private SfcProviderShortestPathTree getShortestPathTree(String fromNodeName, boolean weighted) {
+            ConcurrentMap<String, SfcProviderShortestPathTree> trees =
+                    weighted ? weightedShortestPathTrees : shortestPathTrees;
+            SfcProviderShortestPathTree shortestPathTree = trees.get(fromNodeName);
+            if (shortestPathTree != null) {
+                return shortestPathTree;
+            }
+            int source = getNodeIndex(fromNodeName);
+            if (source < 0) {
+                return null;
+            }
+            shortestPathTree = weighted ? dijkstra(source) : breadthFirstSearch(source);
+            if (trees.size() < MAX_CACHED_TREE_ENTRIES / getIndexedGraph().names.length) {
+                SfcProviderShortestPathTree cached = trees.putIfAbsent(fromNodeName, shortestPathTree);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            return shortestPathTree;
+        }
+
+        private SfcProviderShortestPathTree breadthFirstSearch(int source) {
+            IndexedGraph graph = getIndexedGraph();
+            int nodeCount = graph.names.length;
+            int[] dist = new int[nodeCount];
+            int[] parent = new int[nodeCount];
+            int[] queue = new int[nodeCount];
+            Arrays.fill(dist, SfcProviderShortestPathTree.UNREACHABLE);
+            Arrays.fill(parent, -1);
+
+            int head = 0;
+            int tail = 0;
+            dist[source] = 0;
+            queue[tail++] = source;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int neighbor : graph.adjacency[current]) {
+                    if (dist[neighbor] == SfcProviderShortestPathTree.UNREACHABLE) {
+                        dist[neighbor] = dist[current] + 1;
+                        parent[neighbor] = current;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            return new SfcProviderShortestPathTree(this, source, dist, parent);
+        }
+
+        private SfcProviderShortestPathTree dijkstra(int source) {
+            IndexedGraph graph = getIndexedGraph();
+            int nodeCount = graph.names.length;
+            int[] dist = new int[nodeCount];
+            int[] parent = new int[nodeCount];
+            boolean[] settled = new boolean[nodeCount];
+            Arrays.fill(dist, SfcProviderShortestPathTree.UNREACHABLE);
+            Arrays.fill(parent, -1);
+
+            IndexedMinHeap heap = new IndexedMinHeap(dist);
+            dist[source] = 0;
+            heap.offer(source);
+            while (!heap.isEmpty()) {
+                int current = heap.poll();
+                settled[current] = true;
+                int[] neighbors = graph.adjacency[current];
+                int[] costs = graph.costs[current];
+                for (int i = 0; i < neighbors.length; i++) {
+                    int neighbor = neighbors[i];
+                    if (settled[neighbor]) {
+                        continue;
+                    }
+                    // saturate instead of overflowing on absurd costs
+                    int distance = (int) Math.min((long) dist[current] + costs[i], Integer.MAX_VALUE);
+                    if (dist[neighbor] == SfcProviderShortestPathTree.UNREACHABLE || distance < dist[neighbor]) {
+                        dist[neighbor] = distance;
+                        parent[neighbor] = current;
+                        heap.offer(neighbor);
+                    }
+                }
+            }
+            return new SfcProviderShortestPathTree(this, source, dist, parent);
+        }
+
+        int getNodeIndex(String nodeName) {
+            Integer index = getIndexedGraph().indexes.get(nodeName);
+            return index == null ? -1 : index;
+        }
+
+        SfcProviderTopologyNode getNodeByIndex(int index) {
+            return nodes.get(getIndexedGraph().names[index]);
+        }
+
+        /*
+         * Built on first use only, snapshots which are never searched don't
+         * pay for it. Two threads may build it at once, both results are equal.
+         */
+        private IndexedGraph getIndexedGraph() {
+            IndexedGraph graph = indexedGraph;
+            if (graph == null) {
+                graph = new IndexedGraph(nodes.keySet(), edges, declaredEdges);
+                indexedGraph = graph;
+            }
+            return graph;
+        }
+    }
+
+    private static int edgeCost(Map<String, Map<String, Integer>> declaredEdges, String fromNodeName,
+            String toNodeName) {
+        int cost = Integer.MAX_VALUE;
+        Map<String, Integer> declared = declaredEdges.get(fromNodeName);
+        if (declared != null && declared.containsKey(toNodeName)) {
+            cost = declared.get(toNodeName);
+        }
+        declared = declaredEdges.get(toNodeName);
+        if (declared != null && declared.containsKey(fromNodeName)) {
+            cost = Math.min(cost, declared.get(fromNodeName));
+        }
+        return cost;
+    }
+
+    /**
+     * Nodes of a snapshot numbered from 0, their neighbors as arrays of
+     * those numbers, in the same order as the neighbor sets, and the cost
+     * of the edge to each neighbor
+     */
+    private static final class IndexedGraph {
+
+        private final String[] names;
+        private final Map<String, Integer> indexes;
+        private final int[][] adjacency;
+        private final int[][] costs;
+
+        IndexedGraph(Set<String> nodeNames, Map<String, TreeSet<SfcProviderTopologyNode>> edges,
+                Map<String, Map<String, Integer>> declaredEdges) {
+            names = nodeNames.toArray(new String[nodeNames.size()]);
+            indexes = new HashMap<String, Integer>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                indexes.put(names[i], i);
+            }
+            adjacency = new int[names.length][];
+            costs = new int[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                TreeSet<SfcProviderTopologyNode> neighbors = edges.get(names[i]);
+                int[] neighborIndexes = new int[neighbors.size()];
+                int[] neighborCosts = new int[neighbors.size()];
+                int j = 0;
+                for (SfcProviderTopologyNode neighbor : neighbors) {
+                    neighborIndexes[j] = indexes.get(neighbor.getName());
+                    neighborCosts[j] = edgeCost(declaredEdges, names[i], neighbor.getName());
+                    j++;
+                }
+                adjacency[i] = neighborIndexes;
+                costs[i] = neighborCosts;
+            }
+        }
+    }
+
+    /**
+     * Binary min-heap of node indexes ordered by their current distance.
+     * Each node is in the heap at most once, offering it again after its
+     * distance decreased moves it up instead of adding a duplicate.
+     */
+    private static final class IndexedMinHeap {
+
+        private final int[] dist;
+        private final int[] heap;
+        private final int[] positions;
+        private int size;
+
+        IndexedMinHeap(int[] dist) {
+            this.dist = dist;
+            this.heap = new int[dist.length];
+            this.positions = new int[dist.length];
+            Arrays.fill(positions, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void offer(int node) {
+            int position = positions[node];
+            if (position < 0) {
+                position = size++;
+                heap[position] = node;
+                positions[node] = position;
+            }
+            siftUp(position);
+        }
+
+        int poll() {
+            int node = heap[0];
+            positions[node] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                siftDown(0);
+            }
+            return node;
+        }
+
+        private void siftUp(int position) {
+            int node = heap[position];
+            while (position > 0) {
+                int parentPosition = (position - 1) >>> 1;
+                int parentNode = heap[parentPosition];
+                if (dist[parentNode] <= dist[node]) {
+                    break;
+                }
+                heap[position] = parentNode;
+                positions[parentNode] = position;
+                position = parentPosition;
+            }
+            heap[position] = node;
+            positions[node] = position;
+        }
+
+        private void siftDown(int position) {
+            int node = heap[position];
+            int half = size >>> 1;
+            while (position < half) {
+                int childPosition = 2 * position + 1;
+                int childNode = heap[childPosition];
+                int rightPosition = childPosition + 1;
+                if (rightPosition < size && dist[heap[rightPosition]] < dist[childNode]) {
+                    childPosition = rightPosition;
+                    childNode = heap[childPosition];
+                }
+                if (dist[node] <= dist[childNode]) {
+                    break;
+                }
+                heap[position] = childNode;
+                positions[childNode] = position;
+                position = childPosition;
+            }
+            heap[position] = node;
+            positions[node] = position;
+        }
+    }
+
+    /**
+     * A set of changes applied to the graph at once by {@link #commit()}.
+     * Every commit copies the node and edge maps once, whatever the number
+     * of changes, so callers should group the changes of one event.
+     */
+    public final class Update {
+
+        private final List<Operation> operations = new ArrayList<Operation>();
+
+        private Update() {
+        }
+
+        /**
+         * Removes all nodes and edges, typically before adding the full
+         * topology again
+         */
+        public Update clear() {
+            operations.add(new Operation(Operation.CLEAR, null, null));
+            return this;
+        }
+
+        public Update addNode(String nodeName) {
+            operations.add(new Operation(Operation.ADD_NODE, nodeName, null));
+            return this;
+        }
+
+        /**
+         * Removes a node added by {@link #addNode(String)}. The node is kept
+         * as long as it still has edges declared by other nodes.
+         */
+        public Update removeNode(String nodeName) {
+            operations.add(new Operation(Operation.REMOVE_NODE, nodeName, null));
+            return this;
+        }
+
+        public Update addEdge(String fromNodeName, String toNodeName) {
+            operations.add(new Operation(Operation.ADD_EDGE, fromNodeName,
+                    Collections.singletonMap(toNodeName, DEFAULT_EDGE_COST)));
+            return this;
+        }
+
+        /**
+         * Replaces all the edges declared by a node, with the default cost
+         *
+         * @param ownerNodeName node declaring the edges
+         * @param toNodeNames the other end of every edge, empty to remove them all
+         */
+        public Update setEdges(String ownerNodeName, Collection<String> toNodeNames) {
+            Map<String, Integer> toNodeCosts = new HashMap<String, Integer>();
+            for (String toNodeName : toNodeNames) {
+                toNodeCosts.put(toNodeName, DEFAULT_EDGE_COST);
+            }
+            operations.add(new Operation(Operation.SET_EDGES, ownerNodeName, toNodeCosts));
+            return this;
+        }
+
+        /**
+         * Replaces all the edges declared by a node
+         *
+         * @param ownerNodeName node declaring the edges
+         * @param toNodeCosts the other end of every edge and its cost, at least 1, empty to remove them all
+         * @throws IllegalArgumentException if a cost is missing or lower than 1
+         */
+        public Update setEdges(String ownerNodeName, Map<String, Integer> toNodeCosts) {
+            for (Integer cost : toNodeCosts.values()) {
+                if (cost == null || cost < 1) {
+                    throw new IllegalArgumentException("Edge costs must be positive: " + toNodeCosts);
+                }
+            }
+            operations.add(new Operation(Operation.SET_EDGES, ownerNodeName,
+                    new HashMap<String, Integer>(toNodeCosts)));
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return operations.isEmpty();
+        }
+
+        /**
+         * Applies the changes and publishes the resulting snapshot
+         *
+         * @return the published snapshot
+         */
+        public Snapshot commit() {
+            return apply(operations, -1);
+        }
+
+        /**
+         * Applies the changes only if the graph is still at the given
+         * version, i.e. nobody updated it since that version was read
+         *
+         * @param version expected current version
+         * @return the published snapshot or null if the version didn't match
+         */
+        public Snapshot commitIfVersion(long version) {
+            return apply(operations, version);
+        }
+    }
+
+    private static final class Operation {
+
+        static final int CLEAR = 0;
+        static final int ADD_NODE = 1;
+        static final int REMOVE_NODE = 2;
+        static final int ADD_EDGE = 3;
+        static final int SET_EDGES = 4;
+
+        private final int type;
+        private final String nodeName;
+        private final Map<String, Integer> toNodeCosts;
+
+        Operation(int type, String nodeName, Map<String, Integer> toNodeCosts) {
+            this.type = type;
+            this.nodeName = nodeName;
+            this.toNodeCosts = toNodeCosts;
+        }
+
+        void applyTo(WorkingCopy workingCopy) {
+            switch (type) {
+                case CLEAR:
+                    workingCopy.clear();
+                    break;
+                case ADD_NODE:
+                    workingCopy.addNode(nodeName);
+                    break;
+                case REMOVE_NODE:
+                    workingCopy.removeNode(nodeName);
+                    break;
+                case ADD_EDGE:
+                    Map<String, Integer> declared = new HashMap<String, Integer>(toNodeCosts);
+                    declared.putAll(workingCopy.getDeclaredEdges(nodeName));
+                    workingCopy.setEdges(nodeName, declared);
+                    break;
+                case SET_EDGES:
+                    workingCopy.setEdges(nodeName, toNodeCosts);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Mutable copy of a snapshot. The maps are copied once, the neighbor
+     * sets only when a node's neighbors change, so untouched sets are
+     * shared with the previous snapshot.
+     */
+    private static final class WorkingCopy {
+
+        private Map<String, SfcProviderTopologyNode> nodes;
+        private Map<String, TreeSet<SfcProviderTopologyNode>> edges;
+        private Set<String> addedNodes;
+        private Map<String, Map<String, Integer>> declaredEdges;
+        private final Set<String> copiedEdges = new HashSet<String>();
+
+        WorkingCopy(Snapshot snapshot) {
+            nodes = new HashMap<String, SfcProviderTopologyNode>(snapshot.nodes);
+            edges = new HashMap<String, TreeSet<SfcProviderTopologyNode>>(snapshot.edges);
+            addedNodes = new HashSet<String>(snapshot.addedNodes);
+            declaredEdges = new HashMap<String, Map<String, Integer>>(snapshot.declaredEdges);
+        }
+
+        void clear() {
+            nodes = new HashMap<String, SfcProviderTopologyNode>();
+            edges = new HashMap<String, TreeSet<SfcProviderTopologyNode>>();
+            addedNodes = new HashSet<String>();
+            declaredEdges = new HashMap<String, Map<String, Integer>>();
+            copiedEdges.clear();
+        }
+
+        void addNode(String nodeName) {
+            addedNodes.add(nodeName);
+            ensureNode(nodeName);
+        }
+
+        void removeNode(String nodeName) {
+            addedNodes.remove(nodeName);
+            removeIfUnused(nodeName);
+        }
+
+        Map<String, Integer> getDeclaredEdges(String nodeName) {
+            Map<String, Integer> declared = declaredEdges.get(nodeName);
+            return declared == null ? Collections.<String, Integer>emptyMap() : declared;
+        }
+
+        void setEdges(String ownerNodeName, Map<String, Integer> toNodeCosts) {
+            Set<String> oldToNodeNames = getDeclaredEdges(ownerNodeName).keySet();
+            Set<String> toNodeNames = toNodeCosts.keySet();
+            if (toNodeCosts.isEmpty()) {
+                declaredEdges.remove(ownerNodeName);
+            } else {
+                declaredEdges.put(ownerNodeName, Collections.unmodifiableMap(toNodeCosts));
+            }
+
+            for (String toNodeName : toNodeNames) {
+                if (!oldToNodeNames.contains(toNodeName)) {
+                    SfcProviderTopologyNode ownerNode = ensureNode(ownerNodeName);
+                    SfcProviderTopologyNode toNode = ensureNode(toNodeName);
+                    editableEdges(ownerNodeName).add(toNode);
+                    editableEdges(toNodeName).add(ownerNode);
+                }
+            }
+            for (String oldToNodeName : oldToNodeNames) {
+                // the edge stays if the other end declares it as well
+                if (!toNodeNames.contains(oldToNodeName)
+                        && !getDeclaredEdges(oldToNodeName).containsKey(ownerNodeName)) {
+                    editableEdges(ownerNodeName).remove(nodes.get(oldToNodeName));
+                    editableEdges(oldToNodeName).remove(nodes.get(ownerNodeName));
+                    removeIfUnused(oldToNodeName);
+                }
+            }
+            removeIfUnused(ownerNodeName);
+        }
+
+        private SfcProviderTopologyNode ensureNode(String nodeName) {
+            SfcProviderTopologyNode node = nodes.get(nodeName);
+            if (node == null) {
+                node = new SfcProviderTopologyNode(nodeName);
+                nodes.put(nodeName, node);
+                edges.put(nodeName, new TreeSet<SfcProviderTopologyNode>());
+                copiedEdges.add(nodeName);
+            }
+            return node;
+        }
+
+        private TreeSet<SfcProviderTopologyNode> editableEdges(String nodeName) {
+            TreeSet<SfcProviderTopologyNode> neighbors = edges.get(nodeName);
+            if (copiedEdges.add(nodeName)) {
+                neighbors = new TreeSet<SfcProviderTopologyNode>(neighbors);
+                edges.put(nodeName, neighbors);
+            }
+            return neighbors;
+        }
+
+        private void removeIfUnused(String nodeName) {
+            TreeSet<SfcProviderTopologyNode> neighbors = edges.get(nodeName);
+            if (neighbors != null && neighbors.isEmpty() && !addedNodes.contains(nodeName)
+                    && !declaredEdges.containsKey(nodeName)) {
+                nodes.remove(nodeName);
+                edges.remove(nodeName);
+                copiedEdges.remove(nodeName);
+            }
+        }
+
+        Snapshot publish(long version) {
+            return new Snapshot(version, nodes, edges, addedNodes, declaredEdges);
+        }
+    }
 }
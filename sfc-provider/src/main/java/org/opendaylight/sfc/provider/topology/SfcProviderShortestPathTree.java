@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.topology;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the result of one breadth first search in a topology
+ * graph snapshot: the distance (in hops) and the parent of every node on
+ * a shortest path from the source node. For a weighted search the
+ * distance is the total cost of the edges instead. Nodes are identified
+ * by the int index the snapshot gave them, so the result is two primitive
+ * arrays and looking up the distance to any node is constant time.
+ * <p>
+ * Instances are immutable and shared by all the users of a snapshot,
+ * please refer to {@link SfcProviderGraph.Snapshot#getShortestPathTree(String)} and
+ * {@link SfcProviderGraph.Snapshot#getWeightedShortestPathTree(String)}.
+ */
+public final class SfcProviderShortestPathTree {
+
+    /** Distance of the nodes which can't be reached from the source */
+    public static final int UNREACHABLE = -1;
+
+    private final SfcProviderGraph.Snapshot snapshot;
+    private final int source;
+    private final int[] dist;
+    private final int[] parent;
+
+    SfcProviderShortestPathTree(SfcProviderGraph.Snapshot snapshot, int source, int[] dist, int[] parent) {
+        this.snapshot = snapshot;
+        this.source = source;
+        this.dist = dist;
+        this.parent = parent;
+    }
+
+    public SfcProviderTopologyNode getSource() {
+        return snapshot.getNodeByIndex(source);
+    }
+
+    /**
+     * @param nodeName name of the node to reach
+     * @return number of hops, or total cost, from the source, {@link #UNREACHABLE} if there
+     *         is no path or the node doesn't exist
+     */
+    public int getDistance(String nodeName) {
+        int index = snapshot.getNodeIndex(nodeName);
+        if (index < 0) {
+            return UNREACHABLE;
+        }
+        return dist[index];
+    }
+
+    /**
+     * @param nodeName name of the last node of the path
+     * @return the nodes of a shortest path from the source, empty if there
+     *         is no path or the node doesn't exist
+     */
+    public List<SfcProviderTopologyNode> getPath(String nodeName) {
+        List<SfcProviderTopologyNode> sfcProviderTopologyNodePath = new ArrayList<SfcProviderTopologyNode>();
+        int index = snapshot.getNodeIndex(nodeName);
+        if (index < 0 || dist[index] == UNREACHABLE) {
+            return sfcProviderTopologyNodePath;
+        }
+        while (index >= 0) {
+            sfcProviderTopologyNodePath.add(0, snapshot.getNodeByIndex(index));
+            index = parent[index];
+        }
+        return sfcProviderTopologyNodePath;
+    }
+}
@@ -42,6 +42,8 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev1
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathOutput;
@@ -51,6 +53,9 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRspFirstHopBySftListInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRspFirstHopBySftListInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRspFirstHopBySftListOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.input.RenderedPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.input.RenderedPathBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.RenderedPathResult;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.rendered.service.path.RenderedServicePathHop;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.scf.rev140701.ServiceFunctionClassifiers;
@@ -605,7 +610,7 @@ public class SfcProviderRpcTest extends AbstractDataStoreManager {
     }
 
     @Test
-    public void putServiceFunctionChainsTest() {
+    public void putServiceFunctionChainsTest() throws Exception {
         PutServiceFunctionChainsInputBuilder putServiceFunctionChainsInputBuilder =
                 new PutServiceFunctionChainsInputBuilder();
         ServiceFunctionChainBuilder serviceFunctionChainBuilder = new ServiceFunctionChainBuilder();
@@ -619,6 +624,7 @@ public class SfcProviderRpcTest extends AbstractDataStoreManager {
         PutServiceFunctionChainsInput putServiceFunctionChainsInput = putServiceFunctionChainsInputBuilder.build();
         SfcProviderRpc sfcProviderRpc = new SfcProviderRpc();
         Future<RpcResult<Void>> result = sfcProviderRpc.putServiceFunctionChains(putServiceFunctionChainsInput);
+        assertTrue(result.get().isSuccessful());
 
         ServiceFunctionChainsBuilder serviceFunctionChainsBuilder = new ServiceFunctionChainsBuilder();
         serviceFunctionChainsBuilder = serviceFunctionChainsBuilder
@@ -966,6 +972,73 @@ public class SfcProviderRpcTest extends AbstractDataStoreManager {
 
     }
 
+    /*
+     * This test creates 2 rendered service paths with one bulk RPC, the second one symmetric,
+     * and checks that a non existing service function path is reported as failed
+     */
+    @Test
+    public void testCreateRenderedPaths() throws Exception {
+        List<SfName> firewallSfs = new ArrayList<>();
+        List<SfName> dpiSfs = new ArrayList<>();
+        List<SfName> chainSf1 = new ArrayList<>();
+
+        assertTrue("Must be true", createServiceFunctionForwarder(sffNames.get(0), sffDplNames.get(0)));
+        assertTrue("Must be true", createServiceFunctionForwarder(sffNames.get(1), sffDplNames.get(1)));
+        assertTrue("Must be true",
+                createServiceFunction(sfNames.get(0), new SftType("firewall"), sfDplNames.get(0), sffNames.get(0)));
+        assertTrue("Must be true",
+                createServiceFunction(sfNames.get(1), new SftType("dpi"), sfDplNames.get(1), sffNames.get(1)));
+        firewallSfs.add(sfNames.get(0));
+        dpiSfs.add(sfNames.get(1));
+        assertTrue("Must be true", createServiceFunctionType(new SftType("firewall"), firewallSfs));
+        assertTrue("Must be true", createServiceFunctionType(new SftType("dpi"), dpiSfs));
+
+        chainSf1.add(sfNames.get(0));
+        chainSf1.add(sfNames.get(1));
+        assertTrue("Must be true", createServiceFunctionChain(chainNames.get(0), chainSf1));
+        assertTrue("Must be true", createServiceFunctionPath(pathNames.get(0), chainNames.get(0), false));
+        assertTrue("Must be true", createServiceFunctionPath(pathNames.get(1), chainNames.get(0), false));
+
+        List<RenderedPath> renderedPaths = new ArrayList<>();
+        renderedPaths.add(new RenderedPathBuilder().setParentServiceFunctionPath(pathNames.get(0).getValue()).build());
+        renderedPaths.add(new RenderedPathBuilder().setParentServiceFunctionPath(pathNames.get(1).getValue())
+            .setName(RSP_NAME.getValue())
+            .setSymmetric(true)
+            .build());
+        renderedPaths.add(new RenderedPathBuilder().setParentServiceFunctionPath("unknown-path").build());
+        CreateRenderedPathsInputBuilder createRenderedPathsInputBuilder = new CreateRenderedPathsInputBuilder();
+        createRenderedPathsInputBuilder.setRenderedPath(renderedPaths);
+
+        RpcResult<CreateRenderedPathsOutput> rpcResult =
+                sfcProviderRpc.createRenderedPaths(createRenderedPathsInputBuilder.build()).get();
+        assertTrue("Must be true", rpcResult.isSuccessful());
+        List<RenderedPathResult> renderedPathResults = rpcResult.getResult().getRenderedPathResult();
+        assertEquals("Must be equal", 3, renderedPathResults.size());
+
+        // path 1
+        assertTrue("Must be true", renderedPathResults.get(0).isResult());
+        assertNull("Must be null", renderedPathResults.get(0).getReverseName());
+        RenderedServicePath createdRsp1 =
+                SfcProviderRenderedPathAPI.readRenderedServicePath(new RspName(renderedPathResults.get(0).getName()));
+        assertNotNull("Must not be null", createdRsp1);
+        assertEquals("Must be equal", pathNames.get(0), createdRsp1.getParentServiceFunctionPath());
+        assertEquals("Must be equal", 2, createdRsp1.getRenderedServicePathHop().size());
+
+        // path 2, symmetric
+        assertTrue("Must be true", renderedPathResults.get(1).isResult());
+        assertEquals("Must be equal", RSP_NAME.getValue(), renderedPathResults.get(1).getName());
+        RenderedServicePath createdRsp2 = SfcProviderRenderedPathAPI.readRenderedServicePath(RSP_NAME);
+        assertNotNull("Must not be null", createdRsp2);
+        RenderedServicePath reverseRsp2 = SfcProviderRenderedPathAPI
+            .readRenderedServicePath(new RspName(renderedPathResults.get(1).getReverseName()));
+        assertNotNull("Must not be null", reverseRsp2);
+        assertEquals("Must be equal", reverseRsp2.getPathId(), createdRsp2.getSymmetricPathId());
+
+        // unknown path
+        assertFalse("Must be false", renderedPathResults.get(2).isResult());
+        assertNull("Must be null", renderedPathResults.get(2).getName());
+    }
+
     // auxiliary methods below
 
     /*
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+
+public class SfcConcurrencyAPITest {
+
+    private static boolean lockInOtherThread(final Object entityName) throws InterruptedException {
+        final CountDownLatch locked = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(entityName);
+                try {
+                    locked.countDown();
+                } finally {
+                    entityLocks.unlock();
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return locked.await(500, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * a held entity blocks other threads on the same entity only
+     */
+    @Test
+    public void testEntityLocks() throws Exception {
+        SfName sfName = new SfName("locked-sf");
+
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(sfName);
+        try {
+            // same value but a different entity kind is not affected
+            assertTrue("Must be true", lockInOtherThread(new SffName("locked-sf")));
+            assertFalse("Must be false", lockInOtherThread(sfName));
+        } finally {
+            entityLocks.unlock();
+        }
+        assertTrue("Must be true", lockInOtherThread(sfName));
+    }
+
+    /*
+     * multi-key acquisition tolerates duplicates, nulls and reentrant use
+     */
+    @Test
+    public void testMultipleEntityLocks() throws Exception {
+        RspName rspName = new RspName("locked-rsp");
+
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI
+            .lockEntities(Arrays.asList(rspName, new SfName("locked-sf"), rspName, null));
+        try {
+            SfcConcurrencyAPI.EntityLocks nestedLocks = SfcConcurrencyAPI.lockEntities(rspName);
+            nestedLocks.unlock();
+            assertFalse("Must be false", lockInOtherThread(rspName));
+        } finally {
+            entityLocks.unlock();
+        }
+        assertTrue("Must be true", lockInOtherThread(rspName));
+    }
+
+    /*
+     * a nested acquisition of an entity of an earlier kind is rejected
+     */
+    @Test
+    public void testNestedEntityLocksOutOfOrder() throws Exception {
+        SfcConcurrencyAPI.EntityLocks entityLocks = SfcConcurrencyAPI.lockEntities(new RspName("locked-rsp"));
+        try {
+            SfcConcurrencyAPI.lockEntities(new SfName("locked-sf"));
+            fail("Must throw IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected, nothing was locked
+            assertTrue("Must be true", lockInOtherThread(new SfName("locked-sf")));
+        } finally {
+            entityLocks.unlock();
+        }
+        // once released the thread can lock in any order again
+        SfcConcurrencyAPI.lockEntities(new SfName("locked-sf")).unlock();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEntity() {
+        SfcConcurrencyAPI.lockEntities("not-an-entity-name");
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.AbstractDataStoreManager;
+import org.opendaylight.sfc.provider.SfcProviderRpc;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.PutServiceFunctionInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.PutServiceFunctionInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+public class SfcProviderConfigCacheTest extends AbstractDataStoreManager {
+
+    private static final SfName SF_NAME = new SfName("cachedSF");
+
+    @Before
+    public void before() {
+        setOdlSfc();
+        SfcProviderConfigCache.enable();
+    }
+
+    @After
+    public void after() {
+        SfcProviderConfigCache.setReadConsistency(SfcProviderConfigCache.ReadConsistency.CACHED);
+        SfcProviderConfigCache.disable();
+    }
+
+    private static ServiceFunction buildServiceFunction(String type) {
+        return new ServiceFunctionBuilder().setName(SF_NAME)
+            .setKey(new ServiceFunctionKey(SF_NAME))
+            .setType(new SftType(type))
+            .build();
+    }
+
+    /*
+     * data applied by a data change event is answered from the cache without
+     * touching the (empty) data store
+     */
+    @Test
+    public void testReadFromView() {
+        ServiceFunction serviceFunction = buildServiceFunction("firewall");
+        // initial load of the (empty) table
+        assertNull("Must be null", SfcProviderServiceFunctionAPI.readAllServiceFunctions());
+        Map<SfName, ServiceFunction> serviceFunctionView = SfcProviderConfigCache.getView().getServiceFunctions();
+
+        SfcProviderConfigCache.apply(new SfcProviderConfigCache.Update().put(serviceFunction));
+
+        // the view is live, it already holds the applied data
+        assertEquals("Must be equal", serviceFunction, serviceFunctionView.get(SF_NAME));
+        assertEquals("Must be equal", serviceFunction, SfcProviderServiceFunctionAPI.readServiceFunction(SF_NAME));
+        ServiceFunctions serviceFunctions = SfcProviderServiceFunctionAPI.readAllServiceFunctions();
+        assertNotNull("Must not be null", serviceFunctions);
+        assertEquals("Must be equal", 1, serviceFunctions.getServiceFunction().size());
+
+        SfcProviderConfigCache.apply(new SfcProviderConfigCache.Update().remove(serviceFunction));
+        assertNull("Must be null", SfcProviderServiceFunctionAPI.readServiceFunction(SF_NAME));
+    }
+
+    /*
+     * datastore consistency mode bypasses the snapshot
+     */
+    @Test
+    public void testDatastoreConsistency() {
+        SfcProviderConfigCache.apply(new SfcProviderConfigCache.Update().put(buildServiceFunction("firewall")));
+        SfcProviderConfigCache.setReadConsistency(SfcProviderConfigCache.ReadConsistency.DATASTORE);
+
+        assertNull("Must be null", SfcProviderServiceFunctionAPI.readServiceFunction(SF_NAME));
+    }
+
+    /*
+     * a local write is read back from the data store until its data change event
+     * has been applied to the cache
+     */
+    @Test
+    public void testReadYourWrites() {
+        SfcProviderConfigCache.apply(new SfcProviderConfigCache.Update().put(buildServiceFunction("firewall")));
+
+        ServiceFunction updated = buildServiceFunction("dpi");
+        assertTrue("Must be true", SfcProviderServiceFunctionAPI.putServiceFunction(updated));
+
+        assertEquals("Must be equal", updated.getType(),
+                SfcProviderServiceFunctionAPI.readServiceFunction(SF_NAME).getType());
+        assertEquals("Must be equal", updated.getType(),
+                SfcProviderConfigCache.getView().getServiceFunctions().get(SF_NAME).getType());
+    }
+
+    /*
+     * a list read is not answered from the cache before the table has been
+     * loaded from the data store, even if some entries were already applied
+     */
+    @Test
+    public void testReadAllBeforeLoad() {
+        ServiceFunction stored = new ServiceFunctionBuilder().setName(new SfName("storedSF"))
+            .setKey(new ServiceFunctionKey(new SfName("storedSF")))
+            .setType(new SftType("firewall"))
+            .build();
+        assertTrue("Must be true", SfcProviderServiceFunctionAPI.putServiceFunction(stored));
+        SfcProviderConfigCache.apply(new SfcProviderConfigCache.Update().put(buildServiceFunction("dpi")));
+
+        ServiceFunctions serviceFunctions = SfcProviderServiceFunctionAPI.readAllServiceFunctions();
+        assertNotNull("Must not be null", serviceFunctions);
+        assertEquals("Must be equal", 1, serviceFunctions.getServiceFunction().size());
+        assertEquals("Must be equal", stored, serviceFunctions.getServiceFunction().get(0));
+        // the load replaced the entry that is not in the data store
+        assertNull("Must be null", SfcProviderConfigCache.getView().getServiceFunctions().get(SF_NAME));
+        assertEquals("Must be equal", stored,
+                SfcProviderConfigCache.getView().getServiceFunctions().get(new SfName("storedSF")));
+    }
+
+    /*
+     * a write done by the RPC is read back from the data store, not from the
+     * cached entry it replaced
+     */
+    @Test
+    public void testRpcWriteInvalidates() throws Exception {
+        SfcProviderConfigCache.apply(new SfcProviderConfigCache.Update().put(buildServiceFunction("firewall")));
+
+        PutServiceFunctionInput input = new PutServiceFunctionInputBuilder().setName(SF_NAME)
+            .setType(new SftType("dpi"))
+            .build();
+        assertTrue("Must be true", new SfcProviderRpc().putServiceFunction(input).get().isSuccessful());
+
+        assertEquals("Must be equal", new SftType("dpi"),
+                SfcProviderServiceFunctionAPI.readServiceFunction(SF_NAME).getType());
+    }
+
+    /*
+     * a non-blocking read that misses is answered from the data store and
+     * installs the entry, which is then answered from the cache
+     */
+    @Test
+    public void testReadAsyncInstalls() throws Exception {
+        ServiceFunction serviceFunction = buildServiceFunction("firewall");
+        InstanceIdentifier<ServiceFunction> sfIID = InstanceIdentifier.builder(ServiceFunctions.class)
+            .child(ServiceFunction.class, new ServiceFunctionKey(SF_NAME))
+            .build();
+        // written behind the back of the cache
+        assertTrue("Must be true",
+                SfcDataStoreAPI.writePutTransactionAPI(sfIID, serviceFunction, LogicalDatastoreType.CONFIGURATION));
+        assertNull("Must be null", SfcProviderConfigCache.getView().getServiceFunctions().get(SF_NAME));
+
+        assertEquals("Must be equal", serviceFunction,
+                SfcProviderServiceFunctionAPI.readServiceFunctionAsync(SF_NAME).get());
+        assertEquals("Must be equal", serviceFunction,
+                SfcProviderConfigCache.getView().getServiceFunctions().get(SF_NAME));
+        assertNull("Must be null",
+                SfcProviderServiceFunctionAPI.readServiceFunctionAsync(new SfName("missingSF")).get());
+    }
+}
@@ -11,6 +11,7 @@ package org.opendaylight.sfc.provider.api;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +39,7 @@ import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.RoundRobin;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ServiceFunctionSchedulerTypeIdentity;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ShortestPath;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.WeightedShortestPath;
 import org.powermock.reflect.Whitebox;
 
 public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePathAPITest {
@@ -45,7 +47,7 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
     @Test
     // test, whether scheduler type create right scheduler instance
     public void testGetServiceFunctionScheduler() throws Exception {
-        SfcServiceFunctionSchedulerAPI rrResult, lbResult, rnResult, spResult, rsResult;
+        SfcServiceFunctionSchedulerAPI rrResult, lbResult, rnResult, spResult, wspResult, rsResult;
 
         // TODO remove reflection for "getServiceFunctionScheduler"
         rrResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
@@ -55,6 +57,8 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
         rnResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler", Random.class);
         spResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
                 ShortestPath.class);
+        wspResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
+                WeightedShortestPath.class);
         rsResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
                 ServiceFunctionSchedulerTypeIdentity.class);
 
@@ -62,6 +66,7 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
         assertEquals("Must be equal", lbResult.getClass(), SfcServiceFunctionLoadBalanceSchedulerAPI.class);
         assertEquals("Must be equal", rnResult.getClass(), SfcServiceFunctionRandomSchedulerAPI.class);
         assertEquals("Must be equal", spResult.getClass(), SfcServiceFunctionShortestPathSchedulerAPI.class);
+        assertEquals("Must be equal", wspResult.getClass(), SfcServiceFunctionWeightedShortestPathSchedulerAPI.class);
         assertEquals("Must be equal", rsResult.getClass(), SfcServiceFunctionRandomSchedulerAPI.class);
     }
 
@@ -217,6 +222,63 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
         assertEquals(sfpRenderedServicePathList.get(0).getName(), RSP_NAME);
     }
 
+    @Test
+    public void testCreateAndDeleteRenderedServicePathAndStateAsync() throws Exception {
+        init();
+
+        ServiceFunctionPath serviceFunctionPath = SfcProviderServicePathAPI.readServiceFunctionPath(SFP_NAME);
+        assertNotNull("Must be not null", serviceFunctionPath);
+
+        CreateRenderedPathInputBuilder createRenderedPathInputBuilder = new CreateRenderedPathInputBuilder();
+        createRenderedPathInputBuilder.setName(RSP_NAME.getValue());
+        RenderedServicePath renderedServicePath = SfcProviderRenderedPathAPI
+            .createRenderedServicePathAndStateAsync(serviceFunctionPath, createRenderedPathInputBuilder.build())
+            .get();
+        assertNotNull("Must be not null", renderedServicePath);
+
+        RenderedServicePath revRenderedServicePath =
+                SfcProviderRenderedPathAPI.createSymmetricRenderedServicePathAndStateAsync(renderedServicePath).get();
+        assertNotNull("Must be not null", revRenderedServicePath);
+        assertEquals("Must be equal", revRenderedServicePath.getPathId(),
+                SfcProviderRenderedPathAPI.readRenderedServicePath(RSP_NAME).getSymmetricPathId());
+
+        assertTrue("Must be true",
+                SfcProviderRenderedPathAPI.deleteRenderedServicePathAndStateAsync(RSP_NAME).get());
+        assertNull("Must be null", SfcProviderRenderedPathAPI.readRenderedServicePath(RSP_NAME));
+        assertTrue("Must be true", SfcProviderRenderedPathAPI
+            .deleteRenderedServicePathAndStateAsync(revRenderedServicePath.getName()).get());
+    }
+
+    @Test
+    public void testDeleteRenderedServicePathAndState() {
+        init();
+
+        ServiceFunctionPath serviceFunctionPath = SfcProviderServicePathAPI.readServiceFunctionPath(SFP_NAME);
+        assertNotNull("Must be not null", serviceFunctionPath);
+
+        CreateRenderedPathInputBuilder createRenderedPathInputBuilder = new CreateRenderedPathInputBuilder();
+        createRenderedPathInputBuilder.setName(RSP_NAME.getValue());
+        assertNotNull("Must be not null", SfcProviderRenderedPathAPI
+            .createRenderedServicePathAndState(serviceFunctionPath, createRenderedPathInputBuilder.build()));
+
+        assertTrue("Must be true", SfcProviderRenderedPathAPI.deleteRenderedServicePathAndState(RSP_NAME));
+
+        // RSP and all its state entries are gone
+        assertNull("Must be null", SfcProviderRenderedPathAPI.readRenderedServicePath(RSP_NAME));
+        List<SffServicePath> sffServicePathList =
+                SfcProviderServiceForwarderAPI.readSffState(new SffName(SFF_NAMES.get(1)));
+        assertTrue("Must be empty", sffServicePathList == null || sffServicePathList.isEmpty());
+        List<SfServicePath> sfServicePathList =
+                SfcProviderServiceFunctionAPI.readServiceFunctionState(new SfName("unittest-fw-1"));
+        assertTrue("Must be empty", sfServicePathList == null || sfServicePathList.isEmpty());
+        List<SfpRenderedServicePath> sfpRenderedServicePathList =
+                SfcProviderServicePathAPI.readServicePathState(SFP_NAME);
+        assertTrue("Must be empty", sfpRenderedServicePathList == null || sfpRenderedServicePathList.isEmpty());
+
+        // deleting a missing path is not an error
+        assertTrue("Must be true", SfcProviderRenderedPathAPI.deleteRenderedServicePathAndState(RSP_NAME));
+    }
+
     @SuppressWarnings("static-access")
     @Test
     /*
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.sfc.provider.AbstractDataStoreManager;
+import org.opendaylight.sfc.provider.topology.SfcProviderGraph;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryKey;
+
+public class SfcProviderTopologyAPITest extends AbstractDataStoreManager {
+
+    private static final SfName SF_NAME = new SfName("topologySF");
+    private static final SffName SFF_NAME = new SffName("topologySFF");
+    private static final SffName CONNECTED_SFF_NAME = new SffName("topologyConnectedSFF");
+
+    @Before
+    public void before() {
+        setOdlSfc();
+        SfcProviderTopologyAPI.enable();
+    }
+
+    @After
+    public void after() {
+        SfcProviderTopologyAPI.disable();
+    }
+
+    private static ServiceFunctionForwarder buildServiceFunctionForwarder() {
+        ServiceFunctionDictionary serviceFunctionDictionary = new ServiceFunctionDictionaryBuilder().setName(SF_NAME)
+            .setKey(new ServiceFunctionDictionaryKey(SF_NAME))
+            .build();
+        ConnectedSffDictionary connectedSffDictionary =
+                new ConnectedSffDictionaryBuilder().setName(CONNECTED_SFF_NAME).build();
+        return new ServiceFunctionForwarderBuilder().setName(SFF_NAME)
+            .setKey(new ServiceFunctionForwarderKey(SFF_NAME))
+            .setServiceFunctionDictionary(Collections.singletonList(serviceFunctionDictionary))
+            .setConnectedSffDictionary(Collections.singletonList(connectedSffDictionary))
+            .build();
+    }
+
+    /*
+     * the graph is loaded once from the (empty) data store, then follows the
+     * data change events while earlier snapshots stay untouched
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        SfcProviderGraph.Snapshot emptySnapshot = SfcProviderTopologyAPI.getTopologySnapshot();
+        assertEquals("Must be equal", 0, emptySnapshot.getNodeCount());
+
+        ServiceFunction serviceFunction = new ServiceFunctionBuilder().setName(SF_NAME)
+            .setKey(new ServiceFunctionKey(SF_NAME))
+            .setType(new SftType("firewall"))
+            .build();
+        ServiceFunctionForwarder serviceFunctionForwarder = buildServiceFunctionForwarder();
+        SfcProviderTopologyAPI.updateServiceFunctions(Collections.singletonList(serviceFunction),
+                Collections.<ServiceFunction>emptyList());
+        SfcProviderTopologyAPI.updateServiceFunctionForwarders(Collections.singletonList(serviceFunctionForwarder),
+                Collections.<ServiceFunctionForwarder>emptyList());
+
+        SfcProviderGraph.Snapshot snapshot = SfcProviderTopologyAPI.getTopologySnapshot();
+        assertSame("Must be same", snapshot, SfcProviderTopologyAPI.getTopologySnapshot());
+        assertEquals("Must be equal", 3, snapshot.getNodeCount());
+        assertTrue("Must be true", snapshot.hasEdge(SF_NAME.getValue(), SFF_NAME.getValue()));
+        assertTrue("Must be true", snapshot.hasEdge(CONNECTED_SFF_NAME.getValue(), SFF_NAME.getValue()));
+
+        SfcProviderTopologyAPI.updateServiceFunctionForwarders(Collections.<ServiceFunctionForwarder>emptyList(),
+                Collections.singletonList(serviceFunctionForwarder));
+        SfcProviderGraph.Snapshot removedSnapshot = SfcProviderTopologyAPI.getTopologySnapshot();
+        assertEquals("Must be equal", 1, removedSnapshot.getNodeCount());
+        assertTrue("Must be true", removedSnapshot.hasNode(SF_NAME.getValue()));
+        assertFalse("Must be false", removedSnapshot.hasNode(CONNECTED_SFF_NAME.getValue()));
+
+        assertEquals("Must be equal", 0, emptySnapshot.getNodeCount());
+        assertEquals("Must be equal", 3, snapshot.getNodeCount());
+    }
+}
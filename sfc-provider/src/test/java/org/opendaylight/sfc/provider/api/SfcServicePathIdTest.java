@@ -10,7 +10,12 @@
 package org.opendaylight.sfc.provider.api;
 
 import org.junit.Test;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIds;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathId;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
 import java.util.Arrays;
 import java.util.LinkedHashSet;
@@ -210,4 +215,66 @@ public class SfcServicePathIdTest  extends AbstractSfcRendererServicePathAPITest
       }
   }
 
+  /**
+   *
+   * Method: allocate_pathid(long pathid), write-through to the ServicePathId entries
+   *
+   */
+  @Test
+  public void testPathIdWriteThrough() throws Exception {
+      setOdlSfc();
+      for (Integer pathId : pathIdList) {
+          assertTrue(SfcServicePathId.allocate_pathid(pathId));
+      }
+      SfcServicePathIdBitmap.getInstance().flush();
+
+      // Same bit layout as the datastore entries have always used
+      for (Integer pathId : pathIdList) {
+          InstanceIdentifier<ServicePathId> spIID = InstanceIdentifier.builder(ServicePathIds.class)
+              .child(ServicePathId.class, new ServicePathIdKey((long) pathId / Long.SIZE))
+              .build();
+          ServicePathId servicePathId = SfcDataStoreAPI.readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
+          assertNotNull(servicePathId);
+          assertNotEquals(0, servicePathId.getPathIdBitarray() & (1L << (Long.SIZE - pathId % Long.SIZE)));
+      }
+      for (Integer pathId : pathIdList) {
+          assertTrue(SfcServicePathId.free_pathid(pathId));
+      }
+  }
+
+  /**
+   *
+   * Method: next-fit search of the path-id bitmap
+   *
+   */
+  @Test
+  public void testNextFit() throws Exception {
+      SfcServicePathIdBitmap bitmap = SfcServicePathIdBitmap.getInstance();
+      for (long pathId = 100; pathId < 300; pathId++) {
+          assertTrue(bitmap.allocate(pathId));
+      }
+      assertFalse(bitmap.allocate(150));
+      assertEquals(300, bitmap.findFree(100, 0, 4095));
+      // wraps around to the start of the range
+      assertEquals(100 - 1, bitmap.findFree(250, 99, 299));
+      assertEquals(-1, bitmap.findFree(150, 100, 299));
+      for (long pathId = 100; pathId < 300; pathId++) {
+          assertTrue(bitmap.free(pathId));
+      }
+      assertEquals(100, bitmap.findFree(100, 0, 4095));
+  }
+
+  /**
+   *
+   * Method: conversion between the in-memory and the datastore bit layout
+   *
+   */
+  @Test
+  public void testBitarrayConversion() throws Exception {
+      for (int n = 0; n < Long.SIZE; n++) {
+          long word = 1L << n;
+          assertEquals(1L << (Long.SIZE - n), SfcServicePathIdBitmap.toDatastoreBitarray(word));
+          assertEquals(word, SfcServicePathIdBitmap.fromDatastoreBitarray(1L << (Long.SIZE - n)));
+      }
+  }
 }
@@ -11,7 +11,11 @@ package org.opendaylight.sfc.provider.topology;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 import static org.junit.Assert.*;
@@ -123,4 +127,129 @@ public class SfcProviderTopologyTest {
         sfcProviderTopologyNodeList = sfcProviderGraph.getShortestPath(NODE_NAME + 1, NODE_NAME + 1);
         assertEquals("Must be equal", sfcProviderTopologyNodeList.get(0).getName(), NODE_NAME + 1);
     }
-}
\ No newline at end of file
+
+    /*
+     * edges declared by a node are replaced as a whole, an edge is kept while
+     * the other end still declares it and older snapshots never change
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        sfcProviderGraph.newUpdate()
+            .addNode("sf1")
+            .addNode("sff1")
+            .setEdges("sff1", Arrays.asList("sf1", "sff2"))
+            .addNode("sff2")
+            .setEdges("sff2", Arrays.asList("sff1", "sf2"))
+            .commit();
+        SfcProviderGraph.Snapshot snapshot = sfcProviderGraph.getSnapshot();
+        assertEquals("Must be equal", 4, snapshot.getNodeCount());
+        assertEquals("Must be equal", 4, snapshot.getShortestPath("sf1", "sf2").size());
+
+        // sff2 still declares the edge to sff1, sf2 is only known through sff2
+        sfcProviderGraph.newUpdate().setEdges("sff1", Collections.singletonList("sf1")).commit();
+        assertTrue("Must be true", sfcProviderGraph.hasEdge("sff1", "sff2"));
+        sfcProviderGraph.newUpdate().setEdges("sff2", Collections.<String>emptyList()).removeNode("sff2").commit();
+        assertFalse("Must be false", sfcProviderGraph.hasNode("sff2"));
+        assertFalse("Must be false", sfcProviderGraph.hasNode("sf2"));
+        assertTrue("Must be true", sfcProviderGraph.getSnapshot().getShortestPath("sf1", "sff1").size() == 2);
+
+        // explicitly added nodes stay without edges
+        sfcProviderGraph.newUpdate().setEdges("sff1", Collections.<String>emptyList()).commit();
+        assertTrue("Must be true", sfcProviderGraph.hasNode("sf1"));
+        assertFalse("Must be false", sfcProviderGraph.hasEdge("sf1", "sff1"));
+
+        assertTrue("Must be true", sfcProviderGraph.getSnapshot().getVersion() > snapshot.getVersion());
+        assertEquals("Must be equal", 4, snapshot.getNodeCount());
+        assertTrue("Must be true", snapshot.hasEdge("sf1", "sff1"));
+        assertTrue("Must be true", snapshot.hasEdge("sff2", "sf2"));
+    }
+
+    /*
+     * a conditional commit fails if the graph changed since the given version
+     */
+    @Test
+    public void testCommitIfVersion() {
+        long version = sfcProviderGraph.getSnapshot().getVersion();
+        sfcProviderGraph.addNode(NODE_NAME);
+
+        assertNull("Must be null", sfcProviderGraph.newUpdate().clear().commitIfVersion(version));
+        assertTrue("Must be true", sfcProviderGraph.hasNode(NODE_NAME));
+        assertNotNull("Must be not null",
+                sfcProviderGraph.newUpdate().clear().commitIfVersion(sfcProviderGraph.getSnapshot().getVersion()));
+        assertFalse("Must be false", sfcProviderGraph.hasNode(NODE_NAME));
+    }
+
+    /*
+     * one search gives the distance to every node and is reused until the
+     * topology changes
+     */
+    @Test
+    public void testShortestPathTree() {
+        sfcProviderGraph.newUpdate()
+            .setEdges(NODE_NAME + 1, Arrays.asList(NODE_NAME + 2, NODE_NAME + 3))
+            .setEdges(NODE_NAME + 3, Collections.singletonList(NODE_NAME + 4))
+            .addNode(NODE_NAME + 5)
+            .commit();
+        SfcProviderGraph.Snapshot snapshot = sfcProviderGraph.getSnapshot();
+
+        SfcProviderShortestPathTree shortestPathTree = snapshot.getShortestPathTree(NODE_NAME + 2);
+        assertNotNull("Must be not null", shortestPathTree);
+        assertEquals("Must be equal", NODE_NAME + 2, shortestPathTree.getSource().getName());
+        assertEquals("Must be equal", 0, shortestPathTree.getDistance(NODE_NAME + 2));
+        assertEquals("Must be equal", 1, shortestPathTree.getDistance(NODE_NAME + 1));
+        assertEquals("Must be equal", 3, shortestPathTree.getDistance(NODE_NAME + 4));
+        assertEquals("Must be equal", SfcProviderShortestPathTree.UNREACHABLE,
+                shortestPathTree.getDistance(NODE_NAME + 5));
+        assertEquals("Must be equal", SfcProviderShortestPathTree.UNREACHABLE,
+                shortestPathTree.getDistance(NODE_NAME + 6));
+        assertEquals("Must be equal", 4, shortestPathTree.getPath(NODE_NAME + 4).size());
+        assertTrue("Must be true", shortestPathTree.getPath(NODE_NAME + 5).isEmpty());
+        assertNull("Must be null", snapshot.getShortestPathTree(NODE_NAME + 6));
+
+        // cached per snapshot, i.e. per topology version
+        assertSame("Must be same", shortestPathTree, snapshot.getShortestPathTree(NODE_NAME + 2));
+        sfcProviderGraph.addEdge(NODE_NAME + 4, NODE_NAME + 5);
+        SfcProviderShortestPathTree newShortestPathTree =
+                sfcProviderGraph.getSnapshot().getShortestPathTree(NODE_NAME + 2);
+        assertNotSame("Must be not same", shortestPathTree, newShortestPathTree);
+        assertEquals("Must be equal", 4, newShortestPathTree.getDistance(NODE_NAME + 5));
+        assertEquals("Must be equal", SfcProviderShortestPathTree.UNREACHABLE,
+                shortestPathTree.getDistance(NODE_NAME + 5));
+    }
+
+    /*
+     * weighted search prefers more hops over an expensive link, the cost of
+     * an edge is the lowest one declared by its ends
+     */
+    @Test
+    public void testWeightedShortestPathTree() {
+        Map<String, Integer> costs = new HashMap<>();
+        costs.put("sff2", 10);
+        costs.put("sff3", 1);
+        sfcProviderGraph.newUpdate()
+            .setEdges("sff1", costs)
+            .setEdges("sff3", Collections.singletonMap("sff2", 2))
+            .setEdges("sff2", Collections.singletonMap("sff1", 20))
+            .setEdges("sf1", Collections.singletonList("sff1"))
+            .commit();
+        SfcProviderGraph.Snapshot snapshot = sfcProviderGraph.getSnapshot();
+        assertEquals("Must be equal", 10, snapshot.getEdgeCost("sff2", "sff1"));
+        assertEquals("Must be equal", SfcProviderGraph.DEFAULT_EDGE_COST, snapshot.getEdgeCost("sff1", "sf1"));
+        assertEquals("Must be equal", -1, snapshot.getEdgeCost("sf1", "sff2"));
+
+        SfcProviderShortestPathTree weightedTree = snapshot.getWeightedShortestPathTree("sf1");
+        assertEquals("Must be equal", 4, weightedTree.getDistance("sff2"));
+        assertEquals("Must be equal", 4, weightedTree.getPath("sff2").size());
+        assertEquals("Must be equal", "sff3", weightedTree.getPath("sff2").get(2).getName());
+        assertEquals("Must be equal", 2, snapshot.getShortestPathTree("sf1").getDistance("sff2"));
+        assertSame("Must be same", weightedTree, snapshot.getWeightedShortestPathTree("sf1"));
+    }
+
+    /*
+     * like the SFF link cost, an edge costs at least one
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroEdgeCost() {
+        sfcProviderGraph.newUpdate().setEdges("sff1", Collections.singletonMap("sff2", 0));
+    }
+}
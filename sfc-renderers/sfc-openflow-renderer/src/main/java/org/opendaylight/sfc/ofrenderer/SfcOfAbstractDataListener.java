@@ -33,8 +33,13 @@ public abstract class SfcOfAbstractDataListener implements DataChangeListener {
     }
 
     public void registerAsDataChangeListener(LogicalDatastoreType datastoreType) {
+        registerAsDataChangeListener(datastoreType, DataBroker.DataChangeScope.SUBTREE);
+    }
+
+    public void registerAsDataChangeListener(LogicalDatastoreType datastoreType,
+            DataBroker.DataChangeScope scope) {
         dataChangeListenerRegistration = dataBroker.registerDataChangeListener(datastoreType, iID,
-                this, DataBroker.DataChangeScope.SUBTREE);
+                this, scope);
     }
 
     public void registerAsDataChangeListener() {
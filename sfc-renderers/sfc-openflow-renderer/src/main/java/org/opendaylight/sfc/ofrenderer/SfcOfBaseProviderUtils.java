@@ -13,6 +13,7 @@ import java.util.List;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffDataPlaneLocatorName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.function.base.SfDataPlaneLocator;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.ovs.rev140701.SffOvsBridgeAugmentation;
@@ -55,6 +56,41 @@ public abstract class SfcOfBaseProviderUtils {
     abstract public ServiceFunctionGroup getServiceFunctionGroup(final String sfgName, long rspId);
 
     abstract public Long getPortNumberFromName(final String bridgeName, final String portName, long rspId);
+
+    /**
+     * Return the SffGraph of a previous rendering of the RSP, with its DPLs
+     * and transports already processed. Only implemented by caching subclasses.
+     *
+     * @param rsp - the RSP being rendered
+     * @return the SffGraph, or null if the RSP changed or wasn't rendered yet
+     */
+    public SffGraph getSffGraph(RenderedServicePath rsp) {
+        return null;
+    }
+
+    /**
+     * Store the processed SffGraph of the RSP being rendered, for getSffGraph().
+     *
+     * @param rsp - the RSP being rendered
+     * @param sffGraph - the SffGraph, with its DPLs and transports processed
+     */
+    public void setSffGraph(RenderedServicePath rsp, SffGraph sffGraph) {
+    }
+
+    /**
+     * Forget what was stored for a deleted RSP.
+     *
+     * @param rspId - the RSP path id
+     */
+    public void deleteRsp(long rspId) {
+    }
+
+    /**
+     * Forget the stored port numbers, which change when the switches restart.
+     */
+    public void invalidatePortNumbers() {
+    }
+
     /**
      * Return a named SffDataPlaneLocator on a SFF
      *
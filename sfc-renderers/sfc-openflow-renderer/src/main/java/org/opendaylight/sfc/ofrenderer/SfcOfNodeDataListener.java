@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePaths;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is notified when OpenFlow switches connect, and reconciles
+ * their SFC flows with the flows of the RSPs traversing them. The switches
+ * already connected when the listener is registered are notified as
+ * created too, so their flows are reconciled on startup.
+ */
+public class SfcOfNodeDataListener extends SfcOfAbstractDataListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfNodeDataListener.class);
+    private static final InstanceIdentifier<RenderedServicePaths> RSPS_IID =
+            InstanceIdentifier.builder(RenderedServicePaths.class).build();
+    private SfcOfRspProcessor sfcOfRspProcessor;
+    // Reconciling can take long, so its not done on the notification thread
+    private ExecutorService threadExecutor;
+
+    public SfcOfNodeDataListener(DataBroker dataBroker, SfcOfRspProcessor sfcOfRspProcessor) {
+        setDataBroker(dataBroker);
+        setIID(InstanceIdentifier.builder(Nodes.class).child(Node.class).augmentation(FlowCapableNode.class).build());
+        this.sfcOfRspProcessor = sfcOfRspProcessor;
+        this.threadExecutor = Executors.newSingleThreadExecutor();
+        registerAsDataChangeListener(LogicalDatastoreType.OPERATIONAL, DataBroker.DataChangeScope.BASE);
+    }
+
+    public void close() {
+        closeDataChangeListener();
+        threadExecutor.shutdown();
+    }
+
+    @Override
+    public void onDataChanged(final AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change) {
+        // Switch connected, all the switches of the change are reconciled together
+        final Set<String> sffNodeNames = new HashSet<String>();
+        for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : change.getCreatedData().entrySet()) {
+            if (entry.getValue() instanceof FlowCapableNode) {
+                NodeKey nodeKey = entry.getKey().firstKeyOf(Node.class, NodeKey.class);
+                if (nodeKey != null) {
+                    sffNodeNames.add(nodeKey.getId().getValue());
+                }
+            }
+        }
+
+        if (sffNodeNames.isEmpty()) {
+            return;
+        }
+
+        LOG.info("SfcOfNodeDataListener.onDataChanged switches connected {}", sffNodeNames);
+        try {
+            threadExecutor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    reconcileSffs(sffNodeNames);
+                }
+            });
+        } catch (Exception e) {
+            LOG.error("Error executing reconciliation of switches {} [{}]", sffNodeNames, e.toString());
+        }
+    }
+
+    private void reconcileSffs(Set<String> sffNodeNames) {
+        List<RenderedServicePath> rsps = new ArrayList<RenderedServicePath>();
+        RenderedServicePaths renderedServicePaths =
+                SfcDataStoreAPI.readTransactionAPI(RSPS_IID, LogicalDatastoreType.OPERATIONAL);
+        if (renderedServicePaths != null && renderedServicePaths.getRenderedServicePath() != null) {
+            rsps.addAll(renderedServicePaths.getRenderedServicePath());
+        }
+
+        LOG.info("Reconciling switches {} with {} RSPs", sffNodeNames, rsps.size());
+        sfcOfRspProcessor.reconcileSffs(sffNodeNames, rsps);
+    }
+}
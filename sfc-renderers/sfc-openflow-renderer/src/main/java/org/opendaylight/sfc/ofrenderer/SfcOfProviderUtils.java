@@ -11,8 +11,11 @@ package org.opendaylight.sfc.ofrenderer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
@@ -22,6 +25,7 @@ import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionGroupAPI;
 import org.opendaylight.sfc.sfc_ovs.provider.SfcOvsUtil;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.ovs.rev140701.SffOvsNodeAugmentation;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
@@ -44,6 +48,9 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
 public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
 
+    // The number of rendered RSPs whose context is kept
+    private static final int MAX_RENDERED_RSP_CONTEXTS = 256;
+
     // Since this class can be called by multiple threads,
     // store these objects per RSP id to avoid collisions
     private class RspContext {
@@ -53,28 +60,158 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
         private Map<SfName, ServiceFunction> serviceFunctions;
         private Map<String, ServiceFunctionGroup> serviceFunctionGroups;
         private Map<SffName, ServiceFunctionForwarder> serviceFunctionFowarders;
+        // OpenFlow port numbers per SFF name and port name
+        private Map<String, Long> portNumbers;
+        // The last rendered RSP and its processed SffGraph
+        private RenderedServicePath rsp;
+        private SffGraph sffGraph;
+        // Set when a SF or SFF of the context changes while the RSP is rendered
+        private volatile boolean invalid;
 
         public RspContext() {
             serviceFunctions = Collections.synchronizedMap(new HashMap<SfName, ServiceFunction>());
             serviceFunctionGroups = Collections.synchronizedMap(new HashMap<String, ServiceFunctionGroup>());
             serviceFunctionFowarders = Collections.synchronizedMap(new HashMap<SffName, ServiceFunctionForwarder>());
+            portNumbers = new ConcurrentHashMap<String, Long>();
+            invalid = false;
         }
     }
 
+    // The contexts of the RSPs being rendered
     private Map<Long, RspContext> rspIdToContext;
 
+    // The contexts of the last rendered RSPs, least recently rendered first,
+    // so updating or reconciling a RSP doesn't read its SFs and SFFs again
+    private Map<Long, RspContext> renderedRspContexts;
+
     public SfcOfProviderUtils() {
-        rspIdToContext = new HashMap<Long, RspContext>();
+        rspIdToContext = new ConcurrentHashMap<Long, RspContext>();
+        renderedRspContexts = new LinkedHashMap<Long, RspContext>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RspContext> eldest) {
+                return size() > MAX_RENDERED_RSP_CONTEXTS;
+            }
+        };
     }
 
     @Override
     public void addRsp(long rspId) {
-        rspIdToContext.put(rspId, new RspContext());
+        RspContext rspContext;
+        synchronized (renderedRspContexts) {
+            rspContext = renderedRspContexts.remove(rspId);
+        }
+        rspIdToContext.put(rspId, rspContext == null ? new RspContext() : rspContext);
     }
 
     @Override
     public void removeRsp(long rspId) {
-        rspIdToContext.remove(rspId);
+        RspContext rspContext = rspIdToContext.remove(rspId);
+        if (rspContext == null || rspContext.invalid) {
+            return;
+        }
+        synchronized (renderedRspContexts) {
+            renderedRspContexts.put(rspId, rspContext);
+        }
+    }
+
+    @Override
+    public void deleteRsp(long rspId) {
+        synchronized (renderedRspContexts) {
+            renderedRspContexts.remove(rspId);
+        }
+    }
+
+    @Override
+    public SffGraph getSffGraph(RenderedServicePath rsp) {
+        RspContext rspContext = rspIdToContext.get(rsp.getPathId());
+        if (rspContext.sffGraph == null || !rsp.equals(rspContext.rsp)) {
+            return null;
+        }
+        return rspContext.sffGraph;
+    }
+
+    @Override
+    public void setSffGraph(RenderedServicePath rsp, SffGraph sffGraph) {
+        RspContext rspContext = rspIdToContext.get(rsp.getPathId());
+        rspContext.rsp = rsp;
+        rspContext.sffGraph = sffGraph;
+    }
+
+    @Override
+    public void invalidatePortNumbers() {
+        for (RspContext rspContext : rspIdToContext.values()) {
+            rspContext.portNumbers.clear();
+        }
+        synchronized (renderedRspContexts) {
+            for (RspContext rspContext : renderedRspContexts.values()) {
+                rspContext.portNumbers.clear();
+            }
+        }
+    }
+
+    /**
+     * Forget the contexts using a SF, when it changes.
+     *
+     * @param sfName - The name of the changed SF
+     */
+    public void invalidateServiceFunction(final SfName sfName) {
+        for (RspContext rspContext : rspIdToContext.values()) {
+            if (rspContext.serviceFunctions.containsKey(sfName)) {
+                rspContext.invalid = true;
+            }
+        }
+        synchronized (renderedRspContexts) {
+            Iterator<RspContext> rspContextIter = renderedRspContexts.values().iterator();
+            while (rspContextIter.hasNext()) {
+                if (rspContextIter.next().serviceFunctions.containsKey(sfName)) {
+                    rspContextIter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the contexts using a SFF, when it changes.
+     *
+     * @param sffName - The name of the changed SFF
+     */
+    public void invalidateServiceFunctionForwarder(final SffName sffName) {
+        for (RspContext rspContext : rspIdToContext.values()) {
+            if (rspContext.serviceFunctionFowarders.containsKey(sffName)) {
+                rspContext.invalid = true;
+            }
+        }
+        synchronized (renderedRspContexts) {
+            Iterator<RspContext> rspContextIter = renderedRspContexts.values().iterator();
+            while (rspContextIter.hasNext()) {
+                if (rspContextIter.next().serviceFunctionFowarders.containsKey(sffName)) {
+                    rspContextIter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the contexts using a SFG, when it changes.
+     *
+     * @param sfgName - The name of the changed SFG
+     */
+    public void invalidateServiceFunctionGroup(final String sfgName) {
+        for (RspContext rspContext : rspIdToContext.values()) {
+            if (rspContext.serviceFunctionGroups.containsKey(sfgName)) {
+                rspContext.invalid = true;
+            }
+        }
+        synchronized (renderedRspContexts) {
+            Iterator<RspContext> rspContextIter = renderedRspContexts.values().iterator();
+            while (rspContextIter.hasNext()) {
+                if (rspContextIter.next().serviceFunctionGroups.containsKey(sfgName)) {
+                    rspContextIter.remove();
+                }
+            }
+        }
     }
 
     /**
@@ -147,7 +284,22 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
      */
     @Override
     public Long getPortNumberFromName(final String sffName, final String portName, long rspId) {
+        RspContext rspContext = rspIdToContext.get(rspId);
+        String portKey = sffName + "/" + portName;
+        Long ofPort = rspContext.portNumbers.get(portKey);
+        if (ofPort == null) {
+            ofPort = readPortNumberFromName(sffName, portName, rspId);
+            // Port 0 means the port wasn't found yet, so its read again next time
+            if (ofPort != 0L) {
+                rspContext.portNumbers.put(portKey, ofPort);
+            }
+        }
 
+        return ofPort;
+    }
+
+    // internal support method for getPortNumberFromName()
+    private Long readPortNumberFromName(final String sffName, final String portName, long rspId) {
         ServiceFunctionForwarder sff = getServiceFunctionForwarder(new SffName(sffName), rspId);
         SffOvsNodeAugmentation sffOvsNode = sff.getAugmentation(SffOvsNodeAugmentation.class);
         if(sffOvsNode == null) {
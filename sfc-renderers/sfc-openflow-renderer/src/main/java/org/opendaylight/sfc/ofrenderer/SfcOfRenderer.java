@@ -11,15 +11,20 @@ package org.opendaylight.sfc.ofrenderer;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerImpl;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererDataListener;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRspFlowStore;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererMetrics;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterInterface;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcIpv4PacketInHandler;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
 import org.opendaylight.sfc.ofrenderer.sfg.SfcOfSfgDataListener;
 
+import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.controller.sal.binding.api.NotificationProviderService;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.yangtools.concepts.Registration;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
@@ -34,33 +39,81 @@ import org.slf4j.LoggerFactory;
 public class SfcOfRenderer implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfRenderer.class);
+    private static final String RSP_FLOW_STORE_FILE = "sfc-of-renderer/rsp-flows";
+    private static final String RSP_LABEL_ALLOCATOR_FILE = "sfc-of-renderer/rsp-labels";
+    // Seconds between writes of the renderer statistics to the operational data store
+    private static final long METRICS_PUBLISH_PERIOD = 10;
 
     private SfcOfFlowProgrammerInterface sfcOfFlowProgrammer;
     private Registration pktInRegistration;
     private SfcSynchronizer sfcSynchronizer;
     private SfcOfFlowWriterInterface sfcOfFlowWriter = null;
+    private SfcOfRspLabelAllocator rspLabelAllocator = null;
 
     SfcOfRspDataListener openflowRspDataListener = null;
     SfcOfSfgDataListener sfcOfSfgDataListener = null;
     SfcIpv4PacketInHandler packetInHandler = null;
     SfcOfRendererDataListener sfcOfRendererListener = null;
+    SfcOfNodeDataListener sfcOfNodeDataListener = null;
+    SfcOfRspContextDataListener sfListener = null;
+    SfcOfRspContextDataListener sffListener = null;
+    SfcOfRspContextDataListener sfgListener = null;
 
     public SfcOfRenderer(DataBroker dataBroker, NotificationProviderService notificationService) {
         LOG.info("SfcOfRenderer starting the SfcOfRenderer plugin...");
 
         this.sfcSynchronizer = new SfcSynchronizer();
-        this.sfcOfFlowProgrammer = new SfcOfFlowProgrammerImpl(new SfcOfFlowWriterImpl());
-        SfcOfBaseProviderUtils sfcOfProviderUtils = new SfcOfProviderUtils();
-        this.openflowRspDataListener = new SfcOfRspDataListener(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer);
+        this.sfcOfFlowProgrammer = new SfcOfFlowProgrammerImpl(new SfcOfFlowWriterImpl(createRspFlowStore()));
+        SfcOfProviderUtils sfcOfProviderUtils = new SfcOfProviderUtils();
+        this.rspLabelAllocator = createRspLabelAllocator();
+        this.openflowRspDataListener = new SfcOfRspDataListener(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils,
+                sfcSynchronizer, rspLabelAllocator);
         this.sfcOfSfgDataListener = new SfcOfSfgDataListener(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils);
         this.sfcOfRendererListener = new SfcOfRendererDataListener(dataBroker, sfcOfFlowProgrammer, sfcSynchronizer);
+        this.sfcOfNodeDataListener = new SfcOfNodeDataListener(dataBroker, openflowRspDataListener.getSfcOfRspProcessor());
+        this.sfListener = new SfcOfRspContextDataListener(dataBroker, OpendaylightSfc.SF_ENTRY_IID, sfcOfProviderUtils);
+        this.sffListener = new SfcOfRspContextDataListener(dataBroker, OpendaylightSfc.SFF_ENTRY_IID, sfcOfProviderUtils);
+        this.sfgListener = new SfcOfRspContextDataListener(dataBroker, OpendaylightSfc.SFG_ENTRY_IID, sfcOfProviderUtils);
 
         this.packetInHandler = new SfcIpv4PacketInHandler((SfcOfFlowProgrammerImpl) sfcOfFlowProgrammer);
         this.pktInRegistration = notificationService.registerNotificationListener(packetInHandler);
 
+        SfcOfRendererMetrics.getInstance().setPacketInHandler(packetInHandler);
+        SfcOfRendererMetrics.getInstance().start(METRICS_PUBLISH_PERIOD);
+
         LOG.info("SfcOfRenderer successfully started the SfcOfRenderer plugin");
     }
 
+    /**
+     * The flows of the RSPs are persisted in the Karaf data directory, so
+     * they can still be deleted after a restart
+     */
+    private static SfcOfRspFlowStore createRspFlowStore() {
+        File rspFlowStoreFile = new File(System.getProperty("karaf.data", "data"), RSP_FLOW_STORE_FILE);
+        try {
+            return new SfcOfRspFlowStore(rspFlowStoreFile);
+        } catch (IOException e) {
+            LOG.error("SfcOfRenderer failed to open {}, RSP flows will not be persisted: {}",
+                    rspFlowStoreFile, e.getMessage());
+            return new SfcOfRspFlowStore();
+        }
+    }
+
+    /**
+     * The transport labels of the RSPs are persisted next to their flows, so
+     * the RSPs keep their labels after a restart
+     */
+    private static SfcOfRspLabelAllocator createRspLabelAllocator() {
+        File rspLabelAllocatorFile = new File(System.getProperty("karaf.data", "data"), RSP_LABEL_ALLOCATOR_FILE);
+        try {
+            return new SfcOfRspLabelAllocator(rspLabelAllocatorFile);
+        } catch (IOException e) {
+            LOG.error("SfcOfRenderer failed to open {}, RSP labels will not be persisted: {}",
+                    rspLabelAllocatorFile, e.getMessage());
+            return new SfcOfRspLabelAllocator();
+        }
+    }
+
     public SfcOfRspDataListener getSfcOfRspDataListener() {
         return this.openflowRspDataListener;
     }
@@ -76,12 +129,35 @@ public class SfcOfRenderer implements AutoCloseable {
     public void close() throws ExecutionException, InterruptedException {
         LOG.info("SfcOfRenderer auto-closed");
         try {
+            if(openflowRspDataListener != null) {
+                openflowRspDataListener.close();
+            }
+            if(sfcOfNodeDataListener != null) {
+                sfcOfNodeDataListener.close();
+            }
+            if(sfListener != null) {
+                sfListener.close();
+            }
+            if(sffListener != null) {
+                sffListener.close();
+            }
+            if(sfgListener != null) {
+                sfgListener.close();
+            }
             if(sfcOfFlowProgrammer != null) {
                 sfcOfFlowProgrammer.shutdown();
             }
             if(pktInRegistration != null) {
                 pktInRegistration.close();
             }
+            if(packetInHandler != null) {
+                packetInHandler.close();
+            }
+            if(rspLabelAllocator != null) {
+                rspLabelAllocator.close();
+            }
+            SfcOfRendererMetrics.getInstance().stop();
+            SfcOfRendererMetrics.getInstance().setPacketInHandler(null);
         } catch(Exception e) {
             LOG.error("SfcOfRenderer auto-closed exception {}", e.getMessage());
         }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import java.util.Map;
+
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroup;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is notified when SFs, SFFs or SFGs are updated or deleted,
+ * and invalidates the rendering contexts of the RSPs using them.
+ */
+public class SfcOfRspContextDataListener extends SfcOfAbstractDataListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfRspContextDataListener.class);
+    private SfcOfProviderUtils sfcOfProviderUtils;
+
+    public SfcOfRspContextDataListener(DataBroker dataBroker, InstanceIdentifier<?> iid,
+            SfcOfProviderUtils sfcOfProviderUtils) {
+        setDataBroker(dataBroker);
+        setIID(iid);
+        this.sfcOfProviderUtils = sfcOfProviderUtils;
+        registerAsDataChangeListener();
+    }
+
+    public void close() {
+        closeDataChangeListener();
+    }
+
+    @Override
+    public void onDataChanged(final AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change) {
+        // Created SFs, SFFs and SFGs can't be used by a rendered RSP yet
+
+        for (DataObject dataObject : change.getUpdatedData().values()) {
+            invalidate(dataObject);
+        }
+
+        Map<InstanceIdentifier<?>, DataObject> originalData = change.getOriginalData();
+        for (InstanceIdentifier<?> iid : change.getRemovedPaths()) {
+            invalidate(originalData.get(iid));
+        }
+    }
+
+    private void invalidate(DataObject dataObject) {
+        if (dataObject instanceof ServiceFunction) {
+            LOG.debug("SfcOfRspContextDataListener invalidating SF {}", ((ServiceFunction) dataObject).getName());
+            sfcOfProviderUtils.invalidateServiceFunction(((ServiceFunction) dataObject).getName());
+        } else if (dataObject instanceof ServiceFunctionForwarder) {
+            LOG.debug("SfcOfRspContextDataListener invalidating SFF {}",
+                    ((ServiceFunctionForwarder) dataObject).getName());
+            sfcOfProviderUtils.invalidateServiceFunctionForwarder(((ServiceFunctionForwarder) dataObject).getName());
+        } else if (dataObject instanceof ServiceFunctionGroup) {
+            LOG.debug("SfcOfRspContextDataListener invalidating SFG {}", ((ServiceFunctionGroup) dataObject).getName());
+            sfcOfProviderUtils.invalidateServiceFunctionGroup(((ServiceFunctionGroup) dataObject).getName());
+        }
+    }
+}
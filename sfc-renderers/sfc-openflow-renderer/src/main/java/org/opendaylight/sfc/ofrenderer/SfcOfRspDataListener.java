@@ -19,8 +19,14 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class has will be notified when changes are mad to Rendered Service Paths.
@@ -34,16 +40,30 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfRspDataListener.class);
     private SfcOfRspProcessor sfcOfRspProcessor;
+    // The RSPs of a data change are processed concurrently on these threads
+    private ExecutorService rspProcessorExecutor;
 
     public SfcOfRspDataListener(
             DataBroker dataBroker,
             SfcOfFlowProgrammerInterface sfcOfFlowProgrammer,
             SfcOfBaseProviderUtils sfcOfProviderUtils,
-            SfcSynchronizer sfcSynchronizer) {
+            SfcSynchronizer sfcSynchronizer,
+            SfcOfRspLabelAllocator labelAllocator) {
         setDataBroker(dataBroker);
         setIID(OpendaylightSfc.RSP_ENTRY_IID);
         registerAsDataChangeListener(LogicalDatastoreType.OPERATIONAL);
-        this.sfcOfRspProcessor = new SfcOfRspProcessor(sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer);
+        this.sfcOfRspProcessor = new SfcOfRspProcessor(sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer,
+                labelAllocator);
+        this.rspProcessorExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SfcOfRspProcessor getSfcOfRspProcessor() {
+        return this.sfcOfRspProcessor;
+    }
+
+    public void close() {
+        closeDataChangeListener();
+        rspProcessorExecutor.shutdown();
     }
 
     @Override
@@ -54,12 +74,24 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
         // configureSffFlows will do a check for each SFF to see
         // if its Openflow Enabled, and if not, skip it
 
+        // The created and updated RSPs are different RSPs, so they are processed
+        // concurrently. The change is only complete once all of them are processed,
+        // so the changes of a RSP are still processed in order
+        List<Future<?>> rspFutures = new ArrayList<Future<?>>();
+
         // RSP create
         Map<InstanceIdentifier<?>, DataObject> dataCreatedConfigurationObject = change.getCreatedData();
         for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedConfigurationObject.entrySet()) {
             if (entry.getValue() instanceof RenderedServicePath) {
-                LOG.info("SfcOfRspDataListener.onDataChanged create RSP {}", ((RenderedServicePath) entry.getValue()).getName());
-                this.sfcOfRspProcessor.processRenderedServicePath((RenderedServicePath) entry.getValue());
+                final RenderedServicePath createdRsp = (RenderedServicePath) entry.getValue();
+                LOG.info("SfcOfRspDataListener.onDataChanged create RSP {}", createdRsp.getName());
+                rspFutures.add(rspProcessorExecutor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        sfcOfRspProcessor.processRenderedServicePath(createdRsp);
+                    }
+                }));
             }
         }
 
@@ -67,11 +99,21 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
         Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject = change.getUpdatedData();
         for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
             if ((entry.getValue() instanceof RenderedServicePath && (!(dataCreatedConfigurationObject.containsKey(entry.getKey()))))) {
-                LOG.info("SfcOfRspDataListener.onDataChanged update RSP {}", ((RenderedServicePath) entry.getValue()).getName());
-                // Currently RSP updates are not supported
+                final RenderedServicePath updatedRsp = (RenderedServicePath) entry.getValue();
+                LOG.info("SfcOfRspDataListener.onDataChanged update RSP {}", updatedRsp.getName());
+                final DataObject originalDataObject = change.getOriginalData().get(entry.getKey());
+                rspFutures.add(rspProcessorExecutor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        updateRenderedServicePath(originalDataObject, updatedRsp);
+                    }
+                }));
             }
         }
 
+        waitForRsps(rspFutures);
+
         // RSP delete
         Set<InstanceIdentifier<?>> dataRemovedConfigurationIID = change.getRemovedPaths();
         for (InstanceIdentifier<?> instanceIdentifier : dataRemovedConfigurationIID) {
@@ -82,4 +124,27 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
             }
         }
     }
+
+    private void updateRenderedServicePath(DataObject originalDataObject, RenderedServicePath updatedRsp) {
+        if (originalDataObject instanceof RenderedServicePath
+                && ((RenderedServicePath) originalDataObject).getPathId().equals(updatedRsp.getPathId())) {
+            this.sfcOfRspProcessor.updateRenderedServicePath(updatedRsp);
+        } else {
+            // The flows of a different path id have nothing in common
+            if (originalDataObject instanceof RenderedServicePath) {
+                this.sfcOfRspProcessor.deleteRenderedServicePath((RenderedServicePath) originalDataObject);
+            }
+            this.sfcOfRspProcessor.processRenderedServicePath(updatedRsp);
+        }
+    }
+
+    private void waitForRsps(List<Future<?>> rspFutures) {
+        for (Future<?> rspFuture : rspFutures) {
+            try {
+                rspFuture.get();
+            } catch (InterruptedException | ExecutionException e) {
+                LOG.error("SfcOfRspDataListener.onDataChanged failed to process RSP: {}", e.getMessage());
+            }
+        }
+    }
 }
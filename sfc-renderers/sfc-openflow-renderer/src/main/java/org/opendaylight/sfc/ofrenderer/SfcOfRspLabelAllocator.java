@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The transport labels of the RSPs, such as VLAN IDs or MPLS labels. A label
+ * space is split in a fixed number of slots, each one holding the labels of
+ * the hops of a single RSP. A RSP keeps its slot until it is deleted, so it
+ * gets the same labels every time it is rendered, and no two RSPs share a
+ * slot. Once all the slots are used, no label is allocated.
+ * <p>
+ * When created with a file, every change is appended to a journal in that
+ * file. The journal is replayed and compacted on creation, so the RSPs keep
+ * their labels after a restart.
+ */
+public class SfcOfRspLabelAllocator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfRspLabelAllocator.class);
+
+    private static final int JOURNAL_MAGIC = 0x5346434c;
+    private static final int JOURNAL_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 8;
+    // A record is its type, the RSP, the label space and the slot
+    private static final byte RECORD_ALLOCATE = 1;
+    private static final byte RECORD_FREE = 2;
+    private static final int RECORD_SIZE = 1 + 8 + 1 + 4;
+    // Freed slots leave dead records behind, the journal is compacted past this
+    private static final int MIN_COMPACT_RECORDS = 4096;
+
+    public enum LabelSpace {
+        // The 4094 VLAN IDs hold 40 RSPs of up to 93 hops
+        VLAN_ID(40),
+        // The 20 bit MPLS labels hold 10000 RSPs of up to 99 hops
+        MPLS_LABEL(10000);
+
+        private final int slots;
+
+        LabelSpace(int slots) {
+            this.slots = slots;
+        }
+
+        public int getSlots() {
+            return slots;
+        }
+    }
+
+    private static final class Slot {
+        private final LabelSpace labelSpace;
+        private final int index;
+
+        private Slot(LabelSpace labelSpace, int index) {
+            this.labelSpace = labelSpace;
+            this.index = index;
+        }
+    }
+
+    private final Map<Long, Slot> rspSlots = new HashMap<Long, Slot>();
+    private final Map<LabelSpace, BitSet> usedSlots = new EnumMap<LabelSpace, BitSet>(LabelSpace.class);
+    // The RSPs loaded from the journal whose slots weren't allocated since
+    private final Set<Long> loadedRspIds = new HashSet<Long>();
+
+    private final File journalFile;
+    private FileChannel journalChannel = null;
+    private int journalRecords = 0;
+
+    /**
+     * Create an allocator that is only kept in memory.
+     */
+    public SfcOfRspLabelAllocator() {
+        this.journalFile = null;
+        for (LabelSpace labelSpace : LabelSpace.values()) {
+            usedSlots.put(labelSpace, new BitSet(labelSpace.getSlots()));
+        }
+    }
+
+    /**
+     * Create an allocator persisted to the given file, with the slots stored in it.
+     *
+     * @param journalFile - the file the slots are persisted to, created if it doesn't exist
+     * @throws IOException if the file can't be read or written
+     */
+    public SfcOfRspLabelAllocator(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+        for (LabelSpace labelSpace : LabelSpace.values()) {
+            usedSlots.put(labelSpace, new BitSet(labelSpace.getSlots()));
+        }
+        if (journalFile.exists()) {
+            replayJournal();
+        }
+        loadedRspIds.addAll(rspSlots.keySet());
+        compactJournal();
+        LOG.info("SfcOfRspLabelAllocator loaded the label slots of {} RSPs from {}", rspSlots.size(), journalFile);
+    }
+
+    /**
+     * Get the slot of a RSP in a label space, allocating the lowest free slot
+     * if the RSP has none yet. A slot the RSP holds in another label space,
+     * because its transport changed, is freed.
+     *
+     * @param labelSpace - the label space of the RSP transport
+     * @param rspId - the RSP
+     * @return the slot of the RSP, from 0 to labelSpace.getSlots() - 1
+     * @throws IllegalStateException if all the slots of the label space are used
+     */
+    public synchronized int allocate(LabelSpace labelSpace, long rspId) {
+        loadedRspIds.remove(rspId);
+        Slot slot = rspSlots.get(rspId);
+        if (slot != null && slot.labelSpace == labelSpace) {
+            return slot.index;
+        }
+        if (slot != null) {
+            free(rspId);
+        }
+
+        BitSet used = usedSlots.get(labelSpace);
+        int index = used.nextClearBit(0);
+        if (index >= labelSpace.getSlots()) {
+            throw new IllegalStateException("No " + labelSpace + " left for RSP [" + rspId + "], all "
+                    + labelSpace.getSlots() + " RSP slots are used");
+        }
+        used.set(index);
+        rspSlots.put(rspId, new Slot(labelSpace, index));
+        journal(RECORD_ALLOCATE, rspId, labelSpace, index);
+        return index;
+    }
+
+    /**
+     * Free the slot of a RSP, once the RSP is deleted.
+     *
+     * @param rspId - the RSP
+     */
+    public synchronized void free(long rspId) {
+        loadedRspIds.remove(rspId);
+        Slot slot = rspSlots.remove(rspId);
+        if (slot == null) {
+            return;
+        }
+        usedSlots.get(slot.labelSpace).clear(slot.index);
+        journal(RECORD_FREE, rspId, slot.labelSpace, slot.index);
+    }
+
+    /**
+     * Free the slots of the RSPs loaded from the journal that are not in the
+     * given set, for instance because they were deleted while the allocator
+     * was closed. RSPs whose slots were allocated or freed since the
+     * allocator was created are kept, and only the first call frees anything.
+     *
+     * @param rspIds - the RSPs that currently exist
+     */
+    public synchronized void freeStaleRsps(Set<Long> rspIds) {
+        Set<Long> staleRspIds = new HashSet<Long>(loadedRspIds);
+        staleRspIds.removeAll(rspIds);
+        for (Long rspId : staleRspIds) {
+            free(rspId);
+        }
+        loadedRspIds.clear();
+        if (!staleRspIds.isEmpty()) {
+            LOG.info("SfcOfRspLabelAllocator freed the label slots of stale RSPs {}", staleRspIds);
+        }
+    }
+
+    public synchronized int getRspCount() {
+        return rspSlots.size();
+    }
+
+    public synchronized void close() {
+        closeJournal();
+    }
+
+    //
+    // Journal
+    //
+
+    private void journal(byte recordType, long rspId, LabelSpace labelSpace, int index) {
+        if (journalChannel == null) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(recordType).putLong(rspId).put((byte) labelSpace.ordinal()).putInt(index);
+        record.flip();
+        try {
+            while (record.hasRemaining()) {
+                journalChannel.write(record);
+            }
+        } catch (IOException e) {
+            LOG.error("SfcOfRspLabelAllocator failed to write {}, RSP labels are no longer persisted: {}",
+                    journalFile, e.getMessage());
+            closeJournal();
+            return;
+        }
+
+        journalRecords++;
+        if (journalRecords > MIN_COMPACT_RECORDS && journalRecords > 2 * rspSlots.size()) {
+            compactJournalQuietly();
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "r");
+                FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < JOURNAL_HEADER_SIZE || buffer.getInt() != JOURNAL_MAGIC
+                    || buffer.getInt() != JOURNAL_VERSION) {
+                LOG.warn("SfcOfRspLabelAllocator ignoring {}, it is not a RSP label journal", journalFile);
+                return;
+            }
+
+            try {
+                while (buffer.hasRemaining()) {
+                    byte recordType = buffer.get();
+                    long rspId = buffer.getLong();
+                    int labelSpace = buffer.get();
+                    int index = buffer.getInt();
+                    if (recordType == RECORD_FREE) {
+                        free(rspId);
+                    } else if (recordType == RECORD_ALLOCATE && labelSpace >= 0
+                            && labelSpace < LabelSpace.values().length) {
+                        free(rspId);
+                        Slot slot = new Slot(LabelSpace.values()[labelSpace], index);
+                        usedSlots.get(slot.labelSpace).set(index);
+                        rspSlots.put(rspId, slot);
+                    } else {
+                        LOG.warn("SfcOfRspLabelAllocator {} has an unexpected record, ignoring the rest",
+                                journalFile);
+                        break;
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                LOG.warn("SfcOfRspLabelAllocator {} ends with an incomplete record", journalFile);
+            }
+        }
+    }
+
+    private void compactJournalQuietly() {
+        try {
+            compactJournal();
+        } catch (IOException e) {
+            LOG.error("SfcOfRspLabelAllocator failed to compact {}, RSP labels are no longer persisted: {}",
+                    journalFile, e.getMessage());
+            closeJournal();
+        }
+    }
+
+    /**
+     * Write the current slots to a new journal, which then replaces the current one.
+     */
+    private void compactJournal() throws IOException {
+        closeJournal();
+        File parent = journalFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        File compactFile = new File(journalFile.getPath() + ".tmp");
+        Files.deleteIfExists(compactFile.toPath());
+
+        journalChannel = new RandomAccessFile(compactFile, "rw").getChannel();
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+        header.putInt(JOURNAL_MAGIC).putInt(JOURNAL_VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            journalChannel.write(header);
+        }
+        journalRecords = 0;
+        for (Entry<Long, Slot> entry : rspSlots.entrySet()) {
+            journal(RECORD_ALLOCATE, entry.getKey(), entry.getValue().labelSpace, entry.getValue().index);
+        }
+        journalChannel.force(false);
+
+        // The channel stays valid once the file is renamed
+        Files.move(compactFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void closeJournal() {
+        if (journalChannel == null) {
+            return;
+        }
+        try {
+            journalChannel.force(false);
+            journalChannel.close();
+        } catch (IOException e) {
+            LOG.warn("SfcOfRspLabelAllocator failed to close {}: {}", journalFile, e.getMessage());
+        }
+        journalChannel = null;
+    }
+}
@@ -8,12 +8,16 @@
 
 package org.opendaylight.sfc.ofrenderer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererMetrics;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
@@ -28,28 +32,36 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev14070
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Mac;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Mpls;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.LocatorType;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 public class SfcOfRspProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfRspProcessor.class);
     private SfcOfFlowProgrammerInterface sfcOfFlowProgrammer;
     private SfcOfBaseProviderUtils sfcOfProviderUtils;
     private SfcSynchronizer sfcSynchronizer;
-    private Map<NodeId, Boolean> sffInitialized;
+    private SfcOfRspLabelAllocator labelAllocator;
     private Map<String, Class<? extends SfcRspTransportProcessorBase>> rspTransportProcessors;
-    private static final Long SFC_FLOWS = new Long(0xdeadbeef);
 
     public SfcOfRspProcessor(
             SfcOfFlowProgrammerInterface sfcOfFlowProgrammer,
             SfcOfBaseProviderUtils sfcOfProviderUtils,
             SfcSynchronizer sfcSynchronizer) {
+        this(sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer, new SfcOfRspLabelAllocator());
+    }
+
+    public SfcOfRspProcessor(
+            SfcOfFlowProgrammerInterface sfcOfFlowProgrammer,
+            SfcOfBaseProviderUtils sfcOfProviderUtils,
+            SfcSynchronizer sfcSynchronizer,
+            SfcOfRspLabelAllocator labelAllocator) {
         this.sfcOfFlowProgrammer = sfcOfFlowProgrammer;
         this.sfcOfProviderUtils = sfcOfProviderUtils;
         this.sfcSynchronizer = sfcSynchronizer;
-        this.sffInitialized = new HashMap<NodeId, Boolean>();
+        this.labelAllocator = labelAllocator;
         this.rspTransportProcessors = new HashMap<String, Class<? extends SfcRspTransportProcessorBase>>();
         this.rspTransportProcessors.put(VxlanGpe.class.getName(), SfcRspProcessorNsh.class);
         this.rspTransportProcessors.put(Mpls.class.getName(), SfcRspProcessorMpls.class);
@@ -63,51 +75,86 @@ public class SfcOfRspProcessor {
      * @param rsp - a newly created/updated Rendered Service Path
      */
     public void processRenderedServicePath(RenderedServicePath rsp) {
-        // if this method takes too long, consider launching it in a thread
+        renderRenderedServicePath(rsp);
+    }
+
+    /**
+     * Update the OpenFlow flows of an already processed RSP. The flows of
+     * the updated RSP are compared with the current ones, and only the
+     * flows that changed are written or deleted.
+     *
+     * @param rsp - the updated Rendered Service Path, with the same path id
+     */
+    public void updateRenderedServicePath(RenderedServicePath rsp) {
+        renderRenderedServicePath(rsp);
+    }
+
+    private void renderRenderedServicePath(RenderedServicePath rsp) {
+        // Different RSPs can be processed concurrently, each one by a single thread
         try {
-            // This call blocks until the lock is obtained
-            sfcSynchronizer.lock();
+            // This call blocks until the lock is obtained. The lock is shared
+            // with the processing of other RSPs
+            sfcSynchronizer.lockShared();
 
+            long startNanos = System.nanoTime();
             sfcOfProviderUtils.addRsp(rsp.getPathId());
 
-            //
-            // Populate the SFF Connection Graph
-            //
-            SffGraph sffGraph = populateSffGraph(rsp);
-            SfcRspTransportProcessorBase transportProcessor = getTransportProcessor(sffGraph, rsp);
-
-            //
-            // Populate the SFF ingress and egress DPLs from the sffGraph
-            //
-            transportProcessor.processSffDpls();
+            // The flows created from here on replace the current RSP flows, also
+            // when creating a RSP whose flows are still stored, like after a restart
+            sfcOfFlowProgrammer.updateRspFlows(rsp.getPathId());
 
             //
-            // Internally calculate and set the RSP transport values
+            // Reuse the SFF Connection Graph of the last rendering of the
+            // RSP, unless the RSP, or one of its SFs or SFFs, changed
             //
-            transportProcessor.setRspTransports();
+            SffGraph sffGraph = sfcOfProviderUtils.getSffGraph(rsp);
+            SfcRspTransportProcessorBase transportProcessor;
+            if (sffGraph == null) {
+                //
+                // Populate the SFF Connection Graph
+                //
+                sffGraph = populateSffGraph(rsp);
+                transportProcessor = getTransportProcessor(sffGraph, rsp);
+
+                //
+                // Populate the SFF ingress and egress DPLs from the sffGraph
+                //
+                transportProcessor.processSffDpls();
+
+                //
+                // Internally calculate and set the RSP transport values
+                //
+                transportProcessor.setRspTransports();
+
+                sfcOfProviderUtils.setSffGraph(rsp, sffGraph);
+            } else {
+                transportProcessor = getTransportProcessor(sffGraph, rsp);
+            }
+            long graphNanos = System.nanoTime();
 
             //
             // Now process the entries in the SFF Graph and populate the flow tables
             //
+            sfcOfFlowProgrammer.setFlowRspId(rsp.getPathId());
             SffGraph.SffGraphEntry entry = null;
             Iterator<SffGraph.SffGraphEntry> sffGraphIter = sffGraph.getGraphEntryIterator();
             while (sffGraphIter.hasNext()) {
                 entry = sffGraphIter.next();
                 LOG.debug("build flows of entry: {}", entry);
 
-                // The flows created by initializeSff dont belong to any particular RSP
-                sfcOfFlowProgrammer.setFlowRspId(SFC_FLOWS);
+                // The flows created by initializeSff are shared with the other RSPs of the SFF
                 initializeSff(entry);
-                sfcOfFlowProgrammer.setFlowRspId(rsp.getPathId());
 
                 configureTransportIngressFlows(entry, sffGraph, transportProcessor);
                 configurePathMapperFlows(entry, sffGraph, transportProcessor);
                 configureNextHopFlows(entry, sffGraph, transportProcessor);
                 configureTransportEgressFlows(entry, sffGraph, transportProcessor);
             }
+            long flowsNanos = System.nanoTime();
 
             // Flush the flows to the data store
             this.sfcOfFlowProgrammer.flushFlows();
+            SfcOfRendererMetrics.getInstance().rspRendered(startNanos, graphNanos, flowsNanos, System.nanoTime());
 
             LOG.info("Processing complete for RSP: name [{}] Id [{}]", rsp.getName(), rsp.getPathId());
 
@@ -116,7 +163,7 @@ public class SfcOfRspProcessor {
         } finally {
             // If there were any errors, purge any remaining flows so they're not written
             this.sfcOfFlowProgrammer.purgeFlows();
-            sfcSynchronizer.unlock();
+            sfcSynchronizer.unlockShared();
             sfcOfProviderUtils.removeRsp(rsp.getPathId());
         }
     }
@@ -127,10 +174,86 @@ public class SfcOfRspProcessor {
      * @param rsp - the Rendered Service Path to delete
      */
     public void deleteRenderedServicePath(RenderedServicePath rsp) {
-        Set<NodeId> clearedSffNodeIDs = sfcOfFlowProgrammer.deleteRspFlows(rsp.getPathId());
-        for(NodeId sffNodeId : clearedSffNodeIDs){
-            setSffInitialized(sffNodeId, false);
+        // Deleting the last RSP of a SFF also deletes the SFF initialization
+        // flows, so no RSP can be processed at the same time
+        try {
+            sfcSynchronizer.lock();
+            sfcOfFlowProgrammer.deleteRspFlows(rsp.getPathId());
+            sfcOfProviderUtils.deleteRsp(rsp.getPathId());
+            labelAllocator.free(rsp.getPathId());
+        } finally {
+            sfcSynchronizer.unlock();
+        }
+    }
+
+    /**
+     * Reconciles the OpenFlow flows of the given SFFs, for instance when
+     * they connect or when the controller restarts. The flows of the RSPs
+     * with a hop on the given SFFs are created again, and only the flows of
+     * the given SFFs that differ from their flows in the inventory are
+     * written or deleted.
+     *
+     * @param sffNodeNames - node names of the SFFs to reconcile
+     * @param rsps - the Rendered Service Paths, only the ones using the SFFs are rendered
+     * @return per SFF node name, a future completed with true once its flows are reconciled
+     */
+    public Map<String, ListenableFuture<Boolean>> reconcileSffs(Set<String> sffNodeNames,
+            List<RenderedServicePath> rsps) {
+        // The stored flows of the SFFs are replaced, so no RSP
+        // can be processed at the same time
+        try {
+            sfcSynchronizer.lock();
+            // The switches may have restarted, with different port numbers
+            sfcOfProviderUtils.invalidatePortNumbers();
+            // The RSPs deleted while the renderer wasn't running still have stored flows
+            Set<Long> rspIds = new HashSet<Long>();
+            for (RenderedServicePath rsp : rsps) {
+                rspIds.add(rsp.getPathId());
+            }
+            sfcOfFlowProgrammer.deleteStaleRspFlows(rspIds);
+            labelAllocator.freeStaleRsps(rspIds);
+            List<RenderedServicePath> sffRsps = getRspsOfSffs(sffNodeNames, rsps);
+            LOG.info("reconcileSffs: rendering {} of {} RSPs for SFFs {}", sffRsps.size(), rsps.size(),
+                    sffNodeNames);
+            sfcOfFlowProgrammer.startReconciliation(sffNodeNames);
+            for (RenderedServicePath rsp : sffRsps) {
+                processRenderedServicePath(rsp);
+            }
+            return sfcOfFlowProgrammer.reconcileFlows();
+        } finally {
+            sfcSynchronizer.unlock();
+        }
+    }
+
+    /**
+     * Get the RSPs with at least one hop on the given SFFs.
+     *
+     * @param sffNodeNames - node names of the SFFs
+     * @param rsps - the Rendered Service Paths to filter
+     * @return the Rendered Service Paths using the SFFs
+     */
+    private List<RenderedServicePath> getRspsOfSffs(Set<String> sffNodeNames, List<RenderedServicePath> rsps) {
+        List<RenderedServicePath> sffRsps = new ArrayList<RenderedServicePath>();
+        for (RenderedServicePath rsp : rsps) {
+            if (rsp.getRenderedServicePathHop() == null) {
+                continue;
+            }
+            // The SFFs read here are kept in the RSP context for its rendering
+            sfcOfProviderUtils.addRsp(rsp.getPathId());
+            try {
+                for (RenderedServicePathHop hop : rsp.getRenderedServicePathHop()) {
+                    String sffNodeName = sfcOfProviderUtils.getSffOpenFlowNodeName(
+                            hop.getServiceFunctionForwarder(), rsp.getPathId());
+                    if (sffNodeName != null && sffNodeNames.contains(sffNodeName)) {
+                        sffRsps.add(rsp);
+                        break;
+                    }
+                }
+            } finally {
+                sfcOfProviderUtils.removeRsp(rsp.getPathId());
+            }
         }
+        return sffRsps;
     }
 
     /**
@@ -151,6 +274,7 @@ public class SfcOfRspProcessor {
             transportProcessor.setRsp(rsp);
             transportProcessor.setSffGraph(sffGraph);
             transportProcessor.setSfcProviderUtils(sfcOfProviderUtils);
+            transportProcessor.setLabelAllocator(labelAllocator);
 
             return transportProcessor;
         } catch(Exception e) {
@@ -408,52 +532,13 @@ public class SfcOfRspProcessor {
             throw new RuntimeException("initializeSff SFF [" + entry.getDstSff().getValue() + "] does not exist");
         }
 
-        NodeId sffNodeId = new NodeId(sffNodeName);
-        if (!getSffInitialized(sffNodeId)) {
-            LOG.debug("Initializing SFF [{}] node [{}]", entry.getDstSff().getValue(), sffNodeName);
-            this.sfcOfFlowProgrammer.configureClassifierTableMatchAny(sffNodeName);
-            this.sfcOfFlowProgrammer.configureTransportIngressTableMatchAny(sffNodeName);
-            this.sfcOfFlowProgrammer.configurePathMapperTableMatchAny(sffNodeName);
-            this.sfcOfFlowProgrammer.configurePathMapperAclTableMatchAny(sffNodeName);
-            this.sfcOfFlowProgrammer.configureNextHopTableMatchAny(sffNodeName);
-            this.sfcOfFlowProgrammer.configureTransportEgressTableMatchAny(sffNodeName);
-
-            setSffInitialized(sffNodeId, true);
-        }
-    }
-
-
-    //
-    // Internal util methods
-    //
-
-
-    /**
-     * Given an SFF name, determine if its been initialized yet or not.
-     * Called by initializeSff()
-     *
-     * @param sffName - SFF to check
-     * @return true if its been initialized, false otherwise
-     */
-    private boolean getSffInitialized(final NodeId sffNodeId) {
-        Boolean isInitialized = sffInitialized.get(sffNodeId);
-
-        if (isInitialized == null) {
-            return false;
-        }
-
-        return isInitialized.booleanValue();
-    }
-
-    /**
-     * Set a given SFF as initialized.
-     * Called by initializeSff()
-     *
-     * @param sffName - the SFF to set
-     * @param initialized - boolean value to set the SFF as
-     */
-    private void setSffInitialized(final NodeId sffNodeId, boolean initialized) {
-        // If the value is already in the map, its value will be replaced
-        sffInitialized.put(new NodeId(sffNodeId), initialized);
+        // The flows are only written if no other RSP of the SFF wrote them yet
+        LOG.debug("Initializing SFF [{}] node [{}]", entry.getDstSff().getValue(), sffNodeName);
+        this.sfcOfFlowProgrammer.configureClassifierTableMatchAny(sffNodeName);
+        this.sfcOfFlowProgrammer.configureTransportIngressTableMatchAny(sffNodeName);
+        this.sfcOfFlowProgrammer.configurePathMapperTableMatchAny(sffNodeName);
+        this.sfcOfFlowProgrammer.configurePathMapperAclTableMatchAny(sffNodeName);
+        this.sfcOfFlowProgrammer.configureNextHopTableMatchAny(sffNodeName);
+        this.sfcOfFlowProgrammer.configureTransportEgressTableMatchAny(sffNodeName);
     }
 }
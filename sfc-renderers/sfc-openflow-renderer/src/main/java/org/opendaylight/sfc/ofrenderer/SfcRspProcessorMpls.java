@@ -23,7 +23,6 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev14070
 public class SfcRspProcessorMpls extends SfcRspTransportProcessorBase {
     private static final int MPLS_LABEL_INCR_HOP = 1;
     private static final int MPLS_LABEL_INCR_RSP = 100;
-    private static int lastMplsLabel;
 
     /**
      * Set the RSP path egress DPL and SFF Hop Ingress DPLs for the VLAN transport type.
@@ -31,8 +30,7 @@ public class SfcRspProcessorMpls extends SfcRspTransportProcessorBase {
     @Override
     public void setRspTransports() {
         int hopIncrement = MPLS_LABEL_INCR_HOP;
-        int transportData = lastMplsLabel + MPLS_LABEL_INCR_RSP;
-        lastMplsLabel = transportData;
+        int transportData = getRspFirstLabel(SfcOfRspLabelAllocator.LabelSpace.MPLS_LABEL, MPLS_LABEL_INCR_RSP);
 
         Iterator<SffGraph.SffGraphEntry> sffGraphIter = sffGraph.getGraphEntryIterator();
         while (sffGraphIter.hasNext()) {
@@ -22,7 +22,6 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev14070
 public class SfcRspProcessorVlan extends SfcRspTransportProcessorBase {
     private static final int VLAN_ID_INCR_HOP = 1;
     private static final int VLAN_ID_INCR_RSP = 100;
-    private static int lastVlanId = 0;
 
     /**
      * Set the RSP path egress DPL and SFF Hop Ingress DPLs for the VLAN transport type.
@@ -30,8 +29,7 @@ public class SfcRspProcessorVlan extends SfcRspTransportProcessorBase {
     @Override
     public void setRspTransports() {
         int hopIncrement = VLAN_ID_INCR_HOP;
-        int transportData = lastVlanId + VLAN_ID_INCR_RSP;
-        lastVlanId = transportData;
+        int transportData = getRspFirstLabel(SfcOfRspLabelAllocator.LabelSpace.VLAN_ID, VLAN_ID_INCR_RSP);
 
         Iterator<SffGraph.SffGraphEntry> sffGraphIter = sffGraph.getGraphEntryIterator();
         while (sffGraphIter.hasNext()) {
@@ -31,6 +31,7 @@ public abstract class SfcRspTransportProcessorBase {
     protected SfcOfBaseProviderUtils sfcProviderUtils;
     protected RenderedServicePath rsp;
     protected SffGraph sffGraph;
+    protected SfcOfRspLabelAllocator labelAllocator;
 
     private static final String FUNCTION = "function";
     private static final String IP = "ip";
@@ -56,6 +57,21 @@ public abstract class SfcRspTransportProcessorBase {
         this.sffGraph = sffGraph;
     }
 
+    /**
+     * Get the first transport label of the RSP, such as a VLAN ID or MPLS label.
+     * The RSP keeps the slot of its labels until it is deleted, so a RSP
+     * rendered again, after an update or a restart, gets the same labels on
+     * all its SFFs, and no other RSP gets them.
+     *
+     * @param labelSpace - the label space of the RSP transport
+     * @param rspIncrement - the labels reserved per RSP
+     * @return the first label of the RSP, the next hops take the next ones
+     * @throws IllegalStateException if the label space has no slot left
+     */
+    protected int getRspFirstLabel(SfcOfRspLabelAllocator.LabelSpace labelSpace, int rspIncrement) {
+        return rspIncrement * (1 + labelAllocator.allocate(labelSpace, rsp.getPathId()));
+    }
+
     //
     // Dependency injectors
     //
@@ -76,6 +92,10 @@ public abstract class SfcRspTransportProcessorBase {
         this.sffGraph = sffGraph;
     }
 
+    public void setLabelAllocator(SfcOfRspLabelAllocator labelAllocator) {
+        this.labelAllocator = labelAllocator;
+    }
+
     //
     // Abstract Flow programming methods
     //
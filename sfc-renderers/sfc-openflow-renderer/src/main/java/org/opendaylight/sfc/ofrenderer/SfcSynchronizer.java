@@ -8,43 +8,61 @@
 
 package org.opendaylight.sfc.ofrenderer;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * A simple synchronization class used to synchronize different events in SFC.
- * Encapsulates the usage of a ReentrantLock.
+ * Encapsulates the usage of a ReentrantReadWriteLock: events that can run
+ * concurrently, like rendering different RSPs, share the lock, and events
+ * that must run alone lock it exclusively.
  *
  * @author ebrjohn
  *
  */
 public class SfcSynchronizer {
-    private ReentrantLock lock;
+    private ReentrantReadWriteLock lock;
 
     public SfcSynchronizer() {
-        lock = new ReentrantLock();
+        lock = new ReentrantReadWriteLock();
     }
 
     /**
-     * To be called by threads that need to lock.
+     * To be called by threads that need to lock exclusively.
      * This is a blocking call.
      */
     public void lock() {
-        lock.lock();
+        lock.writeLock().lock();
+    }
+
+    /**
+     * To be called by threads that can run concurrently with each
+     * other, but not with threads holding the exclusive lock.
+     * This is a blocking call.
+     */
+    public void lockShared() {
+        lock.readLock().lock();
     }
 
     /**
      * Query if the lock is available
      *
-     * @return true if no threads are waiting on the lock, false otherwise
+     * @return true if the lock is held, exclusively or shared, false otherwise
      */
     public boolean isLocked() {
-        return lock.isLocked();
+        return lock.isWriteLocked() || lock.getReadLockCount() > 0;
     }
 
     /**
-     * Release the lock
+     * Release the exclusive lock
      */
     public void unlock() {
-        lock.unlock();
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * Release the shared lock
+     */
+    public void unlockShared() {
+        lock.readLock().unlock();
     }
 }
@@ -9,11 +9,19 @@
 package org.opendaylight.sfc.ofrenderer.openflow;
 
 import java.math.BigInteger;
-import java.net.InetAddress;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026.match.Metadata;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.packet.service.rev130709.PacketProcessingListener;
@@ -37,6 +45,14 @@ import org.slf4j.LoggerFactory;
  * unless we add the above rules. Upon receiving a TCP Syn from the client, the SF will
  * establish a connection with the client (send TCP SynAck to client), and then establish
  * a separate connection with the server (send TCP Syn to server).
+ *
+ * Every packet sent to the SF is a PktIn, so the src/dst IPs already processed are
+ * buffered. The buffered packets are checked without allocating, keyed by both IPv4
+ * addresses in a long, and expire through a hashed timing wheel. The handler may be
+ * called concurrently by several PktIn threads.
+ *
+ * The PktIns of each SFF are limited by a token bucket, so a SFF flooding new flows
+ * can't starve the others, and the ACL flows are written in micro-batches.
  */
 
 public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoCloseable {
@@ -46,30 +62,118 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
     private final static int PACKET_OFFSET_IP = 14;
     private final static int PACKET_OFFSET_IP_SRC = PACKET_OFFSET_IP+12;
     private final static int PACKET_OFFSET_IP_DST = PACKET_OFFSET_IP+16;
+    private final static int PACKET_MIN_LENGTH = PACKET_OFFSET_IP_DST+4;
     public  final static int ETHERTYPE_IPV4 = 0x0800;
-    private final static int DEFAULT_MAX_BUFFER_TIME = 60000; // 60 milliseconds
+    private final static int DEFAULT_MAX_BUFFER_TIME = 60000; // 60 seconds
     private final static int DEFAULT_PACKET_COUNT_PURGE = 100;
+    // Both must be powers of 2
+    private final static int BUFFER_SEGMENTS = 16;
+    private final static int WHEEL_SLOTS = 64;
+    private final static int DEFAULT_SFF_PACKET_RATE = 100; // packets per second
+    private final static int DEFAULT_SFF_PACKET_BURST = 200;
+    public  final static int DEFAULT_ACL_FLUSH_INTERVAL = 5; // 5 milliseconds
+    private final static int MAX_QUEUED_ACL_FLOWS = 10000;
 
     private SfcOfFlowProgrammerImpl flowProgrammer;
-    private Map<String, Long> pktInBuffer;
-    private int maxBufferTime;
-    private int packetCountPurge;
-    private int packetCount;
+    // The time each src/dst IP pair was processed, in segments locked separately
+    private final PktInBufferSegment[] pktInBuffer;
+    // The buffered src/dst IP pairs by the wheel tick they expire on
+    private final WheelSlot[] timingWheel;
+    private volatile int maxBufferTime;
+    private volatile long wheelTickMillis;
+    private volatile int packetCountPurge;
+    private final AtomicInteger packetCount;
+    // Only one thread purges the buffer at a time, up to lastPurgedTick
+    private final AtomicBoolean purging;
+    private long lastPurgedTick;
+
+    // The PktIns admitted per SFF
+    private final ConcurrentMap<String, TokenBucket> sffTokenBuckets;
+    private volatile int sffPacketRate;
+    private volatile int sffPacketBurst;
+    // The ACL flows to write on the next flush
+    private final Queue<PendingAclFlow> pendingAclFlows;
+    private final AtomicInteger queuedAclFlowCount;
+    private final AtomicLong droppedPacketCount;
+    private final ScheduledExecutorService aclFlushExecutor;
 
     public SfcIpv4PacketInHandler(SfcOfFlowProgrammerImpl flowProgrammer) {
+        this(flowProgrammer, DEFAULT_ACL_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Create a PktIn handler writing the ACL flows every aclFlushInterval milliseconds.
+     *
+     * @param flowProgrammer the flow programmer writing the ACL flows
+     * @param aclFlushInterval the flush interval in milliseconds, if 0 the ACL
+     *     flows are only written when flushAclFlows() is called
+     */
+    public SfcIpv4PacketInHandler(SfcOfFlowProgrammerImpl flowProgrammer, int aclFlushInterval) {
         this.flowProgrammer = flowProgrammer;
-        pktInBuffer = new HashMap<String, Long>();
-        maxBufferTime = DEFAULT_MAX_BUFFER_TIME;
+        pktInBuffer = new PktInBufferSegment[BUFFER_SEGMENTS];
+        for (int i = 0; i < BUFFER_SEGMENTS; i++) {
+            pktInBuffer[i] = new PktInBufferSegment();
+        }
+        timingWheel = new WheelSlot[WHEEL_SLOTS];
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            timingWheel[i] = new WheelSlot();
+        }
         packetCountPurge = DEFAULT_PACKET_COUNT_PURGE;
-        packetCount = 0;
+        packetCount = new AtomicInteger(0);
+        purging = new AtomicBoolean(false);
+        setMaxBufferTime(DEFAULT_MAX_BUFFER_TIME);
+
+        sffTokenBuckets = new ConcurrentHashMap<String, TokenBucket>();
+        sffPacketRate = DEFAULT_SFF_PACKET_RATE;
+        sffPacketBurst = DEFAULT_SFF_PACKET_BURST;
+        pendingAclFlows = new ConcurrentLinkedQueue<PendingAclFlow>();
+        queuedAclFlowCount = new AtomicInteger(0);
+        droppedPacketCount = new AtomicLong(0);
+        if (aclFlushInterval > 0) {
+            aclFlushExecutor = Executors.newSingleThreadScheduledExecutor();
+            aclFlushExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        flushAclFlows();
+                    } catch (Exception e) {
+                        // An exception would cancel the next flushes
+                        LOG.error("SfcIpv4PacketInHandler failed to flush ACL flows", e);
+                    }
+                }
+            }, aclFlushInterval, aclFlushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            aclFlushExecutor = null;
+        }
     }
 
     public int getMaxBufferTime() {
         return maxBufferTime;
     }
 
+    /**
+     * Set how long a processed src/dst IP pair is buffered. The wheel ticks
+     * depend on it, so the currently buffered packets are forgotten.
+     *
+     * @param maxBufferTime the buffer time in milliseconds
+     */
     public void setMaxBufferTime(int maxBufferTime) {
-        this.maxBufferTime = maxBufferTime;
+        while (!purging.compareAndSet(false, true)) {
+            Thread.yield();
+        }
+        try {
+            this.maxBufferTime = maxBufferTime;
+            this.wheelTickMillis = Math.max(1, maxBufferTime / WHEEL_SLOTS);
+            for (PktInBufferSegment segment : pktInBuffer) {
+                segment.clear();
+            }
+            for (WheelSlot slot : timingWheel) {
+                slot.clear();
+            }
+            lastPurgedTick = System.currentTimeMillis() / wheelTickMillis - 1;
+        } finally {
+            purging.set(false);
+        }
     }
 
     public int getPacketCountPurge() {
@@ -80,8 +184,53 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         this.packetCountPurge = packetCountPurge;
     }
 
+    public int getSffPacketRate() {
+        return sffPacketRate;
+    }
+
+    /**
+     * Set how many PktIns per second are admitted per SFF.
+     *
+     * @param sffPacketRate the sustained packet rate
+     */
+    public void setSffPacketRate(int sffPacketRate) {
+        this.sffPacketRate = sffPacketRate;
+    }
+
+    public int getSffPacketBurst() {
+        return sffPacketBurst;
+    }
+
+    /**
+     * Set how many PktIns a SFF can send at once above its rate.
+     *
+     * @param sffPacketBurst the token bucket size
+     */
+    public void setSffPacketBurst(int sffPacketBurst) {
+        this.sffPacketBurst = sffPacketBurst;
+    }
+
+    /**
+     * The number of PktIns dropped since the handler was created, because
+     * their SFF exceeded its rate or too many ACL flows were queued.
+     */
+    public long getDroppedPacketCount() {
+        return droppedPacketCount.get();
+    }
+
+    /**
+     * The number of ACL flows waiting for the next flush.
+     */
+    public int getQueuedAclFlowCount() {
+        return queuedAclFlowCount.get();
+    }
+
     public int getBufferSize() {
-        return pktInBuffer.size();
+        int size = 0;
+        for (PktInBufferSegment segment : pktInBuffer) {
+            size += segment.size();
+        }
+        return size;
     }
 
     /**
@@ -95,9 +244,8 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
             return;
         }
 
-        ++packetCount;
-        if(packetCount > packetCountPurge) {
-            packetCount = 0;
+        if(packetCount.incrementAndGet() > packetCountPurge) {
+            packetCount.set(0);
             purgePktInBuffer();
         }
 
@@ -110,6 +258,10 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         // TODO figure out how to get the IDataPacketService which will parse the packet for us
 
         final byte[] rawPacket = packetIn.getPayload();
+        if(rawPacket == null || rawPacket.length < PACKET_MIN_LENGTH) {
+            LOG.debug("SfcIpv4PacketInHandler discarding truncated packet");
+            return;
+        }
 
         // Get the EtherType and check that its an IP packet
         if(getEtherType(rawPacket) != ETHERTYPE_IPV4) {
@@ -118,22 +270,13 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         }
 
         // Get the SrcIp and DstIp Addresses
-        String pktSrcIpStr = getSrcIpStr(rawPacket);
-        if(pktSrcIpStr == null) {
-            LOG.error("SfcIpv4PacketInHandler Cant get Src IP address, discarding packet");
-            return;
-        }
-
-        String pktDstIpStr = getDstIpStr(rawPacket);
-        if(pktDstIpStr == null) {
-            LOG.error("SfcIpv4PacketInHandler Cant get Src IP address, discarding packet");
-            return;
-        }
+        final int pktSrcIp = getIpv4Address(rawPacket, PACKET_OFFSET_IP_SRC);
+        final int pktDstIp = getIpv4Address(rawPacket, PACKET_OFFSET_IP_DST);
 
         // Since all packets sent to SF are PktIn, only need to handle the first one
         // In OpenFlow 1.5 we'll be able to do the PktIn on TCP Syn only
-        if(bufferPktIn(pktSrcIpStr, pktDstIpStr)) {
-            LOG.info("SfcIpv4PacketInHandler PacketIn buffered");
+        if(bufferPktIn(pktSrcIp, pktDstIp)) {
+            LOG.debug("SfcIpv4PacketInHandler PacketIn buffered");
             return;
         }
         LOG.info("SfcIpv4PacketInHandler PacketIn NOT buffered");
@@ -155,9 +298,6 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         // Assuming the RSP is symmetric
         short dlPathId = (short) (ulPathId + 1);
 
-        LOG.info("SfcIpv4PacketInHandler Src IP [{}] Dst IP [{}] ulPathId [{}] dlPathId [{}]",
-                pktSrcIpStr, pktDstIpStr, ulPathId, dlPathId);
-
         // Get the Node name, by getting the following
         // - Ingress nodeConnectorRef
         // - instanceID for the Node in the tree above us
@@ -168,21 +308,69 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
                 .firstKeyOf(Node.class, NodeKey.class)
                 .getId().getValue();
 
-        // Configure the uplink packet
-        if(ulPathId >= 0) {
-            this.flowProgrammer.setFlowRspId(new Long(ulPathId));
-            this.flowProgrammer.configurePathMapperAclFlow(nodeName, pktSrcIpStr, pktDstIpStr, ulPathId);
+        // Dropped packets are not buffered, so the next one is processed
+        if(!admitPktIn(nodeName)) {
+            unbufferPktIn(pktSrcIp, pktDstIp);
+            droppedPacketCount.incrementAndGet();
+            LOG.debug("SfcIpv4PacketInHandler SFF [{}] exceeded its PacketIn rate, discarding packet", nodeName);
+            return;
+        }
+        if(queuedAclFlowCount.incrementAndGet() > MAX_QUEUED_ACL_FLOWS) {
+            queuedAclFlowCount.decrementAndGet();
+            unbufferPktIn(pktSrcIp, pktDstIp);
+            droppedPacketCount.incrementAndGet();
+            LOG.debug("SfcIpv4PacketInHandler too many ACL flows queued, discarding packet");
+            return;
         }
 
-        // Configure the downlink packet
-        if(dlPathId >= 0) {
-            this.flowProgrammer.setFlowRspId(new Long(dlPathId));
-            this.flowProgrammer.configurePathMapperAclFlow(nodeName, pktDstIpStr, pktSrcIpStr, dlPathId);
+        // The flows are written on the next flush, with the other queued flows
+        pendingAclFlows.add(new PendingAclFlow(nodeName, pktSrcIp, pktDstIp, ulPathId, dlPathId));
+    }
+
+    /**
+     * Write the queued ACL flows, in a single transaction per SFF. The
+     * same flows queued several times are only written once.
+     */
+    public synchronized void flushAclFlows() {
+        Set<PendingAclFlow> aclFlows = new LinkedHashSet<PendingAclFlow>();
+        PendingAclFlow aclFlow;
+        while ((aclFlow = pendingAclFlows.poll()) != null) {
+            queuedAclFlowCount.decrementAndGet();
+            aclFlows.add(aclFlow);
         }
+        if (aclFlows.isEmpty()) {
+            return;
+        }
+
+        for (PendingAclFlow f : aclFlows) {
+            String pktSrcIpStr = getIpv4AddressStr(f.srcIp);
+            String pktDstIpStr = getIpv4AddressStr(f.dstIp);
+
+            LOG.info("SfcIpv4PacketInHandler Src IP [{}] Dst IP [{}] ulPathId [{}] dlPathId [{}]",
+                    pktSrcIpStr, pktDstIpStr, f.ulPathId, f.dlPathId);
+
+            // Configure the uplink packet
+            if(f.ulPathId >= 0) {
+                this.flowProgrammer.setFlowRspId(new Long(f.ulPathId));
+                this.flowProgrammer.configurePathMapperAclFlow(f.nodeName, pktSrcIpStr, pktDstIpStr, f.ulPathId);
+            }
+
+            // Configure the downlink packet
+            if(f.dlPathId >= 0) {
+                this.flowProgrammer.setFlowRspId(new Long(f.dlPathId));
+                this.flowProgrammer.configurePathMapperAclFlow(f.nodeName, pktDstIpStr, pktSrcIpStr, f.dlPathId);
+            }
+        }
+
+        // The flows are buffered per thread, they're not written with the next RSP
+        this.flowProgrammer.flushFlows();
     }
 
     @Override
     public void close() throws Exception {
+        if (aclFlushExecutor != null) {
+            aclFlushExecutor.shutdown();
+        }
     }
 
     /**
@@ -191,106 +379,335 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
      * @param rawPacket
      * @return etherType
      */
-    private short getEtherType(final byte[] rawPacket) {
-        final byte[] etherTypeBytes = Arrays.copyOfRange(rawPacket, PACKET_OFFSET_ETHERTYPE, PACKET_OFFSET_ETHERTYPE+2);
-        return packShort(etherTypeBytes);
+    private int getEtherType(final byte[] rawPacket) {
+        return ((rawPacket[PACKET_OFFSET_ETHERTYPE] & 0xff) << 8) | (rawPacket[PACKET_OFFSET_ETHERTYPE+1] & 0xff);
     }
 
     /**
-     * Given a raw packet, return the SrcIp
+     * Given a raw packet, return the IPv4 address at the given offset
      *
      * @param rawPacket
-     * @return srcIp String
+     * @param offset
+     * @return the IPv4 address packed into an int
      */
-    private String getSrcIpStr(final byte[] rawPacket) {
-        final byte[] ipSrcBytes = Arrays.copyOfRange(rawPacket, PACKET_OFFSET_IP_SRC, PACKET_OFFSET_IP_SRC+4);
-        String pktSrcIpStr = null;
-        try {
-            pktSrcIpStr = InetAddress.getByAddress(ipSrcBytes).getHostAddress();
-        } catch(Exception e) {
-            LOG.error("Exception getting Src IP address [{}]", e.getMessage(), e);
+    private int getIpv4Address(final byte[] rawPacket, int offset) {
+        return ((rawPacket[offset] & 0xff) << 24)
+                | ((rawPacket[offset+1] & 0xff) << 16)
+                | ((rawPacket[offset+2] & 0xff) << 8)
+                | (rawPacket[offset+3] & 0xff);
+    }
+
+    /**
+     * Given an IPv4 address packed into an int, return its dotted String
+     *
+     * @param ipAddress
+     * @return ipAddress String
+     */
+    private String getIpv4AddressStr(int ipAddress) {
+        return new StringBuilder(15)
+                .append(ipAddress >>> 24).append('.')
+                .append((ipAddress >>> 16) & 0xff).append('.')
+                .append((ipAddress >>> 8) & 0xff).append('.')
+                .append(ipAddress & 0xff)
+                .toString();
+    }
+
+    /**
+     * Decide if packets with the same src/dst IP have already been processed.
+     * If they havent been processed, store the IPs so they will be considered processed.
+     *
+     * @param srcIp
+     * @param dstIp
+     * @return True if the src/dst IP has already been processed, False otherwise
+     */
+    private boolean bufferPktIn(final int srcIp, final int dstIp) {
+        long key = ((long) srcIp << 32) | (dstIp & 0xffffffffL);
+        long currentMillis = System.currentTimeMillis();
+        int bufferTime = maxBufferTime;
+
+        if(!getSegment(key).putIfExpired(key, currentMillis, bufferTime)) {
+            return true;
         }
 
-        return pktSrcIpStr;
+        // The entry is new or was old, so it expires maxBufferTime from now
+        long expiryTick = (currentMillis + bufferTime) / wheelTickMillis;
+        timingWheel[(int) (expiryTick & (WHEEL_SLOTS - 1))].add(key);
+        return false;
     }
 
     /**
-     * Given a raw packet, return the DstIp
+     * Forget a processed src/dst IP, so the next packet with them is processed again.
      *
-     * @param rawPacket
-     * @return dstIp String
+     * @param srcIp
+     * @param dstIp
      */
-    private String getDstIpStr(final byte[] rawPacket) {
-        final byte[] ipDstBytes = Arrays.copyOfRange(rawPacket, PACKET_OFFSET_IP_DST, PACKET_OFFSET_IP_DST+4);
-        String pktDstIpStr = null;
+    private void unbufferPktIn(final int srcIp, final int dstIp) {
+        long key = ((long) srcIp << 32) | (dstIp & 0xffffffffL);
+        getSegment(key).remove(key);
+    }
+
+    /**
+     * Decide if a PktIn of the given SFF is within the SFF packet rate.
+     *
+     * @param nodeName
+     * @return True if the packet can be processed, False if it must be dropped
+     */
+    private boolean admitPktIn(final String nodeName) {
+        TokenBucket tokenBucket = sffTokenBuckets.get(nodeName);
+        if (tokenBucket == null) {
+            tokenBucket = new TokenBucket(sffPacketBurst);
+            TokenBucket existing = sffTokenBuckets.putIfAbsent(nodeName, tokenBucket);
+            if (existing != null) {
+                tokenBucket = existing;
+            }
+        }
+        return tokenBucket.tryAcquire(System.nanoTime(), sffPacketRate, sffPacketBurst);
+    }
+
+    /**
+     * Purge packets that have been in the PktIn buffer too long. Only the wheel
+     * slots of the ticks elapsed since the last purge are checked.
+     */
+    private void purgePktInBuffer() {
+        if (!purging.compareAndSet(false, true)) {
+            // Another thread is already purging
+            return;
+        }
         try {
-            pktDstIpStr = InetAddress.getByAddress(ipDstBytes).getHostAddress();
-        } catch(Exception e) {
-            LOG.error("Exception getting Dst IP address [{}]", e.getMessage(), e);
+            long currentMillis = System.currentTimeMillis();
+            long tickMillis = wheelTickMillis;
+            int bufferTime = maxBufferTime;
+            // Only the ticks that are over, every entry expiring on them has expired
+            long lastTick = currentMillis / tickMillis - 1;
+            long firstTick = Math.max(lastPurgedTick + 1, lastTick - WHEEL_SLOTS + 1);
+            for (long tick = firstTick; tick <= lastTick; tick++) {
+                int slotIndex = (int) (tick & (WHEEL_SLOTS - 1));
+                timingWheel[slotIndex].expire(slotIndex, currentMillis, bufferTime, tickMillis);
+            }
+            lastPurgedTick = Math.max(lastPurgedTick, lastTick);
+        } finally {
+            purging.set(false);
         }
+    }
+
+    private PktInBufferSegment getSegment(long key) {
+        return pktInBuffer[(int) (mix(key) >>> 32) & (BUFFER_SEGMENTS - 1)];
+    }
 
-        return pktDstIpStr;
+    // The finalizer of MurmurHash3, the IP addresses of a subnet only differ in their last bits
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
     }
 
     /**
-     * Simple internal utility function to convert from a 2-byte array to a short
-     *
-     * @param bytes
-     * @return the bytes packed into a short
+     * An open addressing hash table from the src/dst IP key to the time
+     * the packet was processed, with linear probing.
      */
-    private short packShort(byte[] bytes) {
-        short val = (short) 0;
-        for (int i = 0; i < 2; i++) {
-          val <<= 8;
-          val |= bytes[i] & 0xff;
+    private static class PktInBufferSegment {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] times = new long[INITIAL_CAPACITY];
+        private boolean[] used = new boolean[INITIAL_CAPACITY];
+        private int size = 0;
+
+        /**
+         * Store the time of a key if it isn't stored yet or has expired.
+         *
+         * @return True if the time was stored, False if the key was still buffered
+         */
+        public synchronized boolean putIfExpired(long key, long currentMillis, int maxBufferTime) {
+            int index = indexOf(key);
+            if (used[index]) {
+                if (currentMillis - times[index] <= maxBufferTime) {
+                    return false;
+                }
+                times[index] = currentMillis;
+                return true;
+            }
+
+            keys[index] = key;
+            times[index] = currentMillis;
+            used[index] = true;
+            if (++size > keys.length / 2) {
+                resize();
+            }
+            return true;
         }
 
-        return val;
+        /**
+         * Remove a key if it has expired.
+         *
+         * @return the time of the key if it is still buffered, -1 otherwise
+         */
+        public synchronized long removeIfExpired(long key, long currentMillis, int maxBufferTime) {
+            int index = indexOf(key);
+            if (!used[index]) {
+                return -1;
+            }
+            if (currentMillis - times[index] <= maxBufferTime) {
+                return times[index];
+            }
+            remove(index);
+            return -1;
+        }
+
+        public synchronized void remove(long key) {
+            int index = indexOf(key);
+            if (used[index]) {
+                remove(index);
+            }
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        public synchronized void clear() {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            while (used[index] && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        // Shift back the following entries, so no probe sequence is broken
+        private void remove(int index) {
+            int mask = keys.length - 1;
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (used[next]) {
+                int home = (int) mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    times[hole] = times[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[hole] = false;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldTimes = times;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            times = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int index = indexOf(oldKeys[i]);
+                    keys[index] = oldKeys[i];
+                    times[index] = oldTimes[i];
+                    used[index] = true;
+                }
+            }
+        }
     }
 
     /**
-     * Decide if packets with the same src/dst IP have already been processed.
-     * If they havent been processed, store the IPs so they will be considered processed.
-     *
-     * @param srcIpStr
-     * @param dstIpStr
-     * @return True if the src/dst IP has already been processed, False otherwise
+     * The keys expiring on the ticks of one slot of the timing wheel. A key
+     * whose packet is processed again is added to the slot of its new expiry
+     * tick, and dropped from its previous slot when that slot is purged.
      */
-    private boolean bufferPktIn(final String srcIpStr, final String dstIpStr) {
-        String key = new StringBuilder().append(srcIpStr).append(dstIpStr).toString();
-        long currentMillis = System.currentTimeMillis();
+    private class WheelSlot {
+        private long[] keys = new long[16];
+        private int size = 0;
 
-        Long bufferedTime = pktInBuffer.get(key);
+        public synchronized void add(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = key;
+        }
 
-        // If the entry does not exist, add it and return false indicating the packet needs to be processed
-        if(bufferedTime == null) {
-            // Add the entry
-            pktInBuffer.put(key, new Long(currentMillis));
-            return false;
+        public synchronized void expire(int slotIndex, long currentMillis, int maxBufferTime, long tickMillis) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                long key = keys[i];
+                long bufferedTime = getSegment(key).removeIfExpired(key, currentMillis, maxBufferTime);
+                // Keep the keys still buffered that expire on a later round of this slot
+                if (bufferedTime >= 0
+                        && (((bufferedTime + maxBufferTime) / tickMillis) & (WHEEL_SLOTS - 1)) == slotIndex) {
+                    keys[kept++] = key;
+                }
+            }
+            size = kept;
         }
 
-        // If the entry is old, update it and return false indicating the packet needs to be processed
-        if((currentMillis - bufferedTime.longValue()) > maxBufferTime) {
-            // Update the entry
-            pktInBuffer.put(key, new Long(currentMillis));
-            return false;
+        public synchronized void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * The PktIns a SFF can still send. The bucket is refilled at the SFF
+     * packet rate, up to the SFF packet burst.
+     */
+    private static class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        public TokenBucket(int burst) {
+            this.tokens = burst;
+            this.lastRefillNanos = System.nanoTime();
         }
 
-        return true;
+        public synchronized boolean tryAcquire(long currentNanos, int rate, int burst) {
+            tokens = Math.min(burst, tokens + (currentNanos - lastRefillNanos) * rate / 1e9);
+            lastRefillNanos = currentNanos;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
     }
 
     /**
-     * Purge packets that have been in the PktIn buffer too long.
+     * The ACL flows to write for an admitted PktIn.
      */
-    private void purgePktInBuffer() {
-        long currentMillis = System.currentTimeMillis();
-        Set<String> keySet = pktInBuffer.keySet();
-        for(String key : keySet) {
-            Long bufferedTime = pktInBuffer.get(key);
-            if((currentMillis - bufferedTime.longValue()) > maxBufferTime) {
-                // This also removes the entry from the pktInBuffer map and doesnt invalidate iteration
-                keySet.remove(key);
+    private static class PendingAclFlow {
+        private final String nodeName;
+        private final int srcIp;
+        private final int dstIp;
+        private final short ulPathId;
+        private final short dlPathId;
+
+        public PendingAclFlow(String nodeName, int srcIp, int dstIp, short ulPathId, short dlPathId) {
+            this.nodeName = nodeName;
+            this.srcIp = srcIp;
+            this.dstIp = dstIp;
+            this.ulPathId = ulPathId;
+            this.dlPathId = dlPathId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PendingAclFlow)) {
+                return false;
             }
+            PendingAclFlow other = (PendingAclFlow) obj;
+            return nodeName.equals(other.nodeName) && srcIp == other.srcIp && dstIp == other.dstIp
+                    && ulPathId == other.ulPathId && dlPathId == other.dlPathId;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((nodeName.hashCode() * 31 + srcIp) * 31 + dstIp) * 31 + ulPathId;
         }
     }
 }
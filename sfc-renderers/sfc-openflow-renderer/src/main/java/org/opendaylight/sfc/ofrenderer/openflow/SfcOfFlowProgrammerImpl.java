@@ -11,6 +11,7 @@ package org.opendaylight.sfc.ofrenderer.openflow;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
@@ -21,15 +22,14 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.acti
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.Action;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.ActionBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.ActionKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.OutputPortValues;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.ApplyActionsCaseBuilder;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.GoToTableCaseBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.apply.actions._case.ApplyActionsBuilder;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.go.to.table._case.GoToTableBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.Instruction;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.InstructionBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.InstructionKey;
@@ -47,7 +47,10 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /*
  * This class writes Openflow Flow Entries to the SFF once an SFF has been configured.
@@ -66,6 +69,9 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
     public static final int COOKIE_BIGINT_HEX_RADIX = 16;
     public static final BigInteger TRANSPORT_EGRESS_COOKIE =
             new BigInteger("BA5EBA11BA5EBA11", COOKIE_BIGINT_HEX_RADIX);
+    // The cookies of all the flows created by SFC, see SfcOpenflowUtils.createFlowBuilder
+    private static final Set<BigInteger> SFC_FLOW_COOKIES =
+            ImmutableSet.of(BigInteger.valueOf(20), TRANSPORT_EGRESS_COOKIE);
 
     // Which bits in the metadata field to set, Assuming 4095 PathId's
     public static final BigInteger METADATA_MASK_SFP_MATCH =
@@ -95,14 +101,24 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
     private short tableBase;
     // Used for app-coexistence
     private short tableEgress;
-    private Long flowRspId;
+    // RSPs are rendered concurrently, each one by a single thread, so the
+    // RSP the flows belong to is kept per thread
+    private ThreadLocal<Long> flowRspId;
     private SfcOfFlowWriterInterface sfcOfFlowWriter = null;
+    // The flows and instructions that are the same for many RSPs
+    private SfcOfFlowTemplates flowTemplates;
 
     public SfcOfFlowProgrammerImpl(SfcOfFlowWriterInterface sfcOfFlowWriter) {
         this.tableBase = APP_COEXISTENCE_NOT_SET;
         this.tableEgress = APP_COEXISTENCE_NOT_SET;
-        this.flowRspId = new Long(0);
+        this.flowRspId = new ThreadLocal<Long>() {
+            @Override
+            protected Long initialValue() {
+                return new Long(0);
+            }
+        };
         this.sfcOfFlowWriter = sfcOfFlowWriter;
+        this.flowTemplates = new SfcOfFlowTemplates();
     }
 
     @Override
@@ -147,20 +163,29 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
     @Override
     public void setFlowRspId(Long rspId) {
-        this.flowRspId = rspId;
+        this.flowRspId.set(rspId);
     }
 
     @Override
-    public Set<NodeId> deleteRspFlows(final Long rspId) {
+    public void deleteRspFlows(final Long rspId) {
         sfcOfFlowWriter.deleteRspFlows(rspId);
-        Set<NodeId> nodes = sfcOfFlowWriter.clearSffsIfNoRspExists();
         sfcOfFlowWriter.deleteFlowSet();
-        return nodes;
     }
 
     @Override
-    public void flushFlows() {
-        this.sfcOfFlowWriter.flushFlows();
+    public void updateRspFlows(final Long rspId) {
+        sfcOfFlowWriter.updateRspFlows(rspId);
+    }
+
+    @Override
+    public void deleteStaleRspFlows(Set<Long> rspIds) {
+        sfcOfFlowWriter.deleteStaleRspFlows(rspIds);
+        sfcOfFlowWriter.deleteFlowSet();
+    }
+
+    @Override
+    public Map<String, ListenableFuture<Boolean>> flushFlows() {
+        return this.sfcOfFlowWriter.flushFlows();
     }
 
     @Override
@@ -168,6 +193,53 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         this.sfcOfFlowWriter.purgeFlows();
     }
 
+    @Override
+    public void startReconciliation(Set<String> sffNodeNames) {
+        this.sfcOfFlowWriter.startReconciliation(sffNodeNames);
+    }
+
+    @Override
+    public Map<String, ListenableFuture<Boolean>> reconcileFlows() {
+        return this.sfcOfFlowWriter.reconcileFlows(new Predicate<Flow>() {
+
+            @Override
+            public boolean apply(Flow flow) {
+                return isSfcFlow(flow);
+            }
+        });
+    }
+
+    /**
+     * Check if the given flow was created by SFC: it has one of the SFC
+     * cookies and is in one of the SFC tables. Table 0 is not considered,
+     * since the classifier renderer writes flows with the same cookie in it.
+     * The flows created on packet in have an idle timeout and are not
+     * considered either, since they aren't created again for the RSPs.
+     *
+     * @param flow - the flow to check
+     * @return true if the flow was created by SFC, false otherwise
+     */
+    public boolean isSfcFlow(Flow flow) {
+        if (flow.getCookie() == null || !SFC_FLOW_COOKIES.contains(flow.getCookie().getValue())) {
+            return false;
+        }
+
+        if (flow.getIdleTimeout() != null && flow.getIdleTimeout() != 0) {
+            return false;
+        }
+
+        if (flow.getTableId() == null || flow.getTableId() == TABLE_INDEX_CLASSIFIER) {
+            return false;
+        }
+
+        for (short tableIndex = TABLE_INDEX_TRANSPORT_INGRESS; tableIndex <= TABLE_INDEX_MAX_OFFSET; tableIndex++) {
+            if (flow.getTableId() == getTableId(tableIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Check if the given cookie belongs to the Classification table
      *
@@ -209,7 +281,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_CLASSIFIER),
                         getTableId(TABLE_INDEX_TRANSPORT_INGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -227,7 +299,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         FlowBuilder flowBuilder =
                 configureTableMatchAnyDropFlow(
                         getTableId(TABLE_INDEX_TRANSPORT_INGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -242,7 +314,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_PATH_MAPPER),
                         getTableId(TABLE_INDEX_PATH_MAPPER_ACL));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -257,7 +329,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_PATH_MAPPER_ACL),
                         getTableId(TABLE_INDEX_NEXT_HOP));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -272,7 +344,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_NEXT_HOP),
                         getTableId(TABLE_INDEX_TRANSPORT_EGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -286,7 +358,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         FlowBuilder flowBuilder =
                 configureTableMatchAnyDropFlow(
                         getTableId(TABLE_INDEX_TRANSPORT_EGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -300,6 +372,13 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         LOG.debug("SfcProviderSffFlowWriter.ConfigureTableMatchAnyDropFlow tableId [{}]",
                 tableId);
 
+        long templateKey = SfcOfFlowTemplates.getFlowTemplateKey(
+                SfcOfFlowTemplates.FLOW_TEMPLATE_MATCH_ANY_DROP, tableId, (short) 0, 0, (short) 0);
+        FlowBuilder flowBuilder = flowTemplates.getFlow(templateKey);
+        if (flowBuilder != null) {
+            return flowBuilder;
+        }
+
         // Add our drop action to a list
         List<Action> actionList = new ArrayList<Action>();
         actionList.add(SfcOpenflowUtils.createActionDropPacket(0));
@@ -326,7 +405,8 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         isb.setInstruction(instructions);
 
         // Create and configure the FlowBuilder
-        return SfcOpenflowUtils.createFlowBuilder(tableId, FLOW_PRIORITY_MATCH_ANY, "MatchAny", match, isb);
+        return flowTemplates.putFlow(templateKey,
+                SfcOpenflowUtils.createFlowBuilder(tableId, FLOW_PRIORITY_MATCH_ANY, "MatchAny", match, isb));
     }
 
     /**
@@ -341,17 +421,16 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         LOG.debug("SfcProviderSffFlowWriter.ConfigureTableMatchAnyFlow, tableId [{}] nextTableId [{}]",
                 tableId, nextTableId);
 
-        // Action, goto next table
-        GoToTableBuilder gotoIngress = SfcOpenflowUtils.createActionGotoTable(nextTableId);
-
-        InstructionBuilder ib = new InstructionBuilder();
-        int order = 0;
-        ib.setKey(new InstructionKey(order));
-        ib.setOrder(order++);
-        ib.setInstruction(new GoToTableCaseBuilder().setGoToTable(gotoIngress.build()).build());
+        long templateKey = SfcOfFlowTemplates.getFlowTemplateKey(
+                SfcOfFlowTemplates.FLOW_TEMPLATE_MATCH_ANY, tableId, nextTableId, 0, (short) 0);
+        FlowBuilder flowBuilder = flowTemplates.getFlow(templateKey);
+        if (flowBuilder != null) {
+            return flowBuilder;
+        }
 
+        // Action, goto next table
         List<Instruction> instructions = new ArrayList<Instruction>();
-        instructions.add(ib.build());
+        instructions.add(flowTemplates.getGotoTableInstruction(nextTableId, 0, 0));
 
         // Match any
         MatchBuilder match = new MatchBuilder();
@@ -361,7 +440,8 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         isb.setInstruction(instructions);
 
         // Create and configure the FlowBuilder
-        return SfcOpenflowUtils.createFlowBuilder(tableId, FLOW_PRIORITY_MATCH_ANY, "MatchAny", match, isb);
+        return flowTemplates.putFlow(templateKey,
+                SfcOpenflowUtils.createFlowBuilder(tableId, FLOW_PRIORITY_MATCH_ANY, "MatchAny", match, isb));
     }
 
     //
@@ -380,13 +460,13 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTransportIngressFlow(
                         SfcOpenflowUtils.ETHERTYPE_IPV4,
                         SfcOpenflowUtils.IP_PROTOCOL_TCP);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlowTcp);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, transportIngressFlowTcp);
 
         FlowBuilder transportIngressFlowUdp =
                 configureTransportIngressFlow(
                         SfcOpenflowUtils.ETHERTYPE_IPV4,
                         SfcOpenflowUtils.IP_PROTOCOL_UDP);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlowUdp);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, transportIngressFlowUdp);
     }
 
     /**
@@ -396,6 +476,15 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
      */
     @Override
     public void configureVlanTransportIngressFlow(final String sffNodeName) {
+        long templateKey = SfcOfFlowTemplates.getFlowTemplateKey(
+                SfcOfFlowTemplates.FLOW_TEMPLATE_VLAN_TRANSPORT_INGRESS,
+                getTableId(TABLE_INDEX_TRANSPORT_INGRESS), getTableId(TABLE_INDEX_PATH_MAPPER), 0, (short) 0);
+        FlowBuilder transportIngressFlow = flowTemplates.getFlow(templateKey);
+        if (transportIngressFlow != null) {
+            sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
+            return;
+        }
+
         // vlan match
         // For some reason it didnt match setting etherType=0x8100
         VlanMatchBuilder vlanBuilder = new VlanMatchBuilder();
@@ -406,8 +495,8 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         MatchBuilder match = new MatchBuilder();
         match.setVlanMatch(vlanBuilder.build());
 
-        FlowBuilder transportIngressFlow = configureTransportIngressFlow(match);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlow);
+        transportIngressFlow = flowTemplates.putFlow(templateKey, configureTransportIngressFlow(match));
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
     }
 
     /**
@@ -422,7 +511,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportIngressFlow =
                 configureTransportIngressFlow(match, getTableId(TABLE_INDEX_NEXT_HOP));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
     }
 
     /**
@@ -434,7 +523,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
     public void configureMplsTransportIngressFlow(final String sffNodeName) {
         FlowBuilder transportIngressFlow =
                 configureTransportIngressFlow(SfcOpenflowUtils.ETHERTYPE_MPLS_UCAST);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlow);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
     }
 
     /**
@@ -461,13 +550,21 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
     }
 
     private FlowBuilder configureTransportIngressFlow(long etherType, short ipProtocol, short nextTable) {
+        long templateKey = SfcOfFlowTemplates.getFlowTemplateKey(
+                SfcOfFlowTemplates.FLOW_TEMPLATE_TRANSPORT_INGRESS,
+                getTableId(TABLE_INDEX_TRANSPORT_INGRESS), nextTable, etherType, ipProtocol);
+        FlowBuilder flowBuilder = flowTemplates.getFlow(templateKey);
+        if (flowBuilder != null) {
+            return flowBuilder;
+        }
+
         MatchBuilder match = new MatchBuilder();
         if (ipProtocol > 0) {
             SfcOpenflowUtils.addMatchIpProtocol(match, ipProtocol);
         }
         SfcOpenflowUtils.addMatchEtherType(match, etherType);
 
-        return configureTransportIngressFlow(match, nextTable);
+        return flowTemplates.putFlow(templateKey, configureTransportIngressFlow(match, nextTable));
     }
 
     private FlowBuilder configureTransportIngressFlow(MatchBuilder match) {
@@ -488,13 +585,10 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         LOG.debug("SfcProviderSffFlowWriter.ConfigureTransportIngressFlow");
 
         // Action, goto the nextTable
-        GoToTableBuilder gotoIngress = SfcOpenflowUtils.createActionGotoTable(nextTable);
-
-        InstructionBuilder ib = new InstructionBuilder();
-        ib.setInstruction(new GoToTableCaseBuilder().setGoToTable(gotoIngress.build()).build());
-        ib.setKey(new InstructionKey(1));
-        ib.setOrder(0);
-        InstructionsBuilder isb = SfcOpenflowUtils.createInstructionsBuilder(ib);
+        List<Instruction> instructions = new ArrayList<Instruction>();
+        instructions.add(flowTemplates.getGotoTableInstruction(nextTable, 1, 0));
+        InstructionsBuilder isb = new InstructionsBuilder();
+        isb.setInstruction(instructions);
 
         // Create and configure the FlowBuilder
         return SfcOpenflowUtils.createFlowBuilder(
@@ -553,7 +647,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "ingress_Transport_Arp_Flow",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, arpTransportIngressFlow);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, arpTransportIngressFlow);
     }
 
     @Override
@@ -590,7 +684,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "ingress_Transport_Arp_Flow",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, sfFlow);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, sfFlow);
     }
 
     @Override
@@ -625,7 +719,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "ingress_Transport_Arp_Flow",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, sfFlow);
+        sfcOfFlowWriter.writeSharedFlow(flowRspId.get(), sffNodeName, sfFlow);
     }
 
 
@@ -656,7 +750,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         } else {
             pathMapperFlow = configurePathMapperFlow(pathId, match, actionList);
         }
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, pathMapperFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, pathMapperFlow);
     }
 
     /**
@@ -682,7 +776,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         } else {
             pathMapperFlow = configurePathMapperFlow(pathId, match, actionList);
         }
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, pathMapperFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, pathMapperFlow);
     }
 
     /**
@@ -748,15 +842,9 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         actionsIb.setKey(new InstructionKey(ibOrder));
         actionsIb.setOrder(ibOrder++);
 
-        GoToTableBuilder gotoNextHop = SfcOpenflowUtils.createActionGotoTable(getTableId(TABLE_INDEX_NEXT_HOP));
-        InstructionBuilder gotoNextHopIb = new InstructionBuilder();
-        gotoNextHopIb.setInstruction(new GoToTableCaseBuilder().setGoToTable(gotoNextHop.build()).build());
-        gotoNextHopIb.setKey(new InstructionKey(ibOrder));
-        gotoNextHopIb.setOrder(ibOrder++);
-
         // Put our Instruction in a list of Instructions
         instructions.add(actionsIb.build());
-        instructions.add(gotoNextHopIb.build());
+        instructions.add(flowTemplates.getGotoTableInstruction(getTableId(TABLE_INDEX_NEXT_HOP), ibOrder, ibOrder));
         isb.setInstruction(instructions);
 
         // Create and configure the FlowBuilder
@@ -800,16 +888,10 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         metadataIb.setKey(new InstructionKey(ibOrder));
         metadataIb.setOrder(ibOrder++);
 
-        GoToTableBuilder gotoNextHop = SfcOpenflowUtils.createActionGotoTable(getTableId(TABLE_INDEX_NEXT_HOP));
-        InstructionBuilder gotoNextHopIb = new InstructionBuilder();
-        gotoNextHopIb.setInstruction(new GoToTableCaseBuilder().setGoToTable(gotoNextHop.build()).build());
-        gotoNextHopIb.setKey(new InstructionKey(ibOrder));
-        gotoNextHopIb.setOrder(ibOrder++);
-
         // Put our Instruction in a list of Instructions
         List<Instruction> instructions = new ArrayList<Instruction>();
         instructions.add(metadataIb.build());
-        instructions.add(gotoNextHopIb.build());
+        instructions.add(flowTemplates.getGotoTableInstruction(getTableId(TABLE_INDEX_NEXT_HOP), ibOrder, ibOrder));
 
         InstructionsBuilder isb = new InstructionsBuilder();
         isb.setInstruction(instructions);
@@ -823,7 +905,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         // Set an idle timeout on this flow
         ingressFlow.setIdleTimeout(PKTIN_IDLE_TIMEOUT);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, ingressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, ingressFlow);
     }
 
     //
@@ -860,7 +942,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         }
 
         FlowBuilder nextHopFlow = configureNextHopFlow(match, actionList, flowPriority);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     /**
@@ -887,7 +969,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         }
 
         FlowBuilder nextHopFlow = configureNextHopFlow(match, actionList);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     /**
@@ -919,13 +1001,6 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         ApplyActionsBuilder aab = new ApplyActionsBuilder();
         aab.setAction(actionList);
 
-        GoToTableBuilder gotoTb = SfcOpenflowUtils.createActionGotoTable(getTableId(TABLE_INDEX_TRANSPORT_EGRESS));
-
-        InstructionBuilder gotoTbIb = new InstructionBuilder();
-        gotoTbIb.setInstruction(new GoToTableCaseBuilder().setGoToTable(gotoTb.build()).build());
-        gotoTbIb.setKey(new InstructionKey(1));
-        gotoTbIb.setOrder(1);
-
         // Wrap our Apply Action in an Instruction
         InstructionBuilder ib = new InstructionBuilder();
         ib.setInstruction(new ApplyActionsCaseBuilder().setApplyActions(aab.build()).build());
@@ -936,7 +1011,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         InstructionsBuilder isb = new InstructionsBuilder();
         List<Instruction> instructions = new ArrayList<Instruction>();
         instructions.add(ib.build());
-        instructions.add(gotoTbIb.build());
+        instructions.add(flowTemplates.getGotoTableInstruction(getTableId(TABLE_INDEX_TRANSPORT_EGRESS), 1, 1));
         isb.setInstruction(instructions);
 
         // Create and configure the FlowBuilder
@@ -973,7 +1048,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportEgressFlow =
                 configureTransportEgressFlow(match, actionList, port, order, pathId, srcMac, dstMac);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1027,7 +1102,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportEgressFlow =
                 configureTransportEgressFlow(match, actionList, port, order, pathId, srcMac, dstMac);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1081,7 +1156,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportEgressFlow =
                 configureTransportEgressFlow(match, actionList, port, order, pathId, srcMac, dstMac);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1110,7 +1185,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportEgressFlow =
                 configureTransportEgressFlow(match, actionList, port, order);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     @Override
@@ -1130,7 +1205,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportEgressFlow =
                 configureTransportEgressFlow(match, actionList, port, order);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1160,7 +1235,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTransportEgressFlow(
                         match, new ArrayList<Action>(), port,
                         order, FLOW_PRIORITY_TRANSPORT_EGRESS + 10);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     @Override
@@ -1195,7 +1270,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTransportEgressFlow(
                         match, actionList, EMPTY_SWITCH_PORT,
                         order, FLOW_PRIORITY_TRANSPORT_EGRESS + 10);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1264,7 +1339,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
             // Application Coexistence:
             // Instead of egressing the packet out a port, send it to
             // a different application pipeline on this same switch
-            actionList.add(SfcOpenflowUtils.createActionResubmitTable(getTableEgress(), order++));
+            actionList.add(flowTemplates.getResubmitTableAction(getTableEgress(), order++));
 
         } else {
             actionList.add(SfcOpenflowUtils.createActionOutPort(port, order++));
@@ -1318,6 +1393,26 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         sfcOfFlowWriter.writeGroupToDataStore(nodeName, gb, isAddGroup);
     }
 
+    @Override
+    public void configureGroupBuckets(String sffNodeName, String openflowNodeId, long sfgId,
+            List<GroupBucketInfo> bucketInfosToAdd, List<GroupBucketInfo> bucketInfosToRemove) {
+
+        LOG.debug("configuring group buckets: sffName {}, ofNodeId {}, id {}, adding {}, removing {}",
+                sffNodeName, openflowNodeId, sfgId, bucketInfosToAdd, bucketInfosToRemove);
+
+        List<Bucket> buckets = new ArrayList<Bucket>();
+        BucketBuilder bb = new BucketBuilder();
+        for (GroupBucketInfo bucketInfo : bucketInfosToAdd) {
+            buckets.add(buildBucket(bb, bucketInfo));
+        }
+        List<Long> bucketIds = new ArrayList<Long>();
+        for (GroupBucketInfo bucketInfo : bucketInfosToRemove) {
+            bucketIds.add((long) bucketInfo.getIndex());
+        }
+        String nodeName = openflowNodeId != null ? openflowNodeId : sffNodeName;
+        sfcOfFlowWriter.writeGroupBucketsToDataStore(nodeName, sfgId, buckets, bucketIds);
+    }
+
     private Bucket buildBucket(BucketBuilder bb, GroupBucketInfo bucketInfo) {
         int order = 0;
         BucketId bucketId = new BucketId((long) bucketInfo.getIndex());
@@ -1412,7 +1507,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 SfcOpenflowUtils.createFlowBuilder(
                         getTableId(TABLE_INDEX_NEXT_HOP),
                         flowPriority, "nextHop", match, isb);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     private static BigInteger getMetadataSFP(long sfpId) {
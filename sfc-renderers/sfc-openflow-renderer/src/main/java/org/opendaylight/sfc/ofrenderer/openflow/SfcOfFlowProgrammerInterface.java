@@ -9,11 +9,13 @@
 package org.opendaylight.sfc.ofrenderer.openflow;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import org.opendaylight.sfc.ofrenderer.sfg.GroupBucketInfo;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * An interface to be implemented by concrete classes that will write to OpenFlow or OVS switches.
@@ -42,22 +44,51 @@ public interface SfcOfFlowProgrammerInterface {
     public void setFlowRspId(Long rspId);
 
     /**
-     * Deletes all flows created for a particular RSP and removes
-     * initialization flows from SFFs if the last RSP was removed.
+     * Deletes all flows created for a particular RSP, and the flows shared
+     * with other RSPs, like the SFF initialization flows, if no other RSP
+     * uses them.
      *
      * @param rspId ID of RSP
+     */
+    public void deleteRspFlows(final Long rspId);
+
+    /**
+     * Starts updating the flows created for a particular RSP. The flows
+     * created for it until the next flushFlows() replace its current
+     * flows, if any, and only the difference is written to the data store.
+     *
+     * @param rspId ID of RSP
+     */
+    public void updateRspFlows(final Long rspId);
+
+    /**
+     * Deletes the flows of the RSPs stored before a restart that don't
+     * exist anymore, for instance because they were deleted meanwhile.
      *
-     * @return Node IDs from which initialization flows were removed.
+     * @param rspIds IDs of the existing RSPs
      */
-    public Set<NodeId> deleteRspFlows(final Long rspId);
+    public void deleteStaleRspFlows(Set<Long> rspIds);
 
-    // Write any buffered flows to the data store
-    public void flushFlows();
+    // Write any buffered flows to the data store, returns a completion future per SFF node name
+    public Map<String, ListenableFuture<Boolean>> flushFlows();
 
     // Purge any unwritten flows not written yet. This should be called upon
     // errors, when the remaining buffered flows should not be written.
     public void purgeFlows();
 
+    /**
+     * Starts reconciling the flows of the given SFFs. The flows created
+     * for them until the next reconcileFlows() are the flows they should
+     * have, and are not written to the data store until then.
+     *
+     * @param sffNodeNames node names of the SFFs to reconcile
+     */
+    public void startReconciliation(Set<String> sffNodeNames);
+
+    // Write only the difference between the flows created since startReconciliation()
+    // and the SFC flows of the SFFs in the inventory, returns a completion future per SFF node name
+    public Map<String, ListenableFuture<Boolean>> reconcileFlows();
+
     //Set FlowWriter implementation
     public void setFlowWriter(SfcOfFlowWriterInterface sfcOfFlowWriter);
 
@@ -150,4 +181,11 @@ public interface SfcOfFlowProgrammerInterface {
     public void configureGroup(final String sffNodeName, final String openflowNodeId, final String sfgName,
             final long sfgId, int groupType, List<GroupBucketInfo> bucketInfos, final boolean isAddGroup);
 
+    /**
+     * Add and remove some buckets of an already configured group, in a
+     * single transaction and without rewriting its other buckets.
+     */
+    public void configureGroupBuckets(final String sffNodeName, final String openflowNodeId, final long sfgId,
+            List<GroupBucketInfo> bucketInfosToAdd, List<GroupBucketInfo> bucketInfosToRemove);
+
 }
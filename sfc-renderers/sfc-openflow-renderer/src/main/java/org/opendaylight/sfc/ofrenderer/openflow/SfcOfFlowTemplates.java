@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.opendaylight.sfc.util.openflow.SfcOpenflowUtils;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.Action;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.GoToTableCaseBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.Instruction;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.InstructionBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.InstructionKey;
+
+/**
+ * Prebuilt parts of the flows created by SfcOfFlowProgrammerImpl.
+ * <p>
+ * The binding objects are immutable, so the flows and instructions that only
+ * depend on a few values, such as the table match any flows, the transport
+ * ingress flows and the goto table instructions, are built once per value and
+ * then shared by all the RSPs. Only the fields that differ per flow are built
+ * for each flow.
+ */
+public class SfcOfFlowTemplates {
+
+    // The flow templates, see getFlowTemplateKey()
+    public static final int FLOW_TEMPLATE_MATCH_ANY = 1;
+    public static final int FLOW_TEMPLATE_MATCH_ANY_DROP = 2;
+    public static final int FLOW_TEMPLATE_TRANSPORT_INGRESS = 3;
+    public static final int FLOW_TEMPLATE_VLAN_TRANSPORT_INGRESS = 4;
+
+    private final ConcurrentMap<Long, Flow> flows = new ConcurrentHashMap<Long, Flow>();
+    private final ConcurrentMap<Long, Instruction> gotoTableInstructions = new ConcurrentHashMap<Long, Instruction>();
+    private final ConcurrentMap<Long, Action> resubmitTableActions = new ConcurrentHashMap<Long, Action>();
+
+    /**
+     * Get the key of a flow template, from the values the flow depends on.
+     * The tables and the IP protocol fit in 8 bits, the EtherType in 16 bits.
+     *
+     * @param template - one of the FLOW_TEMPLATE_* values
+     * @param tableId - the table of the flow
+     * @param nextTableId - the table the flow goes to, 0 if none
+     * @param etherType - the EtherType the flow matches, 0 if none
+     * @param ipProtocol - the IP protocol the flow matches, 0 if none
+     * @return the key of the flow template
+     */
+    public static long getFlowTemplateKey(int template, short tableId, short nextTableId, long etherType,
+            short ipProtocol) {
+        return ((long) template << 48)
+                | ((long) (tableId & 0xff) << 40)
+                | ((long) (nextTableId & 0xff) << 32)
+                | ((long) (ipProtocol & 0xff) << 16)
+                | (etherType & 0xffff);
+    }
+
+    /**
+     * Get a copy of a flow template, to be completed by the caller.
+     *
+     * @param templateKey - the key of the template, see getFlowTemplateKey()
+     * @return a new FlowBuilder with the template contents, null if the
+     *      template was not built yet
+     */
+    public FlowBuilder getFlow(long templateKey) {
+        Flow flow = flows.get(templateKey);
+        return flow == null ? null : new FlowBuilder(flow);
+    }
+
+    /**
+     * Store a flow template.
+     *
+     * @param templateKey - the key of the template, see getFlowTemplateKey()
+     * @param flowBuilder - the flow, no longer modified once stored
+     * @return the given flowBuilder
+     */
+    public FlowBuilder putFlow(long templateKey, FlowBuilder flowBuilder) {
+        flows.putIfAbsent(templateKey, flowBuilder.build());
+        return flowBuilder;
+    }
+
+    /**
+     * Get a goto table instruction.
+     *
+     * @param nextTableId - the table to go to
+     * @param key - the instruction key
+     * @param order - the instruction order
+     * @return the instruction
+     */
+    public Instruction getGotoTableInstruction(short nextTableId, int key, int order) {
+        Long instructionKey = ((long) key << 32) | ((long) (order & 0xffff) << 16) | (nextTableId & 0xffff);
+        Instruction instruction = gotoTableInstructions.get(instructionKey);
+        if (instruction == null) {
+            InstructionBuilder ib = new InstructionBuilder();
+            ib.setInstruction(new GoToTableCaseBuilder()
+                    .setGoToTable(SfcOpenflowUtils.createActionGotoTable(nextTableId).build()).build());
+            ib.setKey(new InstructionKey(key));
+            ib.setOrder(order);
+            instruction = ib.build();
+            gotoTableInstructions.putIfAbsent(instructionKey, instruction);
+        }
+        return instruction;
+    }
+
+    /**
+     * Get a Nicira resubmit action, as used for App Coexistence.
+     *
+     * @param tableId - the table to resubmit to
+     * @param order - the action order
+     * @return the action
+     */
+    public Action getResubmitTableAction(short tableId, int order) {
+        Long actionKey = ((long) (order & 0xffff) << 16) | (tableId & 0xffff);
+        Action action = resubmitTableActions.get(actionKey);
+        if (action == null) {
+            action = SfcOpenflowUtils.createActionResubmitTable(tableId, order);
+            resubmitTableActions.putIfAbsent(actionKey, action);
+        }
+        return action;
+    }
+}
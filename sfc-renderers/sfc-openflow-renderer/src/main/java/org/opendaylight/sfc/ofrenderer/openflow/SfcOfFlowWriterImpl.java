@@ -8,29 +8,45 @@
 
 package org.opendaylight.sfc.ofrenderer.openflow;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
-import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
 import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
+import org.opendaylight.sfc.util.openflow.SfcOpenflowUtils;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRspFlowStore.RspFlows;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.BucketId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.GroupId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.group.Buckets;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.group.buckets.Bucket;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.group.buckets.BucketKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.groups.Group;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.groups.GroupBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.groups.GroupKey;
@@ -43,7 +59,13 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.primitives.UnsignedLongs;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 
 /**
  * Set of instructions in order to interact with MD-SAL datastore.
@@ -59,29 +81,50 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
     private static final long SHUTDOWN_TIME = 5;
     private static final String LOGSTR_THREAD_EXCEPTION = "Exception executing Thread: {}";
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfFlowWriterImpl.class);
+    // Maximum number of SFFs whose flows are committed at the same time
+    private static final int FLOW_WRITER_THREADS = 8;
 
     //private ExecutorService threadPoolExecutorServiceDelete;
     private ExecutorService threadPoolExecutorService;
+    // Flow tasks are executed one at a time per SFF, in submission order
+    private ConcurrentMap<String, SffTaskQueue> sffTaskQueues;
 
-    private FlowBuilder flowBuilder;
-    // Store RspId to List of FlowDetails, to be able
-    // to delete all flows for a particular RSP
-    private Map<Long, List<FlowDetails>> rspNameToFlowsMap;
+    // The flows of each RSP, to be able to delete all
+    // flows for a particular RSP or compare them on updates
+    private SfcOfRspFlowStore rspFlowStore;
 
-    //temporary list of flows to be deleted. All of them will be transactionally deleted on
-    // deleteFlowSet() invokation
-    private Set<FlowDetails> setOfFlowsToDelete;
-    // temporary list of flows to be deleted. All of them will be transactionally deleted on
-    // flushFlows() invokation
-    private Set<FlowDetails> setOfFlowsToAdd;
+    // The flows shared by several RSPs
+    private SharedFlowIndex sharedFlowIndex;
+
+    // The flows buffered by the RSP being rendered by each thread
+    private ThreadLocal<RenderingContext> renderingContext;
+
+    // The flows and groups are committed on a transaction chain, created on first use
+    private SfcOfTransactionChain transactionChain = null;
+
+    private final SfcOfRendererMetrics metrics = SfcOfRendererMetrics.getInstance();
 
     public SfcOfFlowWriterImpl() {
+        this(new SfcOfRspFlowStore());
+    }
 
-        this.threadPoolExecutorService = Executors.newSingleThreadExecutor();;
-        this.rspNameToFlowsMap = new HashMap<Long, List<FlowDetails>>();
-        this.flowBuilder = null;
-        this.setOfFlowsToDelete = new HashSet<FlowDetails>();
-        this.setOfFlowsToAdd = new HashSet<FlowDetails>();
+    /**
+     * Create a flow writer keeping the flows of the RSPs in the given store
+     *
+     * @param rspFlowStore - the store of the RSP flows, closed on shutdown()
+     */
+    public SfcOfFlowWriterImpl(SfcOfRspFlowStore rspFlowStore) {
+
+        this.threadPoolExecutorService = Executors.newFixedThreadPool(FLOW_WRITER_THREADS);
+        this.sffTaskQueues = new ConcurrentHashMap<String, SffTaskQueue>();
+        this.rspFlowStore = rspFlowStore;
+        this.sharedFlowIndex = new SharedFlowIndex();
+        this.renderingContext = new ThreadLocal<RenderingContext>() {
+            @Override
+            protected RenderingContext initialValue() {
+                return new RenderingContext();
+            }
+        };
     }
 
     /**
@@ -97,91 +140,432 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
             LOG.error("SfcOfFlowProgrammerImpl Executor was abruptly shut down. [{}] tasks will not be executed.",
                     droppedTasks.size());
         }
+        synchronized (this) {
+            if (transactionChain != null) {
+                transactionChain.close();
+            }
+        }
+        rspFlowStore.close();
     }
 
     /**
-     * A thread class used to write the flows to the data store. It receives the list of flows to create at creation time.
-     * The flows are written together in a single data store transaction
+     * A task used to write the flows of one SFF to the data store. It receives the list of flows to create at
+     * creation time, and the flows to delete when a RSP is updated. The flows are written and deleted together
+     * in a single data store transaction, and the task is done once the transaction is submitted
      */
-    class FlowSetWriterTask implements Runnable {
+    class FlowSetWriterTask implements Callable<ListenableFuture<Boolean>> {
+        String sffNodeName;
         Set<FlowDetails> flowsToWrite = new HashSet<FlowDetails>();
+        Set<FlowDetails> flowsToDelete = new HashSet<FlowDetails>();
 
-        public FlowSetWriterTask(Set<FlowDetails> flowsToWrite) {
+        public FlowSetWriterTask(String sffNodeName, Set<FlowDetails> flowsToWrite, Set<FlowDetails> flowsToDelete) {
+            this.sffNodeName = sffNodeName;
             this.flowsToWrite.addAll(flowsToWrite);
+            this.flowsToDelete.addAll(flowsToDelete);
         }
 
-        public void run(){
-            WriteTransaction trans = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        @Override
+        public ListenableFuture<Boolean> call() {
+            LOG.debug("FlowSetWriterTask: starting addition of {} flows and deletion of {} flows on SFF {}",
+                    flowsToWrite.size(), flowsToDelete.size(), sffNodeName);
 
-            LOG.debug("FlowSetWriterTask: starting addition of {} flows", flowsToWrite.size());
+            return submitFlows(sffNodeName, flowsToWrite, flowsToDelete);
+        }
+    }
 
-            for (FlowDetails f: flowsToWrite) {
+    /**
+     * A task used to transactionally delete a set of flows of one SFF in a single transaction
+     */
+    class FlowSetRemoverTask implements Callable<ListenableFuture<Boolean>> {
+        String sffNodeName;
+        Set<FlowDetails> flowsToDelete = new HashSet<FlowDetails>();
 
-                NodeBuilder nodeBuilder = new NodeBuilder();
-                nodeBuilder.setId(new NodeId(f.sffNodeName));
-                nodeBuilder.setKey(new NodeKey(nodeBuilder.getId()));
+        public FlowSetRemoverTask(String sffNodeName, Set<FlowDetails> flowsToDelete) {
+            this.sffNodeName = sffNodeName;
+            this.flowsToDelete.addAll(flowsToDelete);
+        }
+
+        @Override
+        public ListenableFuture<Boolean> call() {
+            LOG.debug("FlowSetRemoverTask: starting deletion of {} flows from SFF {}", flowsToDelete.size(),
+                    sffNodeName);
 
-                InstanceIdentifier<Flow> iidFlow = InstanceIdentifier.builder(Nodes.class)
-                            .child(Node.class, nodeBuilder.getKey())
-                            .augmentation(FlowCapableNode.class)
-                            .child(Table.class, f.tableKey)
-                            .child(Flow.class, f.flowKey)
-                            .build();
+            return submitFlows(sffNodeName, Collections.<FlowDetails>emptySet(), flowsToDelete);
+        }
+    }
 
-                // No need to read previously existing flows. Merge will take care of that
-                trans.merge(LogicalDatastoreType.CONFIGURATION, iidFlow, f.flow, true);
+    /**
+     * Submit the flows of one SFF to be written and deleted in a single transaction of the transaction
+     * chain, without waiting for the previously submitted transactions to be committed
+     *
+     * @param sffNodeName - the SFF of the flows
+     * @param flowsToWrite - the flows to write, no longer modified
+     * @param flowsToDelete - the flows to delete, no longer modified
+     * @return a future set to true once the flows are committed, false if they could not be
+     */
+    private ListenableFuture<Boolean> submitFlows(final String sffNodeName, final Set<FlowDetails> flowsToWrite,
+            final Set<FlowDetails> flowsToDelete) {
+        final int flowCount = flowsToWrite.size() + flowsToDelete.size();
+        final long startNanos = System.nanoTime();
+
+        ListenableFuture<Boolean> commitFuture = getTransactionChain().submit(new SfcOfTransactionChain.Batch() {
+
+            @Override
+            protected void apply(WriteTransaction trans) {
+                for (FlowDetails f: flowsToWrite) {
+                    // No need to read previously existing flows. Merge will take care of that
+                    trans.merge(LogicalDatastoreType.CONFIGURATION, getFlowInstanceIdentifier(f), f.flow, true);
+                }
+
+                for (FlowDetails f: flowsToDelete) {
+                    trans.delete(LogicalDatastoreType.CONFIGURATION, getFlowInstanceIdentifier(f));
+                }
             }
+        });
 
-            CheckedFuture<Void, TransactionCommitFailedException> submitFuture = trans.submit();
+        Futures.addCallback(commitFuture, new FutureCallback<Boolean>() {
 
-            try {
-                submitFuture.checkedGet();
-            } catch (TransactionCommitFailedException e) {
-                LOG.error("deleteTransactionAPI: Transaction failed. Message: {}", e.getMessage());
+            @Override
+            public void onSuccess(Boolean committed) {
+                if (!committed) {
+                    LOG.error("submitFlows: Transaction failed for SFF {}", sffNodeName);
+                }
+                metrics.flowsCommitted(sffNodeName, flowCount, startNanos, committed);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("submitFlows: Transaction failed for SFF {}. Message: {}", sffNodeName, t.getMessage());
+                metrics.flowsCommitted(sffNodeName, flowCount, startNanos, false);
             }
+        });
+        return commitFuture;
+    }
+
+    private synchronized SfcOfTransactionChain getTransactionChain() {
+        if (transactionChain == null) {
+            transactionChain = new SfcOfTransactionChain(OpendaylightSfc.getOpendaylightSfcObj().getDataProvider());
         }
+        return transactionChain;
     }
 
     /**
-     * A thread class used to transactionally delete a set of flows belonging to a given RSP in a single transaction
+     * A task used to reconcile the flows of one SFF with its flows in the operational inventory.
+     * The inventory is read when the task runs, after any previously submitted task of the SFF has
+     * submitted its transaction, and the missing, changed and stale flows are then written and deleted
+     * in a single transaction
      */
-    class FlowSetRemoverTask implements Runnable {
+    class FlowSetReconcilerTask implements Callable<ListenableFuture<Boolean>> {
+        String sffNodeName;
+        Set<FlowDetails> expectedFlows = new HashSet<FlowDetails>();
+        Predicate<Flow> isSfcFlow;
 
-        Set<FlowDetails> flowsToDelete = new HashSet<FlowDetails>();
-
-        public FlowSetRemoverTask(Set<FlowDetails> flowsToDelete) {
-            this.flowsToDelete.addAll(flowsToDelete);
+        public FlowSetReconcilerTask(String sffNodeName, Set<FlowDetails> expectedFlows, Predicate<Flow> isSfcFlow) {
+            this.sffNodeName = sffNodeName;
+            this.expectedFlows.addAll(expectedFlows);
+            this.isSfcFlow = isSfcFlow;
         }
 
-        public void run(){
+        @Override
+        public ListenableFuture<Boolean> call() {
+            Map<InstanceIdentifier<Flow>, FlowDetails> currentFlowsByIid = readSfcFlows();
 
-            WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+            Set<FlowDetails> flowsToWrite = new HashSet<FlowDetails>();
+            for (FlowDetails f : expectedFlows) {
+                FlowDetails currentFlow = currentFlowsByIid.remove(getFlowInstanceIdentifier(f));
+                if (currentFlow == null || !isSameFlow(currentFlow.flow, f.flow)) {
+                    flowsToWrite.add(f);
+                }
+            }
+            // Whatever is left is not expected on the SFF
+            Set<FlowDetails> flowsToDelete = new HashSet<FlowDetails>(currentFlowsByIid.values());
 
-            LOG.debug("FlowSetRemoverTask: starting deletion of {} flows", flowsToDelete.size());
+            LOG.info("FlowSetReconcilerTask: SFF {} expects {} flows, writing {} flows and deleting {} flows",
+                    sffNodeName, expectedFlows.size(), flowsToWrite.size(), flowsToDelete.size());
 
-            for (FlowDetails f: flowsToDelete) {
+            if (flowsToWrite.isEmpty() && flowsToDelete.isEmpty()) {
+                return Futures.immediateFuture(true);
+            }
+            return new FlowSetWriterTask(sffNodeName, flowsToWrite, flowsToDelete).call();
+        }
 
-                NodeBuilder nodeBuilder = new NodeBuilder();
-                nodeBuilder.setId(new NodeId(f.sffNodeName));
-                nodeBuilder.setKey(new NodeKey(nodeBuilder.getId()));
+        private Map<InstanceIdentifier<Flow>, FlowDetails> readSfcFlows() {
+            Map<InstanceIdentifier<Flow>, FlowDetails> flowsByIid = new HashMap<InstanceIdentifier<Flow>, FlowDetails>();
+            FlowCapableNode flowCapableNode = SfcDataStoreAPI.readTransactionAPI(
+                    getFlowCapableNodeInstanceIdentifier(sffNodeName), LogicalDatastoreType.OPERATIONAL);
+            if (flowCapableNode == null || flowCapableNode.getTable() == null) {
+                return flowsByIid;
+            }
 
-                InstanceIdentifier<Flow> iidFlow = InstanceIdentifier.builder(Nodes.class)
-                            .child(Node.class, nodeBuilder.getKey())
-                            .augmentation(FlowCapableNode.class)
-                            .child(Table.class, f.tableKey)
-                            .child(Flow.class, f.flowKey)
-                            .build();
+            for (Table table : flowCapableNode.getTable()) {
+                if (table.getFlow() == null) {
+                    continue;
+                }
+                for (Flow flow : table.getFlow()) {
+                    if (isSfcFlow.apply(flow)) {
+                        FlowDetails f = new FlowDetails(sffNodeName, flow.getKey(), table.getKey(), flow);
+                        flowsByIid.put(getFlowInstanceIdentifier(f), f);
+                    }
+                }
+            }
+            return flowsByIid;
+        }
+    }
 
-                writeTx.delete(LogicalDatastoreType.CONFIGURATION, iidFlow);
+    /**
+     * The flow tasks of one SFF. They run one at a time, in submission order, on the
+     * shared thread pool, so a SFF whose tasks are slow only delays its own tasks.
+     * Every task is handed to the pool separately so busy SFFs take turns. A task is
+     * done once its transaction is submitted, its future is set once it is committed.
+     */
+    class SffTaskQueue {
+        private final Queue<ListenableFutureTask<ListenableFuture<Boolean>>> tasks =
+                new ArrayDeque<ListenableFutureTask<ListenableFuture<Boolean>>>();
+        private boolean running = false;
+
+        private final Runnable runNext = new Runnable() {
+
+            @Override
+            public void run() {
+                ListenableFutureTask<ListenableFuture<Boolean>> task;
+                synchronized (SffTaskQueue.this) {
+                    task = tasks.poll();
+                }
+                try {
+                    task.run();
+                } finally {
+                    metrics.tasksDone(1);
+                    synchronized (SffTaskQueue.this) {
+                        if (tasks.isEmpty()) {
+                            running = false;
+                            return;
+                        }
+                    }
+                    schedule();
+                }
             }
+        };
+
+        public ListenableFuture<Boolean> submit(Callable<ListenableFuture<Boolean>> callable) {
+            ListenableFutureTask<ListenableFuture<Boolean>> task = ListenableFutureTask.create(callable);
+            metrics.taskQueued();
+            synchronized (this) {
+                tasks.add(task);
+                if (running) {
+                    return Futures.dereference(task);
+                }
+                running = true;
+            }
+            schedule();
+            return Futures.dereference(task);
+        }
 
-            CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+        private void schedule() {
             try {
-                submitFuture.checkedGet();
-            } catch (TransactionCommitFailedException e) {
-                LOG.error("deleteTransactionAPI: Transaction failed. Message: {}", e.getMessage());
+                threadPoolExecutorService.execute(runNext);
+            } catch (RejectedExecutionException ex) {
+                LOG.error(LOGSTR_THREAD_EXCEPTION, ex.toString());
+                List<ListenableFutureTask<ListenableFuture<Boolean>>> droppedTasks;
+                synchronized (this) {
+                    droppedTasks = new ArrayList<ListenableFutureTask<ListenableFuture<Boolean>>>(tasks);
+                    tasks.clear();
+                    running = false;
+                }
+                for (ListenableFutureTask<ListenableFuture<Boolean>> droppedTask : droppedTasks) {
+                    droppedTask.cancel(false);
+                }
+                metrics.tasksDone(droppedTasks.size());
+            }
+        }
+    }
+
+    private static InstanceIdentifier<Flow> getFlowInstanceIdentifier(FlowDetails f) {
+        return getFlowCapableNodeInstanceIdentifier(f.sffNodeName).builder()
+                    .child(Table.class, f.tableKey)
+                    .child(Flow.class, f.flowKey)
+                    .build();
+    }
+
+    private static InstanceIdentifier<FlowCapableNode> getFlowCapableNodeInstanceIdentifier(String sffNodeName) {
+        NodeBuilder nodeBuilder = new NodeBuilder();
+        nodeBuilder.setId(new NodeId(sffNodeName));
+        nodeBuilder.setKey(new NodeKey(nodeBuilder.getId()));
+
+        return InstanceIdentifier.builder(Nodes.class)
+                    .child(Node.class, nodeBuilder.getKey())
+                    .augmentation(FlowCapableNode.class)
+                    .build();
+    }
+
+    /**
+     * Compare an inventory flow with the flow that should be programmed. The
+     * inventory flows carry statistics and switch provided values, so only
+     * what the renderer sets on a flow is compared
+     */
+    private static boolean isSameFlow(Flow currentFlow, Flow expectedFlow) {
+        return Objects.equal(currentFlow.getPriority(), expectedFlow.getPriority())
+                && Objects.equal(currentFlow.getCookie(), expectedFlow.getCookie())
+                && Objects.equal(currentFlow.getMatch(), expectedFlow.getMatch())
+                && Objects.equal(currentFlow.getInstructions(), expectedFlow.getInstructions());
+    }
+
+    /**
+     * Split a set of flows by the SFF they belong to
+     */
+    private static Map<String, Set<FlowDetails>> partitionBySff(Set<FlowDetails> flows) {
+        Map<String, Set<FlowDetails>> flowsBySff = new HashMap<String, Set<FlowDetails>>();
+        for (FlowDetails f : flows) {
+            Set<FlowDetails> sffFlows = flowsBySff.get(f.sffNodeName);
+            if (sffFlows == null) {
+                sffFlows = new HashSet<FlowDetails>();
+                flowsBySff.put(f.sffNodeName, sffFlows);
             }
+            sffFlows.add(f);
         }
+        return flowsBySff;
+    }
+
+    private SffTaskQueue getSffTaskQueue(String sffNodeName) {
+        SffTaskQueue sffTaskQueue = sffTaskQueues.get(sffNodeName);
+        if (sffTaskQueue == null) {
+            sffTaskQueue = new SffTaskQueue();
+            SffTaskQueue existing = sffTaskQueues.putIfAbsent(sffNodeName, sffTaskQueue);
+            if (existing != null) {
+                sffTaskQueue = existing;
+            }
+        }
+        return sffTaskQueue;
+    }
+
+    /**
+     * The flows shared by several RSPs, like the SFF initialization flows, by node, table
+     * and flow key, along with the RSPs that use each of them. A shared flow is written when
+     * the first RSP starts using it, and deleted when the last RSP using it stops doing so
+     */
+    private static class SharedFlowIndex {
+        private final Map<InstanceIdentifier<Flow>, SharedFlow> sharedFlows =
+                new HashMap<InstanceIdentifier<Flow>, SharedFlow>();
+        // The shared flows used by each RSP
+        private final Map<Long, Set<InstanceIdentifier<Flow>>> rspSharedFlows =
+                new HashMap<Long, Set<InstanceIdentifier<Flow>>>();
+
+        /**
+         * Add the shared flows used by a RSP
+         *
+         * @param rspId - the RSP using the flows
+         * @param flows - the shared flows used by the RSP
+         * @param replace - if true, the RSP stops using the shared flows it used before
+         * @param flowsToWrite - updated with the flows no RSP used yet, or whose contents changed
+         * @param flowsToDelete - updated with the flows no RSP uses anymore
+         */
+        public synchronized void addRspFlows(Long rspId, Collection<FlowDetails> flows, boolean replace,
+                Set<FlowDetails> flowsToWrite, Set<FlowDetails> flowsToDelete) {
+            Set<InstanceIdentifier<Flow>> flowIids = new HashSet<InstanceIdentifier<Flow>>();
+            for (FlowDetails f : flows) {
+                InstanceIdentifier<Flow> flowIid = getFlowInstanceIdentifier(f);
+                flowIids.add(flowIid);
+                SharedFlow sharedFlow = sharedFlows.get(flowIid);
+                if (sharedFlow == null) {
+                    sharedFlow = new SharedFlow(f);
+                    sharedFlows.put(flowIid, sharedFlow);
+                    flowsToWrite.add(f);
+                } else if (!Objects.equal(sharedFlow.flowDetails.flow, f.flow)) {
+                    sharedFlow.flowDetails = f;
+                    flowsToWrite.add(f);
+                }
+                sharedFlow.rspIds.add(rspId);
+            }
+
+            Set<InstanceIdentifier<Flow>> usedFlowIids = rspSharedFlows.get(rspId);
+            if (usedFlowIids == null) {
+                usedFlowIids = new HashSet<InstanceIdentifier<Flow>>();
+                rspSharedFlows.put(rspId, usedFlowIids);
+            } else if (replace) {
+                usedFlowIids.removeAll(flowIids);
+                releaseFlows(rspId, usedFlowIids, flowsToDelete);
+                usedFlowIids.clear();
+            }
+            usedFlowIids.addAll(flowIids);
+        }
+
+        /**
+         * Remove a RSP, which stops using all its shared flows
+         *
+         * @param rspId - the RSP to remove
+         * @param flowsToDelete - updated with the flows no RSP uses anymore
+         */
+        public synchronized void removeRsp(Long rspId, Set<FlowDetails> flowsToDelete) {
+            Set<InstanceIdentifier<Flow>> usedFlowIids = rspSharedFlows.remove(rspId);
+            if (usedFlowIids != null) {
+                releaseFlows(rspId, usedFlowIids, flowsToDelete);
+            }
+        }
+
+        /**
+         * Forget the shared flows of the given SFFs, which are being reconciled
+         *
+         * @param sffNodeNames - the node names of the SFFs
+         */
+        public synchronized void removeSffFlows(Set<String> sffNodeNames) {
+            Iterator<SharedFlow> sharedFlowIter = sharedFlows.values().iterator();
+            while (sharedFlowIter.hasNext()) {
+                if (sffNodeNames.contains(sharedFlowIter.next().flowDetails.sffNodeName)) {
+                    sharedFlowIter.remove();
+                }
+            }
+            for (Set<InstanceIdentifier<Flow>> usedFlowIids : rspSharedFlows.values()) {
+                usedFlowIids.retainAll(sharedFlows.keySet());
+            }
+        }
+
+        private void releaseFlows(Long rspId, Set<InstanceIdentifier<Flow>> flowIids,
+                Set<FlowDetails> flowsToDelete) {
+            for (InstanceIdentifier<Flow> flowIid : flowIids) {
+                SharedFlow sharedFlow = sharedFlows.get(flowIid);
+                if (sharedFlow == null) {
+                    continue;
+                }
+                sharedFlow.rspIds.remove(rspId);
+                if (sharedFlow.rspIds.isEmpty()) {
+                    sharedFlows.remove(flowIid);
+                    flowsToDelete.add(sharedFlow.flowDetails);
+                }
+            }
+        }
+
+        private static class SharedFlow {
+            private FlowDetails flowDetails;
+            private final Set<Long> rspIds = new HashSet<Long>();
+
+            public SharedFlow(FlowDetails flowDetails) {
+                this.flowDetails = flowDetails;
+            }
+        }
+    }
+
+    /**
+     * The flows buffered while rendering a RSP. RSPs are rendered concurrently,
+     * each one by a single thread, so every thread has its own context
+     */
+    private static class RenderingContext {
+        private FlowBuilder flowBuilder = null;
+        // The flows of the RSPs being updated, as they were before the
+        // update. They are replaced by the flows written until flushFlows()
+        private Map<Long, RspFlows> rspFlowsToUpdate = new HashMap<Long, RspFlows>();
+        //temporary list of flows to be deleted. All of them will be transactionally deleted on
+        // deleteFlowSet() invokation
+        private Set<FlowDetails> setOfFlowsToDelete = new HashSet<FlowDetails>();
+        // temporary list of flows to be added. All of them will be transactionally written on
+        // flushFlows() invokation
+        private Set<FlowDetails> setOfFlowsToAdd = new HashSet<FlowDetails>();
+        // The shared flows used per RSP, only written on flushFlows()
+        // invokation if no other RSP uses them yet
+        private Map<Long, List<FlowDetails>> sharedFlowsToAdd = new HashMap<Long, List<FlowDetails>>();
+        // The SFFs being reconciled, null if not reconciling, and the
+        // flows written for them per RSP until reconcileFlows()
+        private Set<String> reconciledSffNodeNames = null;
+        private Map<Long, List<FlowDetails>> reconciledRspFlows = new HashMap<Long, List<FlowDetails>>();
+        private Map<Long, List<FlowDetails>> reconciledRspSharedFlows = new HashMap<Long, List<FlowDetails>>();
     }
 
     /**
@@ -222,15 +606,52 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public void writeFlow(Long rspId, String sffNodeName, FlowBuilder flow) {
-        this.flowBuilder = flow;
+        RenderingContext context = renderingContext.get();
+        // The flow ID is derived from the flow contents and its RSP, so
+        // rendering the same RSP again merges into the existing flows
+        context.flowBuilder = SfcOpenflowUtils.setFlowId(flow, rspId);
 
         LOG.debug("writeFlow storing flow to Node {}, table {}", sffNodeName, flow.getTableId());
 
         // Add the flow to the set of flows to be added in a single transaction
-        setOfFlowsToAdd.add(new FlowDetails(sffNodeName, flow.getKey(), new TableKey(flow.getTableId()), flowBuilder.build()));
+        FlowDetails flowDetails =
+                new FlowDetails(sffNodeName, flow.getKey(), new TableKey(flow.getTableId()), flow.build());
+
+        if (context.reconciledSffNodeNames != null) {
+            // While reconciling the flows are only collected
+            if (context.reconciledSffNodeNames.contains(sffNodeName)) {
+                addFlowDetails(context.reconciledRspFlows, rspId, flowDetails);
+            }
+            return;
+        }
+
+        context.setOfFlowsToAdd.add(flowDetails);
 
         // This will store the flow info and rspId for removal later
-        storeFlowDetails(rspId, sffNodeName, flow.getKey(), flow.getTableId());
+        storeFlowDetails(rspId, flowDetails);
+    }
+
+    @Override
+    public void writeSharedFlow(Long rspId, String sffNodeName, FlowBuilder flow) {
+        RenderingContext context = renderingContext.get();
+        // The flow ID doesn't depend on the RSP, so all the RSPs use the same flow
+        context.flowBuilder = SfcOpenflowUtils.setFlowId(flow, null);
+
+        LOG.debug("writeSharedFlow storing flow to Node {}, table {}", sffNodeName, flow.getTableId());
+
+        FlowDetails flowDetails =
+                new FlowDetails(sffNodeName, flow.getKey(), new TableKey(flow.getTableId()), flow.build());
+
+        if (context.reconciledSffNodeNames != null) {
+            // While reconciling the flows are only collected
+            if (context.reconciledSffNodeNames.contains(sffNodeName)) {
+                addFlowDetails(context.reconciledRspSharedFlows, rspId, flowDetails);
+            }
+            return;
+        }
+
+        // Whether the flow has to be written is decided on flushFlows()
+        addFlowDetails(context.sharedFlowsToAdd, rspId, flowDetails);
     }
 
     @Override
@@ -240,7 +661,7 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
       LOG.debug("removeFlow: removing flow with key {} from table {} in sff {}", flowKey, tableKey, sffNodeName);
 
       FlowDetails flowDetail = new FlowDetails(sffNodeName, flowKey, tableKey);
-      setOfFlowsToDelete.add(flowDetail);
+      renderingContext.get().setOfFlowsToDelete.add(flowDetail);
     }
 
     /**
@@ -248,22 +669,112 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      * and per SFF. Now the flows will be written, one table at at time per SFF.
      */
     @Override
-    public void flushFlows() {
+    public Map<String, ListenableFuture<Boolean>> flushFlows() {
 
-        LOG.info("flushFlows: creating flowWriter task, writing [{}] flows.",
-                setOfFlowsToAdd.size());
+        RenderingContext context = renderingContext.get();
+        Set<FlowDetails> flowsToDelete = new HashSet<FlowDetails>();
 
-        FlowSetWriterTask writerThread = new FlowSetWriterTask(setOfFlowsToAdd);
+        // Only write and delete the flows of updated RSPs that changed
+        for (Entry<Long, RspFlows> rspFlows : context.rspFlowsToUpdate.entrySet()) {
+            RspFlows newFlows = rspFlowStore.getRsp(rspFlows.getKey());
+            diffRspFlows(rspFlows.getValue(), newFlows, context.setOfFlowsToAdd, flowsToDelete);
+        }
 
-        try {
-            threadPoolExecutorService.execute(writerThread);
-        } catch (Exception ex) {
-            LOG.error(LOGSTR_THREAD_EXCEPTION, ex.toString());
+        Map<String, ListenableFuture<Boolean>> sffFutures = new HashMap<String, ListenableFuture<Boolean>>();
+        // The shared flows are queued in the order they are decided, otherwise the
+        // write of a shared flow used again could be queued before its delete
+        synchronized (sharedFlowIndex) {
+            // Only write the shared flows no other RSP uses yet, and delete the
+            // shared flows updated RSPs stopped using if no other RSP uses them
+            Set<Long> rspIds = new HashSet<Long>(context.sharedFlowsToAdd.keySet());
+            rspIds.addAll(context.rspFlowsToUpdate.keySet());
+            for (Long rspId : rspIds) {
+                List<FlowDetails> sharedFlows = context.sharedFlowsToAdd.get(rspId);
+                sharedFlowIndex.addRspFlows(rspId,
+                        sharedFlows == null ? Collections.<FlowDetails>emptyList() : sharedFlows,
+                        context.rspFlowsToUpdate.containsKey(rspId), context.setOfFlowsToAdd, flowsToDelete);
+            }
+            context.sharedFlowsToAdd.clear();
+            context.rspFlowsToUpdate.clear();
+
+            LOG.info("flushFlows: creating flowWriter tasks, writing [{}] flows, deleting [{}] flows.",
+                    context.setOfFlowsToAdd.size(), flowsToDelete.size());
+            metrics.flowsQueued(context.setOfFlowsToAdd.size() + flowsToDelete.size());
+
+            Map<String, Set<FlowDetails>> flowsToWriteBySff = partitionBySff(context.setOfFlowsToAdd);
+            Map<String, Set<FlowDetails>> flowsToDeleteBySff = partitionBySff(flowsToDelete);
+            Set<String> sffNodeNames = new HashSet<String>(flowsToWriteBySff.keySet());
+            sffNodeNames.addAll(flowsToDeleteBySff.keySet());
+
+            for (String sffNodeName : sffNodeNames) {
+                Set<FlowDetails> sffFlowsToWrite = flowsToWriteBySff.get(sffNodeName);
+                Set<FlowDetails> sffFlowsToDelete = flowsToDeleteBySff.get(sffNodeName);
+                FlowSetWriterTask writerTask = new FlowSetWriterTask(sffNodeName,
+                        sffFlowsToWrite == null ? Collections.<FlowDetails>emptySet() : sffFlowsToWrite,
+                        sffFlowsToDelete == null ? Collections.<FlowDetails>emptySet() : sffFlowsToDelete);
+                sffFutures.put(sffNodeName, getSffTaskQueue(sffNodeName).submit(writerTask));
+            }
         }
 
         // Clear the entries
-        setOfFlowsToAdd.clear();
+        context.setOfFlowsToAdd.clear();
 
+        return sffFutures;
+    }
+
+    /**
+     * Compare the flows of a RSP before and after an update. Flows that
+     * didn't change are removed from the flows to write, and flows that
+     * are no longer needed are added to the flows to delete.
+     *
+     * @param oldFlows - the flows of the RSP before the update
+     * @param newFlows - the flows written for the RSP since the update started, may be null
+     * @param flowsToWrite - the flows to write, updated by this method
+     * @param flowsToDelete - the flows to delete, updated by this method
+     */
+    private void diffRspFlows(RspFlows oldFlows, RspFlows newFlows,
+            Set<FlowDetails> flowsToWrite, Set<FlowDetails> flowsToDelete) {
+        Map<InstanceIdentifier<Flow>, Integer> oldFlowsByIid = new HashMap<InstanceIdentifier<Flow>, Integer>();
+        for (int i = 0; i < oldFlows.size(); i++) {
+            oldFlowsByIid.put(getFlowInstanceIdentifier(getFlowDetails(oldFlows, i)), i);
+        }
+
+        Set<InstanceIdentifier<Flow>> unchangedFlowIids = new HashSet<InstanceIdentifier<Flow>>();
+        if (newFlows != null) {
+            for (int i = 0; i < newFlows.size(); i++) {
+                InstanceIdentifier<Flow> flowIid = getFlowInstanceIdentifier(getFlowDetails(newFlows, i));
+                Integer oldFlow = oldFlowsByIid.remove(flowIid);
+                if (oldFlow != null && oldFlows.getContentHash(oldFlow) == newFlows.getContentHash(i)) {
+                    unchangedFlowIids.add(flowIid);
+                }
+            }
+        }
+
+        if (!unchangedFlowIids.isEmpty()) {
+            Iterator<FlowDetails> flowIter = flowsToWrite.iterator();
+            while (flowIter.hasNext()) {
+                if (unchangedFlowIids.contains(getFlowInstanceIdentifier(flowIter.next()))) {
+                    flowIter.remove();
+                }
+            }
+        }
+
+        // Whatever is left was not written again
+        for (Integer oldFlow : oldFlowsByIid.values()) {
+            flowsToDelete.add(getFlowDetails(oldFlows, oldFlow));
+        }
+
+        LOG.debug("diffRspFlows: {} flows before the update, deleting {} of them", oldFlows.size(),
+                oldFlowsByIid.size());
+    }
+
+    /**
+     * The details of a stored RSP flow, only usable to delete the flow
+     */
+    private FlowDetails getFlowDetails(RspFlows rspFlows, int i) {
+        return new FlowDetails(rspFlows.getSffNodeName(i),
+                new FlowKey(new FlowId(UnsignedLongs.toString(rspFlows.getFlowId(i)))),
+                new TableKey(rspFlows.getTableId(i)));
     }
 
     /**
@@ -272,53 +783,182 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public void purgeFlows() {
-        setOfFlowsToAdd.clear();
-        setOfFlowsToDelete.clear();
+        RenderingContext context = renderingContext.get();
+        context.setOfFlowsToAdd.clear();
+        context.setOfFlowsToDelete.clear();
+        context.sharedFlowsToAdd.clear();
+
+        // Updates that weren't flushed leave the RSP flows as they were
+        for (Entry<Long, RspFlows> rspFlows : context.rspFlowsToUpdate.entrySet()) {
+            rspFlowStore.removeRsp(rspFlows.getKey());
+            rspFlowStore.addFlows(rspFlows.getKey(), rspFlows.getValue());
+        }
+        context.rspFlowsToUpdate.clear();
     }
 
     /**
      * storeFlowDetails
-     * Store the flow details so the flows are easy to delete later
+     * Store the flow details so the flows are easy to delete, or
+     * compare when the RSP is updated, later
      *
-     * @param sffNodeName - the SFF the flow is written to
-     * @param flowKey - the flow key of the new flow
-     * @param tableId - the table the flow was written to
+     * @param rspId - the RSP the flow belongs to
+     * @param flowDetails - the details of the new flow
      */
-    private void storeFlowDetails(final Long rspId, final String sffNodeName, FlowKey flowKey, short tableId) {
-        List<FlowDetails> flowDetails = rspNameToFlowsMap.get(rspId);
-        if (flowDetails == null) {
-            flowDetails = new ArrayList<FlowDetails>();
-            rspNameToFlowsMap.put(rspId, flowDetails);
+    private void storeFlowDetails(final Long rspId, FlowDetails flowDetails) {
+        // Only the flow location is stored, along with a hash of its contents
+        long contentHash = SfcOpenflowUtils.createFlowContentHash(flowDetails.flow);
+        rspFlowStore.addFlow(rspId, flowDetails.sffNodeName, flowDetails.tableKey.getId(),
+                UnsignedLongs.parseUnsignedLong(flowDetails.flowKey.getId().getValue()), contentHash);
+    }
+
+    private static void addFlowDetails(Map<Long, List<FlowDetails>> rspFlows, final Long rspId,
+            FlowDetails flowDetails) {
+        List<FlowDetails> rspFlowDetails = rspFlows.get(rspId);
+        if (rspFlowDetails == null) {
+            rspFlowDetails = new ArrayList<FlowDetails>();
+            rspFlows.put(rspId, rspFlowDetails);
         }
-        flowDetails.add(new FlowDetails(sffNodeName, flowKey, new TableKey(tableId)));
+        rspFlowDetails.add(flowDetails);
+    }
+
+    @Override
+    public void startReconciliation(Set<String> sffNodeNames) {
+        RenderingContext context = renderingContext.get();
+        context.reconciledSffNodeNames = new HashSet<String>(sffNodeNames);
+        context.reconciledRspFlows.clear();
+        context.reconciledRspSharedFlows.clear();
     }
 
     @Override
-    public void writeGroupToDataStore(String sffNodeName, GroupBuilder gb, boolean isAdd) {
+    public Map<String, ListenableFuture<Boolean>> reconcileFlows(Predicate<Flow> isSfcFlow) {
+        RenderingContext context = renderingContext.get();
+        Set<String> sffNodeNames = context.reconciledSffNodeNames;
+        if (sffNodeNames == null) {
+            LOG.warn("reconcileFlows() no reconciliation was started");
+            return Collections.emptyMap();
+        }
+        Map<Long, List<FlowDetails>> reconciledRspFlows = context.reconciledRspFlows;
+        Map<Long, List<FlowDetails>> reconciledRspSharedFlows = context.reconciledRspSharedFlows;
+        context.reconciledSffNodeNames = null;
+        context.reconciledRspFlows = new HashMap<Long, List<FlowDetails>>();
+        context.reconciledRspSharedFlows = new HashMap<Long, List<FlowDetails>>();
+
+        // The reconciled flows replace the stored flows of the reconciled SFFs
+        Map<InstanceIdentifier<Flow>, FlowDetails> expectedFlows = new HashMap<InstanceIdentifier<Flow>, FlowDetails>();
+        rspFlowStore.removeSffFlows(sffNodeNames);
+        for (Entry<Long, List<FlowDetails>> rspFlows : reconciledRspFlows.entrySet()) {
+            for (FlowDetails f : rspFlows.getValue()) {
+                storeFlowDetails(rspFlows.getKey(), f);
+                expectedFlows.put(getFlowInstanceIdentifier(f), f);
+            }
+        }
+
+        // Whether the shared flows have to be written is decided by the reconciliation
+        sharedFlowIndex.removeSffFlows(sffNodeNames);
+        Set<FlowDetails> ignoredFlows = new HashSet<FlowDetails>();
+        for (Entry<Long, List<FlowDetails>> rspSharedFlows : reconciledRspSharedFlows.entrySet()) {
+            sharedFlowIndex.addRspFlows(rspSharedFlows.getKey(), rspSharedFlows.getValue(), false,
+                    ignoredFlows, ignoredFlows);
+            for (FlowDetails f : rspSharedFlows.getValue()) {
+                expectedFlows.put(getFlowInstanceIdentifier(f), f);
+            }
+        }
+
+        LOG.info("reconcileFlows: reconciling [{}] SFFs with [{}] flows", sffNodeNames.size(), expectedFlows.size());
+
+        Map<String, Set<FlowDetails>> expectedFlowsBySff =
+                partitionBySff(new HashSet<FlowDetails>(expectedFlows.values()));
+        Map<String, ListenableFuture<Boolean>> sffFutures = new HashMap<String, ListenableFuture<Boolean>>();
+        for (String sffNodeName : sffNodeNames) {
+            Set<FlowDetails> sffExpectedFlows = expectedFlowsBySff.get(sffNodeName);
+            FlowSetReconcilerTask reconcilerTask = new FlowSetReconcilerTask(sffNodeName,
+                    sffExpectedFlows == null ? Collections.<FlowDetails>emptySet() : sffExpectedFlows, isSfcFlow);
+            sffFutures.put(sffNodeName, getSffTaskQueue(sffNodeName).submit(reconcilerTask));
+        }
+
+        return sffFutures;
+    }
+
+    private static InstanceIdentifier<Group> getGroupInstanceIdentifier(String sffNodeName, GroupId groupId) {
         // Create the NodeBuilder
         NodeBuilder nodeBuilder = new NodeBuilder();
         nodeBuilder.setId(new NodeId(sffNodeName));
         nodeBuilder.setKey(new NodeKey(nodeBuilder.getId()));
 
-        GroupKey gk = new GroupKey(gb.getGroupId());
-        InstanceIdentifier<Group> groupIID;
+        GroupKey gk = new GroupKey(groupId);
 
-        groupIID = InstanceIdentifier.builder(Nodes.class)
+        return InstanceIdentifier.builder(Nodes.class)
             .child(Node.class, nodeBuilder.getKey())
             .augmentation(FlowCapableNode.class)
             .child(Group.class, gk)
             .build();
-        Group group = gb.build();
+    }
+
+    @Override
+    public void writeGroupToDataStore(String sffNodeName, GroupBuilder gb, final boolean isAdd) {
+        final InstanceIdentifier<Group> groupIID = getGroupInstanceIdentifier(sffNodeName, gb.getGroupId());
+        final Group group = gb.build();
         LOG.debug("about to write group to data store \nID: {}\nGroup: {}", groupIID, group);
-        if (isAdd) {
-            if (!SfcDataStoreAPI.writeMergeTransactionAPI(groupIID, group, LogicalDatastoreType.CONFIGURATION)) {
-                LOG.warn("Failed to write group to data store");
+
+        // Committed on the transaction chain, so before the flows using the group
+        ListenableFuture<Boolean> commitFuture = getTransactionChain().submit(new SfcOfTransactionChain.Batch() {
+
+            @Override
+            protected void apply(WriteTransaction trans) {
+                if (isAdd) {
+                    trans.merge(LogicalDatastoreType.CONFIGURATION, groupIID, group, true);
+                } else {
+                    trans.delete(LogicalDatastoreType.CONFIGURATION, groupIID);
+                }
+            }
+        });
+        warnOnFailure(commitFuture, isAdd
+                ? "Failed to write group to data store"
+                : "Failed to remove group from data store");
+    }
+
+    @Override
+    public void writeGroupBucketsToDataStore(String sffNodeName, final long groupId,
+            final List<Bucket> bucketsToWrite, final List<Long> bucketIdsToDelete) {
+        final InstanceIdentifier<Buckets> bucketsIID =
+                getGroupInstanceIdentifier(sffNodeName, new GroupId(groupId)).child(Buckets.class);
+
+        LOG.debug("writeGroupBucketsToDataStore: group {} on SFF {}, writing {} buckets, deleting {} buckets",
+                groupId, sffNodeName, bucketsToWrite.size(), bucketIdsToDelete.size());
+
+        // The group is only seen with all of its bucket changes applied
+        ListenableFuture<Boolean> commitFuture = getTransactionChain().submit(new SfcOfTransactionChain.Batch() {
+
+            @Override
+            protected void apply(WriteTransaction trans) {
+                for (Long bucketId : bucketIdsToDelete) {
+                    trans.delete(LogicalDatastoreType.CONFIGURATION,
+                            bucketsIID.child(Bucket.class, new BucketKey(new BucketId(bucketId))));
+                }
+                for (Bucket bucket : bucketsToWrite) {
+                    trans.put(LogicalDatastoreType.CONFIGURATION, bucketsIID.child(Bucket.class, bucket.getKey()),
+                            bucket, true);
+                }
             }
-        } else {
-            if (!SfcDataStoreAPI.deleteTransactionAPI(groupIID, LogicalDatastoreType.CONFIGURATION)) {
-                LOG.warn("Failed to remove group from data store");
+        });
+        warnOnFailure(commitFuture, "Failed to write the buckets of group " + groupId + " to data store");
+    }
+
+    private static void warnOnFailure(ListenableFuture<Boolean> commitFuture, final String message) {
+        Futures.addCallback(commitFuture, new FutureCallback<Boolean>() {
+
+            @Override
+            public void onSuccess(Boolean committed) {
+                if (!committed) {
+                    LOG.warn(message);
+                }
             }
-        }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.warn("{}: {}", message, t.getMessage());
+            }
+        });
     }
 
     /**
@@ -327,7 +967,7 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public FlowBuilder getFlowBuilder() {
-        return this.flowBuilder;
+        return renderingContext.get().flowBuilder;
     }
 
     /**
@@ -338,49 +978,88 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public void deleteRspFlows(final Long rspId) {
-        List<FlowDetails> flowDetailsList = rspNameToFlowsMap.get(rspId);
-        if (flowDetailsList == null) {
+        // The shared flows are only deleted if no other RSP uses them
+        sharedFlowIndex.removeRsp(rspId, renderingContext.get().setOfFlowsToDelete);
+
+        RspFlows rspFlows = rspFlowStore.removeRsp(rspId);
+        if (rspFlows == null) {
             LOG.warn("deleteRspFlows() no flows exist for RSP [{}]", rspId);
             return;
         }
 
-        rspNameToFlowsMap.remove(rspId);
-        setOfFlowsToDelete.addAll(flowDetailsList);
+        Set<FlowDetails> setOfFlowsToDelete = renderingContext.get().setOfFlowsToDelete;
+        for (int i = 0; i < rspFlows.size(); i++) {
+            setOfFlowsToDelete.add(getFlowDetails(rspFlows, i));
+        }
     }
 
+    /**
+     * Start updating the flows of the given rspId. The flows written for the
+     * RSP until the next flushFlows() invocation replace its current flows:
+     * only new or changed flows are written, and only flows that are no longer
+     * written are deleted, in a single transaction per SFF
+     *
+     * @param rspId - the rspId to update flows for
+     */
     @Override
-    public void deleteFlowSet() {
+    public void updateRspFlows(final Long rspId) {
+        RenderingContext context = renderingContext.get();
+        if (context.reconciledSffNodeNames != null) {
+            // The stored flows of the reconciled SFFs are replaced by reconcileFlows()
+            return;
+        }
 
-        LOG.info("deleteFlowSet: deleting {} flows", setOfFlowsToDelete.size());
-        FlowSetRemoverTask fsrt = new FlowSetRemoverTask(setOfFlowsToDelete);
-            try {
-                threadPoolExecutorService.execute(fsrt);
-            } catch (Exception ex) {
-                LOG.error(LOGSTR_THREAD_EXCEPTION, ex.toString());
-            }
+        RspFlows rspFlows = rspFlowStore.removeRsp(rspId);
+        if (rspFlows == null) {
+            // A new RSP
+            LOG.debug("updateRspFlows() no flows exist for RSP [{}]", rspId);
+            return;
+        }
 
-        // Clear the entries
-        setOfFlowsToDelete.clear();
+        context.rspFlowsToUpdate.put(rspId, rspFlows);
+    }
 
+    /**
+     * Delete the flows of the RSPs loaded from the RSP flow store that don't
+     * exist anymore (flows are stored in a deletion buffer; actual
+     * transactional deletion is performed upon deleteFlowSet() invokation
+     *
+     * @param rspIds - the ids of the existing RSPs
+     */
+    @Override
+    public void deleteStaleRspFlows(Set<Long> rspIds) {
+        Map<Long, RspFlows> staleRspFlows = rspFlowStore.removeStaleRsps(rspIds);
+        if (staleRspFlows.isEmpty()) {
+            return;
+        }
+
+        LOG.info("deleteStaleRspFlows() deleting the flows of RSPs {}", staleRspFlows.keySet());
+        Set<FlowDetails> setOfFlowsToDelete = renderingContext.get().setOfFlowsToDelete;
+        for (RspFlows rspFlows : staleRspFlows.values()) {
+            for (int i = 0; i < rspFlows.size(); i++) {
+                setOfFlowsToDelete.add(getFlowDetails(rspFlows, i));
+            }
+        }
     }
 
     @Override
-    public Set<NodeId> clearSffsIfNoRspExists() {
-        // If there is just one entry left in the rsp-flows mapping, then all flows for RSPs
-        // have been deleted, and the only flows remaining are those that are common to all
-        // RSPs, which can be deleted.
-        Set<NodeId> sffNodeIDs = new HashSet<>();
-        if (rspNameToFlowsMap.size() == 1) {
-            LOG.debug("clearSffIfNoRspExists:only one rsp - deleting all remaining flows");
-            Set<Entry<Long, List<FlowDetails>>> entries = rspNameToFlowsMap.entrySet();
-            List<FlowDetails> flowDetailsList = entries.iterator().next().getValue();
-            for (FlowDetails flowDetails : flowDetailsList) {
-                setOfFlowsToDelete.add(flowDetails);
-                sffNodeIDs.add(new NodeId(flowDetails.sffNodeName));
-            }
-            rspNameToFlowsMap.clear();
-        }
-        return sffNodeIDs;
+    public Map<String, ListenableFuture<Boolean>> deleteFlowSet() {
+
+        RenderingContext context = renderingContext.get();
+
+        LOG.info("deleteFlowSet: deleting {} flows", context.setOfFlowsToDelete.size());
+        metrics.flowsQueued(context.setOfFlowsToDelete.size());
+
+        Map<String, ListenableFuture<Boolean>> sffFutures = new HashMap<String, ListenableFuture<Boolean>>();
+        for (Entry<String, Set<FlowDetails>> sffFlows : partitionBySff(context.setOfFlowsToDelete).entrySet()) {
+            FlowSetRemoverTask removerTask = new FlowSetRemoverTask(sffFlows.getKey(), sffFlows.getValue());
+            sffFutures.put(sffFlows.getKey(), getSffTaskQueue(sffFlows.getKey()).submit(removerTask));
+        }
+
+        // Clear the entries
+        context.setOfFlowsToDelete.clear();
+
+        return sffFutures;
     }
 
 }
@@ -10,13 +10,19 @@ package org.opendaylight.sfc.ofrenderer.openflow;
 
 import java.util.concurrent.ExecutionException;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.group.buckets.Bucket;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.group.types.rev131018.groups.GroupBuilder;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * An interface to be implemented by concrete classes that will OpenFlow rules to MD-SAL datastore.
@@ -31,12 +37,36 @@ public interface SfcOfFlowWriterInterface {
     //Write flows to MD-SAL datastore
     public void writeFlow(final Long rspId, final String sffNodeName, FlowBuilder flow);
 
+    /**
+     * Write a flow that doesn't depend on the RSP, and can be used by
+     * several RSPs. The flow is only written to the data store when no other
+     * RSP uses it yet or its contents changed, and it is deleted along with
+     * the last RSP that uses it.
+     *
+     * @param rspId the ID of the RSP using the flow
+     * @param sffNodeName the SFF to write the flow to
+     * @param flow the flow to write
+     */
+    public void writeSharedFlow(final Long rspId, final String sffNodeName, FlowBuilder flow);
+
     //Remove flows from MD-SAL datastore
     public void removeFlow(final String sffNodeName, FlowKey flowKey, TableKey tableKey);
 
     //Write group to MD-SAL datastore
     public void writeGroupToDataStore(String sffNodeName, GroupBuilder gb, boolean isAdd);
 
+    /**
+     * Write and delete some buckets of an existing group in a single
+     * transaction. The other buckets of the group are left untouched.
+     *
+     * @param sffNodeName the SFF of the group
+     * @param groupId the ID of the group
+     * @param bucketsToWrite the buckets to add or replace
+     * @param bucketIdsToDelete the IDs of the buckets to delete
+     */
+    public void writeGroupBucketsToDataStore(String sffNodeName, long groupId, List<Bucket> bucketsToWrite,
+            List<Long> bucketIdsToDelete);
+
     /**
      * Delete all flows created for a particular RSP.
      *
@@ -45,21 +75,62 @@ public interface SfcOfFlowWriterInterface {
     public void deleteRspFlows(final Long rspId);
 
     /**
-     * Delete initialization flows from SFF if no RSP exists.
+     * Start updating the flows created for a particular RSP. The flows written
+     * for it until the next flushFlows() replace its current flows, if any,
+     * writing and deleting only the flows that differ.
      *
-     * @return Set of NodeIDs of cleared SFFs.
-     * Example of NodeID: openflow:99344160872776
+     * @param rspId the ID of the RSP
      */
-    public Set<NodeId> clearSffsIfNoRspExists();
+    public void updateRspFlows(final Long rspId);
+
+    /**
+     * Delete the flows of the RSPs stored before a restart that don't exist
+     * anymore. Only the first invocation deletes anything.
+     *
+     * @param rspIds the IDs of the existing RSPs
+     */
+    public void deleteStaleRspFlows(Set<Long> rspIds);
+
 
     // Get the most recent Flow Builder
     public FlowBuilder getFlowBuilder();
 
-    // Flush any flows that havent been written to the data store yet
-    public void flushFlows();
+    /**
+     * Flush any flows that havent been written to the data store yet.
+     * The flows of each SFF are committed independently, in order.
+     *
+     * @return per SFF node name, a future completed with true once its flows are committed
+     */
+    public Map<String, ListenableFuture<Boolean>> flushFlows();
+
+    /**
+     * Performs the deletion of any flows that havent been deleted from the data store yet.
+     * The flows of each SFF are deleted independently, in order.
+     *
+     * @return per SFF node name, a future completed with true once its flows are deleted
+     */
+    public Map<String, ListenableFuture<Boolean>> deleteFlowSet();
 
-    // Performs the deletion of any flows that havent been deleted from the data store yet
-    public void deleteFlowSet();
+    /**
+     * Start reconciling the flows of the given SFFs. The flows written for
+     * them until the next reconcileFlows() are the flows they should have,
+     * and are neither written nor stored until then. Flows written for any
+     * other SFF are ignored.
+     *
+     * @param sffNodeNames node names of the SFFs to reconcile
+     */
+    public void startReconciliation(Set<String> sffNodeNames);
+
+    /**
+     * Reconcile the SFFs given to startReconciliation() with their flows in
+     * the operational inventory. Only the missing or changed flows are written,
+     * and only the SFC flows that were not written since startReconciliation()
+     * are deleted, in a single transaction per SFF.
+     *
+     * @param isSfcFlow selects the inventory flows that belong to SFC
+     * @return per SFF node name, a future completed with true once its flows are reconciled
+     */
+    public Map<String, ListenableFuture<Boolean>> reconcileFlows(Predicate<Flow> isSfcFlow);
 
     // Purge any flows that havent been written/deleted to/from the data store yet
     public void purgeFlows();
@@ -0,0 +1,469 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.SfcOfRendererStats;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.SfcOfRendererStatsBuilder;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.CommitLatencyBuilder;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.RenderFlowsLatencyBuilder;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.RenderFlushLatencyBuilder;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.RenderGraphLatencyBuilder;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.SffStats;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.SffStatsBuilder;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.SffStatsKey;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.of.renderer.rev151123.sfc.of.renderer.stats.sff.stats.SffCommitLatencyBuilder;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The flow programming statistics of the SFC OpenFlow Renderer. The statistics
+ * are only atomic counters and histograms, so they can be updated on every flow
+ * operation. They are exposed through JMX, and periodically written to the
+ * sfc-of-renderer-stats operational container once started.
+ */
+public class SfcOfRendererMetrics implements SfcOfRendererMetricsMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfRendererMetrics.class);
+    private static final String MXBEAN_NAME = "org.opendaylight.sfc.ofrenderer:type=SfcOfRendererMetrics";
+    private static final InstanceIdentifier<SfcOfRendererStats> STATS_IID =
+            InstanceIdentifier.builder(SfcOfRendererStats.class).build();
+
+    private static final SfcOfRendererMetrics INSTANCE = new SfcOfRendererMetrics();
+
+    private final AtomicLong flowsQueued = new AtomicLong();
+    private final AtomicLong flowsCommitted = new AtomicLong();
+    private final AtomicLong flowCommitFailures = new AtomicLong();
+    private final AtomicInteger taskQueueDepth = new AtomicInteger();
+    private final AtomicLong rspsRendered = new AtomicLong();
+    private final LatencyHistogram renderGraphLatency = new LatencyHistogram();
+    private final LatencyHistogram renderFlowsLatency = new LatencyHistogram();
+    private final LatencyHistogram renderFlushLatency = new LatencyHistogram();
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    private final ConcurrentMap<String, SffMetrics> sffMetrics = new ConcurrentHashMap<String, SffMetrics>();
+    // The PktIn handler whose counters are exposed, null if there is none
+    private volatile SfcIpv4PacketInHandler packetInHandler = null;
+
+    private ScheduledExecutorService publishExecutor = null;
+
+    public static SfcOfRendererMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register the MXBean, and write the statistics to the operational
+     * data store every publishPeriod seconds.
+     *
+     * @param publishPeriod - the period in seconds
+     */
+    public synchronized void start(long publishPeriod) {
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MXBEAN_NAME);
+            if (!mbeanServer.isRegistered(objectName)) {
+                mbeanServer.registerMBean(this, objectName);
+            }
+        } catch (Exception e) {
+            LOG.error("SfcOfRendererMetrics failed to register the MXBean: {}", e.getMessage());
+        }
+
+        if (publishExecutor == null) {
+            publishExecutor = Executors.newSingleThreadScheduledExecutor();
+            publishExecutor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        publish();
+                    } catch (Exception e) {
+                        // An exception would cancel the next publications
+                        LOG.error("SfcOfRendererMetrics failed to write the statistics", e);
+                    }
+                }
+            }, publishPeriod, publishPeriod, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (publishExecutor != null) {
+            publishExecutor.shutdown();
+            publishExecutor = null;
+        }
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(MXBEAN_NAME);
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOG.error("SfcOfRendererMetrics failed to unregister the MXBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Set the PktIn handler whose dropped PktIns and queued ACL flows are
+     * part of the statistics.
+     *
+     * @param packetInHandler - the handler, null to stop exposing its counters
+     */
+    public void setPacketInHandler(SfcIpv4PacketInHandler packetInHandler) {
+        this.packetInHandler = packetInHandler;
+    }
+
+    //
+    // Updates
+    //
+
+    public void flowsQueued(int flowCount) {
+        flowsQueued.addAndGet(flowCount);
+    }
+
+    public void taskQueued() {
+        taskQueueDepth.incrementAndGet();
+    }
+
+    public void tasksDone(int taskCount) {
+        taskQueueDepth.addAndGet(-taskCount);
+    }
+
+    /**
+     * Record a flow transaction of a SFF.
+     *
+     * @param sffNodeName - the SFF of the transaction
+     * @param flowCount - the flows written and deleted by the transaction
+     * @param startNanos - System.nanoTime() when the transaction started
+     * @param committed - if the transaction was committed
+     */
+    public void flowsCommitted(String sffNodeName, int flowCount, long startNanos, boolean committed) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        if (!committed) {
+            flowCommitFailures.incrementAndGet();
+            return;
+        }
+        flowsCommitted.addAndGet(flowCount);
+        commitLatency.record(latencyNanos);
+
+        SffMetrics sff = sffMetrics.get(sffNodeName);
+        if (sff == null) {
+            sff = new SffMetrics();
+            SffMetrics existing = sffMetrics.putIfAbsent(sffNodeName, sff);
+            if (existing != null) {
+                sff = existing;
+            }
+        }
+        sff.flowsCommitted.addAndGet(flowCount);
+        sff.commitLatency.record(latencyNanos);
+    }
+
+    /**
+     * Record the rendering of a RSP, from the System.nanoTime() values at the
+     * start of the rendering and at the end of each phase.
+     *
+     * @param startNanos - when the rendering started
+     * @param graphNanos - when the SFF graph was built
+     * @param flowsNanos - when the flows were computed
+     * @param flushNanos - when the flows were handed to the flow writer
+     */
+    public void rspRendered(long startNanos, long graphNanos, long flowsNanos, long flushNanos) {
+        rspsRendered.incrementAndGet();
+        renderGraphLatency.record(graphNanos - startNanos);
+        renderFlowsLatency.record(flowsNanos - graphNanos);
+        renderFlushLatency.record(flushNanos - flowsNanos);
+    }
+
+    //
+    // MXBean
+    //
+
+    @Override
+    public long getFlowsQueued() {
+        return flowsQueued.get();
+    }
+
+    @Override
+    public long getFlowsCommitted() {
+        return flowsCommitted.get();
+    }
+
+    @Override
+    public long getFlowCommitFailures() {
+        return flowCommitFailures.get();
+    }
+
+    @Override
+    public int getTaskQueueDepth() {
+        return taskQueueDepth.get();
+    }
+
+    @Override
+    public long getRspsRendered() {
+        return rspsRendered.get();
+    }
+
+    @Override
+    public long getPktInsDropped() {
+        SfcIpv4PacketInHandler handler = packetInHandler;
+        return handler == null ? 0 : handler.getDroppedPacketCount();
+    }
+
+    @Override
+    public int getAclFlowsQueued() {
+        SfcIpv4PacketInHandler handler = packetInHandler;
+        return handler == null ? 0 : handler.getQueuedAclFlowCount();
+    }
+
+    @Override
+    public LatencyStats getRenderGraphLatency() {
+        return renderGraphLatency.getStats();
+    }
+
+    @Override
+    public LatencyStats getRenderFlowsLatency() {
+        return renderFlowsLatency.getStats();
+    }
+
+    @Override
+    public LatencyStats getRenderFlushLatency() {
+        return renderFlushLatency.getStats();
+    }
+
+    @Override
+    public LatencyStats getCommitLatency() {
+        return commitLatency.getStats();
+    }
+
+    @Override
+    public Map<String, Long> getSffFlowsCommitted() {
+        Map<String, Long> sffFlowsCommitted = new HashMap<String, Long>();
+        for (Map.Entry<String, SffMetrics> sff : sffMetrics.entrySet()) {
+            sffFlowsCommitted.put(sff.getKey(), sff.getValue().flowsCommitted.get());
+        }
+        return sffFlowsCommitted;
+    }
+
+    @Override
+    public Map<String, LatencyStats> getSffCommitLatency() {
+        Map<String, LatencyStats> sffCommitLatency = new HashMap<String, LatencyStats>();
+        for (Map.Entry<String, SffMetrics> sff : sffMetrics.entrySet()) {
+            sffCommitLatency.put(sff.getKey(), sff.getValue().commitLatency.getStats());
+        }
+        return sffCommitLatency;
+    }
+
+    /**
+     * Reset the counters and histograms. The task queue depth is not a
+     * counter, so it is kept. The PktIn counts belong to the PktIn handler,
+     * so they are kept too.
+     */
+    @Override
+    public void reset() {
+        flowsQueued.set(0);
+        flowsCommitted.set(0);
+        flowCommitFailures.set(0);
+        rspsRendered.set(0);
+        renderGraphLatency.reset();
+        renderFlowsLatency.reset();
+        renderFlushLatency.reset();
+        commitLatency.reset();
+        sffMetrics.clear();
+    }
+
+    //
+    // Operational data store
+    //
+
+    private void publish() {
+        List<SffStats> sffStats = new ArrayList<SffStats>();
+        for (Map.Entry<String, SffMetrics> sff : sffMetrics.entrySet()) {
+            LatencyStats latency = sff.getValue().commitLatency.getStats();
+            sffStats.add(new SffStatsBuilder()
+                    .setKey(new SffStatsKey(sff.getKey()))
+                    .setSffNodeName(sff.getKey())
+                    .setFlowsCommitted(BigInteger.valueOf(sff.getValue().flowsCommitted.get()))
+                    .setSffCommitLatency(new SffCommitLatencyBuilder()
+                            .setCount(BigInteger.valueOf(latency.getCount()))
+                            .setMeanMicros(BigInteger.valueOf(latency.getMeanMicros()))
+                            .setP50Micros(BigInteger.valueOf(latency.getP50Micros()))
+                            .setP99Micros(BigInteger.valueOf(latency.getP99Micros()))
+                            .setMaxMicros(BigInteger.valueOf(latency.getMaxMicros()))
+                            .build())
+                    .build());
+        }
+
+        LatencyStats graph = getRenderGraphLatency();
+        LatencyStats flows = getRenderFlowsLatency();
+        LatencyStats flush = getRenderFlushLatency();
+        LatencyStats commit = getCommitLatency();
+        SfcOfRendererStats stats = new SfcOfRendererStatsBuilder()
+                .setFlowsQueued(BigInteger.valueOf(getFlowsQueued()))
+                .setFlowsCommitted(BigInteger.valueOf(getFlowsCommitted()))
+                .setFlowCommitFailures(BigInteger.valueOf(getFlowCommitFailures()))
+                .setTaskQueueDepth((long) Math.max(0, getTaskQueueDepth()))
+                .setRspsRendered(BigInteger.valueOf(getRspsRendered()))
+                .setPktInsDropped(BigInteger.valueOf(getPktInsDropped()))
+                .setAclFlowsQueued((long) Math.max(0, getAclFlowsQueued()))
+                .setRenderGraphLatency(new RenderGraphLatencyBuilder()
+                        .setCount(BigInteger.valueOf(graph.getCount()))
+                        .setMeanMicros(BigInteger.valueOf(graph.getMeanMicros()))
+                        .setP50Micros(BigInteger.valueOf(graph.getP50Micros()))
+                        .setP99Micros(BigInteger.valueOf(graph.getP99Micros()))
+                        .setMaxMicros(BigInteger.valueOf(graph.getMaxMicros()))
+                        .build())
+                .setRenderFlowsLatency(new RenderFlowsLatencyBuilder()
+                        .setCount(BigInteger.valueOf(flows.getCount()))
+                        .setMeanMicros(BigInteger.valueOf(flows.getMeanMicros()))
+                        .setP50Micros(BigInteger.valueOf(flows.getP50Micros()))
+                        .setP99Micros(BigInteger.valueOf(flows.getP99Micros()))
+                        .setMaxMicros(BigInteger.valueOf(flows.getMaxMicros()))
+                        .build())
+                .setRenderFlushLatency(new RenderFlushLatencyBuilder()
+                        .setCount(BigInteger.valueOf(flush.getCount()))
+                        .setMeanMicros(BigInteger.valueOf(flush.getMeanMicros()))
+                        .setP50Micros(BigInteger.valueOf(flush.getP50Micros()))
+                        .setP99Micros(BigInteger.valueOf(flush.getP99Micros()))
+                        .setMaxMicros(BigInteger.valueOf(flush.getMaxMicros()))
+                        .build())
+                .setCommitLatency(new CommitLatencyBuilder()
+                        .setCount(BigInteger.valueOf(commit.getCount()))
+                        .setMeanMicros(BigInteger.valueOf(commit.getMeanMicros()))
+                        .setP50Micros(BigInteger.valueOf(commit.getP50Micros()))
+                        .setP99Micros(BigInteger.valueOf(commit.getP99Micros()))
+                        .setMaxMicros(BigInteger.valueOf(commit.getMaxMicros()))
+                        .build())
+                .setSffStats(sffStats)
+                .build();
+
+        if (!SfcDataStoreAPI.writePutTransactionAPI(STATS_IID, stats, LogicalDatastoreType.OPERATIONAL)) {
+            LOG.warn("SfcOfRendererMetrics failed to write the statistics");
+        }
+    }
+
+    private static class SffMetrics {
+        private final AtomicLong flowsCommitted = new AtomicLong();
+        private final LatencyHistogram commitLatency = new LatencyHistogram();
+    }
+
+    /**
+     * A latency histogram with a bucket per power of 2 microseconds. Recording
+     * a latency only updates atomic counters.
+     */
+    public static class LatencyHistogram {
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        public void record(long latencyNanos) {
+            long micros = Math.max(0, latencyNanos / 1000);
+            // Bucket i holds the latencies below 2^i microseconds
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            count.incrementAndGet();
+            sumMicros.addAndGet(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        public LatencyStats getStats() {
+            long total = count.get();
+            if (total == 0) {
+                return new LatencyStats(0, 0, 0, 0, 0);
+            }
+            long max = maxMicros.get();
+            return new LatencyStats(total, sumMicros.get() / total, getPercentile(total, 50, max),
+                    getPercentile(total, 99, max), max);
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sumMicros.set(0);
+            maxMicros.set(0);
+        }
+
+        // The upper bound of the bucket holding the percentile, at most the maximum
+        private long getPercentile(long total, int percentile, long max) {
+            long rank = (total * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(max, (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * A summary of a LatencyHistogram, in microseconds.
+     */
+    public static class LatencyStats {
+        private final long count;
+        private final long meanMicros;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        @ConstructorProperties({"count", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+        public LatencyStats(long count, long meanMicros, long p50Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanMicros() {
+            return meanMicros;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+    }
+}
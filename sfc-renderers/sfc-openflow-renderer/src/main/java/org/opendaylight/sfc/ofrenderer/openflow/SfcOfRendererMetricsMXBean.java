@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.util.Map;
+
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererMetrics.LatencyStats;
+
+/**
+ * The flow programming statistics of the SFC OpenFlow Renderer, as a JMX MXBean.
+ */
+public interface SfcOfRendererMetricsMXBean {
+
+    long getFlowsQueued();
+
+    long getFlowsCommitted();
+
+    long getFlowCommitFailures();
+
+    int getTaskQueueDepth();
+
+    long getRspsRendered();
+
+    long getPktInsDropped();
+
+    int getAclFlowsQueued();
+
+    LatencyStats getRenderGraphLatency();
+
+    LatencyStats getRenderFlowsLatency();
+
+    LatencyStats getRenderFlushLatency();
+
+    LatencyStats getCommitLatency();
+
+    Map<String, Long> getSffFlowsCommitted();
+
+    Map<String, LatencyStats> getSffCommitLatency();
+
+    void reset();
+}
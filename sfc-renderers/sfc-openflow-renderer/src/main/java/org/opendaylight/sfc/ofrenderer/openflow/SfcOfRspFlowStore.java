@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+
+/**
+ * The flows owned by each RSP. A flow is kept as its SFF node, table and flow
+ * id, plus a hash of its contents to compare it when the RSP is updated, in
+ * primitive arrays per RSP, so the flows themselves are not kept in memory.
+ * <p>
+ * When created with a file, every change is appended to a journal in that
+ * memory-mapped file. The journal is replayed and compacted on creation, so
+ * the flows of the RSPs can still be deleted after a restart.
+ */
+public class SfcOfRspFlowStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfRspFlowStore.class);
+
+    private static final int JOURNAL_MAGIC = 0x5346434f;
+    private static final int JOURNAL_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 8;
+    private static final int INITIAL_JOURNAL_SIZE = 1 << 20;
+    // A record is its type followed by its fields, a zero type ends the journal
+    private static final byte RECORD_END = 0;
+    private static final byte RECORD_NODE = 1;
+    private static final byte RECORD_FLOW = 2;
+    private static final byte RECORD_REMOVE_RSP = 3;
+    private static final int FLOW_RECORD_SIZE = 1 + 8 + 4 + 2 + 8 + 8;
+    private static final int REMOVE_RSP_RECORD_SIZE = 1 + 8;
+
+    // SFF node names are stored once, flows refer to them by index
+    private final List<String> nodeNames = new ArrayList<String>();
+    private final Map<String, Integer> nodeIndexes = new HashMap<String, Integer>();
+    private final Map<Long, RspFlows> rspFlows = new HashMap<Long, RspFlows>();
+    private int flowCount = 0;
+    // The RSPs loaded from the journal whose flows didn't change since
+    private final Set<Long> loadedRspIds = new HashSet<Long>();
+
+    private final File journalFile;
+    private FileChannel journalChannel = null;
+    private MappedByteBuffer journal = null;
+
+    /**
+     * Create a store that is only kept in memory.
+     */
+    public SfcOfRspFlowStore() {
+        this.journalFile = null;
+    }
+
+    /**
+     * Create a store persisted to the given file, with the flows stored in it.
+     *
+     * @param journalFile - the file the store is persisted to, created if it doesn't exist
+     * @throws IOException if the file can't be read or written
+     */
+    public SfcOfRspFlowStore(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+        if (journalFile.exists()) {
+            replayJournal();
+        }
+        loadedRspIds.addAll(rspFlows.keySet());
+        compactJournal();
+        LOG.info("SfcOfRspFlowStore loaded {} flows of {} RSPs from {}", flowCount, rspFlows.size(), journalFile);
+    }
+
+    /**
+     * The flows of a RSP. The arrays grow as flows are added, only the first
+     * size() entries are used.
+     */
+    public final class RspFlows {
+        private int size = 0;
+        private int[] nodeIndexes;
+        private short[] tableIds;
+        private long[] flowIds;
+        private long[] contentHashes;
+
+        private RspFlows(int capacity) {
+            nodeIndexes = new int[capacity];
+            tableIds = new short[capacity];
+            flowIds = new long[capacity];
+            contentHashes = new long[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String getSffNodeName(int i) {
+            return getNodeName(nodeIndexes[i]);
+        }
+
+        public short getTableId(int i) {
+            return tableIds[i];
+        }
+
+        public long getFlowId(int i) {
+            return flowIds[i];
+        }
+
+        public long getContentHash(int i) {
+            return contentHashes[i];
+        }
+
+        /**
+         * Find a flow by its location.
+         *
+         * @return the index of the flow, -1 if not found
+         */
+        private int indexOf(int nodeIndex, short tableId, long flowId) {
+            for (int i = 0; i < size; i++) {
+                if (flowIds[i] == flowId && tableIds[i] == tableId && nodeIndexes[i] == nodeIndex) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void add(int nodeIndex, short tableId, long flowId, long contentHash) {
+            if (size == flowIds.length) {
+                int capacity = Math.max(4, size * 2);
+                nodeIndexes = Arrays.copyOf(nodeIndexes, capacity);
+                tableIds = Arrays.copyOf(tableIds, capacity);
+                flowIds = Arrays.copyOf(flowIds, capacity);
+                contentHashes = Arrays.copyOf(contentHashes, capacity);
+            }
+            nodeIndexes[size] = nodeIndex;
+            tableIds[size] = tableId;
+            flowIds[size] = flowId;
+            contentHashes[size] = contentHash;
+            size++;
+        }
+
+        private RspFlows copy() {
+            RspFlows copy = new RspFlows(size);
+            copy.size = size;
+            System.arraycopy(nodeIndexes, 0, copy.nodeIndexes, 0, size);
+            System.arraycopy(tableIds, 0, copy.tableIds, 0, size);
+            System.arraycopy(flowIds, 0, copy.flowIds, 0, size);
+            System.arraycopy(contentHashes, 0, copy.contentHashes, 0, size);
+            return copy;
+        }
+    }
+
+    /**
+     * Add a flow to the flows of a RSP. A flow already stored for the RSP,
+     * on the same SFF node and table and with the same flow id, is replaced.
+     *
+     * @param rspId - the RSP owning the flow
+     * @param sffNodeName - the SFF node of the flow
+     * @param tableId - the table of the flow
+     * @param flowId - the numeric flow id
+     * @param contentHash - the hash of the flow contents
+     */
+    public synchronized void addFlow(long rspId, String sffNodeName, short tableId, long flowId, long contentHash) {
+        RspFlows flows = rspFlows.get(rspId);
+        if (flows == null) {
+            flows = new RspFlows(4);
+            rspFlows.put(rspId, flows);
+        }
+        loadedRspIds.remove(rspId);
+        int nodeIndex = getNodeIndex(sffNodeName);
+        int i = flows.indexOf(nodeIndex, tableId, flowId);
+        if (i < 0) {
+            flows.add(nodeIndex, tableId, flowId, contentHash);
+            flowCount++;
+        } else if (flows.contentHashes[i] != contentHash) {
+            flows.contentHashes[i] = contentHash;
+        } else {
+            return;
+        }
+        // The journal replay replaces the flow the same way
+        journalFlow(rspId, nodeIndex, tableId, flowId, contentHash);
+    }
+
+    /**
+     * Add flows to the flows of a RSP, for instance to restore the flows
+     * returned by removeRsp().
+     *
+     * @param rspId - the RSP owning the flows
+     * @param flows - the flows to add
+     */
+    public synchronized void addFlows(long rspId, RspFlows flows) {
+        for (int i = 0; i < flows.size(); i++) {
+            addFlow(rspId, flows.getSffNodeName(i), flows.getTableId(i), flows.getFlowId(i), flows.getContentHash(i));
+        }
+    }
+
+    /**
+     * Get a copy of the flows of a RSP.
+     *
+     * @param rspId - the RSP
+     * @return the flows of the RSP, null if it has none
+     */
+    public synchronized RspFlows getRsp(long rspId) {
+        RspFlows flows = rspFlows.get(rspId);
+        return flows == null ? null : flows.copy();
+    }
+
+    /**
+     * Remove all the flows of a RSP.
+     *
+     * @param rspId - the RSP
+     * @return the removed flows, null if the RSP had none
+     */
+    public synchronized RspFlows removeRsp(long rspId) {
+        loadedRspIds.remove(rspId);
+        RspFlows flows = rspFlows.remove(rspId);
+        if (flows == null) {
+            return null;
+        }
+        flowCount -= flows.size();
+        journalRemoveRsp(rspId);
+        return flows;
+    }
+
+    /**
+     * Remove the RSPs loaded from the journal that are not in the given set,
+     * for instance because they were deleted while the store was closed.
+     * RSPs whose flows were added or removed since the store was created are
+     * kept, and only the first call removes anything.
+     *
+     * @param rspIds - the RSPs that currently exist
+     * @return the removed flows, per RSP
+     */
+    public synchronized Map<Long, RspFlows> removeStaleRsps(Set<Long> rspIds) {
+        Map<Long, RspFlows> staleRspFlows = new HashMap<Long, RspFlows>();
+        for (Long rspId : loadedRspIds) {
+            RspFlows flows = rspIds.contains(rspId) ? null : rspFlows.remove(rspId);
+            // The RSP may have lost all its flows to removeSffFlows()
+            if (flows != null) {
+                flowCount -= flows.size();
+                staleRspFlows.put(rspId, flows);
+            }
+        }
+        loadedRspIds.clear();
+        if (!staleRspFlows.isEmpty()) {
+            compactJournalQuietly();
+        }
+        return staleRspFlows;
+    }
+
+    /**
+     * Remove the flows of the given SFFs from all the RSPs.
+     *
+     * @param sffNodeNames - the node names of the SFFs
+     */
+    public synchronized void removeSffFlows(Set<String> sffNodeNames) {
+        Iterator<RspFlows> rspFlowsIter = rspFlows.values().iterator();
+        while (rspFlowsIter.hasNext()) {
+            RspFlows flows = rspFlowsIter.next();
+            int kept = 0;
+            for (int i = 0; i < flows.size; i++) {
+                if (!sffNodeNames.contains(getNodeName(flows.nodeIndexes[i]))) {
+                    flows.nodeIndexes[kept] = flows.nodeIndexes[i];
+                    flows.tableIds[kept] = flows.tableIds[i];
+                    flows.flowIds[kept] = flows.flowIds[i];
+                    flows.contentHashes[kept] = flows.contentHashes[i];
+                    kept++;
+                }
+            }
+            flowCount -= flows.size - kept;
+            flows.size = kept;
+            if (kept == 0) {
+                rspFlowsIter.remove();
+            }
+        }
+        // Many records are removed at once, so the journal is rewritten
+        compactJournalQuietly();
+    }
+
+    public synchronized int getRspCount() {
+        return rspFlows.size();
+    }
+
+    public synchronized void close() {
+        closeJournal();
+    }
+
+    private synchronized String getNodeName(int nodeIndex) {
+        return nodeNames.get(nodeIndex);
+    }
+
+    private int getNodeIndex(String sffNodeName) {
+        Integer nodeIndex = nodeIndexes.get(sffNodeName);
+        if (nodeIndex == null) {
+            nodeIndex = nodeNames.size();
+            nodeNames.add(sffNodeName);
+            nodeIndexes.put(sffNodeName, nodeIndex);
+            journalNode(nodeIndex, sffNodeName);
+        }
+        return nodeIndex;
+    }
+
+    //
+    // Journal
+    //
+
+    private void journalNode(int nodeIndex, String sffNodeName) {
+        if (journal == null) {
+            return;
+        }
+        byte[] name = sffNodeName.getBytes(Charsets.UTF_8);
+        if (!reserve(1 + 4 + 2 + name.length)) {
+            return;
+        }
+        int position = journal.position();
+        journal.position(position + 1);
+        journal.putInt(nodeIndex).putShort((short) name.length).put(name);
+        endRecord(position, RECORD_NODE);
+    }
+
+    private void journalFlow(long rspId, int nodeIndex, short tableId, long flowId, long contentHash) {
+        if (journal == null || !reserve(FLOW_RECORD_SIZE)) {
+            return;
+        }
+        int position = journal.position();
+        journal.position(position + 1);
+        journal.putLong(rspId).putInt(nodeIndex).putShort(tableId).putLong(flowId).putLong(contentHash);
+        endRecord(position, RECORD_FLOW);
+    }
+
+    private void journalRemoveRsp(long rspId) {
+        if (journal == null || !reserve(REMOVE_RSP_RECORD_SIZE)) {
+            return;
+        }
+        int position = journal.position();
+        journal.position(position + 1);
+        journal.putLong(rspId);
+        endRecord(position, RECORD_REMOVE_RSP);
+
+        // Removed RSPs leave dead records behind
+        if (journal.position() > INITIAL_JOURNAL_SIZE
+                && journal.position() > 2 * (JOURNAL_HEADER_SIZE + flowCount * FLOW_RECORD_SIZE)) {
+            compactJournalQuietly();
+        }
+    }
+
+    // The type is written last, so a record that wasn't completely written ends the journal
+    private void endRecord(int position, byte recordType) {
+        int end = journal.position();
+        journal.put(end, RECORD_END);
+        journal.put(position, recordType);
+    }
+
+    /**
+     * Make room for a record and the journal end mark, growing the file if needed.
+     *
+     * @return false if the journal couldn't grow, and is no longer written
+     */
+    private boolean reserve(int recordSize) {
+        if (journal.remaining() > recordSize) {
+            return true;
+        }
+        try {
+            int position = journal.position();
+            long size = Math.max((long) journal.capacity() * 2, position + recordSize + 1);
+            journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            journal.position(position);
+            return true;
+        } catch (IOException e) {
+            LOG.error("SfcOfRspFlowStore failed to grow {}, RSP flows are no longer persisted: {}",
+                    journalFile, e.getMessage());
+            closeJournal();
+            return false;
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "r");
+                FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < JOURNAL_HEADER_SIZE || buffer.getInt() != JOURNAL_MAGIC
+                    || buffer.getInt() != JOURNAL_VERSION) {
+                LOG.warn("SfcOfRspFlowStore ignoring {}, it is not a RSP flow journal", journalFile);
+                return;
+            }
+
+            try {
+                while (buffer.hasRemaining()) {
+                    byte recordType = buffer.get();
+                    if (recordType == RECORD_NODE) {
+                        int nodeIndex = buffer.getInt();
+                        byte[] name = new byte[buffer.getShort()];
+                        buffer.get(name);
+                        if (nodeIndex != nodeNames.size()) {
+                            throw new IOException("Unexpected node index " + nodeIndex + " in " + journalFile);
+                        }
+                        getNodeIndex(new String(name, Charsets.UTF_8));
+                    } else if (recordType == RECORD_FLOW) {
+                        long rspId = buffer.getLong();
+                        int nodeIndex = buffer.getInt();
+                        short tableId = buffer.getShort();
+                        long flowId = buffer.getLong();
+                        long contentHash = buffer.getLong();
+                        addFlow(rspId, getNodeName(nodeIndex), tableId, flowId, contentHash);
+                    } else if (recordType == RECORD_REMOVE_RSP) {
+                        removeRsp(buffer.getLong());
+                    } else {
+                        break;
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                LOG.warn("SfcOfRspFlowStore {} ends with an incomplete record", journalFile);
+            }
+        }
+    }
+
+    private void compactJournalQuietly() {
+        if (journalFile == null) {
+            return;
+        }
+        try {
+            compactJournal();
+        } catch (IOException e) {
+            LOG.error("SfcOfRspFlowStore failed to compact {}, RSP flows are no longer persisted: {}",
+                    journalFile, e.getMessage());
+            closeJournal();
+        }
+    }
+
+    /**
+     * Write the current flows to a new journal, which then replaces the current one.
+     */
+    private void compactJournal() throws IOException {
+        closeJournal();
+        File parent = journalFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        File compactFile = new File(journalFile.getPath() + ".tmp");
+        Files.deleteIfExists(compactFile.toPath());
+
+        journalChannel = new RandomAccessFile(compactFile, "rw").getChannel();
+        long size = Math.max(INITIAL_JOURNAL_SIZE, 2L * (JOURNAL_HEADER_SIZE + flowCount * FLOW_RECORD_SIZE));
+        journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        journal.putInt(JOURNAL_MAGIC).putInt(JOURNAL_VERSION);
+        for (int nodeIndex = 0; nodeIndex < nodeNames.size(); nodeIndex++) {
+            journalNode(nodeIndex, nodeNames.get(nodeIndex));
+        }
+        for (Entry<Long, RspFlows> entry : rspFlows.entrySet()) {
+            RspFlows flows = entry.getValue();
+            for (int i = 0; i < flows.size; i++) {
+                journalFlow(entry.getKey(), flows.nodeIndexes[i], flows.tableIds[i], flows.flowIds[i],
+                        flows.contentHashes[i]);
+            }
+        }
+        journal.force();
+
+        // The mapping stays valid once the file is renamed
+        Files.move(compactFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void closeJournal() {
+        if (journalChannel == null) {
+            return;
+        }
+        try {
+            journal.force();
+            journalChannel.close();
+        } catch (IOException e) {
+            LOG.warn("SfcOfRspFlowStore failed to close {}: {}", journalFile, e.getMessage());
+        }
+        journalChannel = null;
+        journal = null;
+    }
+}
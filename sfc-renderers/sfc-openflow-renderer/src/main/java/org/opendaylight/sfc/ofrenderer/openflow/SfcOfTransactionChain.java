@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.opendaylight.controller.md.sal.binding.api.BindingTransactionChain;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionChain;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionChainListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Commits the flow and group writes of the OpenFlow renderer on a data store
+ * transaction chain.
+ * <p>
+ * Each batch of writes is submitted in its own transaction of the chain,
+ * without waiting for the previous transactions to be committed: the chain
+ * keeps them in submission order. The batches are kept until committed, so
+ * when the chain fails, a new chain is created and the batches of the failed
+ * chain are submitted again, in the same order. The batch whose transaction
+ * failed the chain is only submitted again MAX_BATCH_RETRIES times.
+ */
+public class SfcOfTransactionChain implements TransactionChainListener, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfTransactionChain.class);
+    // How many times a batch failing the chain is submitted again
+    public static final int MAX_BATCH_RETRIES = 3;
+
+    private final DataBroker dataBroker;
+    private BindingTransactionChain chain = null;
+    // The submitted batches not committed yet, in submission order
+    private final Set<Batch> pendingBatches = new LinkedHashSet<Batch>();
+    // The batches whose future is set once the monitor is released, so
+    // the future listeners never run while holding it
+    private final List<Batch> completedBatches = new ArrayList<Batch>();
+    private boolean closed = false;
+
+    /**
+     * A set of writes committed in a single transaction.
+     */
+    public abstract static class Batch {
+        private final SettableFuture<Boolean> result = SettableFuture.create();
+        private TransactionChain<?, ?> chain = null;
+        private WriteTransaction transaction = null;
+        private int failures = 0;
+        private boolean committed = false;
+
+        /**
+         * Add the writes of the batch to a transaction. Called again with a
+         * new transaction every time the batch is submitted again.
+         *
+         * @param trans - the transaction to add the writes to
+         */
+        protected abstract void apply(WriteTransaction trans);
+    }
+
+    public SfcOfTransactionChain(DataBroker dataBroker) {
+        this.dataBroker = dataBroker;
+    }
+
+    /**
+     * Submit a batch of writes, after all the previously submitted batches.
+     *
+     * @param batch - the batch to submit
+     * @return a future set to true when the batch is committed, or false if
+     *      it could not be committed
+     */
+    public ListenableFuture<Boolean> submit(Batch batch) {
+        synchronized (this) {
+            if (closed) {
+                LOG.warn("submit: the transaction chain is closed");
+                return Futures.immediateFuture(false);
+            }
+            pendingBatches.add(batch);
+            submitTransaction(batch);
+        }
+        completeBatches();
+        return batch.result;
+    }
+
+    private void submitTransaction(final Batch batch) {
+        WriteTransaction trans;
+        try {
+            trans = getChain().newWriteOnlyTransaction();
+        } catch (IllegalStateException e) {
+            // The chain failed and its listener wasn't called yet. Its
+            // batches are submitted again first, so they stay before this one
+            LOG.warn("submitTransaction: creating a new transaction chain: {}", e.getMessage());
+            TransactionChain<?, ?> failedChain = chain;
+            chain = null;
+            resubmitBatches(failedChain, null);
+            trans = getChain().newWriteOnlyTransaction();
+        }
+        batch.chain = chain;
+        batch.transaction = trans;
+        batch.apply(trans);
+
+        Futures.addCallback(trans.submit(), new FutureCallback<Void>() {
+
+            @Override
+            public void onSuccess(Void result) {
+                synchronized (SfcOfTransactionChain.this) {
+                    if (pendingBatches.remove(batch)) {
+                        batch.committed = true;
+                        completedBatches.add(batch);
+                    }
+                }
+                // Called from submit() when the transaction is committed right away
+                if (!Thread.holdsLock(SfcOfTransactionChain.this)) {
+                    completeBatches();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // The chain fails too, see onTransactionChainFailed()
+                LOG.debug("submitTransaction: transaction failed: {}", t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Submit the pending batches of a failed chain again, in order, on the
+     * current chain.
+     *
+     * @param failedChain - the failed chain
+     * @param failedTransaction - the transaction that failed the chain, null if unknown
+     */
+    private void resubmitBatches(TransactionChain<?, ?> failedChain, AsyncTransaction<?, ?> failedTransaction) {
+        List<Batch> failedBatches = new ArrayList<Batch>();
+        for (Batch batch : pendingBatches) {
+            if (batch.chain == failedChain) {
+                failedBatches.add(batch);
+            }
+        }
+
+        LOG.info("resubmitBatches: submitting {} batches again", failedBatches.size());
+        for (Batch batch : failedBatches) {
+            if (closed) {
+                LOG.error("resubmitBatches: dropping a batch, the transaction chain is closed");
+            } else if (batch.transaction == failedTransaction && ++batch.failures > MAX_BATCH_RETRIES) {
+                LOG.error("resubmitBatches: dropping a batch after {} failures", batch.failures);
+            } else {
+                submitTransaction(batch);
+                continue;
+            }
+            pendingBatches.remove(batch);
+            completedBatches.add(batch);
+        }
+    }
+
+    /**
+     * Set the futures of the completed batches, without holding the monitor.
+     */
+    private void completeBatches() {
+        List<Batch> batches;
+        synchronized (this) {
+            if (completedBatches.isEmpty()) {
+                return;
+            }
+            batches = new ArrayList<Batch>(completedBatches);
+            completedBatches.clear();
+        }
+        for (Batch batch : batches) {
+            batch.result.set(batch.committed);
+        }
+    }
+
+    private BindingTransactionChain getChain() {
+        if (chain == null) {
+            chain = dataBroker.createTransactionChain(this);
+        }
+        return chain;
+    }
+
+    @Override
+    public void onTransactionChainFailed(TransactionChain<?, ?> failedChain,
+            AsyncTransaction<?, ?> transaction, Throwable cause) {
+        LOG.warn("onTransactionChainFailed: transaction chain failed: {}", cause.getMessage());
+        synchronized (this) {
+            if (failedChain == chain) {
+                chain = null;
+            }
+            try {
+                failedChain.close();
+            } catch (IllegalStateException e) {
+                LOG.debug("onTransactionChainFailed: failed to close the transaction chain: {}", e.getMessage());
+            }
+            resubmitBatches(failedChain, transaction);
+        }
+        completeBatches();
+    }
+
+    @Override
+    public void onTransactionChainSuccessful(TransactionChain<?, ?> closedChain) {
+        LOG.debug("onTransactionChainSuccessful: transaction chain closed");
+    }
+
+    /**
+     * Close the chain. The batches already submitted are still committed.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (chain != null) {
+            chain.close();
+            chain = null;
+        }
+    }
+}
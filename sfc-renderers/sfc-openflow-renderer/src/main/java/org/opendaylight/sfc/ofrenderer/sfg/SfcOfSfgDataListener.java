@@ -9,6 +9,9 @@
 package org.opendaylight.sfc.ofrenderer.sfg;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +46,8 @@ import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Objects;
+
 /**
  * This class has will be notified when changes are mad to Service function group.
  *
@@ -54,6 +59,11 @@ public class SfcOfSfgDataListener extends SfcOfAbstractDataListener {
 
     private SfcOfFlowProgrammerInterface sfcOfFlowProgrammer;
     private SfcOfBaseProviderUtils sfcOfProviderUtils;
+    // The group of each SFG, to only update the buckets of the
+    // SFs added to or removed from the SFG. Only used by the
+    // data change notification thread. It is only kept in memory,
+    // so after a restart the first update of a SFG builds its group again
+    private Map<String, RenderedGroup> renderedGroups = new HashMap<String, RenderedGroup>();
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfSfgDataListener.class);
 
@@ -89,7 +99,9 @@ public class SfcOfSfgDataListener extends SfcOfAbstractDataListener {
                 LOG.info("SfcOfSfgDataListener.onDataChanged Update SFG {}",
                         ((ServiceFunctionGroup) entry.getValue()).getName());
                 ServiceFunctionGroup sfg = (ServiceFunctionGroup) entry.getValue();
-                buildGroup(sfg, true);
+                DataObject originalSfg = change.getOriginalData().get(entry.getKey());
+                updateGroup(originalSfg instanceof ServiceFunctionGroup ? (ServiceFunctionGroup) originalSfg : null,
+                        sfg);
             }
         }
 
@@ -107,6 +119,7 @@ public class SfcOfSfgDataListener extends SfcOfAbstractDataListener {
     }
 
     private void buildGroup(ServiceFunctionGroup sfg, boolean isAdd) {
+        renderedGroups.remove(sfg.getName());
         try {
             List<SfcServiceFunction> sfs = sfg.getSfcServiceFunction();
             SfName sfName = new SfName(sfs.get(0).getName());
@@ -129,23 +142,110 @@ public class SfcOfSfgDataListener extends SfcOfAbstractDataListener {
 
             ServiceFunctionForwarder sff = SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(sffName);
 
+            RenderedGroup renderedGroup = new RenderedGroup(sffName, sffNodeId, sfg.getGroupId());
             int index = 0;
             for (SfcServiceFunction sfcServiceFunction : sfg.getSfcServiceFunction()) {
                 sfName = new SfName(sfcServiceFunction.getName());
                 sf = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
                 ServiceFunctionDictionary sffSfDict = sfcOfProviderUtils.getSffSfDictionary(sff, sfName);
                 String outPort = sfcOfProviderUtils.getDictPortInfoPort(sff, sffSfDict);
-                bucketsInfo.add(buildBucket(sf, outPort, index));
+                GroupBucketInfo bucketInfo = buildBucket(sf, outPort, index);
+                bucketsInfo.add(bucketInfo);
+                renderedGroup.buckets.put(sfName, bucketInfo);
                 index++;
             }
             this.sfcOfFlowProgrammer.configureGroup(sffName.getValue(), sffNodeId, sfg.getName(), sfg.getGroupId(),
                     algorithm.getAlgorithmType().getIntValue(), bucketsInfo, isAdd);
+            if (isAdd) {
+                renderedGroups.put(sfg.getName(), renderedGroup);
+            }
 
         } catch (Exception e) {
             LOG.warn("Failed generating group " + sfg, e);
         }
     }
 
+    /**
+     * Update the group of a SFG whose SFs changed. Only the buckets of the
+     * removed and added SFs are written, and only the added SFs are read,
+     * so the other SFs of the group keep their buckets. The group is built
+     * again if it was not built yet, if its id or algorithm changed, or if
+     * an added SF is on another SFF than the group.
+     * The next hop flows only refer to the group id, so they do not change.
+     */
+    private void updateGroup(ServiceFunctionGroup originalSfg, ServiceFunctionGroup sfg) {
+        RenderedGroup renderedGroup = renderedGroups.get(sfg.getName());
+        if (renderedGroup == null || originalSfg == null
+                || !Objects.equal(renderedGroup.groupId, sfg.getGroupId())
+                || !Objects.equal(originalSfg.getAlgorithm(), sfg.getAlgorithm())
+                || sfg.getSfcServiceFunction() == null || sfg.getSfcServiceFunction().isEmpty()) {
+            buildGroup(sfg, true);
+            return;
+        }
+
+        try {
+            Set<SfName> sfNames = new LinkedHashSet<SfName>();
+            for (SfcServiceFunction sfcServiceFunction : sfg.getSfcServiceFunction()) {
+                sfNames.add(sfcServiceFunction.getName());
+            }
+
+            List<GroupBucketInfo> bucketsToRemove = new ArrayList<GroupBucketInfo>();
+            Set<Integer> usedIndexes = new HashSet<Integer>();
+            for (Map.Entry<SfName, GroupBucketInfo> bucket : renderedGroup.buckets.entrySet()) {
+                if (sfNames.contains(bucket.getKey())) {
+                    usedIndexes.add(bucket.getValue().getIndex());
+                } else {
+                    bucketsToRemove.add(bucket.getValue());
+                }
+            }
+
+            // The added SFs take the lowest free bucket ids
+            Map<SfName, GroupBucketInfo> bucketsToAdd = new HashMap<SfName, GroupBucketInfo>();
+            ServiceFunctionForwarder sff = null;
+            int index = 0;
+            for (SfName sfName : sfNames) {
+                if (renderedGroup.buckets.containsKey(sfName)) {
+                    continue;
+                }
+                ServiceFunction sf = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
+                SffName sffName = sf.getSfDataPlaneLocator().get(0).getServiceFunctionForwarder();
+                if (!renderedGroup.sffName.equals(sffName)) {
+                    // The buckets of a group can only send to the SFs of its SFF
+                    LOG.debug("SfcOfSfgDataListener: SF {} of SFG {} is on SFF {}, building the group again",
+                            sfName, sfg.getName(), sffName);
+                    buildGroup(sfg, true);
+                    return;
+                }
+                if (sff == null) {
+                    sff = SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(renderedGroup.sffName);
+                }
+                ServiceFunctionDictionary sffSfDict = sfcOfProviderUtils.getSffSfDictionary(sff, sfName);
+                String outPort = sfcOfProviderUtils.getDictPortInfoPort(sff, sffSfDict);
+                while (usedIndexes.contains(index)) {
+                    index++;
+                }
+                usedIndexes.add(index);
+                bucketsToAdd.put(sfName, buildBucket(sf, outPort, index));
+            }
+
+            if (bucketsToAdd.isEmpty() && bucketsToRemove.isEmpty()) {
+                LOG.debug("SfcOfSfgDataListener: SFs of SFG {} unchanged", sfg.getName());
+                return;
+            }
+            LOG.debug("SfcOfSfgDataListener: SFG {} adding {} buckets, removing {} buckets", sfg.getName(),
+                    bucketsToAdd.size(), bucketsToRemove.size());
+
+            this.sfcOfFlowProgrammer.configureGroupBuckets(renderedGroup.sffName.getValue(), renderedGroup.sffNodeId,
+                    sfg.getGroupId(), new ArrayList<GroupBucketInfo>(bucketsToAdd.values()), bucketsToRemove);
+
+            renderedGroup.buckets.keySet().retainAll(sfNames);
+            renderedGroup.buckets.putAll(bucketsToAdd);
+
+        } catch (Exception e) {
+            LOG.warn("Failed updating group " + sfg, e);
+        }
+    }
+
     private GroupBucketInfo buildBucket(ServiceFunction sf, String outPort, int index) {
         GroupBucketInfo gbi = new GroupBucketInfo();
         gbi.setIndex(index);
@@ -193,4 +293,18 @@ public class SfcOfSfgDataListener extends SfcOfAbstractDataListener {
         ServiceFunctionForwarder sff = SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(sffName);
         return sfcOfProviderUtils.getSffOpenFlowNodeName(sff);
     }
+
+    private static class RenderedGroup {
+        private final SffName sffName;
+        private final String sffNodeId;
+        private final Long groupId;
+        // The bucket of each SF, by SF name
+        private final Map<SfName, GroupBucketInfo> buckets = new HashMap<SfName, GroupBucketInfo>();
+
+        RenderedGroup(SffName sffName, String sffNodeId, Long groupId) {
+            this.sffName = sffName;
+            this.sffNodeId = sffNodeId;
+            this.groupId = groupId;
+        }
+    }
 }
@@ -48,7 +48,8 @@ public class SfcIpv4PacketInHandlerTest {
         this.flowProgrammerMock = mock(SfcOfFlowProgrammerImpl.class);
         when(this.flowProgrammerMock.compareClassificationTableCookie((FlowCookie) anyObject())).thenReturn(true);
 
-        this.pktInHandler = new SfcIpv4PacketInHandler(this.flowProgrammerMock);
+        // The ACL flows are only written when the tests flush them
+        this.pktInHandler = new SfcIpv4PacketInHandler(this.flowProgrammerMock, 0);
     }
 
     @Test
@@ -60,11 +61,13 @@ public class SfcIpv4PacketInHandlerTest {
     @Test
     public void pktInFlowsCreated() throws Exception {
         this.pktInHandler.onPacketReceived(createPacket());
+        this.pktInHandler.flushAclFlows();
         this.pktInHandler.close();
 
         verify(this.flowProgrammerMock, times(2)).setFlowRspId(anyLong());
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
         verifyNoMoreInteractions(this.flowProgrammerMock);
     }
@@ -76,9 +79,11 @@ public class SfcIpv4PacketInHandlerTest {
         PacketReceived pkt = createPacket();
 
         this.pktInHandler.onPacketReceived(pkt);
+        this.pktInHandler.flushAclFlows();
         verify(this.flowProgrammerMock, times(2)).setFlowRspId(anyLong());
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
         verifyNoMoreInteractions(this.flowProgrammerMock);
 
@@ -97,9 +102,11 @@ public class SfcIpv4PacketInHandlerTest {
         PacketReceived pkt = createPacket();
 
         this.pktInHandler.onPacketReceived(pkt);
+        this.pktInHandler.flushAclFlows();
         verify(this.flowProgrammerMock, times(2)).setFlowRspId(anyLong());
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
         verifyNoMoreInteractions(this.flowProgrammerMock);
 
@@ -108,9 +115,11 @@ public class SfcIpv4PacketInHandlerTest {
         Thread.sleep(10); // sleep 10 milliseconds, to let the buffer time expire
         resetFlowProgrammerMock();
         this.pktInHandler.onPacketReceived(pkt);
+        this.pktInHandler.flushAclFlows();
         verify(this.flowProgrammerMock, times(2)).setFlowRspId(anyLong());
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
         verifyNoMoreInteractions(this.flowProgrammerMock);
     }
@@ -123,9 +132,11 @@ public class SfcIpv4PacketInHandlerTest {
 
         assertEquals(this.pktInHandler.getBufferSize(), 0);
         this.pktInHandler.onPacketReceived(pkt);
+        this.pktInHandler.flushAclFlows();
         verify(this.flowProgrammerMock, times(2)).setFlowRspId(anyLong());
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
         verifyNoMoreInteractions(this.flowProgrammerMock);
         assertEquals(this.pktInHandler.getBufferSize(), 1);
@@ -135,14 +146,41 @@ public class SfcIpv4PacketInHandlerTest {
         Thread.sleep(10); // sleep 10 milliseconds, to let the buffer time expire
         resetFlowProgrammerMock();
         this.pktInHandler.onPacketReceived(pkt);
+        this.pktInHandler.flushAclFlows();
         verify(this.flowProgrammerMock, times(2)).setFlowRspId(anyLong());
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
         verifyNoMoreInteractions(this.flowProgrammerMock);
         assertEquals(this.pktInHandler.getBufferSize(), 1);
     }
 
+    @Test
+    public void pktInSffRateExceeded() {
+        this.pktInHandler.setPacketCountPurge(1000);
+        this.pktInHandler.setSffPacketRate(0);
+        this.pktInHandler.setSffPacketBurst(1);
+        PacketReceived pkt = createPacket();
+
+        this.pktInHandler.onPacketReceived(pkt);
+        assertEquals(this.pktInHandler.getQueuedAclFlowCount(), 1);
+
+        // Setting the buffer time forgets the buffered packet. The SFF
+        // has no tokens left, so the packet is dropped and not buffered
+        this.pktInHandler.setMaxBufferTime(10000); // 10 seconds
+        this.pktInHandler.onPacketReceived(pkt);
+        assertEquals(this.pktInHandler.getDroppedPacketCount(), 1);
+        assertEquals(this.pktInHandler.getQueuedAclFlowCount(), 1);
+        assertEquals(this.pktInHandler.getBufferSize(), 0);
+
+        this.pktInHandler.flushAclFlows();
+        assertEquals(this.pktInHandler.getQueuedAclFlowCount(), 0);
+        verify(this.flowProgrammerMock, times(2)).
+            configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
+    }
+
     // When we want to reset the method call counters,
     // it also resets the stubs, so do both together
     private void resetFlowProgrammerMock() {
@@ -16,6 +16,7 @@ import static org.mockito.Mockito.mock;
 import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -105,13 +106,16 @@ public class SfcOfFlowProgrammerTest {
         this.flowBuilder = null;
         this.sfcOfFlowWriter = mock(SfcOfFlowWriterInterface.class);
         // Configure Mockito to store the FlowBuilder when writeFlowToConfig() is called
-        doAnswer(new Answer<Void>() {
+        Answer<Void> storeFlowBuilder = new Answer<Void>() {
             public Void answer(InvocationOnMock invocation) {
                 Object[] args = invocation.getArguments();
                 flowBuilder = (FlowBuilder) args[2];
                 return null;
             }
-        }).when(this.sfcOfFlowWriter).writeFlow(anyLong(), anyString(), (FlowBuilder) anyObject());
+        };
+        doAnswer(storeFlowBuilder).when(this.sfcOfFlowWriter).writeFlow(anyLong(), anyString(), (FlowBuilder) anyObject());
+        doAnswer(storeFlowBuilder).when(this.sfcOfFlowWriter).writeSharedFlow(anyLong(), anyString(),
+                (FlowBuilder) anyObject());
 
         // Configure Mockito to return the FlowBuilder stored by writeFlowToConfig()
         // when getFlowBuilder() is called
@@ -791,6 +795,34 @@ public class SfcOfFlowProgrammerTest {
         }
     }
 
+    /**
+     * Unit test to check that the flows built from templates are equal,
+     * can be modified independently, and follow the table base.
+     */
+    @Test
+    public void configureTableMatchAnyTemplate() {
+
+        sfcOfFlowProgrammer.configurePathMapperTableMatchAny(SFF_NAME);
+        FlowBuilder firstFlowBuilder = sfcOfFlowWriter.getFlowBuilder();
+        sfcOfFlowProgrammer.configurePathMapperTableMatchAny(SFF_NAME);
+        flowBuilder = sfcOfFlowWriter.getFlowBuilder();
+
+        assertNotSame(firstFlowBuilder, flowBuilder);
+        assertEquals(firstFlowBuilder.build(), flowBuilder.build());
+        firstFlowBuilder.setPriority(SfcOfFlowProgrammerImpl.FLOW_PRIORITY_NEXT_HOP);
+        assertEquals(flowBuilder.getPriority().intValue(), SfcOfFlowProgrammerImpl.FLOW_PRIORITY_MATCH_ANY);
+
+        sfcOfFlowProgrammer.setTableBase(TABLE_BASE);
+        sfcOfFlowProgrammer.configurePathMapperTableMatchAny(SFF_NAME);
+        flowBuilder = sfcOfFlowWriter.getFlowBuilder();
+
+        assertEquals(flowBuilder.getTableId().shortValue(), SfcOfFlowProgrammerImpl.TABLE_INDEX_PATH_MAPPER + TABLE_BASE);
+        for (org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.Instruction instruction : flowBuilder.getInstructions().getInstruction()) {
+            checkGoToTable(instruction.getInstruction(),
+                    (short) (SfcOfFlowProgrammerImpl.TABLE_INDEX_PATH_MAPPER_ACL + TABLE_BASE), true);
+        }
+    }
+
     /**
      * Unit test to check match and action fields from flows generated by:
      * {@link org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerImpl#configurePathMapperAclTableMatchAny(String)}
@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opendaylight.controller.md.sal.binding.api.BindingTransactionChain;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionChainListener;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfTransactionChain;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.sfc.util.openflow.SfcOpenflowUtils;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNodeBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Checks that the flows of each SFF are committed independently, and
+ * submitted again when the transaction chain fails.
+ */
+public class SfcOfFlowWriterImplTest {
+
+    private static final String SFF1_NAME = "openflow:1";
+    private static final String SFF2_NAME = "openflow:2";
+    private static final long RSP_ID = 1L;
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final short TABLE_ID = 0;
+    private static final int FLOW_PRIORITY = 10;
+
+    private SfcOfFlowWriterImpl sfcOfFlowWriter;
+    private DataBroker dataBroker;
+    private DataBroker savedDataBroker;
+    // Commits to SFF1 wait for this latch, in the background
+    private CountDownLatch sff1Latch;
+    private ListeningExecutorService sff1CommitExecutor;
+    // When set, the commits fail and count down the latch
+    private volatile boolean failCommits;
+    private CountDownLatch failedCommitLatch;
+    private volatile WriteTransaction failedWriteTx;
+    private TransactionChainListener chainListener;
+    private List<BindingTransactionChain> chains;
+    private List<String> committedSffNames;
+    private List<FlowKey> mergedFlowKeys;
+    private List<FlowKey> deletedFlowKeys;
+
+    @Before
+    public void before() {
+        OpendaylightSfc opendaylightSfc = new OpendaylightSfc();
+        savedDataBroker = opendaylightSfc.getDataProvider();
+        sff1Latch = new CountDownLatch(0);
+        sff1CommitExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+        failCommits = false;
+        failedCommitLatch = new CountDownLatch(1);
+        chains = Collections.synchronizedList(new ArrayList<BindingTransactionChain>());
+        committedSffNames = new ArrayList<String>();
+        mergedFlowKeys = Collections.synchronizedList(new ArrayList<FlowKey>());
+        deletedFlowKeys = Collections.synchronizedList(new ArrayList<FlowKey>());
+        dataBroker = mock(DataBroker.class);
+        when(dataBroker.createTransactionChain(any(TransactionChainListener.class))).thenAnswer(
+                new Answer<BindingTransactionChain>() {
+
+                    @Override
+                    public BindingTransactionChain answer(InvocationOnMock invocation) {
+                        chainListener = (TransactionChainListener) invocation.getArguments()[0];
+                        BindingTransactionChain chain = mock(BindingTransactionChain.class);
+                        when(chain.newWriteOnlyTransaction()).thenAnswer(new Answer<WriteTransaction>() {
+
+                            @Override
+                            public WriteTransaction answer(InvocationOnMock invocation) {
+                                return newWriteTransaction();
+                            }
+                        });
+                        chains.add(chain);
+                        return chain;
+                    }
+                });
+        opendaylightSfc.setDataProvider(dataBroker);
+        sfcOfFlowWriter = new SfcOfFlowWriterImpl();
+    }
+
+    @After
+    public void after() throws Exception {
+        sff1Latch.countDown();
+        sfcOfFlowWriter.shutdown();
+        sff1CommitExecutor.shutdown();
+        new OpendaylightSfc().setDataProvider(savedDataBroker);
+    }
+
+    @Test
+    public void testFlushFlowsPerSff() throws Exception {
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+
+        Map<String, ListenableFuture<Boolean>> sffFutures = sfcOfFlowWriter.flushFlows();
+
+        assertEquals("Must be equal", 2, sffFutures.size());
+        assertTrue("Must be true", sffFutures.get(SFF1_NAME).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Must be true", sffFutures.get(SFF2_NAME).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Must be true", sfcOfFlowWriter.flushFlows().isEmpty());
+    }
+
+    @Test
+    public void testBlockedSffDoesNotDelayOtherSff() throws Exception {
+        sff1Latch = new CountDownLatch(1);
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        Map<String, ListenableFuture<Boolean>> firstFutures = sfcOfFlowWriter.flushFlows();
+
+        sfcOfFlowWriter.removeFlow(SFF1_NAME, buildFlow(1).getKey(), new TableKey(TABLE_ID));
+        sfcOfFlowWriter.removeFlow(SFF2_NAME, buildFlow(1).getKey(), new TableKey(TABLE_ID));
+        Map<String, ListenableFuture<Boolean>> secondFutures = sfcOfFlowWriter.deleteFlowSet();
+
+        assertTrue("Must be true", firstFutures.get(SFF2_NAME).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Must be true", secondFutures.get(SFF2_NAME).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse("Must be false", firstFutures.get(SFF1_NAME).isDone());
+        assertFalse("Must be false", secondFutures.get(SFF1_NAME).isDone());
+
+        // The SFF1 tasks complete in submission order once unblocked
+        sff1Latch.countDown();
+        assertTrue("Must be true", secondFutures.get(SFF1_NAME).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue("Must be true", firstFutures.get(SFF1_NAME).isDone());
+        synchronized (committedSffNames) {
+            assertEquals("Must be equal", SFF1_NAME, committedSffNames.get(committedSffNames.size() - 1));
+        }
+    }
+
+    @Test
+    public void testFailedChainResubmitsPendingBatches() throws Exception {
+        failCommits = true;
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        FlowKey flowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        Map<String, ListenableFuture<Boolean>> sffFutures = sfcOfFlowWriter.flushFlows();
+        assertTrue("Must be true", failedCommitLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse("Must be false", sffFutures.get(SFF2_NAME).isDone());
+
+        // The batch is committed on a new chain
+        failCommits = false;
+        chainListener.onTransactionChainFailed(chains.get(0), failedWriteTx, new Exception("chain failed"));
+        waitFor(sffFutures);
+        assertEquals("Must be equal", 2, chains.size());
+        assertEquals("Must be equal", Arrays.asList(flowKey, flowKey), mergedFlowKeys);
+    }
+
+    @Test
+    public void testFailedChainBatchesStayInOrder() throws Exception {
+        failCommits = true;
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        FlowKey firstFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        Map<String, ListenableFuture<Boolean>> firstFutures = sfcOfFlowWriter.flushFlows();
+        assertTrue("Must be true", failedCommitLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // The chain failure is seen before its listener is called, the
+        // batch of the failed chain is submitted again before the new one
+        failCommits = false;
+        doThrow(new IllegalStateException("chain failed")).when(chains.get(0)).newWriteOnlyTransaction();
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(2));
+        FlowKey secondFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        Map<String, ListenableFuture<Boolean>> secondFutures = sfcOfFlowWriter.flushFlows();
+        waitFor(secondFutures);
+        waitFor(firstFutures);
+        assertEquals("Must be equal", Arrays.asList(firstFlowKey, firstFlowKey, secondFlowKey), mergedFlowKeys);
+
+        // The listener has nothing left to submit again
+        chainListener.onTransactionChainFailed(chains.get(0), failedWriteTx, new Exception("chain failed"));
+        assertEquals("Must be equal", 3, mergedFlowKeys.size());
+    }
+
+    @Test
+    public void testFailingBatchIsDropped() throws Exception {
+        failCommits = true;
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        Map<String, ListenableFuture<Boolean>> sffFutures = sfcOfFlowWriter.flushFlows();
+        assertTrue("Must be true", failedCommitLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        for (int i = 0; i < SfcOfTransactionChain.MAX_BATCH_RETRIES; i++) {
+            chainListener.onTransactionChainFailed(chains.get(i), failedWriteTx, new Exception("chain failed"));
+            assertFalse("Must be false", sffFutures.get(SFF2_NAME).isDone());
+        }
+        chainListener.onTransactionChainFailed(chains.get(SfcOfTransactionChain.MAX_BATCH_RETRIES), failedWriteTx,
+                new Exception("chain failed"));
+        assertFalse("Must be false", sffFutures.get(SFF2_NAME).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("Must be equal", SfcOfTransactionChain.MAX_BATCH_RETRIES + 1, mergedFlowKeys.size());
+    }
+
+    @Test
+    public void testUpdateRspFlowsWritesDifference() throws Exception {
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        FlowKey sff2FlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        waitFor(sfcOfFlowWriter.flushFlows());
+        mergedFlowKeys.clear();
+
+        // Flow 1 doesn't change, flow 2 changes, flow 3 is new and SFF2 is no longer used
+        sfcOfFlowWriter.updateRspFlows(RSP_ID);
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2).setCookie(new FlowCookie(BigInteger.TEN)));
+        FlowKey changedFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(3));
+        FlowKey newFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        Map<String, ListenableFuture<Boolean>> sffFutures = sfcOfFlowWriter.flushFlows();
+        waitFor(sffFutures);
+
+        assertEquals("Must be equal", 2, sffFutures.size());
+        assertEquals("Must be equal", 2, mergedFlowKeys.size());
+        assertTrue("Must be true", mergedFlowKeys.contains(changedFlowKey));
+        assertTrue("Must be true", mergedFlowKeys.contains(newFlowKey));
+        assertEquals("Must be equal", Collections.singletonList(sff2FlowKey), deletedFlowKeys);
+
+        // The updated flows are the ones deleted with the RSP
+        sfcOfFlowWriter.deleteRspFlows(RSP_ID);
+        waitFor(sfcOfFlowWriter.deleteFlowSet());
+        assertEquals("Must be equal", 4, deletedFlowKeys.size());
+    }
+
+    @Test
+    public void testUpdateRspFlowsKeepsUnchangedHops() throws Exception {
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(2));
+        waitFor(sfcOfFlowWriter.flushFlows());
+        mergedFlowKeys.clear();
+
+        // Only the hop on SFF2 changes
+        sfcOfFlowWriter.updateRspFlows(RSP_ID);
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(2).setCookie(new FlowCookie(BigInteger.TEN)));
+        FlowKey changedFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        Map<String, ListenableFuture<Boolean>> sffFutures = sfcOfFlowWriter.flushFlows();
+        waitFor(sffFutures);
+
+        // SFF1 is not written to at all
+        assertEquals("Must be equal", Collections.singleton(SFF2_NAME), sffFutures.keySet());
+        assertEquals("Must be equal", Collections.singletonList(changedFlowKey), mergedFlowKeys);
+        assertTrue("Must be true", deletedFlowKeys.isEmpty());
+
+        // An update without any change writes nothing
+        mergedFlowKeys.clear();
+        sfcOfFlowWriter.updateRspFlows(RSP_ID);
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(2).setCookie(new FlowCookie(BigInteger.TEN)));
+        assertTrue("Must be true", sfcOfFlowWriter.flushFlows().isEmpty());
+
+        // The RSP still owns the flows of the unchanged hop
+        sfcOfFlowWriter.deleteRspFlows(RSP_ID);
+        waitFor(sfcOfFlowWriter.deleteFlowSet());
+        assertEquals("Must be equal", 4, deletedFlowKeys.size());
+    }
+
+    @Test
+    public void testPurgeFlowsCancelsUpdate() throws Exception {
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        waitFor(sfcOfFlowWriter.flushFlows());
+
+        sfcOfFlowWriter.updateRspFlows(RSP_ID);
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        sfcOfFlowWriter.purgeFlows();
+
+        // The RSP still owns the flow written before the update
+        sfcOfFlowWriter.deleteRspFlows(RSP_ID);
+        waitFor(sfcOfFlowWriter.deleteFlowSet());
+        assertEquals("Must be equal", Collections.singletonList(
+                SfcOpenflowUtils.setFlowId(buildFlow(1), RSP_ID).getKey()), deletedFlowKeys);
+    }
+
+    @Test
+    public void testFlowsBufferedPerThread() throws Exception {
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+
+        // Another RSP rendered concurrently only flushes its own flows
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Map<String, ListenableFuture<Boolean>> otherSffFutures =
+                executor.submit(new Callable<Map<String, ListenableFuture<Boolean>>>() {
+
+                    @Override
+                    public Map<String, ListenableFuture<Boolean>> call() {
+                        sfcOfFlowWriter.writeFlow(RSP_ID + 1, SFF2_NAME, buildFlow(1));
+                        return sfcOfFlowWriter.flushFlows();
+                    }
+                }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        executor.shutdown();
+        waitFor(otherSffFutures);
+
+        assertEquals("Must be equal", Collections.singleton(SFF2_NAME), otherSffFutures.keySet());
+        assertEquals("Must be equal", Collections.singleton(SFF1_NAME), sfcOfFlowWriter.flushFlows().keySet());
+    }
+
+    @Test
+    public void testSharedFlowsWrittenOnce() throws Exception {
+        sfcOfFlowWriter.writeSharedFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        FlowKey sharedFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(2));
+        FlowKey rspFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        waitFor(sfcOfFlowWriter.flushFlows());
+        assertEquals("Must be equal", 2, mergedFlowKeys.size());
+        assertTrue("Must be true", mergedFlowKeys.contains(sharedFlowKey));
+
+        // Another RSP using the same flow doesn't write it again
+        mergedFlowKeys.clear();
+        sfcOfFlowWriter.writeSharedFlow(RSP_ID + 1, SFF1_NAME, buildFlow(1));
+        waitFor(sfcOfFlowWriter.flushFlows());
+        assertTrue("Must be true", mergedFlowKeys.isEmpty());
+
+        // The shared flow is deleted with the last RSP using it
+        sfcOfFlowWriter.deleteRspFlows(RSP_ID);
+        waitFor(sfcOfFlowWriter.deleteFlowSet());
+        assertEquals("Must be equal", Collections.singletonList(rspFlowKey), deletedFlowKeys);
+        sfcOfFlowWriter.deleteRspFlows(RSP_ID + 1);
+        waitFor(sfcOfFlowWriter.deleteFlowSet());
+        assertEquals("Must be equal", Arrays.asList(rspFlowKey, sharedFlowKey), deletedFlowKeys);
+    }
+
+    @Test
+    public void testReconcileFlowsWritesDifference() throws Exception {
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        waitFor(sfcOfFlowWriter.flushFlows());
+        mergedFlowKeys.clear();
+
+        // SFF1 has flow 1 as expected, the stale flow 2, and flow 3 which is not a SFC flow
+        Flow flow3 = SfcOpenflowUtils.setFlowId(buildFlow(3), RSP_ID).build();
+        setOperationalFlows(SfcOpenflowUtils.setFlowId(buildFlow(1), RSP_ID).build(),
+                SfcOpenflowUtils.setFlowId(buildFlow(2), RSP_ID).build(), flow3);
+        FlowKey staleFlowKey = SfcOpenflowUtils.setFlowId(buildFlow(2), RSP_ID).getKey();
+
+        sfcOfFlowWriter.startReconciliation(Collections.singleton(SFF1_NAME));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(1));
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF1_NAME, buildFlow(4));
+        FlowKey missingFlowKey = sfcOfFlowWriter.getFlowBuilder().getKey();
+        // Flows of other SFFs are not written while reconciling
+        sfcOfFlowWriter.writeFlow(RSP_ID, SFF2_NAME, buildFlow(1));
+        assertTrue("Must be true", sfcOfFlowWriter.flushFlows().isEmpty());
+
+        final FlowCookie otherCookie = flow3.getCookie();
+        Map<String, ListenableFuture<Boolean>> sffFutures = sfcOfFlowWriter.reconcileFlows(new Predicate<Flow>() {
+
+            @Override
+            public boolean apply(Flow flow) {
+                return !otherCookie.equals(flow.getCookie());
+            }
+        });
+        waitFor(sffFutures);
+
+        assertEquals("Must be equal", Collections.singleton(SFF1_NAME), sffFutures.keySet());
+        assertEquals("Must be equal", Collections.singletonList(missingFlowKey), mergedFlowKeys);
+        assertEquals("Must be equal", Collections.singletonList(staleFlowKey), deletedFlowKeys);
+
+        // The reconciled flows are the ones deleted with the RSP
+        sfcOfFlowWriter.deleteRspFlows(RSP_ID);
+        waitFor(sfcOfFlowWriter.deleteFlowSet());
+        assertEquals("Must be equal", 3, deletedFlowKeys.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setOperationalFlows(Flow... flows) {
+        Table table = new TableBuilder().setKey(new TableKey(TABLE_ID)).setId(TABLE_ID)
+                .setFlow(Arrays.asList(flows)).build();
+        ReadOnlyTransaction readTx = mock(ReadOnlyTransaction.class);
+        doReturn(Futures.immediateCheckedFuture(Optional.of(
+                new FlowCapableNodeBuilder().setTable(Collections.singletonList(table)).build())))
+                .when(readTx).read(eq(LogicalDatastoreType.OPERATIONAL), any(InstanceIdentifier.class));
+        when(dataBroker.newReadOnlyTransaction()).thenReturn(readTx);
+    }
+
+    private static void waitFor(Map<String, ListenableFuture<Boolean>> sffFutures) throws Exception {
+        for (ListenableFuture<Boolean> sffFuture : sffFutures.values()) {
+            assertTrue("Must be true", sffFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    private static FlowBuilder buildFlow(int flowIndex) {
+        return SfcOpenflowUtils.createFlowBuilder(TABLE_ID, FLOW_PRIORITY + flowIndex, BigInteger.valueOf(flowIndex),
+                "flow-" + flowIndex, new MatchBuilder(), new InstructionsBuilder());
+    }
+
+    @SuppressWarnings("unchecked")
+    private WriteTransaction newWriteTransaction() {
+        final WriteTransaction writeTx = mock(WriteTransaction.class);
+        final List<String> sffNames = new ArrayList<String>();
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                InstanceIdentifier<?> iid = (InstanceIdentifier<?>) invocation.getArguments()[1];
+                sffNames.add(iid.firstKeyOf(Node.class, NodeKey.class).getId().getValue());
+                mergedFlowKeys.add(iid.firstKeyOf(Flow.class, FlowKey.class));
+                return null;
+            }
+        }).when(writeTx).merge(eq(LogicalDatastoreType.CONFIGURATION), any(InstanceIdentifier.class),
+                any(Flow.class), anyBoolean());
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                InstanceIdentifier<?> iid = (InstanceIdentifier<?>) invocation.getArguments()[1];
+                sffNames.add(iid.firstKeyOf(Node.class, NodeKey.class).getId().getValue());
+                deletedFlowKeys.add(iid.firstKeyOf(Flow.class, FlowKey.class));
+                return null;
+            }
+        }).when(writeTx).delete(eq(LogicalDatastoreType.CONFIGURATION), any(InstanceIdentifier.class));
+        when(writeTx.submit()).thenAnswer(new Answer<CheckedFuture<Void, TransactionCommitFailedException>>() {
+
+            @Override
+            public CheckedFuture<Void, TransactionCommitFailedException> answer(InvocationOnMock invocation) {
+                if (failCommits) {
+                    failedWriteTx = writeTx;
+                    failedCommitLatch.countDown();
+                    return Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("commit failed"));
+                }
+                if (!sffNames.contains(SFF1_NAME)) {
+                    commit(sffNames);
+                    return Futures.immediateCheckedFuture(null);
+                }
+                ListenableFuture<Void> commitFuture = sff1CommitExecutor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws InterruptedException {
+                        sff1Latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        commit(sffNames);
+                        return null;
+                    }
+                });
+                return Futures.makeChecked(commitFuture, new Function<Exception, TransactionCommitFailedException>() {
+
+                    @Override
+                    public TransactionCommitFailedException apply(Exception e) {
+                        return new TransactionCommitFailedException("commit failed", e);
+                    }
+                });
+            }
+        });
+        return writeTx;
+    }
+
+    private void commit(List<String> sffNames) {
+        synchronized (committedSffNames) {
+            committedSffNames.addAll(sffNames);
+        }
+    }
+}
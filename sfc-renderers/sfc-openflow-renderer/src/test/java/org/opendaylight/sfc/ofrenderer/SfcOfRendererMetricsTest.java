@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcIpv4PacketInHandler;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererMetrics;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererMetrics.LatencyHistogram;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRendererMetrics.LatencyStats;
+
+/**
+ * Checks the latency summaries of the renderer statistics.
+ */
+public class SfcOfRendererMetricsTest {
+
+    @Test
+    public void testLatencyStats() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyStats stats = histogram.getStats();
+        assertEquals("Must be equal", 100, stats.getCount());
+        assertEquals("Must be equal", 50, stats.getMeanMicros());
+        // The percentiles are the upper bounds of their power of 2 buckets
+        assertEquals("Must be equal", 63, stats.getP50Micros());
+        assertEquals("Must be equal", 100, stats.getP99Micros());
+        assertEquals("Must be equal", 100, stats.getMaxMicros());
+
+        histogram.reset();
+        assertEquals("Must be equal", 0, histogram.getStats().getCount());
+    }
+
+    @Test
+    public void testPacketInCounts() {
+        SfcOfRendererMetrics metrics = SfcOfRendererMetrics.getInstance();
+        assertEquals("Must be equal", 0, metrics.getPktInsDropped());
+
+        SfcIpv4PacketInHandler packetInHandler = mock(SfcIpv4PacketInHandler.class);
+        when(packetInHandler.getDroppedPacketCount()).thenReturn(5L);
+        when(packetInHandler.getQueuedAclFlowCount()).thenReturn(2);
+        metrics.setPacketInHandler(packetInHandler);
+        try {
+            assertEquals("Must be equal", 5, metrics.getPktInsDropped());
+            assertEquals("Must be equal", 2, metrics.getAclFlowsQueued());
+        } finally {
+            metrics.setPacketInHandler(null);
+        }
+        assertEquals("Must be equal", 0, metrics.getAclFlowsQueued());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRspFlowStore;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfRspFlowStore.RspFlows;
+
+/**
+ * Checks that the RSP flows survive reopening the store file.
+ */
+public class SfcOfRspFlowStoreTest {
+
+    private static final String SFF1_NAME = "openflow:1";
+    private static final String SFF2_NAME = "openflow:2";
+    private static final long RSP1_ID = 1L;
+    private static final long RSP2_ID = 2L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File storeFile;
+    private SfcOfRspFlowStore store;
+
+    @Before
+    public void before() throws Exception {
+        storeFile = new File(temporaryFolder.getRoot(), "rsp-flows");
+        store = new SfcOfRspFlowStore(storeFile);
+    }
+
+    @After
+    public void after() {
+        store.close();
+    }
+
+    @Test
+    public void testFlowsPersisted() throws Exception {
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 1, -5L, 10L);
+        store.addFlow(RSP1_ID, SFF2_NAME, (short) 2, 6L, 11L);
+        store.addFlow(RSP2_ID, SFF1_NAME, (short) 3, 7L, 12L);
+        store.removeRsp(RSP2_ID);
+        store.close();
+
+        store = new SfcOfRspFlowStore(storeFile);
+        assertEquals("Must be equal", 1, store.getRspCount());
+        assertNull("Must be null", store.getRsp(RSP2_ID));
+        RspFlows rspFlows = store.getRsp(RSP1_ID);
+        assertEquals("Must be equal", 2, rspFlows.size());
+        assertEquals("Must be equal", SFF1_NAME, rspFlows.getSffNodeName(0));
+        assertEquals("Must be equal", 1, rspFlows.getTableId(0));
+        assertEquals("Must be equal", -5L, rspFlows.getFlowId(0));
+        assertEquals("Must be equal", 10L, rspFlows.getContentHash(0));
+        assertEquals("Must be equal", SFF2_NAME, rspFlows.getSffNodeName(1));
+        assertEquals("Must be equal", 6L, rspFlows.getFlowId(1));
+    }
+
+    @Test
+    public void testRemoveSffFlows() throws Exception {
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 1, 5L, 10L);
+        store.addFlow(RSP1_ID, SFF2_NAME, (short) 2, 6L, 11L);
+        store.addFlow(RSP2_ID, SFF1_NAME, (short) 3, 7L, 12L);
+        store.removeSffFlows(Collections.singleton(SFF1_NAME));
+        store.addFlow(RSP2_ID, SFF2_NAME, (short) 4, 8L, 13L);
+        store.close();
+
+        store = new SfcOfRspFlowStore(storeFile);
+        assertEquals("Must be equal", 2, store.getRspCount());
+        assertEquals("Must be equal", 1, store.getRsp(RSP1_ID).size());
+        assertEquals("Must be equal", 6L, store.getRsp(RSP1_ID).getFlowId(0));
+        assertEquals("Must be equal", 1, store.getRsp(RSP2_ID).size());
+        assertEquals("Must be equal", 8L, store.getRsp(RSP2_ID).getFlowId(0));
+    }
+
+    @Test
+    public void testFlowReplaced() throws Exception {
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 1, 5L, 10L);
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 1, 5L, 11L);
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 1, 5L, 11L);
+        // Same flow id on another table is another flow
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 2, 5L, 12L);
+        assertEquals("Must be equal", 2, store.getRsp(RSP1_ID).size());
+        store.close();
+
+        store = new SfcOfRspFlowStore(storeFile);
+        RspFlows rspFlows = store.getRsp(RSP1_ID);
+        assertEquals("Must be equal", 2, rspFlows.size());
+        assertEquals("Must be equal", 11L, rspFlows.getContentHash(0));
+        assertEquals("Must be equal", 12L, rspFlows.getContentHash(1));
+    }
+
+    @Test
+    public void testRemoveStaleRsps() throws Exception {
+        store.addFlow(RSP1_ID, SFF1_NAME, (short) 1, 5L, 10L);
+        store.addFlow(RSP2_ID, SFF1_NAME, (short) 1, 6L, 11L);
+        // Only the RSPs loaded from the file can be stale
+        assertTrue("Must be true", store.removeStaleRsps(Collections.<Long>emptySet()).isEmpty());
+        store.close();
+
+        store = new SfcOfRspFlowStore(storeFile);
+        Map<Long, RspFlows> staleRspFlows = store.removeStaleRsps(Collections.singleton(RSP1_ID));
+        assertEquals("Must be equal", Collections.singleton(RSP2_ID), staleRspFlows.keySet());
+        assertEquals("Must be equal", 6L, staleRspFlows.get(RSP2_ID).getFlowId(0));
+        assertEquals("Must be equal", 1, store.getRspCount());
+        // Only the first call removes RSPs
+        assertTrue("Must be true", store.removeStaleRsps(Collections.<Long>emptySet()).isEmpty());
+        store.close();
+
+        store = new SfcOfRspFlowStore(storeFile);
+        assertEquals("Must be equal", 1, store.getRspCount());
+        assertNull("Must be null", store.getRsp(RSP2_ID));
+    }
+}
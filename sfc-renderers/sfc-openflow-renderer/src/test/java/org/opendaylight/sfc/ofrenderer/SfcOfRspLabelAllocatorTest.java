@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opendaylight.sfc.ofrenderer.SfcOfRspLabelAllocator.LabelSpace;
+
+/**
+ * Checks that the RSP label slots are unique and survive reopening the allocator file.
+ */
+public class SfcOfRspLabelAllocatorTest {
+
+    private static final long RSP1_ID = 1L;
+    private static final long RSP2_ID = 2L;
+    private static final long RSP3_ID = 3L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File allocatorFile;
+    private SfcOfRspLabelAllocator allocator;
+
+    @Before
+    public void before() throws Exception {
+        allocatorFile = new File(temporaryFolder.getRoot(), "rsp-labels");
+        allocator = new SfcOfRspLabelAllocator(allocatorFile);
+    }
+
+    @After
+    public void after() {
+        allocator.close();
+    }
+
+    @Test
+    public void testSlotsPersisted() throws Exception {
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.VLAN_ID, RSP1_ID));
+        assertEquals("Must be equal", 1, allocator.allocate(LabelSpace.VLAN_ID, RSP2_ID));
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.MPLS_LABEL, RSP3_ID));
+        // A RSP keeps its slot
+        assertEquals("Must be equal", 1, allocator.allocate(LabelSpace.VLAN_ID, RSP2_ID));
+        allocator.free(RSP1_ID);
+        allocator.close();
+
+        allocator = new SfcOfRspLabelAllocator(allocatorFile);
+        assertEquals("Must be equal", 2, allocator.getRspCount());
+        assertEquals("Must be equal", 1, allocator.allocate(LabelSpace.VLAN_ID, RSP2_ID));
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.MPLS_LABEL, RSP3_ID));
+        // The freed slot is reused
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.VLAN_ID, RSP1_ID));
+    }
+
+    @Test
+    public void testTransportChanged() throws Exception {
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.VLAN_ID, RSP1_ID));
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.MPLS_LABEL, RSP1_ID));
+        // The VLAN slot was freed
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.VLAN_ID, RSP2_ID));
+        assertEquals("Must be equal", 2, allocator.getRspCount());
+    }
+
+    @Test
+    public void testSlotsExhausted() throws Exception {
+        for (int i = 0; i < LabelSpace.VLAN_ID.getSlots(); i++) {
+            assertEquals("Must be equal", i, allocator.allocate(LabelSpace.VLAN_ID, i));
+        }
+        try {
+            allocator.allocate(LabelSpace.VLAN_ID, LabelSpace.VLAN_ID.getSlots());
+            fail("Must throw IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected, no label is shared
+        }
+        allocator.free(RSP2_ID);
+        assertEquals("Must be equal", RSP2_ID,
+                allocator.allocate(LabelSpace.VLAN_ID, LabelSpace.VLAN_ID.getSlots()));
+    }
+
+    @Test
+    public void testStaleRspsFreed() throws Exception {
+        allocator.allocate(LabelSpace.VLAN_ID, RSP1_ID);
+        allocator.allocate(LabelSpace.VLAN_ID, RSP2_ID);
+        allocator.close();
+
+        allocator = new SfcOfRspLabelAllocator(allocatorFile);
+        // RSP3 is created before the stale RSPs are freed
+        assertEquals("Must be equal", 2, allocator.allocate(LabelSpace.VLAN_ID, RSP3_ID));
+        allocator.freeStaleRsps(Collections.singleton(RSP2_ID));
+        assertEquals("Must be equal", 2, allocator.getRspCount());
+        assertEquals("Must be equal", 0, allocator.allocate(LabelSpace.VLAN_ID, RSP1_ID));
+    }
+}
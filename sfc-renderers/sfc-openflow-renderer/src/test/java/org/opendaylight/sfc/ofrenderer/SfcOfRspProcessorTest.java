@@ -8,6 +8,7 @@
 
 package org.opendaylight.sfc.ofrenderer;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
@@ -22,11 +23,14 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerImpl;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterInterface;
@@ -118,10 +122,8 @@ public class SfcOfRspProcessorTest {
         // the RSP creation. As-is now, its pretty ugly to have all these
         // explicit values
 
-        // Notice: the SFF vlanIds are calculated in SfcRspProcessorVlan and are
-        // static, meaning the previous result will be remembered from previous
-        // runs and vlanIds are not recycled. So, the vlanIds seen in this test
-        // depend on if other Vlan Unit Tests are run before of after this one.
+        // Notice: the SFF vlanIds are calculated in SfcRspProcessorVlan from
+        // the path id and the hop, see testTransportLabelsStable()
 
         // Verify calls to configureVlanPathMapperFlow
         // the first 2 calls are SFF vlans
@@ -152,6 +154,7 @@ public class SfcOfRspProcessorTest {
                 "SFF_1", "00:00:00:00:00:07", "00:00:00:00:00:05", 3, "1", 0, false);
 
         // verify flow flushing
+        verify(this.flowProgrammerTestMoc).updateRspFlows(anyLong());
         verify(this.flowProgrammerTestMoc).flushFlows();
         verify(this.flowProgrammerTestMoc).purgeFlows();
 
@@ -211,6 +214,7 @@ public class SfcOfRspProcessorTest {
                 anyString(), anyLong(), anyString(), anyLong());
 
         // verify flow flushing
+        verify(this.flowProgrammerTestMoc).updateRspFlows(anyLong());
         verify(this.flowProgrammerTestMoc).flushFlows();
         verify(this.flowProgrammerTestMoc).purgeFlows();
 
@@ -218,6 +222,28 @@ public class SfcOfRspProcessorTest {
 
     }
 
+    @Test
+    public void testTransportLabelsStable() {
+        LOG.info("SfcOfRspProcessorTest testTransportLabelsStable");
+
+        // Rendering a RSP again, without its SffGraph, gives it the same labels
+        RenderedServicePath vlanRsp = rspBuilder.createRspFromSfTypes(this.sfTypes, Mac.class);
+        this.sfcOfRspProcessor.processRenderedServicePath(vlanRsp);
+        this.sfcOfRspProcessor.processRenderedServicePath(vlanRsp);
+        ArgumentCaptor<Integer> vlanIds = ArgumentCaptor.forClass(Integer.class);
+        verify(this.flowProgrammerTestMoc, times(2)).configureVlanPathMapperFlow(eq("SFF_1"), vlanIds.capture(),
+                eq(vlanRsp.getPathId()), eq(false));
+        assertEquals("Must be equal", vlanIds.getAllValues().get(0), vlanIds.getAllValues().get(1));
+
+        RenderedServicePath mplsRsp = rspBuilder.createRspFromSfTypes(this.sfTypes, Mpls.class);
+        this.sfcOfRspProcessor.processRenderedServicePath(mplsRsp);
+        this.sfcOfRspProcessor.processRenderedServicePath(mplsRsp);
+        ArgumentCaptor<Long> mplsLabels = ArgumentCaptor.forClass(Long.class);
+        verify(this.flowProgrammerTestMoc, times(2)).configureMplsPathMapperFlow(eq("SFF_1"), mplsLabels.capture(),
+                eq(mplsRsp.getPathId()), eq(false));
+        assertEquals("Must be equal", mplsLabels.getAllValues().get(0), mplsLabels.getAllValues().get(1));
+    }
+
     @Test
     public void testNshFlowCreation() {
         LOG.info("SfcOfRspProcessorTest testNshFlowCreation");
@@ -257,6 +283,7 @@ public class SfcOfRspProcessorTest {
                 eq("SFF_1"), anyLong(), anyShort(), anyString());
 
         // verify flow flushing
+        verify(this.flowProgrammerTestMoc).updateRspFlows(anyLong());
         verify(this.flowProgrammerTestMoc).flushFlows();
         verify(this.flowProgrammerTestMoc).purgeFlows();
 
@@ -299,12 +326,55 @@ public class SfcOfRspProcessorTest {
                 "SFF_0", 0, (short) 254, "192.168.0.2");
 
         // verify flow flushing
+        verify(this.flowProgrammerTestMoc).updateRspFlows(anyLong());
         verify(this.flowProgrammerTestMoc).flushFlows();
         verify(this.flowProgrammerTestMoc).purgeFlows();
 
         verifyNoMoreInteractions(this.flowProgrammerTestMoc);
     }
 
+    @Test
+    public void testNshFlowUpdate() {
+        LOG.info("SfcOfRspProcessorTest testNshFlowUpdate");
+
+        RenderedServicePath nshRsp = rspBuilder.createRspFromSfTypes(this.sfTypes, VxlanGpe.class);
+        this.sfcOfRspProcessor.processRenderedServicePath(nshRsp);
+        // A created RSP replaces the flows still stored for it, if any
+        verify(this.flowProgrammerTestMoc, times(1)).updateRspFlows(nshRsp.getPathId());
+
+        this.sfcOfRspProcessor.updateRenderedServicePath(nshRsp);
+
+        // The update renders the RSP flows again, to be diffed with the current ones
+        verify(this.flowProgrammerTestMoc, times(2)).updateRspFlows(nshRsp.getPathId());
+        verify(this.flowProgrammerTestMoc, times(2)).configureVxlanGpeTransportIngressFlow(eq("SFF_0"), anyLong(),
+                anyShort());
+        verify(this.flowProgrammerTestMoc, times(2)).flushFlows();
+        verify(this.flowProgrammerTestMoc, times(2)).purgeFlows();
+    }
+
+    @Test
+    public void testNshFlowReconciliation() {
+        LOG.info("SfcOfRspProcessorTest testNshFlowReconciliation");
+
+        RenderedServicePath nshRsp = rspBuilder.createRspFromSfTypes(this.sfTypes, VxlanGpe.class);
+        this.sfcOfRspProcessor.processRenderedServicePath(nshRsp);
+
+        Set<String> sffNodeNames = Collections.singleton("SFF_0");
+        this.sfcOfRspProcessor.reconcileSffs(sffNodeNames, Collections.singletonList(nshRsp));
+
+        // All the RSP flows are created again, to be compared with the inventory
+        verify(this.flowProgrammerTestMoc, times(1)).deleteStaleRspFlows(Collections.singleton(nshRsp.getPathId()));
+        verify(this.flowProgrammerTestMoc, times(1)).startReconciliation(sffNodeNames);
+        verify(this.flowProgrammerTestMoc, times(1)).reconcileFlows();
+        verify(this.flowProgrammerTestMoc, times(2)).configureClassifierTableMatchAny(eq("SFF_0"));
+        verify(this.flowProgrammerTestMoc, times(2)).configureVxlanGpeTransportIngressFlow(eq("SFF_1"), anyLong(),
+                anyShort());
+
+        // RSPs without a hop on the reconciled SFFs are not rendered again
+        this.sfcOfRspProcessor.reconcileSffs(Collections.singleton("SFF_X"), Collections.singletonList(nshRsp));
+        verify(this.flowProgrammerTestMoc, times(2)).configureClassifierTableMatchAny(eq("SFF_0"));
+    }
+
     @Test
     public void testVlanTcpProxyFlowCreation() {
         LOG.info("SfcOfRspProcessorTest testVlanTcpProxyFlowCreation");
@@ -359,6 +429,7 @@ public class SfcOfRspProcessorTest {
                 eq("SFF_1"), anyString(), anyString(), anyInt(), anyString(), anyLong(), eq(true));
 
         // verify flow flushing
+        verify(this.flowProgrammerTestMoc).updateRspFlows(anyLong());
         verify(this.flowProgrammerTestMoc).flushFlows();
         verify(this.flowProgrammerTestMoc).purgeFlows();
 
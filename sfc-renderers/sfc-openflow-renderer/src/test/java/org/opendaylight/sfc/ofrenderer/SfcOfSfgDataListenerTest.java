@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
+import org.opendaylight.sfc.ofrenderer.sfg.GroupBucketInfo;
+import org.opendaylight.sfc.ofrenderer.sfg.SfcOfSfgDataListener;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffDataPlaneLocatorName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SnName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocator;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.service.function.dictionary.SffSfDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.alg.rev150214.ServiceFunctionGroupAlgorithmEntry.AlgorithmType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.alg.rev150214.service.function.group.algorithms.ServiceFunctionGroupAlgorithmBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.alg.rev150214.service.function.group.algorithms.ServiceFunctionGroupAlgorithmKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.ServiceFunctionGroups;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.group.entry.SfcServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.group.entry.SfcServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.group.entry.SfcServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroup;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroupBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroupKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.VxlanGpe;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.Identifier;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.opendaylight.yangtools.yang.binding.KeyedInstanceIdentifier;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+
+public class SfcOfSfgDataListenerTest {
+
+    private static final String SFG_NAME = "sfg1";
+    private static final long SFG_ID = 100;
+    private static final SffName SFF_NAME = new SffName("sff1");
+    private static final SffName OTHER_SFF_NAME = new SffName("sff2");
+    private static final String SFF_NODE_ID = "openflow:1";
+    private static final SffDataPlaneLocatorName SFF_DPL_NAME = new SffDataPlaneLocatorName("sff1Dpl");
+
+    private DataBroker savedDataBroker;
+    private SfcOfFlowProgrammerInterface sfcOfFlowProgrammer;
+    private SfcOfSfgDataListener sfcOfSfgDataListener;
+    private RspBuilder rspBuilder;
+    // The configuration data store contents, by list key
+    private Map<Identifier<?>, DataObject> configData;
+
+    @Before
+    public void before() {
+        OpendaylightSfc opendaylightSfc = new OpendaylightSfc();
+        savedDataBroker = opendaylightSfc.getDataProvider();
+        configData = new HashMap<Identifier<?>, DataObject>();
+
+        ReadOnlyTransaction readTx = mock(ReadOnlyTransaction.class);
+        doAnswer(new Answer<Object>() {
+
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                InstanceIdentifier<?> iid = (InstanceIdentifier<?>) invocation.getArguments()[1];
+                DataObject dataObject = null;
+                if (iid instanceof KeyedInstanceIdentifier) {
+                    dataObject = configData.get(((KeyedInstanceIdentifier<?, ?>) iid).getKey());
+                }
+                return Futures.immediateCheckedFuture(Optional.fromNullable(dataObject));
+            }
+        }).when(readTx).read(eq(LogicalDatastoreType.CONFIGURATION), any(InstanceIdentifier.class));
+        DataBroker dataBroker = mock(DataBroker.class);
+        when(dataBroker.newReadOnlyTransaction()).thenReturn(readTx);
+        opendaylightSfc.setDataProvider(dataBroker);
+
+        SfcOfProviderUtilsTestMock sfcUtilsTestMock = new SfcOfProviderUtilsTestMock();
+        rspBuilder = new RspBuilder(sfcUtilsTestMock);
+        sfcOfFlowProgrammer = mock(SfcOfFlowProgrammerInterface.class);
+        sfcOfSfgDataListener = new SfcOfSfgDataListener(dataBroker, sfcOfFlowProgrammer, sfcUtilsTestMock);
+
+        for (String sfName : new String[] {"sf1", "sf2", "sf3", "sf4"}) {
+            addServiceFunction(sfName, SFF_NAME);
+        }
+        addServiceFunction("sfOther", OTHER_SFF_NAME);
+        // sff1 has a port to all the SFs, so the group can also be built
+        // again with the SF of the other SFF
+        addServiceFunctionForwarder("sf1", "sf2", "sf3", "sf4", "sfOther");
+        addAlgorithm("select", 1);
+        addAlgorithm("all", 0);
+    }
+
+    @After
+    public void after() {
+        new OpendaylightSfc().setDataProvider(savedDataBroker);
+    }
+
+    private void addServiceFunction(String sfName, SffName sffName) {
+        ServiceFunction sf = rspBuilder.createServiceFunction(new SfName(sfName), sffName, new SftType("firewall"),
+                VxlanGpe.class);
+        configData.put(new ServiceFunctionKey(new SfName(sfName)), sf);
+    }
+
+    private void addServiceFunctionForwarder(String... sfNames) {
+        List<ServiceFunctionDictionary> sfDictList = new ArrayList<ServiceFunctionDictionary>();
+        for (String sfName : sfNames) {
+            SffSfDataPlaneLocatorBuilder sffSfDplBuilder = new SffSfDataPlaneLocatorBuilder();
+            sffSfDplBuilder.setSffDplName(SFF_DPL_NAME);
+            ServiceFunctionDictionaryBuilder sfDictBuilder = new ServiceFunctionDictionaryBuilder();
+            sfDictBuilder.setName(new SfName(sfName))
+                .setKey(new ServiceFunctionDictionaryKey(new SfName(sfName)))
+                .setSffSfDataPlaneLocator(sffSfDplBuilder.build());
+            sfDictList.add(sfDictBuilder.build());
+        }
+
+        ServiceFunctionForwarderBuilder sffBuilder = new ServiceFunctionForwarderBuilder();
+        sffBuilder.setName(SFF_NAME)
+            .setKey(new ServiceFunctionForwarderKey(SFF_NAME))
+            .setServiceNode(new SnName(SFF_NODE_ID))
+            .setSffDataPlaneLocator(Collections.<SffDataPlaneLocator>emptyList())
+            .setServiceFunctionDictionary(sfDictList);
+        configData.put(new ServiceFunctionForwarderKey(SFF_NAME), sffBuilder.build());
+    }
+
+    private void addAlgorithm(String algName, int algType) {
+        ServiceFunctionGroupAlgorithmBuilder algBuilder = new ServiceFunctionGroupAlgorithmBuilder();
+        algBuilder.setName(algName)
+            .setKey(new ServiceFunctionGroupAlgorithmKey(algName))
+            .setAlgorithmType(AlgorithmType.forValue(algType));
+        configData.put(new ServiceFunctionGroupAlgorithmKey(algName), algBuilder.build());
+    }
+
+    private ServiceFunctionGroup buildSfg(long groupId, String algName, String... sfNames) {
+        List<SfcServiceFunction> sfcServiceFunctions = new ArrayList<SfcServiceFunction>();
+        for (String sfName : sfNames) {
+            sfcServiceFunctions.add(new SfcServiceFunctionBuilder().setName(new SfName(sfName))
+                .setKey(new SfcServiceFunctionKey(new SfName(sfName)))
+                .build());
+        }
+
+        return new ServiceFunctionGroupBuilder().setName(SFG_NAME)
+            .setKey(new ServiceFunctionGroupKey(SFG_NAME))
+            .setGroupId(groupId)
+            .setAlgorithm(algName)
+            .setSfcServiceFunction(sfcServiceFunctions)
+            .build();
+    }
+
+    private InstanceIdentifier<ServiceFunctionGroup> getSfgIid() {
+        return InstanceIdentifier.builder(ServiceFunctionGroups.class)
+            .child(ServiceFunctionGroup.class, new ServiceFunctionGroupKey(SFG_NAME))
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> createChange(ServiceFunctionGroup originalSfg,
+            ServiceFunctionGroup sfg) {
+        Map<InstanceIdentifier<?>, DataObject> createdData = new HashMap<InstanceIdentifier<?>, DataObject>();
+        Map<InstanceIdentifier<?>, DataObject> updatedData = new HashMap<InstanceIdentifier<?>, DataObject>();
+        Map<InstanceIdentifier<?>, DataObject> originalData = new HashMap<InstanceIdentifier<?>, DataObject>();
+        if (originalSfg == null) {
+            createdData.put(getSfgIid(), sfg);
+        } else {
+            updatedData.put(getSfgIid(), sfg);
+            originalData.put(getSfgIid(), originalSfg);
+        }
+
+        AsyncDataChangeEvent<InstanceIdentifier<?>, DataObject> change = mock(AsyncDataChangeEvent.class);
+        when(change.getCreatedData()).thenReturn(createdData);
+        when(change.getUpdatedData()).thenReturn(updatedData);
+        when(change.getOriginalData()).thenReturn(originalData);
+        when(change.getRemovedPaths()).thenReturn(Collections.<InstanceIdentifier<?>>emptySet());
+
+        return change;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<GroupBucketInfo> verifyGroupConfigured(int groupType) {
+        ArgumentCaptor<List> buckets = ArgumentCaptor.forClass(List.class);
+        verify(sfcOfFlowProgrammer).configureGroup(eq(SFF_NAME.getValue()), eq(SFF_NODE_ID), eq(SFG_NAME),
+                anyLong(), eq(groupType), buckets.capture(), eq(true));
+        verify(sfcOfFlowProgrammer, never()).configureGroupBuckets(anyString(), anyString(), anyLong(),
+                any(List.class), any(List.class));
+        reset(sfcOfFlowProgrammer);
+        return buckets.getValue();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<List<GroupBucketInfo>> verifyBucketsConfigured() {
+        ArgumentCaptor<List> bucketsToAdd = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> bucketsToRemove = ArgumentCaptor.forClass(List.class);
+        verify(sfcOfFlowProgrammer).configureGroupBuckets(eq(SFF_NAME.getValue()), eq(SFF_NODE_ID), eq(SFG_ID),
+                bucketsToAdd.capture(), bucketsToRemove.capture());
+        verify(sfcOfFlowProgrammer, never()).configureGroup(anyString(), anyString(), anyString(), anyLong(),
+                anyInt(), any(List.class), eq(true));
+        reset(sfcOfFlowProgrammer);
+        List<List<GroupBucketInfo>> buckets = new ArrayList<List<GroupBucketInfo>>();
+        buckets.add(bucketsToAdd.getValue());
+        buckets.add(bucketsToRemove.getValue());
+        return buckets;
+    }
+
+    private ServiceFunctionGroup createSfg() {
+        ServiceFunctionGroup sfg = buildSfg(SFG_ID, "select", "sf1", "sf2", "sf3");
+        sfcOfSfgDataListener.onDataChanged(createChange(null, sfg));
+        List<GroupBucketInfo> buckets = verifyGroupConfigured(1);
+        assertEquals("Must be equal", 3, buckets.size());
+        for (int i = 0; i < buckets.size(); ++i) {
+            assertEquals("Must be equal", i, buckets.get(i).getIndex());
+        }
+        return sfg;
+    }
+
+    /*
+     * Removing a SF only removes its bucket
+     */
+    @Test
+    public void testRemoveSf() {
+        ServiceFunctionGroup sfg = createSfg();
+
+        ServiceFunctionGroup updatedSfg = buildSfg(SFG_ID, "select", "sf1", "sf3");
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, updatedSfg));
+        List<List<GroupBucketInfo>> buckets = verifyBucketsConfigured();
+        assertTrue("Must be true", buckets.get(0).isEmpty());
+        assertEquals("Must be equal", 1, buckets.get(1).size());
+        assertEquals("Must be equal", 1, buckets.get(1).get(0).getIndex());
+    }
+
+    /*
+     * Adding a SF only adds its bucket, which takes the lowest free index
+     */
+    @Test
+    public void testAddSfReusesFreedIndex() {
+        ServiceFunctionGroup sfg = createSfg();
+
+        ServiceFunctionGroup updatedSfg = buildSfg(SFG_ID, "select", "sf1", "sf3");
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, updatedSfg));
+        verifyBucketsConfigured();
+
+        sfg = updatedSfg;
+        updatedSfg = buildSfg(SFG_ID, "select", "sf1", "sf3", "sf4");
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, updatedSfg));
+        List<List<GroupBucketInfo>> buckets = verifyBucketsConfigured();
+        assertEquals("Must be equal", 1, buckets.get(0).size());
+        assertEquals("Must be equal", 1, buckets.get(0).get(0).getIndex());
+        assertTrue("Must be true", buckets.get(1).isEmpty());
+
+        sfg = updatedSfg;
+        updatedSfg = buildSfg(SFG_ID, "select", "sf1", "sf2", "sf3", "sf4");
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, updatedSfg));
+        buckets = verifyBucketsConfigured();
+        assertEquals("Must be equal", 1, buckets.get(0).size());
+        assertEquals("Must be equal", 3, buckets.get(0).get(0).getIndex());
+    }
+
+    /*
+     * An update that does not change the SFs writes nothing
+     */
+    @Test
+    public void testSfsUnchanged() {
+        ServiceFunctionGroup sfg = createSfg();
+
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, buildSfg(SFG_ID, "select", "sf1", "sf2", "sf3")));
+        verify(sfcOfFlowProgrammer, never()).configureGroup(anyString(), anyString(), anyString(), anyLong(),
+                anyInt(), any(List.class), eq(true));
+        verify(sfcOfFlowProgrammer, never()).configureGroupBuckets(anyString(), anyString(), anyLong(),
+                any(List.class), any(List.class));
+    }
+
+    /*
+     * The group is built again when its id changes
+     */
+    @Test
+    public void testGroupIdChanged() {
+        ServiceFunctionGroup sfg = createSfg();
+
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, buildSfg(SFG_ID + 1, "select", "sf1", "sf3")));
+        assertEquals("Must be equal", 2, verifyGroupConfigured(1).size());
+    }
+
+    /*
+     * The group is built again when its algorithm changes
+     */
+    @Test
+    public void testAlgorithmChanged() {
+        ServiceFunctionGroup sfg = createSfg();
+
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, buildSfg(SFG_ID, "all", "sf1", "sf2", "sf3")));
+        assertEquals("Must be equal", 3, verifyGroupConfigured(0).size());
+    }
+
+    /*
+     * The group is built again when an added SF is on another SFF
+     */
+    @Test
+    public void testAddSfOnOtherSff() {
+        ServiceFunctionGroup sfg = createSfg();
+
+        sfcOfSfgDataListener.onDataChanged(
+                createChange(sfg, buildSfg(SFG_ID, "select", "sf1", "sf2", "sf3", "sfOther")));
+        assertEquals("Must be equal", 4, verifyGroupConfigured(1).size());
+    }
+
+    /*
+     * The group is built again when it was not built by this listener, as
+     * after a restart
+     */
+    @Test
+    public void testUpdateNotRenderedGroup() {
+        ServiceFunctionGroup sfg = buildSfg(SFG_ID, "select", "sf1", "sf2");
+
+        sfcOfSfgDataListener.onDataChanged(createChange(sfg, buildSfg(SFG_ID, "select", "sf1", "sf2", "sf3")));
+        verify(sfcOfFlowProgrammer, times(1)).configureGroup(anyString(), anyString(), anyString(), anyLong(),
+                anyInt(), any(List.class), eq(true));
+    }
+}
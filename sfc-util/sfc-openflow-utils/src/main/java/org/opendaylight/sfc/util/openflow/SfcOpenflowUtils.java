@@ -10,7 +10,6 @@ package org.opendaylight.sfc.util.openflow;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -62,12 +61,16 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.ta
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowModFlags;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.OutputPortValues;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.Instructions;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.Match;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.ApplyActionsCase;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.ApplyActionsCaseBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.apply.actions._case.ApplyActionsBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.WriteMetadataCase;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.WriteMetadataCaseBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.WriteActionsCase;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.go.to.table._case.GoToTableBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.write.metadata._case.WriteMetadataBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.list.Instruction;
@@ -173,8 +176,13 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.openflowplugin.extension.ge
 import org.opendaylight.yang.gen.v1.urn.opendaylight.openflowplugin.extension.general.rev140714.general.extension.list.grouping.ExtensionList;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.openflowplugin.extension.general.rev140714.general.extension.list.grouping.ExtensionListBuilder;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.net.InetAddresses;
+import com.google.common.primitives.UnsignedLongs;
 
 public class SfcOpenflowUtils {
     public static final int ETHERTYPE_IPV4 = 0x0800;
@@ -193,15 +201,17 @@ public class SfcOpenflowUtils {
     public static final int ARP_REPLY = 2;
 
     private static final int COOKIE_BIGINT_INT_RADIX = 10;
-    private static AtomicLong flowIdInc = new AtomicLong();
+    private static final HashFunction FLOW_ID_HASH_FUNCTION = Hashing.murmur3_128();
 
+    /**
+     * Create a flow whose ID is derived from its table, priority and match,
+     * so building the same flow again, even after a restart, gives the same
+     * FlowKey and writing it again is an idempotent merge.
+     */
     public static FlowBuilder createFlowBuilder(
             final short table, final int priority, final BigInteger cookieValue,
             final String flowName, MatchBuilder match, InstructionsBuilder isb) {
         FlowBuilder flow = new FlowBuilder();
-        String idStr = String.valueOf(flowIdInc.getAndIncrement());
-        flow.setId(new FlowId(idStr));
-        flow.setKey(new FlowKey(new FlowId(idStr)));
         flow.setTableId(table);
         flow.setFlowName(flowName);
         flow.setCookie(new FlowCookie(cookieValue));
@@ -211,6 +221,7 @@ public class SfcOpenflowUtils {
         flow.setMatch(match.build());
         flow.setInstructions(isb.build());
         flow.setPriority(priority);
+        setFlowId(flow, null);
         flow.setHardTimeout(0);
         flow.setIdleTimeout(0);
         flow.setFlags(new FlowModFlags(false, false, false, false, false));
@@ -226,6 +237,149 @@ public class SfcOpenflowUtils {
         return createFlowBuilder(table, priority, new BigInteger("20", COOKIE_BIGINT_INT_RADIX), flowName, match, isb);
     }
 
+    /**
+     * Set the ID and key of a flow from its table, priority and match. Flows
+     * owned by a RSP also take the RSP id into account, so equal flows of
+     * different RSPs don't overwrite each other.
+     *
+     * @param flow the flow to set the ID of, its table, priority and match must be set
+     * @param rspId the id of the RSP the flow belongs to, null if none
+     * @return the flow
+     */
+    public static FlowBuilder setFlowId(FlowBuilder flow, final Long rspId) {
+        FlowId flowId = createFlowId(flow.getTableId(), flow.getPriority(), flow.getMatch(), rspId);
+        flow.setId(flowId);
+        flow.setKey(new FlowKey(flowId));
+        return flow;
+    }
+
+    /**
+     * Create a flow ID as the 64 bit hash of the flow table, priority,
+     * match and RSP id. Unlike their hashCode(), the hash of these
+     * doesn't change between JVM runs.
+     *
+     * @param table the flow table
+     * @param priority the flow priority, null if not set
+     * @param match the flow match, null if not set
+     * @param rspId the id of the RSP the flow belongs to, null if none
+     * @return the flow ID
+     */
+    public static FlowId createFlowId(final short table, final Integer priority, final Match match,
+            final Long rspId) {
+        Hasher hasher = FLOW_ID_HASH_FUNCTION.newHasher()
+                .putShort(table)
+                .putInt(priority == null ? 0 : priority)
+                .putLong(rspId == null ? -1 : rspId);
+        putMatch(hasher, match);
+        return new FlowId(UnsignedLongs.toString(hasher.hash().asLong()));
+    }
+
+    /**
+     * Create a 64 bit hash of the flow contents: its table, priority,
+     * cookie, timeouts, flags, match and instructions, hashed field by
+     * field in that order. Unlike the hash of the flow string form, which
+     * lists the augmentations in hash map order, it doesn't change between
+     * JVM runs, so it can be compared with a hash stored before a restart.
+     *
+     * @param flow the flow
+     * @return the hash of the flow contents
+     */
+    public static long createFlowContentHash(final Flow flow) {
+        Hasher hasher = FLOW_ID_HASH_FUNCTION.newHasher()
+                .putShort(flow.getTableId() == null ? -1 : flow.getTableId())
+                .putInt(flow.getPriority() == null ? 0 : flow.getPriority());
+        putField(hasher, "cookie", flow.getCookie());
+        putField(hasher, "idle-timeout", flow.getIdleTimeout());
+        putField(hasher, "hard-timeout", flow.getHardTimeout());
+        putField(hasher, "flags", flow.getFlags());
+        putMatch(hasher, flow.getMatch());
+        putInstructions(hasher, flow.getInstructions());
+        return hasher.hash().asLong();
+    }
+
+    /*
+     * Hash each match field by name, with the string form of its value. The
+     * match augmentations are not hashed as a whole, since their string form
+     * depends on the order of a hash map: only the extensions are, in order.
+     */
+    private static void putMatch(Hasher hasher, final Match match) {
+        if (match == null) {
+            return;
+        }
+        putField(hasher, "in-port", match.getInPort());
+        putField(hasher, "in-phy-port", match.getInPhyPort());
+        putField(hasher, "metadata", match.getMetadata());
+        putField(hasher, "tunnel", match.getTunnel());
+        putField(hasher, "ethernet-match", match.getEthernetMatch());
+        putField(hasher, "vlan-match", match.getVlanMatch());
+        putField(hasher, "ip-match", match.getIpMatch());
+        putField(hasher, "layer-3-match", match.getLayer3Match());
+        putField(hasher, "layer-4-match", match.getLayer4Match());
+        putField(hasher, "icmpv4-match", match.getIcmpv4Match());
+        putField(hasher, "icmpv6-match", match.getIcmpv6Match());
+        putField(hasher, "protocol-match-fields", match.getProtocolMatchFields());
+        putField(hasher, "tcp-flag-match", match.getTcpFlagMatch());
+
+        GeneralAugMatchNodesNodeTableFlow generalAugmentation =
+                match.getAugmentation(GeneralAugMatchNodesNodeTableFlow.class);
+        if (generalAugmentation == null || generalAugmentation.getExtensionList() == null) {
+            return;
+        }
+        for (ExtensionList extension : generalAugmentation.getExtensionList()) {
+            Object extensionValue = extension.getExtension();
+            if (extension.getExtension() != null
+                    && extension.getExtension().getAugmentation(NxAugMatchNodesNodeTableFlow.class) != null) {
+                extensionValue = extension.getExtension().getAugmentation(NxAugMatchNodesNodeTableFlow.class);
+            }
+            putField(hasher, extension.getExtensionKey().getName(), extensionValue);
+        }
+    }
+
+    /*
+     * Hash the instructions and their actions in list order, each one with
+     * its order and the string form of its choice case.
+     */
+    private static void putInstructions(Hasher hasher, final Instructions instructions) {
+        if (instructions == null || instructions.getInstruction() == null) {
+            return;
+        }
+        for (Instruction instruction : instructions.getInstruction()) {
+            putField(hasher, "instruction", instruction.getOrder());
+            if (instruction.getInstruction() instanceof ApplyActionsCase) {
+                ApplyActionsCase applyActions = (ApplyActionsCase) instruction.getInstruction();
+                if (applyActions.getApplyActions() != null) {
+                    putActions(hasher, "apply-actions", applyActions.getApplyActions().getAction());
+                }
+            } else if (instruction.getInstruction() instanceof WriteActionsCase) {
+                WriteActionsCase writeActions = (WriteActionsCase) instruction.getInstruction();
+                if (writeActions.getWriteActions() != null) {
+                    putActions(hasher, "write-actions", writeActions.getWriteActions().getAction());
+                }
+            } else {
+                putField(hasher, "instruction-case", instruction.getInstruction());
+            }
+        }
+    }
+
+    private static void putActions(Hasher hasher, final String fieldName, final List<Action> actions) {
+        if (actions == null) {
+            return;
+        }
+        hasher.putString(fieldName, Charsets.UTF_8).putInt(actions.size());
+        for (Action action : actions) {
+            putField(hasher, "action", action.getOrder());
+            putField(hasher, "action-case", action.getAction());
+        }
+    }
+
+    private static void putField(Hasher hasher, final String fieldName, final Object fieldValue) {
+        if (fieldValue == null) {
+            return;
+        }
+        hasher.putString(fieldName, Charsets.UTF_8)
+                .putString(String.valueOf(fieldValue), Charsets.UTF_8);
+    }
+
 
     //
     // Add Match methods
@@ -8,6 +8,7 @@
 
 package org.opendaylight.sfc.util.openflow;
 
+import java.math.BigInteger;
 import java.util.Random;
 
 import junitparams.JUnitParamsRunner;
@@ -17,12 +18,16 @@ import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.Action;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026.match.VlanMatch;
 
 import static com.fasterxml.uuid.EthernetAddress.constructMulticastAddress;
 import static junitparams.JUnitParamsRunner.$;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionOutPort;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionPopVlan;
@@ -30,7 +35,15 @@ import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionPu
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionSetDlDst;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionSetDlSrc;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionSetVlanId;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.addMatchNshNsi;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.addMatchNshNsp;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.addMatchVlan;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionsInstructionBuilder;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createFlowBuilder;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createFlowContentHash;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createInstructionsBuilder;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createFlowId;
+import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.setFlowId;
 
 
 @RunWith(JUnitParamsRunner.class)
@@ -257,4 +270,68 @@ public class SfcOpenflowUtilsTest{
                 testAct.getImplementedInterface().getName());
     }
 
+    @Test
+    @Parameters(method = "addMatchVlanParams")
+    public void testCreateFlowBuilderFlowId(int vlan) {
+        MatchBuilder match = new MatchBuilder();
+        addMatchVlan(match, vlan);
+        FlowBuilder flow = createFlowBuilder((short) 1, 100, "flow", match, new InstructionsBuilder());
+        FlowBuilder sameFlow = createFlowBuilder((short) 1, 100, "sameFlow", match, new InstructionsBuilder());
+        FlowBuilder otherTableFlow = createFlowBuilder((short) 2, 100, "flow", match, new InstructionsBuilder());
+        FlowBuilder otherPriorityFlow = createFlowBuilder((short) 1, 200, "flow", match, new InstructionsBuilder());
+
+        assertEquals("Wrong flow key", flow.getId(), flow.getKey().getId());
+        assertEquals("Wrong flow id", flow.getId(), sameFlow.getId());
+        assertNotEquals("Wrong flow id", flow.getId(), otherTableFlow.getId());
+        assertNotEquals("Wrong flow id", flow.getId(), otherPriorityFlow.getId());
+
+        FlowId flowId = flow.getId();
+        setFlowId(flow, 1L);
+        setFlowId(sameFlow, 2L);
+        assertNotEquals("Wrong flow id", flowId, flow.getId());
+        assertNotEquals("Wrong flow id", flow.getId(), sameFlow.getId());
+        assertEquals("Wrong flow id", createFlowId((short) 1, 100, match.build(), 1L), flow.getId());
+    }
+
+    @Test
+    public void testCreateFlowIdNshMatch() {
+        MatchBuilder match = new MatchBuilder();
+        addMatchNshNsp(match, 1L);
+        addMatchNshNsi(match, (short) 255);
+        MatchBuilder sameMatch = new MatchBuilder();
+        addMatchNshNsp(sameMatch, 1L);
+        addMatchNshNsi(sameMatch, (short) 255);
+        MatchBuilder otherMatch = new MatchBuilder();
+        addMatchNshNsp(otherMatch, 1L);
+        addMatchNshNsi(otherMatch, (short) 254);
+
+        assertEquals("Wrong flow id", createFlowId((short) 1, 100, match.build(), null),
+                createFlowId((short) 1, 100, sameMatch.build(), null));
+        assertNotEquals("Wrong flow id", createFlowId((short) 1, 100, match.build(), null),
+                createFlowId((short) 1, 100, otherMatch.build(), null));
+    }
+
+    @Test
+    public void testCreateFlowContentHash() {
+        MatchBuilder match = new MatchBuilder();
+        addMatchNshNsp(match, 1L);
+        addMatchNshNsi(match, (short) 255);
+        BigInteger cookie = BigInteger.valueOf(20);
+        FlowBuilder flow = createFlowBuilder((short) 1, 100, cookie, "flow", match,
+                createInstructionsBuilder(createActionsInstructionBuilder(createActionOutPort(1, 0))));
+        FlowBuilder sameFlow = createFlowBuilder((short) 1, 100, cookie, "flow", match,
+                createInstructionsBuilder(createActionsInstructionBuilder(createActionOutPort(1, 0))));
+        FlowBuilder otherActionFlow = createFlowBuilder((short) 1, 100, cookie, "flow", match,
+                createInstructionsBuilder(createActionsInstructionBuilder(createActionOutPort(2, 0))));
+        FlowBuilder otherCookieFlow = createFlowBuilder((short) 1, 100, BigInteger.valueOf(21), "flow", match,
+                createInstructionsBuilder(createActionsInstructionBuilder(createActionOutPort(1, 0))));
+
+        assertEquals("Wrong content hash", createFlowContentHash(flow.build()),
+                createFlowContentHash(sameFlow.build()));
+        assertNotEquals("Wrong content hash", createFlowContentHash(flow.build()),
+                createFlowContentHash(otherActionFlow.build()));
+        assertNotEquals("Wrong content hash", createFlowContentHash(flow.build()),
+                createFlowContentHash(otherCookieFlow.build()));
+    }
+
 }